@@ -268,8 +268,7 @@ public class ComplexSingularAttributeMapper extends AttributeMapper
                                final Collection<Attribute> attributes)
       throws InvalidResourceException {
     final SCIMAttribute scimAttribute =
-        scimObject.getAttribute(getAttributeDescriptor().getSchema(),
-                                getAttributeDescriptor().getName());
+        scimObject.getAttribute(getAttributeDescriptor());
     if (scimAttribute != null)
     {
       final SCIMAttributeValue value = scimAttribute.getValue();
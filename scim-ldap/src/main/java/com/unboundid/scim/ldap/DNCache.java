@@ -0,0 +1,454 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.ldap;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.scim.wink.ResourceStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+
+/**
+ * This class provides a bounded cache of values keyed by DN that may be
+ * shared by concurrent requests. Values expire a fixed time after they are
+ * added. When the cache is full, the least recently used values are evicted
+ * first, using a "second chance" approximation of LRU so that lookups never
+ * need to take a lock.
+ *
+ * @param <V> The type of cached values.
+ */
+public class DNCache<V>
+{
+  /**
+   * The name of the statistic for the number of lookups that found a value.
+   */
+  public static final String STAT_HITS = "hits";
+
+  /**
+   * The name of the statistic for the number of lookups that did not find a
+   * value.
+   */
+  public static final String STAT_MISSES = "misses";
+
+  /**
+   * The name of the statistic for the number of values evicted to keep the
+   * cache within its maximum size.
+   */
+  public static final String STAT_EVICTIONS = "evictions";
+
+  /**
+   * The name of the statistic for the number of values that expired.
+   */
+  public static final String STAT_EXPIRATIONS = "expirations";
+
+  /**
+   * The name of the statistic for the number of values invalidated because
+   * the entry was modified.
+   */
+  public static final String STAT_INVALIDATIONS = "invalidations";
+
+  /**
+   * The name of the statistic for the current number of cached values.
+   */
+  public static final String STAT_SIZE = "size";
+
+  /**
+   * The name of the statistic for the percentage of lookups that found a
+   * value.
+   */
+  public static final String STAT_HIT_RATIO = "hit-ratio-percent";
+
+  /**
+   * A cached value.
+   *
+   * @param <V> The type of the cached value.
+   */
+  private static final class CachedValue<V>
+  {
+    private final DN dn;
+    private final V value;
+    private final long expirationTime;
+    private volatile boolean referenced;
+
+    /**
+     * Create a new cached value.
+     *
+     * @param dn              The DN of the cached value.
+     * @param value           The value to be cached.
+     * @param expirationTime  The time in milliseconds at which the value
+     *                        expires.
+     */
+    private CachedValue(final DN dn, final V value, final long expirationTime)
+    {
+      this.dn             = dn;
+      this.value          = value;
+      this.expirationTime = expirationTime;
+    }
+  }
+
+  /**
+   * The cached values.
+   */
+  private final ConcurrentHashMap<DN, CachedValue<V>> values;
+
+  /**
+   * The cached values in the order in which they are to be considered for
+   * eviction. This may also hold values that have since been removed from
+   * the cache, which are discarded when they reach the head of the queue.
+   */
+  private final ConcurrentLinkedQueue<CachedValue<V>> evictionQueue;
+
+  /**
+   * The number of values in the eviction queue.
+   */
+  private final AtomicInteger evictionQueueSize;
+
+  /**
+   * The maximum number of values to be cached.
+   */
+  private final int maxSize;
+
+  /**
+   * The length of time in milliseconds that values remain valid.
+   */
+  private final long timeToLiveMillis;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong expirations = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  /**
+   * The number of times any DN has been invalidated, whether or not a value
+   * was cached for it. This is used to detect a value that was read from the
+   * directory before the entry was modified, and which must not be cached.
+   */
+  private final AtomicLong invalidationCount = new AtomicLong();
+
+
+
+  /**
+   * Create a new cache.
+   *
+   * @param maxSize           The maximum number of values to be cached. This
+   *                          must be greater than zero.
+   * @param timeToLiveMillis  The length of time in milliseconds that values
+   *                          remain valid after they are added, or zero if
+   *                          values do not expire.
+   */
+  public DNCache(final int maxSize, final long timeToLiveMillis)
+  {
+    if (maxSize <= 0)
+    {
+      throw new IllegalArgumentException(
+          "The maximum cache size must be greater than zero");
+    }
+
+    this.maxSize           = maxSize;
+    this.timeToLiveMillis  = timeToLiveMillis;
+    this.values            = new ConcurrentHashMap<DN, CachedValue<V>>();
+    this.evictionQueue     = new ConcurrentLinkedQueue<CachedValue<V>>();
+    this.evictionQueueSize = new AtomicInteger();
+  }
+
+
+
+  /**
+   * Retrieve the cached value for the provided DN.
+   *
+   * @param dn  The DN of the value to be retrieved.
+   *
+   * @return  The cached value, or {@code null} if there is no valid value
+   *          cached for the DN.
+   */
+  public V get(final DN dn)
+  {
+    final CachedValue<V> cachedValue = values.get(dn);
+    if (cachedValue == null)
+    {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    if (isExpired(cachedValue, System.currentTimeMillis()))
+    {
+      if (values.remove(dn, cachedValue))
+      {
+        expirations.incrementAndGet();
+      }
+      misses.incrementAndGet();
+      return null;
+    }
+
+    cachedValue.referenced = true;
+    hits.incrementAndGet();
+    return cachedValue.value;
+  }
+
+
+
+  /**
+   * Add a value to the cache, replacing any value already cached for the DN.
+   *
+   * @param dn     The DN of the value to be cached.
+   * @param value  The value to be cached.
+   */
+  public void put(final DN dn, final V value)
+  {
+    final CachedValue<V> cachedValue = createCachedValue(dn, value);
+    values.put(dn, cachedValue);
+    addToEvictionQueue(cachedValue);
+  }
+
+
+
+  /**
+   * Retrieve a stamp to be obtained before a value is read from the
+   * directory, and provided when it is added to the cache, so that the value
+   * is not cached if the entry may have been modified in the meantime.
+   *
+   * @return  The current invalidation stamp.
+   */
+  public long getInvalidationStamp()
+  {
+    return invalidationCount.get();
+  }
+
+
+
+  /**
+   * Add a value to the cache, replacing any value already cached for the DN,
+   * unless any DN has been invalidated since the provided stamp was obtained.
+   * A value read from the directory while the entry was being modified
+   * would otherwise remain cached after the modification.
+   *
+   * @param dn                 The DN of the value to be cached.
+   * @param value              The value to be cached.
+   * @param invalidationStamp  The stamp obtained from
+   *                           {@link #getInvalidationStamp} before the value
+   *                           was read.
+   *
+   * @return  {@code true} if the value was added, or {@code false} if there
+   *          has been an invalidation since the stamp was obtained.
+   */
+  public boolean putIfNotInvalidatedSince(final DN dn, final V value,
+                                          final long invalidationStamp)
+  {
+    if (invalidationCount.get() != invalidationStamp)
+    {
+      return false;
+    }
+
+    final CachedValue<V> cachedValue = createCachedValue(dn, value);
+    values.put(dn, cachedValue);
+    if (invalidationCount.get() != invalidationStamp)
+    {
+      // An invalidation may have removed the DN before the value was added.
+      values.remove(dn, cachedValue);
+      return false;
+    }
+
+    addToEvictionQueue(cachedValue);
+    return true;
+  }
+
+
+
+  /**
+   * Remove any value cached for the provided DN.
+   *
+   * @param dn  The DN of the value to be removed.
+   */
+  public void invalidate(final DN dn)
+  {
+    // The count must be incremented before the value is removed, so that a
+    // concurrent putIfNotInvalidatedSince does not leave a stale value.
+    invalidationCount.incrementAndGet();
+    if (values.remove(dn) != null)
+    {
+      invalidations.incrementAndGet();
+    }
+  }
+
+
+
+  /**
+   * Remove all values from the cache.
+   */
+  public void clear()
+  {
+    values.clear();
+  }
+
+
+
+  /**
+   * Retrieve the current number of values in the cache, which may include
+   * values that have expired but have not yet been removed.
+   *
+   * @return  The current number of values in the cache.
+   */
+  public int size()
+  {
+    return values.size();
+  }
+
+
+
+  /**
+   * Retrieve a snapshot of the statistics for this cache.
+   *
+   * @param name  The name to give the statistics.
+   *
+   * @return  A snapshot of the statistics for this cache.
+   */
+  public ResourceStats getStats(final String name)
+  {
+    final long numHits = hits.get();
+    final long numMisses = misses.get();
+
+    final Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    stats.put(STAT_HITS, numHits);
+    stats.put(STAT_MISSES, numMisses);
+    stats.put(STAT_EVICTIONS, evictions.get());
+    stats.put(STAT_EXPIRATIONS, expirations.get());
+    stats.put(STAT_INVALIDATIONS, invalidations.get());
+    stats.put(STAT_SIZE, (long) values.size());
+    if (numHits + numMisses > 0)
+    {
+      stats.put(STAT_HIT_RATIO, (numHits * 100) / (numHits + numMisses));
+    }
+    else
+    {
+      stats.put(STAT_HIT_RATIO, 0L);
+    }
+
+    return new ResourceStats(name, stats);
+  }
+
+
+
+  /**
+   * Create a cached value that expires after the time to live.
+   *
+   * @param dn     The DN of the value to be cached.
+   * @param value  The value to be cached.
+   *
+   * @return  The cached value.
+   */
+  private CachedValue<V> createCachedValue(final DN dn, final V value)
+  {
+    final long expirationTime;
+    if (timeToLiveMillis > 0)
+    {
+      expirationTime = System.currentTimeMillis() + timeToLiveMillis;
+    }
+    else
+    {
+      expirationTime = Long.MAX_VALUE;
+    }
+
+    return new CachedValue<V>(dn, value, expirationTime);
+  }
+
+
+
+  /**
+   * Add a value that has been cached to the eviction queue, and evict values
+   * if the cache is now too large.
+   *
+   * @param cachedValue  The cached value.
+   */
+  private void addToEvictionQueue(final CachedValue<V> cachedValue)
+  {
+    evictionQueue.add(cachedValue);
+    evictionQueueSize.incrementAndGet();
+
+    evict();
+  }
+
+
+
+  /**
+   * Evict values until the cache is within its maximum size, and discard
+   * any stale entries from the eviction queue. A value that has been used
+   * since it was last considered is given a second chance by moving it to
+   * the back of the queue.
+   */
+  private void evict()
+  {
+    final long now = System.currentTimeMillis();
+    while (values.size() > maxSize ||
+           evictionQueueSize.get() > 2 * maxSize)
+    {
+      final CachedValue<V> cachedValue = evictionQueue.poll();
+      if (cachedValue == null)
+      {
+        return;
+      }
+      evictionQueueSize.decrementAndGet();
+
+      if (values.get(cachedValue.dn) != cachedValue)
+      {
+        // The value has since been replaced or removed.
+        continue;
+      }
+
+      if (isExpired(cachedValue, now))
+      {
+        if (values.remove(cachedValue.dn, cachedValue))
+        {
+          expirations.incrementAndGet();
+        }
+      }
+      else if (cachedValue.referenced || values.size() <= maxSize)
+      {
+        cachedValue.referenced = false;
+        evictionQueue.add(cachedValue);
+        evictionQueueSize.incrementAndGet();
+      }
+      else if (values.remove(cachedValue.dn, cachedValue))
+      {
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+
+
+  /**
+   * Indicates whether the provided cached value has expired.
+   *
+   * @param cachedValue  The cached value.
+   * @param now          The current time in milliseconds.
+   *
+   * @return  {@code true} if the value has expired.
+   */
+  private static boolean isExpired(final CachedValue<?> cachedValue,
+                                   final long now)
+  {
+    return now >= cachedValue.expirationTime;
+  }
+}
@@ -19,6 +19,7 @@ package com.unboundid.scim.ldap;
 
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.Control;
+import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.SearchResultEntry;
@@ -30,6 +31,7 @@ import com.unboundid.scim.sdk.SCIMAttribute;
 import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMFilter;
 import com.unboundid.scim.sdk.SCIMObject;
+import com.unboundid.scim.wink.ResourceStats;
 import org.w3c.dom.Element;
 
 import java.util.Collection;
@@ -210,6 +212,34 @@ public abstract class DerivedAttribute
 
 
 
+  /**
+   * Discard any data cached by this derived attribute across requests for
+   * the entry with the provided DN, because the entry has been modified or
+   * deleted.
+   *
+   * @param dn  The DN of the entry that has been modified or deleted.
+   */
+  public void invalidateCachedEntry(final DN dn)
+  {
+    // No cached data by default.
+  }
+
+
+
+  /**
+   * Retrieve the statistics for any data cached by this derived attribute
+   * across requests.
+   *
+   * @return  The cache statistics, or {@code null} if this derived attribute
+   *          does not cache data across requests.
+   */
+  public ResourceStats getCacheStats()
+  {
+    return null;
+  }
+
+
+
   /**
    * Derive a SCIM attribute value from the provided information.
    *
@@ -40,6 +40,7 @@ import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMFilter;
 import com.unboundid.scim.sdk.SCIMFilterType;
 import com.unboundid.scim.sdk.SCIMObject;
+import com.unboundid.scim.wink.ResourceStats;
 import com.unboundid.util.StaticUtils;
 
 import java.util.ArrayList;
@@ -66,6 +67,15 @@ import java.util.logging.Level;
  * The &lt;derivation&gt; element for this derived attribute accepts a special
  * child element, &lt;LDAPSearchRef idref="exampleSearchParams"/&gt;, which
  * specifies the LDAP search parameters to use when searching for Group entries.
+ * <p>
+ * When the isMemberOf attribute is used, group entries may also be cached
+ * across requests by setting the maxSharedGroupsCached argument. Cached group
+ * entries are shared by all clients, regardless of the credentials used to
+ * retrieve them, so this cache should only be enabled when all clients are
+ * permitted to read the same group entries. Cached entries are discarded when
+ * they are modified or deleted through this service, or when they expire
+ * after the number of seconds given by the sharedGroupsCacheTTLSeconds
+ * argument (300 by default; zero means they do not expire).
  */
 public class GroupsDerivedAttribute extends DerivedAttribute
 {
@@ -89,6 +99,27 @@ public class GroupsDerivedAttribute extends DerivedAttribute
    */
   private static final String MAX_GROUPS_CACHED = "maxGroupsCached";
 
+  /**
+   * The name of the argument that indicates whether to cache group entries
+   * across HTTP requests, and how many entries to cache. Values less than one
+   * will prevent shared group caching.
+   */
+  private static final String MAX_SHARED_GROUPS_CACHED =
+      "maxSharedGroupsCached";
+
+  /**
+   * The name of the argument that specifies how many seconds group entries
+   * remain in the shared group cache.
+   */
+  private static final String SHARED_GROUPS_CACHE_TTL_SECONDS =
+      "sharedGroupsCacheTTLSeconds";
+
+  /**
+   * The default number of seconds group entries remain in the shared group
+   * cache.
+   */
+  private static final long DEFAULT_SHARED_GROUPS_CACHE_TTL_SECONDS = 300L;
+
   /**
    * The name of the LDAP cn attribute.
    */
@@ -191,6 +222,12 @@ public class GroupsDerivedAttribute extends DerivedAttribute
    */
   private int groupsToCachePerRequest;
 
+  /**
+   * The group entries cached across requests, or {@code null} if group
+   * entries are not cached across requests.
+   */
+  private DNCache<SearchResultEntry> sharedGroupCache;
+
 
 
   @Override
@@ -269,19 +306,26 @@ public class GroupsDerivedAttribute extends DerivedAttribute
             {
               SearchRequest searchRequest;
               SearchResultEntry groupEntry = null;
-              Map<DN, SearchResultEntry> groupCache =
-                  GROUP_CACHES.get();
+              Map<DN, SearchResultEntry> groupCache = null;
               DN groupDN = new DN(dnString);
+              if (sharedGroupCache != null)
+              {
+                groupEntry = sharedGroupCache.get(groupDN);
+              }
               if (groupsToCachePerRequest > 0)
               {
+                groupCache = GROUP_CACHES.get();
                 if (groupCache == null)
                 {
                   groupCache = new LinkedHashMap<DN, SearchResultEntry>();
                   GROUP_CACHES.set(groupCache);
                 }
-                else
+                else if (groupEntry == null)
                 {
-                  groupEntry = groupCache.get(groupDN);
+                  synchronized (groupCache)
+                  {
+                    groupEntry = groupCache.get(groupDN);
+                  }
                 }
               }
 
@@ -294,19 +338,30 @@ public class GroupsDerivedAttribute extends DerivedAttribute
                         groupResolver.getFilterString(),
                         attrsToGet);
                 searchRequest.setSizeLimit(1);
+                final long invalidationStamp = sharedGroupCache != null ?
+                    sharedGroupCache.getInvalidationStamp() : 0L;
                 groupEntry = ldapInterface.searchForEntry(searchRequest);
 
-                if (groupEntry != null && groupCache != null)
+                if (groupEntry != null && sharedGroupCache != null)
                 {
-                  groupCache.put(groupDN, groupEntry);
+                  sharedGroupCache.putIfNotInvalidatedSince(
+                      groupDN, groupEntry, invalidationStamp);
+                }
 
-                  if (groupCache.size() > groupsToCachePerRequest)
+                if (groupEntry != null && groupCache != null)
+                {
+                  synchronized (groupCache)
                   {
-                    // We have cached too many groups for this request, so we
-                    // remove the oldest group from the cache.
-                    Iterator<DN> it = groupCache.keySet().iterator();
-                    it.next();
-                    it.remove();
+                    groupCache.put(groupDN, groupEntry);
+
+                    if (groupCache.size() > groupsToCachePerRequest)
+                    {
+                      // We have cached too many groups for this request, so
+                      // we remove the oldest group from the cache.
+                      Iterator<DN> it = groupCache.keySet().iterator();
+                      it.next();
+                      it.remove();
+                    }
                   }
                 }
               }
@@ -516,6 +571,72 @@ public class GroupsDerivedAttribute extends DerivedAttribute
         Debug.debugException(nfe);
       }
     }
+
+    int sharedGroupsToCache = 0;
+    o = getArguments().get(MAX_SHARED_GROUPS_CACHED);
+    if (o != null)
+    {
+      try
+      {
+        sharedGroupsToCache = Integer.valueOf(o.toString());
+      }
+      catch (NumberFormatException nfe)
+      {
+        Debug.debugException(nfe);
+      }
+    }
+
+    long sharedGroupsCacheTTLSeconds = DEFAULT_SHARED_GROUPS_CACHE_TTL_SECONDS;
+    o = getArguments().get(SHARED_GROUPS_CACHE_TTL_SECONDS);
+    if (o != null)
+    {
+      try
+      {
+        sharedGroupsCacheTTLSeconds = Long.valueOf(o.toString());
+      }
+      catch (NumberFormatException nfe)
+      {
+        Debug.debugException(nfe);
+      }
+    }
+
+    sharedGroupCache = null;
+    if (sharedGroupsToCache > 0)
+    {
+      sharedGroupCache = new DNCache<SearchResultEntry>(
+          sharedGroupsToCache,
+          Math.max(0L, sharedGroupsCacheTTLSeconds) * 1000L);
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void invalidateCachedEntry(final DN dn)
+  {
+    if (sharedGroupCache != null)
+    {
+      sharedGroupCache.invalidate(dn);
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ResourceStats getCacheStats()
+  {
+    if (sharedGroupCache == null)
+    {
+      return null;
+    }
+
+    return sharedGroupCache.getStats(descriptor.getName() + "-cache");
   }
 
 
@@ -698,6 +819,18 @@ public class GroupsDerivedAttribute extends DerivedAttribute
     return SCIMAttributeValue.createComplexValue(subAttributes);
   }
 
+  /**
+   * Specify the cache to be used by the current thread for the request it is
+   * processing. The cache may be shared with other threads processing the
+   * same request, so it must only be accessed while synchronized on it.
+   *
+   * @param groupCache  The cache to be used.
+   */
+  static void setRequestCache(final Map<DN, SearchResultEntry> groupCache)
+  {
+    GROUP_CACHES.set(groupCache);
+  }
+
   /**
    * Clear the cache.
    */
@@ -71,12 +71,14 @@ import com.unboundid.scim.sdk.SCIMAttribute;
 import com.unboundid.scim.sdk.PageParameters;
 import com.unboundid.scim.sdk.ServerErrorException;
 import com.unboundid.scim.sdk.SortParameters;
+import com.unboundid.scim.sdk.StreamingResources;
 import com.unboundid.scim.sdk.GetResourceRequest;
 import com.unboundid.scim.sdk.GetResourcesRequest;
 import com.unboundid.scim.sdk.PostResourceRequest;
 import com.unboundid.scim.sdk.DeleteResourceRequest;
 import com.unboundid.scim.sdk.PutResourceRequest;
 import com.unboundid.scim.sdk.UnsupportedOperationException;
+import com.unboundid.scim.wink.ResourceStats;
 import com.unboundid.util.StaticUtils;
 import com.unboundid.util.Validator;
 
@@ -93,6 +95,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 
 import static com.unboundid.scim.sdk.SCIMConstants.SCHEMA_URI_CORE;
@@ -151,6 +154,19 @@ public abstract class LDAPBackend
    */
   private String entityTagAttribute = null;
 
+  /**
+   * The executor used to convert search result entries into resources
+   * concurrently, or {@code null} if entries are converted as they are
+   * returned.
+   */
+  private volatile ExecutorService entryConversionExecutor = null;
+
+  /**
+   * The maximum number of search result entries from a single search that
+   * may be waiting to be converted into resources.
+   */
+  private volatile int maxPendingEntryConversions = 0;
+
   static
   {
     HashSet<String> attrs = new HashSet<String>(4);
@@ -330,6 +346,31 @@ public abstract class LDAPBackend
     return entityTagAttribute != null;
   }
 
+
+
+  /**
+   * Configures this LDAPBackend to convert the entries returned by query
+   * searches into resources concurrently using the provided executor, so that
+   * the LDAP lookups needed by derived attributes such as groups and manager
+   * overlap for the entries of a page rather than being performed one entry
+   * at a time. The resources are still returned in the order the entries were
+   * returned. The executor is owned by the caller, which is responsible for
+   * bounding its size and shutting it down.
+   *
+   * @param executor           The executor to use, or {@code null} to convert
+   *                           entries as they are returned.
+   * @param maxPendingEntries  The maximum number of entries from a single
+   *                           search that may be waiting to be converted.
+   *                           The search result listener waits for earlier
+   *                           entries to be converted when this is reached.
+   */
+  public void setEntryConversionExecutor(final ExecutorService executor,
+                                         final int maxPendingEntries)
+  {
+    this.maxPendingEntryConversions = Math.max(1, maxPendingEntries);
+    this.entryConversionExecutor = executor;
+  }
+
   /**
    * Retrieve an LDAP interface that may be used to interact with the LDAP
    * server.
@@ -491,29 +532,36 @@ public abstract class LDAPBackend
         final ResourceSearchResultListener resultListener =
             new ResourceSearchResultListener(this, request, ldapInterface,
                 maxResults);
+        final ExecutorService executor = entryConversionExecutor;
+        if (executor != null)
+        {
+          resultListener.setConversionExecutor(executor,
+              maxPendingEntryConversions);
+        }
 
-        Set<DN> searchBaseDNs = getSearchBaseDNs(request,
+        final Set<DN> searchBaseDNs = getSearchBaseDNs(request,
             resourceMapper, ldapInterface);
 
-        SearchScope searchScope = null;
+        final SearchScope searchScope;
         final Filter filter;
-        SearchRequest searchRequest;
+        final SearchRequest idSearchRequest;
         final String[] requestAttributes;
 
         if (isOptimizedIdSearch(scimFilter, resourceMapper))
         {
           requestAttributes = new String[requestAttributeSet.size()];
           requestAttributeSet.toArray(requestAttributes);
-          searchRequest =
+          idSearchRequest =
               new SearchRequest(resultListener, scimFilter.getFilterValue(),
                   SearchScope.BASE,
                   Filter.createPresenceFilter("objectclass"),
                   requestAttributes);
           filter = null;
+          searchScope = null;
         }
         else
         {
-          searchRequest = null;
+          idSearchRequest = null;
           try
           {
             // Map the SCIM filter to an LDAP filter.
@@ -541,185 +589,376 @@ public abstract class LDAPBackend
           searchScope = getSearchScope(request);
         }
 
-        SearchResult searchResult = null;
-        int startIndex = 1;
-        int workingStartIndex = 1;
-        int totalToReturn = maxResults;
-        int totalResults = 0;
-        boolean firstBaseDN = true;
+        // Map the sort parameters now so that invalid parameters are reported
+        // before any streamed response is started.
+        final Control sortControl = getSortControl(request, resourceMapper);
 
-        for (DN baseDN : searchBaseDNs)
+        if (getConfig().isStreamQueryResults())
         {
-          if (searchRequest == null)
+          return new StreamingResources<BaseResource>(
+              request.getResourceDescriptor())
           {
-            searchRequest = new SearchRequest(resultListener, baseDN.toString(),
-                searchScope, filter, requestAttributes);
-          }
-
-          final SortParameters sortParameters = request.getSortParameters();
-          if (sortParameters != null)
-          {
-            try
-            {
-              Control control = resourceMapper.toLDAPSortControl(
-                  sortParameters);
-              if (control != null)
-              {
-                searchRequest.addControl(control);
-              }
-            }
-            catch (InvalidResourceException ire)
+            @Override
+            protected void produceResources(
+                final ResourceHandler<BaseResource> handler)
+                throws SCIMException
             {
-              throw new InvalidResourceException("Invalid sort parameters: " +
-                  ire.getLocalizedMessage(), ire);
+              final Resources<BaseResource> resources =
+                  streamResources(request, resourceMapper, ldapInterface,
+                      resultListener, searchBaseDNs, idSearchRequest,
+                      searchScope, filter, requestAttributes, sortControl,
+                      maxResults, handler);
+              setTotalResults(resources.getTotalResults());
+              setStartIndex(resources.getStartIndex());
             }
-          }
+          };
+        }
 
-          final PageParameters pageParameters = request.getPageParameters();
-          int numLeftToReturn =
-              totalToReturn - resultListener.getTotalResults();
-          if (pageParameters != null)
-          {
+        return searchResources(request, resourceMapper, ldapInterface,
+            resultListener, searchBaseDNs, idSearchRequest, searchScope,
+            filter, requestAttributes, sortControl, maxResults);
+      }
+      catch (LDAPException e)
+      {
+        Debug.debugException(e);
+        throw ResourceMapper.toSCIMException(e);
+      }
+    }
+    finally
+    {
+      clearRequestCaches();
+    }
+  }
 
-            //Store the start index parameter to return in the final result and
-            //initialize workingStartIndex to startIndex
-            if (firstBaseDN)
-            {
-              startIndex = pageParameters.getStartIndex();
-              workingStartIndex = startIndex;
-            }
 
-            if (pageParameters.getCount() > 0)
-            {
-              totalToReturn = pageParameters.getCount();
-              numLeftToReturn = Math.min(totalToReturn, maxResults) -
-                  resultListener.getTotalResults();
-            }
 
-            //Use the VLV control to perform pagination if possible
-            if (supportsVLVRequestControl)
-            {
-              //We cannot set a size limit when using the VLV control; it will
-              //handle that internally.
-              searchRequest.setSizeLimit(0);
+  /**
+   * Perform the LDAP searches for a query request and provide each matching
+   * resource to a handler as it is retrieved, rather than collecting them.
+   * This is used when query results are streamed to the client.
+   *
+   * @param request            The request that is being processed.
+   * @param resourceMapper     The resource mapper for the request.
+   * @param ldapInterface      The LDAP interface for the request.
+   * @param resultListener     The listener receiving the search results.
+   * @param searchBaseDNs      The base DNs to be searched.
+   * @param idSearchRequest    The base search request to use for an optimized
+   *                           search by ID, or {@code null} if not applicable.
+   * @param searchScope        The scope of the searches.
+   * @param filter             The LDAP filter for the searches.
+   * @param requestAttributes  The LDAP attributes to request.
+   * @param sortControl        The sort control for the searches, or
+   *                           {@code null} if the results are not sorted.
+   * @param maxResults         The maximum number of resources to return.
+   * @param handler            The handler to receive the resources.
+   *
+   * @return  An empty resources response providing the totalResults and
+   *          startIndex values.
+   *
+   * @throws SCIMException  If an error occurs while searching for or handling
+   *                        the resources.
+   */
+  private Resources<BaseResource> streamResources(
+      final GetResourcesRequest request,
+      final ResourceMapper resourceMapper,
+      final LDAPRequestInterface ldapInterface,
+      final ResourceSearchResultListener resultListener,
+      final Set<DN> searchBaseDNs,
+      final SearchRequest idSearchRequest,
+      final SearchScope searchScope,
+      final Filter filter,
+      final String[] requestAttributes,
+      final Control sortControl,
+      final int maxResults,
+      final StreamingResources.ResourceHandler<BaseResource> handler)
+      throws SCIMException
+  {
+    // Only the requested page of resources may be returned, but the listener
+    // must continue to see all of the entries so that totalResults is counted
+    // in the same way as when the resources are collected.
+    final PageParameters pageParameters = request.getPageParameters();
+    final int resultLimit;
+    if (pageParameters != null && pageParameters.getCount() > 0)
+    {
+      resultLimit = Math.min(pageParameters.getCount(), maxResults);
+    }
+    else
+    {
+      resultLimit = maxResults;
+    }
 
-              searchRequest.addControl(new VirtualListViewRequestControl(
-                  workingStartIndex, 0, numLeftToReturn - 1, 0, null, true));
+    resultListener.setResourceHandler(
+        new StreamingResources.ResourceHandler<BaseResource>()
+        {
+          private int numReturned = 0;
 
-              //VLV requires a sort control
-              if (!searchRequest.hasControl(
-                  ServerSideSortRequestControl.SERVER_SIDE_SORT_REQUEST_OID))
-              {
-                searchRequest.addControl(
-                    new ServerSideSortRequestControl(
-                        new SortKey("uid"))); //TODO
-              }
-            }
-            else if (supportsSimplePagesResultsControl)
-            {
-              //Fall back to using the SimplePagedResults control (if available)
-              //This will essentially, only limit the number of entries returned
-              //since we are not propagating the cookie between searches.
-              searchRequest.addControl(
-                  new SimplePagedResultsControl(numLeftToReturn));
-            }
-            else
+          public void handleResource(final BaseResource resource)
+              throws SCIMException
+          {
+            if (numReturned < resultLimit)
             {
-              //If nothing else, fall back to just using the LDAP size limit
-              searchRequest.setSizeLimit(numLeftToReturn);
+              numReturned++;
+              handler.handleResource(resource);
             }
           }
-          else if (supportsSimplePagesResultsControl)
-          {
-            searchRequest.addControl(
-                new SimplePagedResultsControl(numLeftToReturn));
-          }
-          else
-          {
-            searchRequest.setSizeLimit(numLeftToReturn);
-          }
+        });
 
-          // Include any controls that are needed by derived attributes.
-          final List<Control> controls = new ArrayList<Control>();
-          resourceMapper.addSearchControls(controls, request.getAttributes());
-          searchRequest.addControls(
-              controls.toArray(new Control[controls.size()]));
+    try
+    {
+      final Resources<BaseResource> resources =
+          searchResources(request, resourceMapper, ldapInterface,
+              resultListener, searchBaseDNs, idSearchRequest, searchScope,
+              filter, requestAttributes, sortControl, maxResults);
+      if (resultListener.getHandlerException() != null)
+      {
+        throw resultListener.getHandlerException();
+      }
 
-          // Invoke the search operation.
-          try
-          {
-            searchResult = ldapInterface.search(searchRequest);
-          }
-          catch (LDAPSearchException e)
-          {
-            if (e.getResultCode().equals(ResultCode.SIZE_LIMIT_EXCEEDED))
-            {
-              searchResult = e.getSearchResult();
-              if (searchResult == null)
-              {
-                throw e;
-              }
-            }
-            else
-            {
-              throw e;
-            }
-          }
+      return resources;
+    }
+    catch (LDAPException e)
+    {
+      Debug.debugException(e);
+      throw ResourceMapper.toSCIMException(e);
+    }
+    finally
+    {
+      clearRequestCaches();
+    }
+  }
 
-          // When returning VLV responses, track the total results count across
-          // loops. This is handled by the resultListener for other searches.
-          final VirtualListViewResponseControl vlvResponseControl =
-                  getVLVResponseControl(searchResult);
-          final SimplePagedResultsControl simplePagedResultsResponseControl =
-                  SimplePagedResultsControl.get(searchResult);
 
-          if (vlvResponseControl != null)
-          {
-            totalResults += vlvResponseControl.getContentCount();
-          }
-          else if (simplePagedResultsResponseControl != null)
-          {
-            totalResults += simplePagedResultsResponseControl.getSize();
-          }
 
-          if (searchRequest.getScope() == SearchScope.BASE ||
-              resultListener.getTotalResults() >= totalToReturn)
-          {
-            break;
-          }
-          else
+  /**
+   * Perform the LDAP searches for a query request.
+   *
+   * @param request            The request that is being processed.
+   * @param resourceMapper     The resource mapper for the request.
+   * @param ldapInterface      The LDAP interface for the request.
+   * @param resultListener     The listener receiving the search results.
+   * @param searchBaseDNs      The base DNs to be searched.
+   * @param idSearchRequest    The base search request to use for an optimized
+   *                           search by ID, or {@code null} if not applicable.
+   * @param searchScope        The scope of the searches.
+   * @param filter             The LDAP filter for the searches.
+   * @param requestAttributes  The LDAP attributes to request.
+   * @param sortControl        The sort control for the searches, or
+   *                           {@code null} if the results are not sorted.
+   * @param maxResults         The maximum number of resources to return.
+   *
+   * @return  The resources collected by the result listener, which will be
+   *          empty if the listener was configured with a resource handler.
+   *
+   * @throws SCIMException  If the request is invalid.
+   * @throws LDAPException  If an error occurs while searching.
+   */
+  private Resources<BaseResource> searchResources(
+      final GetResourcesRequest request,
+      final ResourceMapper resourceMapper,
+      final LDAPRequestInterface ldapInterface,
+      final ResourceSearchResultListener resultListener,
+      final Set<DN> searchBaseDNs,
+      final SearchRequest idSearchRequest,
+      final SearchScope searchScope,
+      final Filter filter,
+      final String[] requestAttributes,
+      final Control sortControl,
+      final int maxResults)
+      throws SCIMException, LDAPException
+  {
+    SearchRequest searchRequest = idSearchRequest;
+    SearchResult searchResult = null;
+    int startIndex = 1;
+    int workingStartIndex = 1;
+    int totalToReturn = maxResults;
+    int totalResults = 0;
+    boolean firstBaseDN = true;
+
+    for (DN baseDN : searchBaseDNs)
+    {
+      if (searchRequest == null)
+      {
+        searchRequest = new SearchRequest(resultListener, baseDN.toString(),
+            searchScope, filter, requestAttributes);
+      }
+
+      if (sortControl != null)
+      {
+        searchRequest.addControl(sortControl);
+      }
+
+      final PageParameters pageParameters = request.getPageParameters();
+      int numLeftToReturn =
+          totalToReturn - resultListener.getTotalResults();
+      if (pageParameters != null)
+      {
+
+        //Store the start index parameter to return in the final result and
+        //initialize workingStartIndex to startIndex
+        if (firstBaseDN)
+        {
+          startIndex = pageParameters.getStartIndex();
+          workingStartIndex = startIndex;
+        }
+
+        if (pageParameters.getCount() > 0)
+        {
+          totalToReturn = pageParameters.getCount();
+          numLeftToReturn = Math.min(totalToReturn, maxResults) -
+              resultListener.getTotalResults();
+        }
+
+        //Use the VLV control to perform pagination if possible
+        if (supportsVLVRequestControl)
+        {
+          //We cannot set a size limit when using the VLV control; it will
+          //handle that internally.
+          searchRequest.setSizeLimit(0);
+
+          searchRequest.addControl(new VirtualListViewRequestControl(
+              workingStartIndex, 0, numLeftToReturn - 1, 0, null, true));
+
+          //VLV requires a sort control
+          if (!searchRequest.hasControl(
+              ServerSideSortRequestControl.SERVER_SIDE_SORT_REQUEST_OID))
           {
-            searchRequest = null;
+            searchRequest.addControl(
+                new ServerSideSortRequestControl(
+                    new SortKey("uid"))); //TODO
           }
+        }
+        else if (supportsSimplePagesResultsControl)
+        {
+          //Fall back to using the SimplePagedResults control (if available)
+          //This will essentially, only limit the number of entries returned
+          //since we are not propagating the cookie between searches.
+          searchRequest.addControl(
+              new SimplePagedResultsControl(numLeftToReturn));
+        }
+        else
+        {
+          //If nothing else, fall back to just using the LDAP size limit
+          searchRequest.setSizeLimit(numLeftToReturn);
+        }
+      }
+      else if (supportsSimplePagesResultsControl)
+      {
+        searchRequest.addControl(
+            new SimplePagedResultsControl(numLeftToReturn));
+      }
+      else
+      {
+        searchRequest.setSizeLimit(numLeftToReturn);
+      }
 
-          //Update the workingStartIndex value in order to avoid skipping
-          //too many search results in subsequent baseDN searches. Note that
-          //the minimum startIndex value for a search is 1.
-          workingStartIndex = Math.max(startIndex - totalResults, 1);
+      // Include any controls that are needed by derived attributes.
+      final List<Control> controls = new ArrayList<Control>();
+      resourceMapper.addSearchControls(controls, request.getAttributes());
+      searchRequest.addControls(
+          controls.toArray(new Control[controls.size()]));
 
-          firstBaseDN = false;
+      // Invoke the search operation.
+      try
+      {
+        searchResult = ldapInterface.search(searchRequest);
+      }
+      catch (LDAPSearchException e)
+      {
+        if (e.getResultCode().equals(ResultCode.SIZE_LIMIT_EXCEEDED))
+        {
+          searchResult = e.getSearchResult();
+          if (searchResult == null)
+          {
+            throw e;
+          }
         }
+        else
+        {
+          throw e;
+        }
+      }
+      finally
+      {
+        resultListener.awaitPendingResources();
+      }
 
-        // Prepare the response.
-        List<BaseResource> scimObjects = resultListener.getResources();
-
-        int toIdx = Math.min(scimObjects.size(), totalToReturn);
-        scimObjects = scimObjects.subList(0, toIdx);
+      // When returning VLV responses, track the total results count across
+      // loops. This is handled by the resultListener for other searches.
+      final VirtualListViewResponseControl vlvResponseControl =
+              getVLVResponseControl(searchResult);
+      final SimplePagedResultsControl simplePagedResultsResponseControl =
+              SimplePagedResultsControl.get(searchResult);
 
-        totalResults = Math.max(totalResults, resultListener.getTotalResults());
+      if (vlvResponseControl != null)
+      {
+        totalResults += vlvResponseControl.getContentCount();
+      }
+      else if (simplePagedResultsResponseControl != null)
+      {
+        totalResults += simplePagedResultsResponseControl.getSize();
+      }
 
-        return new Resources<BaseResource>(scimObjects,
-                totalResults, startIndex);
+      if (searchRequest.getScope() == SearchScope.BASE ||
+          resultListener.getTotalResults() >= totalToReturn)
+      {
+        break;
       }
-      catch (LDAPException e)
+      else
       {
-        Debug.debugException(e);
-        throw ResourceMapper.toSCIMException(e);
+        searchRequest = null;
       }
+
+      //Update the workingStartIndex value in order to avoid skipping
+      //too many search results in subsequent baseDN searches. Note that
+      //the minimum startIndex value for a search is 1.
+      workingStartIndex = Math.max(startIndex - totalResults, 1);
+
+      firstBaseDN = false;
     }
-    finally
+
+    // Prepare the response.
+    List<BaseResource> scimObjects = resultListener.getResources();
+
+    int toIdx = Math.min(scimObjects.size(), totalToReturn);
+    scimObjects = scimObjects.subList(0, toIdx);
+
+    totalResults = Math.max(totalResults, resultListener.getTotalResults());
+
+    return new Resources<BaseResource>(scimObjects,
+            totalResults, startIndex);
+  }
+
+
+
+  /**
+   * Map the sort parameters of a query request to an LDAP sort control.
+   *
+   * @param request         The request that is being processed.
+   * @param resourceMapper  The resource mapper for the request.
+   *
+   * @return  The sort control, or {@code null} if the request does not have
+   *          sort parameters.
+   *
+   * @throws SCIMException  If the sort parameters are invalid.
+   */
+  private Control getSortControl(final GetResourcesRequest request,
+                                 final ResourceMapper resourceMapper)
+      throws SCIMException
+  {
+    final SortParameters sortParameters = request.getSortParameters();
+    if (sortParameters == null)
     {
-      clearRequestCaches();
+      return null;
+    }
+
+    try
+    {
+      return resourceMapper.toLDAPSortControl(sortParameters);
+    }
+    catch (InvalidResourceException ire)
+    {
+      throw new InvalidResourceException("Invalid sort parameters: " +
+          ire.getLocalizedMessage(), ire);
     }
   }
 
@@ -896,6 +1135,7 @@ public abstract class LDAPBackend
       {
         throw new LDAPException(result.getResultCode());
       }
+      invalidateCachedEntry(entry.getParsedDN());
     }
     catch (LDAPException e)
     {
@@ -1086,6 +1326,7 @@ public abstract class LDAPBackend
             }
             final LDAPResult modifyDNResult =
                 ldapInterface.modifyDN(modifyDNRequest);
+            invalidateCachedEntry(currentEntry.getParsedDN());
             c = getPostReadResponseControl(modifyDNResult);
             // Since the assertion that the current wasn't changed since we
             // retrieved it is used with mod DN, we shouldn't use the assertion
@@ -1116,6 +1357,7 @@ public abstract class LDAPBackend
             }
 
             final LDAPResult modifyResult = ldapInterface.modify(modifyRequest);
+            invalidateCachedEntry(modifiedEntry.getParsedDN());
             c = getPostReadResponseControl(modifyResult);
           }
 
@@ -1353,6 +1595,7 @@ public abstract class LDAPBackend
             }
             final LDAPResult modifyDNResult =
                 ldapInterface.modifyDN(modifyDNRequest);
+            invalidateCachedEntry(currentEntry.getParsedDN());
             c = getPostReadResponseControl(modifyDNResult);
             // Since the assertion that the current wasn't changed since we
             // retrieved it is used with mod DN, we shouldn't use the assertion
@@ -1382,6 +1625,7 @@ public abstract class LDAPBackend
                   new PermissiveModifyRequestControl(true));
             }
             final LDAPResult modifyResult = ldapInterface.modify(modifyRequest);
+            invalidateCachedEntry(modifiedEntry.getParsedDN());
             c = getPostReadResponseControl(modifyResult);
           }
 
@@ -1455,6 +1699,25 @@ public abstract class LDAPBackend
 
 
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * This backend provides the statistics for any data cached across requests
+   * by derived attributes.
+   */
+  @Override
+  public Collection<ResourceStats> getBackendStats()
+  {
+    final List<ResourceStats> stats = new ArrayList<ResourceStats>();
+    for (final ResourceMapper mapper : resourceMappers.values())
+    {
+      mapper.addCacheStats(stats);
+    }
+    return stats;
+  }
+
+
+
   /**
    * Set the id and meta attributes in a SCIM object from the provided
    * information.
@@ -2037,10 +2300,28 @@ public abstract class LDAPBackend
   }
 
 
+  /**
+   * Discard any data cached across requests for the entry with the provided
+   * DN, because the entry has been modified or deleted. The entry may be
+   * cached by the derived attributes of any resource mapper, for example a
+   * group entry cached on behalf of User resources.
+   *
+   * @param dn  The DN of the entry that has been modified or deleted.
+   */
+  private void invalidateCachedEntry(final DN dn)
+  {
+    for (final ResourceMapper mapper : resourceMappers.values())
+    {
+      mapper.invalidateCachedEntry(dn);
+    }
+  }
+
+
+
   /**
    * Clears the per-request ThreadLocal caches.
    */
-  private static void clearRequestCaches()
+  static void clearRequestCaches()
   {
     GroupsDerivedAttribute.clearRequestCache();
     MembersDerivedAttribute.clearRequestCache();
@@ -40,6 +40,7 @@ import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMFilter;
 import com.unboundid.scim.sdk.SCIMFilterType;
 import com.unboundid.scim.sdk.SCIMObject;
+import com.unboundid.scim.wink.ResourceStats;
 import com.unboundid.util.StaticUtils;
 
 import java.util.ArrayList;
@@ -48,6 +49,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -65,6 +67,21 @@ import java.util.logging.Level;
  * The &lt;derivation&gt; element for this derived attribute accepts a special
  * child element, &lt;LDAPSearchRef idref="exampleSearchParams"/&gt;, which
  * specifies the LDAP search parameters to use when searching for group members.
+ * <p>
+ * The values for static group members may also be cached across requests by
+ * setting the maxSharedMembersCached argument, so that repeatedly retrieving
+ * large groups does not require a search for every member. Cached values are
+ * shared by all clients, regardless of the credentials used to retrieve them,
+ * so this cache should only be enabled when all clients are permitted to read
+ * the same member entries. Cached values are discarded when the member entry
+ * is modified or deleted through this service, or when they expire after the
+ * number of seconds given by the sharedMembersCacheTTLSeconds argument (300
+ * by default; zero means they do not expire).
+ * <p>
+ * Static group members are normally resolved with a separate search for each
+ * member. If the directory server supports the entryDN attribute, setting the
+ * memberBatchSize argument resolves that many members with each search
+ * instead, which greatly reduces the number of round trips for large groups.
  */
 public class MembersDerivedAttribute extends DerivedAttribute
 {
@@ -97,6 +114,39 @@ public class MembersDerivedAttribute extends DerivedAttribute
    */
   private static final String MAX_MEMBERS_CACHED = "maxMembersCached";
 
+  /**
+   * The name of the argument that indicates whether to cache member values
+   * across HTTP requests, and how many values to cache. Values less than one
+   * will prevent shared member caching.
+   */
+  private static final String MAX_SHARED_MEMBERS_CACHED =
+      "maxSharedMembersCached";
+
+  /**
+   * The name of the argument that specifies how many seconds member values
+   * remain in the shared member cache.
+   */
+  private static final String SHARED_MEMBERS_CACHE_TTL_SECONDS =
+      "sharedMembersCacheTTLSeconds";
+
+  /**
+   * The default number of seconds member values remain in the shared member
+   * cache.
+   */
+  private static final long DEFAULT_SHARED_MEMBERS_CACHE_TTL_SECONDS = 300L;
+
+  /**
+   * The name of the argument that indicates whether to resolve static group
+   * members in batches, and how many members to resolve with each search.
+   * Values less than one will resolve each member with a separate search.
+   */
+  private static final String MEMBER_BATCH_SIZE = "memberBatchSize";
+
+  /**
+   * The name of the LDAP entryDN attribute.
+   */
+  private static final String ATTR_ENTRY_DN = "entryDN";
+
   /**
    * The per-request member caches.
    */
@@ -159,6 +209,18 @@ public class MembersDerivedAttribute extends DerivedAttribute
    */
   private int membersToCachePerRequest;
 
+  /**
+   * The member values cached across requests, or {@code null} if member
+   * values are not cached across requests.
+   */
+  private DNCache<SCIMAttributeValue> sharedMemberCache;
+
+  /**
+   * Indicates how many static group members to resolve with each search, or
+   * zero if each member is resolved with a separate search.
+   */
+  private int memberBatchSize;
+
   /**
    * Indicates if the join attribute is a member, uniqueMember, or memberURL.
    */
@@ -281,6 +343,11 @@ public class MembersDerivedAttribute extends DerivedAttribute
             MEMBER_CACHES.set(memberCache);
           }
         }
+        // Determine which members are not already cached, keeping a place
+        // for each member so that the values are returned in member order.
+        final Map<DN, SCIMAttributeValue> memberValues =
+            new LinkedHashMap<DN, SCIMAttributeValue>();
+        final List<DN> unresolvedMembers = new ArrayList<DN>();
         for (final String memberDNString : members)
         {
           if ((userResolver != null &&
@@ -288,53 +355,49 @@ public class MembersDerivedAttribute extends DerivedAttribute
               groupResolver.isDnInScope(memberDNString))
           {
             DN memberDN = new DN(memberDNString);
-            if (memberCache != null)
+            SCIMAttributeValue cacheValue = null;
+            if (sharedMemberCache != null)
+            {
+              cacheValue = sharedMemberCache.get(memberDN);
+            }
+            if (cacheValue == null && memberCache != null)
             {
-              SCIMAttributeValue cacheValue = memberCache.get(memberDN);
-              if (cacheValue != null)
+              synchronized (memberCache)
               {
-                values.add(cacheValue);
-                continue;
+                cacheValue = memberCache.get(memberDN);
               }
             }
 
-            final SearchRequest searchRequest =
-                new SearchRequest(memberDNString, SearchScope.BASE,
-                    OBJECTCLASS_PRESENCE_FILTER, attrsToGet);
-            final SearchResult searchResult;
-            try
+            memberValues.put(memberDN, cacheValue);
+            if (cacheValue == null)
             {
-              searchResult = ldapInterface.search(searchRequest);
-            }
-            catch (final LDAPSearchException lse)
-            {
-              Debug.debugException(lse);
-              continue;
+              unresolvedMembers.add(memberDN);
             }
+          }
+        }
 
-            if (searchResult.getEntryCount() == 1)
-            {
-              final SearchResultEntry rEntry =
-                  searchResult.getSearchEntries().get(0);
-              final SCIMAttributeValue v =
-                  createMemberValue(groupResolver, rEntry);
-              if (v != null)
-              {
-                if (memberCache != null)
-                {
-                  memberCache.put(memberDN, v);
-                  if (memberCache.size() > membersToCachePerRequest)
-                  {
-                    // We have cached too many members for this request, so we
-                    // remove the oldest member from the cache.
-                    Iterator<DN> it = memberCache.keySet().iterator();
-                    it.next();
-                    it.remove();
-                  }
-                }
-                values.add(v);
-              }
-            }
+        final long invalidationStamp = sharedMemberCache != null ?
+            sharedMemberCache.getInvalidationStamp() : 0L;
+        if (memberBatchSize > 0)
+        {
+          resolveMembersInBatches(ldapInterface, groupResolver, attrsToGet,
+              unresolvedMembers, memberValues, memberCache,
+              invalidationStamp);
+        }
+        else
+        {
+          for (final DN memberDN : unresolvedMembers)
+          {
+            resolveMember(ldapInterface, groupResolver, attrsToGet, memberDN,
+                memberValues, memberCache, invalidationStamp);
+          }
+        }
+
+        for (final SCIMAttributeValue v : memberValues.values())
+        {
+          if (v != null)
+          {
+            values.add(v);
           }
         }
       }
@@ -387,6 +450,57 @@ public class MembersDerivedAttribute extends DerivedAttribute
       }
     }
 
+    int sharedMembersToCache = 0;
+    o = getArguments().get(MAX_SHARED_MEMBERS_CACHED);
+    if (o != null)
+    {
+      try
+      {
+        sharedMembersToCache = Integer.valueOf(o.toString());
+      }
+      catch (NumberFormatException nfe)
+      {
+        Debug.debugException(nfe);
+      }
+    }
+
+    long sharedMembersCacheTTLSeconds =
+        DEFAULT_SHARED_MEMBERS_CACHE_TTL_SECONDS;
+    o = getArguments().get(SHARED_MEMBERS_CACHE_TTL_SECONDS);
+    if (o != null)
+    {
+      try
+      {
+        sharedMembersCacheTTLSeconds = Long.valueOf(o.toString());
+      }
+      catch (NumberFormatException nfe)
+      {
+        Debug.debugException(nfe);
+      }
+    }
+
+    this.memberBatchSize = 0;
+    o = getArguments().get(MEMBER_BATCH_SIZE);
+    if (o != null)
+    {
+      try
+      {
+        memberBatchSize = Math.max(0, Integer.valueOf(o.toString()));
+      }
+      catch (NumberFormatException nfe)
+      {
+        Debug.debugException(nfe);
+      }
+    }
+
+    this.sharedMemberCache = null;
+    if (sharedMembersToCache > 0)
+    {
+      sharedMemberCache = new DNCache<SCIMAttributeValue>(
+          sharedMembersToCache,
+          Math.max(0L, sharedMembersCacheTTLSeconds) * 1000L);
+    }
+
     this.joinAttribute = null;
     Object j = getArguments().get("joinAttribute");
     if (j != null)
@@ -416,6 +530,290 @@ public class MembersDerivedAttribute extends DerivedAttribute
 
 
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void invalidateCachedEntry(final DN dn)
+  {
+    if (sharedMemberCache != null)
+    {
+      sharedMemberCache.invalidate(dn);
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ResourceStats getCacheStats()
+  {
+    if (sharedMemberCache == null)
+    {
+      return null;
+    }
+
+    return sharedMemberCache.getStats(descriptor.getName() + "-cache");
+  }
+
+
+
+  /**
+   * Resolve the values for group members by searching for the member entries
+   * in batches, rather than with a search for each member. The members are
+   * grouped by the search base DN that contains them, and each search
+   * matches up to the configured batch size of members with an OR filter on
+   * the entryDN attribute. If a batch search fails, the entries that were
+   * returned are used and the remaining members of the batch are resolved
+   * with a separate search for each member, as are members that are not
+   * within any of the search base DNs.
+   *
+   * @param ldapInterface      The LDAP interface to use to search the DIT.
+   * @param groupResolver      The group resolver.
+   * @param attrsToGet         The attributes to retrieve from member entries.
+   * @param unresolvedMembers  The DNs of the members to be resolved.
+   * @param memberValues       The member values, to which the resolved values
+   *                           are to be added.
+   * @param memberCache        The per-request member cache, or {@code null}
+   *                           if members are not cached during the request.
+   * @param invalidationStamp  The shared member cache invalidation stamp
+   *                           obtained before the members were read.
+   *
+   * @throws SCIMException  If a member value could not be created.
+   */
+  private void resolveMembersInBatches(
+      final LDAPRequestInterface ldapInterface,
+      final LDAPSearchResolver groupResolver,
+      final String[] attrsToGet,
+      final List<DN> unresolvedMembers,
+      final Map<DN, SCIMAttributeValue> memberValues,
+      final Map<DN, SCIMAttributeValue> memberCache,
+      final long invalidationStamp)
+      throws SCIMException
+  {
+    final Set<DN> baseDNs = new LinkedHashSet<DN>();
+    if (userResolver != null)
+    {
+      baseDNs.addAll(userResolver.getBaseDNs());
+    }
+    baseDNs.addAll(groupResolver.getBaseDNs());
+
+    final Map<DN, List<DN>> membersByBaseDN =
+        new LinkedHashMap<DN, List<DN>>();
+    final List<DN> remainingMembers = new ArrayList<DN>();
+    for (final DN memberDN : unresolvedMembers)
+    {
+      List<DN> baseMembers = null;
+      for (final DN baseDN : baseDNs)
+      {
+        if (baseDN.isAncestorOf(memberDN, true))
+        {
+          baseMembers = membersByBaseDN.get(baseDN);
+          if (baseMembers == null)
+          {
+            baseMembers = new ArrayList<DN>();
+            membersByBaseDN.put(baseDN, baseMembers);
+          }
+          break;
+        }
+      }
+
+      if (baseMembers == null)
+      {
+        remainingMembers.add(memberDN);
+      }
+      else
+      {
+        baseMembers.add(memberDN);
+      }
+    }
+
+    for (final Map.Entry<DN, List<DN>> e : membersByBaseDN.entrySet())
+    {
+      final List<DN> baseMembers = e.getValue();
+      for (int i = 0; i < baseMembers.size(); i += memberBatchSize)
+      {
+        final List<DN> batch = baseMembers.subList(
+            i, Math.min(i + memberBatchSize, baseMembers.size()));
+        final List<Filter> dnFilters = new ArrayList<Filter>(batch.size());
+        for (final DN memberDN : batch)
+        {
+          dnFilters.add(
+              Filter.createEqualityFilter(ATTR_ENTRY_DN, memberDN.toString()));
+        }
+
+        final SearchRequest searchRequest =
+            new SearchRequest(e.getKey().toString(), SearchScope.SUB,
+                Filter.createORFilter(dnFilters), attrsToGet);
+        searchRequest.setSizeLimit(batch.size());
+        List<SearchResultEntry> entries;
+        Set<DN> batchRemaining = null;
+        try
+        {
+          entries = ldapInterface.search(searchRequest).getSearchEntries();
+        }
+        catch (final LDAPSearchException lse)
+        {
+          // The search may have failed after returning some of the entries,
+          // for example because a limit was exceeded.
+          Debug.debugException(lse);
+          entries = lse.getSearchEntries();
+          batchRemaining = new LinkedHashSet<DN>(batch);
+        }
+
+        if (entries == null)
+        {
+          entries = Collections.emptyList();
+        }
+
+        for (final SearchResultEntry rEntry : entries)
+        {
+          final DN memberDN;
+          try
+          {
+            memberDN = rEntry.getParsedDN();
+          }
+          catch (final LDAPException le)
+          {
+            Debug.debugException(le);
+            continue;
+          }
+
+          if (memberValues.containsKey(memberDN))
+          {
+            addMemberValue(groupResolver, memberDN, rEntry, memberValues,
+                memberCache, invalidationStamp);
+          }
+          if (batchRemaining != null)
+          {
+            batchRemaining.remove(memberDN);
+          }
+        }
+
+        if (batchRemaining != null)
+        {
+          remainingMembers.addAll(batchRemaining);
+        }
+      }
+    }
+
+    for (final DN memberDN : remainingMembers)
+    {
+      resolveMember(ldapInterface, groupResolver, attrsToGet, memberDN,
+          memberValues, memberCache, invalidationStamp);
+    }
+  }
+
+
+
+  /**
+   * Resolve the value for a group member with a base object search for the
+   * member entry. The member is skipped if the search fails.
+   *
+   * @param ldapInterface      The LDAP interface to use to search the DIT.
+   * @param groupResolver      The group resolver.
+   * @param attrsToGet         The attributes to retrieve from the member
+   *                           entry.
+   * @param memberDN           The DN of the member to be resolved.
+   * @param memberValues       The member values, to which the resolved value
+   *                           is to be added.
+   * @param memberCache        The per-request member cache, or {@code null}
+   *                           if members are not cached during the request.
+   * @param invalidationStamp  The shared member cache invalidation stamp
+   *                           obtained before the member was read.
+   *
+   * @throws SCIMException  If the member value could not be created.
+   */
+  private void resolveMember(final LDAPRequestInterface ldapInterface,
+                             final LDAPSearchResolver groupResolver,
+                             final String[] attrsToGet,
+                             final DN memberDN,
+                             final Map<DN, SCIMAttributeValue> memberValues,
+                             final Map<DN, SCIMAttributeValue> memberCache,
+                             final long invalidationStamp)
+      throws SCIMException
+  {
+    final SearchRequest searchRequest =
+        new SearchRequest(memberDN.toString(), SearchScope.BASE,
+            OBJECTCLASS_PRESENCE_FILTER, attrsToGet);
+    final SearchResult searchResult;
+    try
+    {
+      searchResult = ldapInterface.search(searchRequest);
+    }
+    catch (final LDAPSearchException lse)
+    {
+      Debug.debugException(lse);
+      return;
+    }
+
+    if (searchResult.getEntryCount() == 1)
+    {
+      addMemberValue(groupResolver, memberDN,
+          searchResult.getSearchEntries().get(0), memberValues, memberCache,
+          invalidationStamp);
+    }
+  }
+
+
+
+  /**
+   * Create the value for a group member from its entry, and add it to the
+   * member values and to the member caches.
+   *
+   * @param groupResolver      The group resolver.
+   * @param memberDN           The DN of the member.
+   * @param entry              The member entry.
+   * @param memberValues       The member values, to which the value is to be
+   *                           added.
+   * @param memberCache        The per-request member cache, or {@code null}
+   *                           if members are not cached during the request.
+   * @param invalidationStamp  The shared member cache invalidation stamp
+   *                           obtained before the member entry was read.
+   *
+   * @throws SCIMException  If the member value could not be created.
+   */
+  private void addMemberValue(final LDAPSearchResolver groupResolver,
+                              final DN memberDN,
+                              final Entry entry,
+                              final Map<DN, SCIMAttributeValue> memberValues,
+                              final Map<DN, SCIMAttributeValue> memberCache,
+                              final long invalidationStamp)
+      throws SCIMException
+  {
+    final SCIMAttributeValue v = createMemberValue(groupResolver, entry);
+    if (v == null)
+    {
+      return;
+    }
+
+    if (sharedMemberCache != null)
+    {
+      sharedMemberCache.putIfNotInvalidatedSince(memberDN, v,
+                                                 invalidationStamp);
+    }
+    if (memberCache != null)
+    {
+      synchronized (memberCache)
+      {
+        memberCache.put(memberDN, v);
+        if (memberCache.size() > membersToCachePerRequest)
+        {
+          // We have cached too many members for this request, so we
+          // remove the oldest member from the cache.
+          Iterator<DN> it = memberCache.keySet().iterator();
+          it.next();
+          it.remove();
+        }
+      }
+    }
+    memberValues.put(memberDN, v);
+  }
+
+
+
   /**
    * Create a SCIM value for a group member.
    *
@@ -664,6 +1062,18 @@ public class MembersDerivedAttribute extends DerivedAttribute
     }
   }
 
+  /**
+   * Specify the cache to be used by the current thread for the request it is
+   * processing. The cache may be shared with other threads processing the
+   * same request, so it must only be accessed while synchronized on it.
+   *
+   * @param memberCache  The cache to be used.
+   */
+  static void setRequestCache(final Map<DN, SCIMAttributeValue> memberCache)
+  {
+    MEMBER_CACHES.set(memberCache);
+  }
+
   /**
    * Clear the cache.
    */
@@ -391,8 +391,7 @@ public class MultiValuedAttributeMapper extends AttributeMapper
                                final Collection<Attribute> attributes)
       throws InvalidResourceException {
     final SCIMAttribute scimAttribute =
-        scimObject.getAttribute(getAttributeDescriptor().getSchema(),
-                                getAttributeDescriptor().getName());
+        scimObject.getAttribute(getAttributeDescriptor());
     if (scimAttribute != null)
     {
       for (SCIMAttributeValue v : scimAttribute.getValues())
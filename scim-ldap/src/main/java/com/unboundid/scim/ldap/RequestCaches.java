@@ -0,0 +1,62 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.ldap;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.scim.sdk.SCIMAttributeValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+
+/**
+ * This class holds the per-request caches of the derived attributes for a
+ * request whose entries are converted by other threads. Each thread installs
+ * the caches while it converts an entry for the request, so that the caches
+ * are shared by all of the entries in the request, just as they are when the
+ * entries are converted by a single thread.
+ */
+final class RequestCaches
+{
+  /**
+   * The group entries cached for the request.
+   */
+  private final Map<DN, SearchResultEntry> groupCache =
+      new LinkedHashMap<DN, SearchResultEntry>();
+
+  /**
+   * The member values cached for the request.
+   */
+  private final Map<DN, SCIMAttributeValue> memberCache =
+      new LinkedHashMap<DN, SCIMAttributeValue>();
+
+
+
+  /**
+   * Install the caches for the current thread. The caches must be removed
+   * with {@link LDAPBackend#clearRequestCaches} once the thread has finished
+   * processing for the request.
+   */
+  void install()
+  {
+    GroupsDerivedAttribute.setRequestCache(groupCache);
+    MembersDerivedAttribute.setRequestCache(memberCache);
+  }
+}
@@ -52,6 +52,7 @@ import com.unboundid.scim.sdk.ServerErrorException;
 import com.unboundid.scim.sdk.SortParameters;
 import com.unboundid.scim.sdk.StaticUtils;
 import com.unboundid.scim.sdk.UnauthorizedException;
+import com.unboundid.scim.wink.ResourceStats;
 import com.unboundid.util.Validator;
 import org.xml.sax.SAXException;
 
@@ -75,6 +76,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import static javax.xml.XMLConstants.W3C_XML_SCHEMA_NS_URI;
@@ -172,6 +174,19 @@ public class ResourceMapper
    */
   protected AttributeMapper passwordAttributeMapper;
 
+  /**
+   * The maximum number of cached filter attribute sets.
+   */
+  private static final int MAX_FILTER_ATTRIBUTES = 256;
+
+  /**
+   * The attributes referenced by recently used search filters, keyed by the
+   * comma-separated attribute paths. Filters that differ only in their values
+   * reference the same attributes.
+   */
+  private final ConcurrentHashMap<String,SCIMQueryAttributes> filterAttributes =
+      new ConcurrentHashMap<String, SCIMQueryAttributes>();
+
   /**
    * Create a new instance of this resource mapper. All resource mappers must
    * provide a default constructor, but any initialization should be done
@@ -658,6 +673,36 @@ public class ResourceMapper
 
 
 
+  /**
+   * Retrieve the SCIMQueryAttributes instance representing the attributes
+   * referenced by a search filter, from a cache if possible.
+   *
+   * @param attributePaths  The comma-separated attribute paths referenced by
+   *                        the filter.
+   *
+   * @return  The attributes referenced by the filter.
+   *
+   * @throws InvalidResourceException  If there is an error constructing the
+   *                                   SCIMQueryAttributes instance.
+   */
+  SCIMQueryAttributes getFilterAttributes(final String attributePaths)
+      throws InvalidResourceException
+  {
+    SCIMQueryAttributes attributes = filterAttributes.get(attributePaths);
+    if (attributes == null)
+    {
+      attributes = new SCIMQueryAttributes(resourceDescriptor, attributePaths);
+      if (filterAttributes.size() >= MAX_FILTER_ATTRIBUTES)
+      {
+        filterAttributes.clear();
+      }
+      filterAttributes.put(attributePaths, attributes);
+    }
+    return attributes;
+  }
+
+
+
   /**
    * Retrieve the ResourceDescriptor of the SCIM resource handled by this
    * resource mapper.
@@ -1835,6 +1880,43 @@ public class ResourceMapper
 
 
 
+  /**
+   * Discard any data cached by derived attributes across requests for the
+   * entry with the provided DN, because the entry has been modified or
+   * deleted.
+   *
+   * @param dn  The DN of the entry that has been modified or deleted.
+   */
+  public void invalidateCachedEntry(final DN dn)
+  {
+    for (final DerivedAttribute derivedAttribute : derivedAttributes.values())
+    {
+      derivedAttribute.invalidateCachedEntry(dn);
+    }
+  }
+
+
+
+  /**
+   * Add the statistics for any data cached by derived attributes across
+   * requests to the provided collection.
+   *
+   * @param stats  The collection to which the statistics are to be added.
+   */
+  public void addCacheStats(final Collection<ResourceStats> stats)
+  {
+    for (final DerivedAttribute derivedAttribute : derivedAttributes.values())
+    {
+      final ResourceStats cacheStats = derivedAttribute.getCacheStats();
+      if (cacheStats != null)
+      {
+        stats.add(cacheStats);
+      }
+    }
+  }
+
+
+
   /**
    * Returns the LDAP attribute that the SCIM password attribute maps to,
    * or <code>null</code> if there is no mapping for the password attribute.
@@ -24,14 +24,27 @@ import com.unboundid.scim.data.BaseResource;
 import com.unboundid.scim.sdk.Debug;
 import com.unboundid.scim.sdk.GetResourcesRequest;
 import com.unboundid.scim.sdk.SCIMException;
+import com.unboundid.scim.sdk.StreamingResources;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
  * This class provides a search result listener to retrieve SCIM objects.
+ * <p>
+ * By default, each entry is converted into a SCIM object on the thread that
+ * delivers it. If a conversion executor is provided, entries are instead
+ * converted concurrently by the executor, so that the LDAP lookups needed by
+ * derived attributes overlap, and the converted objects are collected in the
+ * order that the entries were returned.
  */
 public class ResourceSearchResultListener extends SCIMSearchResultListener
     implements SearchResultListener
@@ -59,6 +72,44 @@ public class ResourceSearchResultListener extends SCIMSearchResultListener
    */
   private final AtomicInteger totalResults;
 
+  /**
+   * The number of resources returned to the SCIM client.
+   */
+  private final AtomicInteger returnedResults;
+
+  /**
+   * The handler to which resources are provided as they are retrieved, or
+   * {@code null} if resources are to be collected in a list.
+   */
+  private volatile StreamingResources.ResourceHandler<BaseResource> handler;
+
+  /**
+   * The first exception thrown by the resource handler, if any.
+   */
+  private volatile SCIMException handlerException;
+
+  /**
+   * The executor used to convert entries into SCIM objects, or {@code null}
+   * if entries are converted as they are returned.
+   */
+  private volatile ExecutorService conversionExecutor;
+
+  /**
+   * The maximum number of entries that may be waiting to be converted.
+   */
+  private int maxPendingConversions;
+
+  /**
+   * The per-request caches shared by the threads converting entries, or
+   * {@code null} if there is no conversion executor.
+   */
+  private volatile RequestCaches requestCaches;
+
+  /**
+   * The pending conversions, in the order that the entries were returned.
+   */
+  private final ArrayDeque<Future<BaseResource>> pendingResources;
+
 
 
   /**
@@ -82,6 +133,41 @@ public class ResourceSearchResultListener extends SCIMSearchResultListener
     this.resources      = new ArrayList<BaseResource>();
     this.maxResults     = maxResults;
     this.totalResults   = new AtomicInteger();
+    this.returnedResults = new AtomicInteger();
+    this.pendingResources = new ArrayDeque<Future<BaseResource>>();
+  }
+
+
+
+  /**
+   * Specify an executor to be used to convert entries into SCIM objects
+   * concurrently. {@link #awaitPendingResources} must be called once the
+   * search has completed.
+   *
+   * @param executor               The executor to be used.
+   * @param maxPendingConversions  The maximum number of entries that may be
+   *                               waiting to be converted.
+   */
+  public void setConversionExecutor(final ExecutorService executor,
+                                    final int maxPendingConversions)
+  {
+    this.maxPendingConversions = Math.max(1, maxPendingConversions);
+    this.requestCaches = new RequestCaches();
+    this.conversionExecutor = executor;
+  }
+
+
+
+  /**
+   * Specify a handler to which resources are to be provided as they are
+   * retrieved, instead of being collected in a list.
+   *
+   * @param handler  The handler to receive the resources.
+   */
+  public void setResourceHandler(
+      final StreamingResources.ResourceHandler<BaseResource> handler)
+  {
+    this.handler = handler;
   }
 
 
@@ -95,25 +181,156 @@ public class ResourceSearchResultListener extends SCIMSearchResultListener
    */
   public void searchEntryReturned(final SearchResultEntry searchEntry)
   {
-    if (resources.size() >= maxResults)
+    final ExecutorService executor = conversionExecutor;
+    if (executor == null)
     {
-      totalResults.incrementAndGet();
+      if (returnedResults.get() >= maxResults)
+      {
+        totalResults.incrementAndGet();
+        return;
+      }
+
+      try
+      {
+        addResource(getResourceForSearchResultEntry(searchEntry));
+      }
+      catch (SCIMException e)
+      {
+        Debug.debugException(e);
+        // TODO: We should find a way to get this exception back to LDAPBackend.
+      }
       return;
     }
 
-    try
+    synchronized (pendingResources)
     {
-      BaseResource resource = getResourceForSearchResultEntry(searchEntry);
-      if (resource != null)
+      // Wait for earlier entries if too many are pending, or if the pending
+      // entries could be enough to reach the maximum number of results, so
+      // that no more entries are converted than would otherwise be.
+      while (!pendingResources.isEmpty() &&
+             (pendingResources.size() >= maxPendingConversions ||
+              returnedResults.get() + pendingResources.size() >= maxResults))
+      {
+        completeResource(pendingResources.removeFirst());
+      }
+
+      if (returnedResults.get() >= maxResults)
       {
         totalResults.incrementAndGet();
-        resources.add(resource);
+        return;
+      }
+
+      final RequestCaches caches = requestCaches;
+      try
+      {
+        pendingResources.addLast(executor.submit(new Callable<BaseResource>()
+        {
+          public BaseResource call() throws SCIMException
+          {
+            // The executor threads are shared by all requests, so the caches
+            // for this request are only installed during the conversion.
+            caches.install();
+            try
+            {
+              return getResourceForSearchResultEntry(searchEntry);
+            }
+            finally
+            {
+              LDAPBackend.clearRequestCaches();
+            }
+          }
+        }));
+      }
+      catch (RejectedExecutionException e)
+      {
+        Debug.debugException(e);
+        awaitPendingResources();
+        try
+        {
+          addResource(getResourceForSearchResultEntry(searchEntry));
+        }
+        catch (SCIMException se)
+        {
+          Debug.debugException(se);
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Wait for all pending entries to be converted and collect the resulting
+   * SCIM objects. This has no effect if there is no conversion executor.
+   */
+  public void awaitPendingResources()
+  {
+    synchronized (pendingResources)
+    {
+      while (!pendingResources.isEmpty())
+      {
+        completeResource(pendingResources.removeFirst());
       }
     }
-    catch (SCIMException e)
+  }
+
+
+
+  /**
+   * Wait for a pending entry to be converted and collect the resulting SCIM
+   * object.
+   *
+   * @param future  The pending conversion.
+   */
+  private void completeResource(final Future<BaseResource> future)
+  {
+    try
+    {
+      addResource(future.get());
+    }
+    catch (ExecutionException e)
     {
       Debug.debugException(e);
-      // TODO: We should find a way to get this exception back to LDAPBackend.
+    }
+    catch (InterruptedException e)
+    {
+      Debug.debugException(e);
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+
+
+  /**
+   * Collect a SCIM object converted from an entry, or provide it to the
+   * resource handler.
+   *
+   * @param resource  The SCIM object, or {@code null} if the entry did not
+   *                  match the request.
+   */
+  private void addResource(final BaseResource resource)
+  {
+    if (resource != null)
+    {
+      totalResults.incrementAndGet();
+      returnedResults.incrementAndGet();
+      if (handler == null)
+      {
+        resources.add(resource);
+      }
+      else if (handlerException == null)
+      {
+        try
+        {
+          handler.handleResource(resource);
+        }
+        catch (SCIMException e)
+        {
+          Debug.debugException(e);
+          handlerException = e;
+        }
+      }
     }
   }
 
@@ -145,6 +362,18 @@ public class ResourceSearchResultListener extends SCIMSearchResultListener
   }
 
 
+  /**
+   * Retrieve the first exception thrown by the resource handler, if any.
+   *
+   * @return  The first exception thrown by the resource handler, or
+   *          {@code null} if there was none.
+   */
+  public SCIMException getHandlerException()
+  {
+    return handlerException;
+  }
+
+
   /**
    * Retrieve the total number of LDAP entries that were returned from the
    * search.
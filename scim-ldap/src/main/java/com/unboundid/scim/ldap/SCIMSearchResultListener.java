@@ -22,6 +22,7 @@ import com.unboundid.ldap.sdk.SearchResultEntry;
 import com.unboundid.scim.data.BaseResource;
 import com.unboundid.scim.data.Meta;
 import com.unboundid.scim.sdk.AttributePath;
+import com.unboundid.scim.sdk.FilterCompiler;
 import com.unboundid.scim.sdk.GetResourcesRequest;
 import com.unboundid.scim.sdk.InvalidResourceException;
 import com.unboundid.scim.sdk.SCIMException;
@@ -31,6 +32,7 @@ import com.unboundid.scim.sdk.SCIMQueryAttributes;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 import static com.unboundid.scim.schema.CoreSchema.*;
 import static com.unboundid.scim.sdk.SCIMConstants.ATTR_NAME_DEBUG_SEARCH;
@@ -76,6 +78,12 @@ public abstract class SCIMSearchResultListener {
   private final LDAPBackend ldapBackend;
 
 
+  /**
+   * The compiled request filter, or {@code null} if there is no filter.
+   */
+  private final Predicate<SCIMObject> compiledFilter;
+
+
 
   /**
    * Create a new search result listener to retrieve SCIM objects.
@@ -98,12 +106,15 @@ public abstract class SCIMSearchResultListener {
     this.request        = request;
     this.ldapInterface  = ldapInterface;
     this.attributes     = getFilterAttributes().merge(request.getAttributes());
+    this.compiledFilter = request.getFilter() == null ? null :
+        FilterCompiler.compile(request.getFilter(),
+                               request.getResourceDescriptor());
   }
 
 
 
   /**
-   * Create a SCIMQueryAttributes instance representing the attributes
+   * Retrieve a SCIMQueryAttributes instance representing the attributes
    * referenced by the request filter.
    *
    * @return  A SCIMQueryAttributes instance representing the attributes
@@ -129,8 +140,7 @@ public abstract class SCIMSearchResultListener {
       builder.append(attributePaths.get(i));
     }
 
-    return new SCIMQueryAttributes(request.getResourceDescriptor(),
-        builder.toString());
+    return resourceMapper.getFilterAttributes(builder.toString());
   }
 
 
@@ -231,8 +241,7 @@ public abstract class SCIMSearchResultListener {
     ldapBackend.setIdAndMetaAttributes(resourceMapper, resource, request,
         searchEntry, null);
 
-    if (request.getFilter() == null ||
-        scimObject.matchesFilter(request.getFilter()))
+    if (compiledFilter == null || compiledFilter.test(scimObject))
     {
       if (request.getAttributes().allAttributesRequested() ||
           resourceMapper.getDefaultSchemaURI().equals(
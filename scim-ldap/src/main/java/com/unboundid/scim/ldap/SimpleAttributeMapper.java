@@ -208,8 +208,7 @@ public class SimpleAttributeMapper extends AttributeMapper
   {
     final String ldapAttributeType = attributeTransformation.getLdapAttribute();
     final SCIMAttribute scimAttribute =
-        scimObject.getAttribute(getAttributeDescriptor().getSchema(),
-                                getAttributeDescriptor().getName());
+        scimObject.getAttribute(getAttributeDescriptor());
     if (scimAttribute != null)
     {
       final ASN1OctetString ldapValue =
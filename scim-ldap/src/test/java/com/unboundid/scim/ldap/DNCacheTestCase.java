@@ -0,0 +1,144 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.ldap;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.wink.ResourceStats;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+
+/**
+ * This class provides test coverage for the {@link DNCache}.
+ */
+public class DNCacheTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Verify that values can be cached, retrieved and invalidated.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testGetPutInvalidate()
+      throws Exception
+  {
+    final DNCache<String> cache = new DNCache<String>(10, 0);
+    final DN dn = new DN("cn=group,dc=example,dc=com");
+
+    assertNull(cache.get(dn));
+    cache.put(dn, "group");
+    assertEquals(cache.get(new DN("CN=Group, dc=example, dc=com")), "group");
+
+    cache.invalidate(dn);
+    assertNull(cache.get(dn));
+
+    final ResourceStats stats = cache.getStats("test-cache");
+    assertEquals(stats.getName(), "test-cache");
+    assertEquals(stats.getStat(DNCache.STAT_HITS), 1);
+    assertEquals(stats.getStat(DNCache.STAT_MISSES), 2);
+    assertEquals(stats.getStat(DNCache.STAT_INVALIDATIONS), 1);
+    assertEquals(stats.getStat(DNCache.STAT_SIZE), 0);
+    assertEquals(stats.getStat(DNCache.STAT_HIT_RATIO), 33);
+  }
+
+
+
+  /**
+   * Verify that a value read before its entry was modified is not cached
+   * when the invalidation for the modification has already run.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testPutAfterInvalidation()
+      throws Exception
+  {
+    final DNCache<String> cache = new DNCache<String>(10, 0);
+    final DN dn = new DN("cn=group,dc=example,dc=com");
+
+    // A read obtains the stamp and the entry, then a write modifies the
+    // entry and invalidates it before the read adds the entry to the cache.
+    final long stamp = cache.getInvalidationStamp();
+    cache.invalidate(dn);
+    assertFalse(cache.putIfNotInvalidatedSince(dn, "stale", stamp));
+    assertNull(cache.get(dn));
+    assertEquals(cache.size(), 0);
+
+    // A read that starts after the invalidation is cached.
+    assertTrue(cache.putIfNotInvalidatedSince(dn, "current",
+                                              cache.getInvalidationStamp()));
+    assertEquals(cache.get(dn), "current");
+  }
+
+
+
+  /**
+   * Verify that the cache does not grow beyond its maximum size, and that
+   * recently used values are kept in preference to unused values.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testEviction()
+      throws Exception
+  {
+    final DNCache<Integer> cache = new DNCache<Integer>(3, 0);
+    for (int i = 0; i < 3; i++)
+    {
+      cache.put(new DN("cn=" + i + ",dc=example,dc=com"), i);
+    }
+
+    // Reference the first value so that it survives the next eviction.
+    assertEquals(cache.get(new DN("cn=0,dc=example,dc=com")),
+                 Integer.valueOf(0));
+    cache.put(new DN("cn=3,dc=example,dc=com"), 3);
+
+    assertEquals(cache.size(), 3);
+    assertEquals(cache.get(new DN("cn=0,dc=example,dc=com")),
+                 Integer.valueOf(0));
+    assertNull(cache.get(new DN("cn=1,dc=example,dc=com")));
+    assertEquals(cache.getStats("test").getStat(DNCache.STAT_EVICTIONS), 1);
+  }
+
+
+
+  /**
+   * Verify that cached values expire.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testExpiration()
+      throws Exception
+  {
+    final DNCache<String> cache = new DNCache<String>(10, 1);
+    final DN dn = new DN("cn=group,dc=example,dc=com");
+    cache.put(dn, "group");
+    Thread.sleep(10);
+
+    assertNull(cache.get(dn));
+    assertEquals(cache.getStats("test").getStat(DNCache.STAT_EXPIRATIONS), 1);
+  }
+}
@@ -0,0 +1,623 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.ldap;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.LDAPSearchException;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.data.BaseResource;
+import com.unboundid.scim.data.UserResource;
+import com.unboundid.scim.schema.AttributeDescriptor;
+import com.unboundid.scim.schema.CoreSchema;
+import com.unboundid.scim.schema.ResourceDescriptor;
+import com.unboundid.scim.sdk.DeleteResourceRequest;
+import com.unboundid.scim.sdk.GetResourcesRequest;
+import com.unboundid.scim.sdk.InvalidResourceException;
+import com.unboundid.scim.sdk.Resources;
+import com.unboundid.scim.sdk.SCIMException;
+import com.unboundid.scim.sdk.SCIMFilter;
+import com.unboundid.scim.sdk.SCIMQueryAttributes;
+import com.unboundid.scim.sdk.SortParameters;
+import com.unboundid.scim.sdk.StreamingResources;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+
+/**
+ * This class provides test coverage for the {@link LDAPBackend}.
+ */
+public class LDAPBackendTestCase
+    extends SCIMTestCase
+{
+  /**
+   * The in-memory directory server containing the user entries.
+   */
+  private InMemoryDirectoryServer ds;
+
+  /**
+   * The connection pool used by the backend.
+   */
+  private LDAPConnectionPool pool;
+
+  /**
+   * The resource mappers used by the backends.
+   */
+  private final Map<ResourceDescriptor, ResourceMapper> mappers =
+      new HashMap<ResourceDescriptor, ResourceMapper>();
+
+  /**
+   * The backend under test, which streams query results.
+   */
+  private LDAPBackend backend;
+
+
+
+  /**
+   * Create the directory server, its user entries and the backend.
+   *
+   * @throws Exception  If the directory server could not be created.
+   */
+  @BeforeClass
+  public void setUp()
+      throws Exception
+  {
+    ds = new InMemoryDirectoryServer(
+        new InMemoryDirectoryServerConfig("dc=example,dc=com"));
+    ds.add(new Entry("dn: dc=example,dc=com",
+                     "objectClass: top",
+                     "objectClass: domain",
+                     "dc: example"));
+    ds.add(new Entry("dn: ou=people,dc=example,dc=com",
+                     "objectClass: top",
+                     "objectClass: organizationalUnit",
+                     "ou: people"));
+    for (final String uid : new String[] { "bjensen", "jsmith", "adoe" })
+    {
+      ds.add(new Entry("dn: uid=" + uid + ",ou=people,dc=example,dc=com",
+                       "objectClass: top",
+                       "objectClass: person",
+                       "objectClass: organizationalPerson",
+                       "objectClass: inetOrgPerson",
+                       "uid: " + uid,
+                       "cn: " + uid,
+                       "sn: " + uid));
+    }
+    ds.add(new Entry("dn: ou=groups,dc=example,dc=com",
+                     "objectClass: top",
+                     "objectClass: organizationalUnit",
+                     "ou: groups"));
+    for (int i = 0; i < 4; i++)
+    {
+      ds.add(new Entry("dn: cn=group." + i + ",ou=groups,dc=example,dc=com",
+                       "objectClass: top",
+                       "objectClass: groupOfUniqueNames",
+                       "cn: group." + i,
+                       "uniqueMember: uid=bjensen,ou=people,dc=example,dc=com",
+                       "uniqueMember: uid=jsmith,ou=people,dc=example,dc=com",
+                       "uniqueMember: uid=adoe,ou=people,dc=example,dc=com"));
+    }
+    ds.startListening();
+    pool = ds.getConnectionPool(4);
+
+    for (final ResourceMapper m : ResourceMapper.parse(
+        getResourceFile("/com/unboundid/scim/ldap/resources.xml")))
+    {
+      mappers.put(m.getResourceDescriptor(), m);
+    }
+
+    backend = createBackend(new AtomicInteger());
+    backend.getConfig().setStreamQueryResults(true);
+  }
+
+
+
+  /**
+   * Shut down the directory server.
+   */
+  @AfterClass
+  public void tearDown()
+  {
+    pool.close();
+    ds.shutDown(true);
+  }
+
+
+
+  /**
+   * Verify that deleting a group through the backend removes it from the
+   * shared cache of group entries.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testGroupCacheInvalidation()
+      throws Exception
+  {
+    final String groupDN = "cn=cached,ou=groups,dc=example,dc=com";
+    ds.add(new Entry("dn: " + groupDN,
+                     "objectClass: top",
+                     "objectClass: groupOfUniqueNames",
+                     "cn: cached",
+                     "uniqueMember: uid=bjensen,ou=people,dc=example,dc=com"));
+
+    // Use mappers whose groups attribute has a shared cache.
+    final Map<ResourceDescriptor, ResourceMapper> cachingMappers =
+        new HashMap<ResourceDescriptor, ResourceMapper>();
+    GroupsDerivedAttribute groups = null;
+    for (final ResourceMapper m : ResourceMapper.parse(
+        getResourceFile("/com/unboundid/scim/ldap/resources.xml")))
+    {
+      cachingMappers.put(m.getResourceDescriptor(), m);
+      for (final DerivedAttribute a : m.derivedAttributes.values())
+      {
+        if (a instanceof GroupsDerivedAttribute)
+        {
+          groups = (GroupsDerivedAttribute) a;
+        }
+      }
+    }
+    groups.getArguments().put("haveIsMemberOf", "true");
+    groups.getArguments().put("maxSharedGroupsCached", "10");
+    groups.initialize(groups.getAttributeDescriptor());
+
+    // The in-memory directory server does not provide isMemberOf.
+    final Entry userEntry =
+        new Entry("dn: uid=bjensen,ou=people,dc=example,dc=com",
+                  "isMemberOf: " + groupDN);
+    assertEquals(groups.toSCIMAttribute(userEntry,
+        new LDAPRequestInterface(pool), null).getValues().length, 1);
+    assertEquals(groups.getCacheStats().getStat(DNCache.STAT_SIZE), 1);
+
+    final String groupID =
+        pool.getEntry(groupDN, "entryUUID").getAttributeValue("entryUUID");
+    createBackend(cachingMappers, new AtomicInteger()).deleteResource(
+        new DeleteResourceRequest(URI.create("http://localhost/"), null,
+            CoreSchema.GROUP_DESCRIPTOR, groupID));
+    assertNull(pool.getEntry(groupDN));
+    assertEquals(groups.getCacheStats().getStat(DNCache.STAT_SIZE), 0);
+    assertEquals(groups.getCacheStats().getStat(DNCache.STAT_INVALIDATIONS),
+                 1);
+  }
+
+
+
+  /**
+   * Verify that query results are streamed, in sorted order when requested.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testStreamedQuery()
+      throws Exception
+  {
+    final Resources<?> resources = backend.getResources(
+        createRequest(new SortParameters("userName", "descending")));
+    assertTrue(resources instanceof StreamingResources);
+
+    final List<String> userNames = new ArrayList<String>();
+    ((StreamingResources<BaseResource>) resources).stream(
+        new StreamingResources.ResourceHandler<BaseResource>()
+        {
+          public void handleResource(final BaseResource resource)
+          {
+            userNames.add(new UserResource(CoreSchema.USER_DESCRIPTOR,
+                resource.getScimObject()).getUserName());
+          }
+        });
+
+    assertEquals(userNames, Arrays.asList("jsmith", "bjensen", "adoe"));
+    assertEquals(resources.getTotalResults(), 3);
+    assertEquals(resources.getItemsPerPage(), 3);
+  }
+
+
+
+  /**
+   * Verify that streamed query results may be collected before a response
+   * that does not stream them is written.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testCollectStreamedQuery()
+      throws Exception
+  {
+    final StreamingResources<?> resources =
+        (StreamingResources<?>) backend.getResources(createRequest(null));
+    assertFalse(resources.isProduced());
+
+    resources.collect();
+    assertTrue(resources.isProduced());
+    assertEquals(resources.getTotalResults(), 3);
+
+    int count = 0;
+    for (final Object resource : resources)
+    {
+      count++;
+    }
+    assertEquals(count, 3);
+  }
+
+
+
+  /**
+   * Verify that invalid sort parameters are reported by the query request
+   * itself rather than when the results are streamed.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testStreamedQueryInvalidSort()
+      throws Exception
+  {
+    try
+    {
+      backend.getResources(
+          createRequest(new SortParameters("groups", "ascending")));
+      fail("Expected an exception for invalid sort parameters");
+    }
+    catch (InvalidResourceException e)
+    {
+      assertEquals(e.getStatusCode(), 400);
+      assertTrue(e.getMessage().startsWith("Invalid sort parameters"),
+                 e.getMessage());
+    }
+  }
+
+
+
+  /**
+   * Verify that the attributes requested by one search do not change the
+   * attributes used by a later search with the same filter.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testFilterAttributesNotShared()
+      throws Exception
+  {
+    final LDAPBackend queryBackend = createBackend(new AtomicInteger());
+    final ResourceMapper mapper = mappers.get(CoreSchema.USER_DESCRIPTOR);
+    final Map<AttributeDescriptor, Set<AttributeDescriptor>> expected =
+        new SCIMQueryAttributes(CoreSchema.USER_DESCRIPTOR,
+                                "name.familyName").getDescriptors();
+
+    // The first search requests every name sub-attribute, and the second
+    // requests only the formatted name.
+    for (final String attributes : new String[] { "name", "name.formatted" })
+    {
+      final Resources<?> resources = queryBackend.getResources(
+          new GetResourcesRequest(URI.create("http://localhost/"), null,
+              CoreSchema.USER_DESCRIPTOR,
+              SCIMFilter.parse("name.familyName eq \"jsmith\""),
+              null, null, null, null,
+              new SCIMQueryAttributes(CoreSchema.USER_DESCRIPTOR,
+                                      attributes)));
+      assertEquals(resources.getTotalResults(), 1);
+
+      final UserResource user = new UserResource(CoreSchema.USER_DESCRIPTOR,
+          ((BaseResource) resources.iterator().next()).getScimObject());
+      assertEquals(user.getName().getFormatted(), "jsmith");
+      if (attributes.equals("name"))
+      {
+        assertEquals(user.getName().getFamilyName(), "jsmith");
+      }
+      else
+      {
+        assertNull(user.getName().getFamilyName());
+      }
+
+      assertEquals(mapper.getFilterAttributes("name.familyName")
+                       .getDescriptors(), expected);
+    }
+  }
+
+
+
+  /**
+   * Verify that entries converted concurrently are returned in the order
+   * that they were returned by the search.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testConversionExecutorOrder()
+      throws Exception
+  {
+    // Delay each conversion by less than the previous one, so that the
+    // conversions complete in the reverse order.
+    final AtomicInteger conversions = new AtomicInteger();
+    final ExecutorService executor = new ThreadPoolExecutor(
+        4, 4, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>())
+    {
+      @Override
+      protected void beforeExecute(final Thread t, final Runnable r)
+      {
+        try
+        {
+          Thread.sleep(50L * (3 - conversions.getAndIncrement()));
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+
+    try
+    {
+      final LDAPBackend executorBackend = createBackend(new AtomicInteger());
+      executorBackend.setEntryConversionExecutor(executor, 3);
+
+      final Resources<?> resources = executorBackend.getResources(
+          createRequest(new SortParameters("userName", "ascending")));
+      assertEquals(getUserNames(resources),
+                   Arrays.asList("adoe", "bjensen", "jsmith"));
+      assertEquals(conversions.get(), 3);
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+
+
+  /**
+   * Verify that no more entries are returned than the maximum number of
+   * results when entries are converted concurrently, although all of them
+   * are counted.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testConversionExecutorMaxResults()
+      throws Exception
+  {
+    final LDAPBackend executorBackend = createBackend(new AtomicInteger());
+    final List<SearchResultEntry> entries = new ArrayList<SearchResultEntry>(
+        pool.search("ou=people,dc=example,dc=com", SearchScope.ONE,
+            "(objectClass=inetOrgPerson)", "*", "+").getSearchEntries());
+    Collections.sort(entries, new Comparator<SearchResultEntry>()
+    {
+      public int compare(final SearchResultEntry e1,
+                         final SearchResultEntry e2)
+      {
+        return e1.getAttributeValue("uid").compareTo(
+            e2.getAttributeValue("uid"));
+      }
+    });
+
+    final ExecutorService executor = new ThreadPoolExecutor(
+        4, 4, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+    try
+    {
+      final ResourceSearchResultListener listener =
+          new ResourceSearchResultListener(executorBackend,
+              createRequest(null), new LDAPRequestInterface(pool), 2);
+      listener.setConversionExecutor(executor, 4);
+      for (final SearchResultEntry entry : entries)
+      {
+        listener.searchEntryReturned(entry);
+      }
+      listener.awaitPendingResources();
+
+      assertEquals(getUserNames(listener.getResources()),
+                   Arrays.asList("adoe", "bjensen"));
+      assertEquals(listener.getTotalResults(), 3);
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+
+
+  /**
+   * Verify that entries are converted by the thread delivering them if the
+   * conversion executor rejects them.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testConversionExecutorRejected()
+      throws Exception
+  {
+    final ExecutorService executor = new ThreadPoolExecutor(
+        1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+    executor.shutdown();
+
+    final LDAPBackend executorBackend = createBackend(new AtomicInteger());
+    executorBackend.setEntryConversionExecutor(executor, 2);
+    final Resources<?> resources = executorBackend.getResources(
+        createRequest(new SortParameters("userName", "ascending")));
+    assertEquals(getUserNames(resources),
+                 Arrays.asList("adoe", "bjensen", "jsmith"));
+  }
+
+
+
+  /**
+   * Verify that the per-request caches are shared by the threads converting
+   * the entries for a request, so that the members shared by several groups
+   * are each retrieved once.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testConversionExecutorRequestCaches()
+      throws Exception
+  {
+    final ExecutorService executor = new ThreadPoolExecutor(
+        4, 4, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+    try
+    {
+      final AtomicInteger baseSearches = new AtomicInteger();
+      final LDAPBackend executorBackend = createBackend(baseSearches);
+      // Allow only one pending conversion so that each group is converted
+      // after the members of the previous group have been cached.
+      executorBackend.setEntryConversionExecutor(executor, 1);
+
+      final Resources<?> resources = executorBackend.getResources(
+          new GetResourcesRequest(URI.create("http://localhost/"), null,
+              CoreSchema.GROUP_DESCRIPTOR, null, null, null, null, null,
+              new SCIMQueryAttributes(CoreSchema.GROUP_DESCRIPTOR,
+                                      "members")));
+      assertEquals(resources.getTotalResults(), 4);
+      assertEquals(baseSearches.get(), 3);
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+
+
+  /**
+   * Create a backend using the resource mappers, whose searches are
+   * counted.
+   *
+   * @param baseSearches  The counter for base object searches.
+   *
+   * @return  The backend.
+   */
+  private LDAPBackend createBackend(final AtomicInteger baseSearches)
+  {
+    return createBackend(mappers, baseSearches);
+  }
+
+
+
+  /**
+   * Create a backend using the provided resource mappers, whose searches are
+   * counted.
+   *
+   * @param resourceMappers  The resource mappers.
+   * @param baseSearches     The counter for base object searches.
+   *
+   * @return  The backend.
+   */
+  private LDAPBackend createBackend(
+      final Map<ResourceDescriptor, ResourceMapper> resourceMappers,
+      final AtomicInteger baseSearches)
+  {
+    final LDAPRequestInterface ldapInterface = new LDAPRequestInterface(pool)
+    {
+      @Override
+      public SearchResult search(final SearchRequest searchRequest)
+          throws LDAPSearchException
+      {
+        if (searchRequest.getScope() == SearchScope.BASE)
+        {
+          baseSearches.incrementAndGet();
+        }
+        return super.search(searchRequest);
+      }
+    };
+
+    return new LDAPBackend(resourceMappers)
+    {
+      @Override
+      protected LDAPRequestInterface getLDAPRequestInterface(
+          final String userID)
+      {
+        return ldapInterface;
+      }
+
+      @Override
+      public void finalizeBackend()
+      {
+        // No implementation required.
+      }
+    };
+  }
+
+
+
+  /**
+   * Retrieve the user names of the user resources returned by a query.
+   *
+   * @param resources  The user resources.
+   *
+   * @return  The user names, in the order they were returned.
+   */
+  private static List<String> getUserNames(
+      final Iterable<? extends BaseResource> resources)
+  {
+    final List<String> userNames = new ArrayList<String>();
+    for (final BaseResource resource : resources)
+    {
+      userNames.add(new UserResource(CoreSchema.USER_DESCRIPTOR,
+          resource.getScimObject()).getUserName());
+    }
+    return userNames;
+  }
+
+
+
+  /**
+   * Create a request to query all users.
+   *
+   * @param sortParameters  The sort parameters, or {@code null} if the
+   *                        results are not to be sorted.
+   *
+   * @return  The request.
+   *
+   * @throws SCIMException  If the request could not be created.
+   */
+  private static GetResourcesRequest createRequest(
+      final SortParameters sortParameters)
+      throws SCIMException
+  {
+    return new GetResourcesRequest(URI.create("http://localhost/"), null,
+        CoreSchema.USER_DESCRIPTOR, null, null, null, sortParameters, null,
+        new SCIMQueryAttributes(CoreSchema.USER_DESCRIPTOR, null));
+  }
+}
@@ -0,0 +1,535 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.ldap;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPSearchException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchResultReference;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.schema.CoreSchema;
+import com.unboundid.scim.sdk.SCIMAttribute;
+import com.unboundid.scim.sdk.SCIMAttributeValue;
+import com.unboundid.scim.sdk.SCIMConstants;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+
+
+/**
+ * This class provides test coverage for the {@link MembersDerivedAttribute}.
+ */
+public class MembersDerivedAttributeTestCase
+    extends SCIMTestCase
+{
+  /**
+   * The in-memory directory server containing the group and its members.
+   */
+  private InMemoryDirectoryServer ds;
+
+  /**
+   * The resolver for user entries.
+   */
+  private LDAPSearchResolver userResolver;
+
+  /**
+   * The resolver for group entries.
+   */
+  private LDAPSearchResolver groupResolver;
+
+  /**
+   * The DNs of the group members that exist, in member order.
+   */
+  private final List<String> memberDNs = new ArrayList<String>();
+
+  /**
+   * The DNs of the group members, including a member that does not exist.
+   */
+  private final List<String> groupMemberDNs = new ArrayList<String>();
+
+
+
+  /**
+   * Create the directory server and the entries for the group and its
+   * members. The members are under different base DNs.
+   *
+   * @throws Exception  If the directory server could not be created.
+   */
+  @BeforeClass
+  public void setUp()
+      throws Exception
+  {
+    final InMemoryDirectoryServerConfig config =
+        new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    ds = new InMemoryDirectoryServer(config);
+    ds.add(new Entry("dn: dc=example,dc=com",
+                     "objectClass: top",
+                     "objectClass: domain",
+                     "dc: example"));
+    for (final String ou : new String[] { "people", "contractors", "groups" })
+    {
+      ds.add(new Entry("dn: ou=" + ou + ",dc=example,dc=com",
+                       "objectClass: top",
+                       "objectClass: organizationalUnit",
+                       "ou: " + ou));
+    }
+
+    for (int i = 0; i < 5; i++)
+    {
+      memberDNs.add(addUser("user." + i, "people"));
+    }
+    groupMemberDNs.addAll(memberDNs);
+    groupMemberDNs.add("uid=missing,ou=people,dc=example,dc=com");
+    for (int i = 0; i < 2; i++)
+    {
+      final String dn = addUser("contractor." + i, "contractors");
+      memberDNs.add(dn);
+      groupMemberDNs.add(dn);
+    }
+
+    ds.add(new Entry("dn: cn=nested,ou=groups,dc=example,dc=com",
+                     "objectClass: top",
+                     "objectClass: groupOfNames",
+                     "cn: nested",
+                     "member: " + memberDNs.get(0)));
+    memberDNs.add("cn=nested,ou=groups,dc=example,dc=com");
+    groupMemberDNs.add("cn=nested,ou=groups,dc=example,dc=com");
+    ds.startListening();
+
+    userResolver = createResolver("(objectClass=inetOrgPerson)",
+        "ou=people,dc=example,dc=com", "ou=contractors,dc=example,dc=com");
+    groupResolver = createResolver("(objectClass=groupOfNames)",
+        "ou=groups,dc=example,dc=com");
+  }
+
+
+
+  /**
+   * Shut down the directory server.
+   */
+  @AfterClass
+  public void tearDown()
+  {
+    ds.shutDown(true);
+  }
+
+
+
+  /**
+   * Verify that static group members are resolved in batches, and that a
+   * member that does not exist is skipped.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testMemberBatches()
+      throws Exception
+  {
+    final MembersDerivedAttribute members =
+        createMembersAttribute("2", null, null);
+    final CountingRequestInterface ldapInterface =
+        new CountingRequestInterface(false);
+
+    assertEquals(getMemberIDs(members.toSCIMAttribute(
+        createGroupEntry(), ldapInterface, groupResolver)), getMemberIDs());
+
+    // Three batches for the six members under ou=people, one for the
+    // contractors and one for the nested group.
+    assertEquals(ldapInterface.batchSearches, 5);
+    assertEquals(ldapInterface.memberSearches, 0);
+  }
+
+
+
+  /**
+   * Verify that the entries returned by a batch search that fails are used,
+   * and that the rest of the batch is resolved with a search for each member.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testMemberBatchFailure()
+      throws Exception
+  {
+    final MembersDerivedAttribute members =
+        createMembersAttribute("2", null, null);
+    final CountingRequestInterface ldapInterface =
+        new CountingRequestInterface(true);
+
+    assertEquals(getMemberIDs(members.toSCIMAttribute(
+        createGroupEntry(), ldapInterface, groupResolver)), getMemberIDs());
+
+    // Each batch returns only its first entry, so one member of each batch
+    // of two is resolved separately, including the member that does not
+    // exist.
+    assertEquals(ldapInterface.batchSearches, 5);
+    assertEquals(ldapInterface.memberSearches, 4);
+  }
+
+
+
+  /**
+   * Verify that static group members are resolved with a search for each
+   * member when batches are not enabled.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testMembersWithoutBatches()
+      throws Exception
+  {
+    final MembersDerivedAttribute members =
+        createMembersAttribute(null, null, null);
+    final CountingRequestInterface ldapInterface =
+        new CountingRequestInterface(false);
+
+    assertEquals(getMemberIDs(members.toSCIMAttribute(
+        createGroupEntry(), ldapInterface, groupResolver)), getMemberIDs());
+    assertEquals(ldapInterface.batchSearches, 0);
+    assertEquals(ldapInterface.memberSearches, groupMemberDNs.size());
+  }
+
+
+
+  /**
+   * Verify that member values in the shared member cache are reused by later
+   * requests, and that a cached value is discarded when the member entry is
+   * modified or deleted.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testSharedMemberCache()
+      throws Exception
+  {
+    final String tempDN = addUser("temp", "people");
+    final Entry groupEntry =
+        createGroupEntry(memberDNs.get(0), memberDNs.get(1), tempDN);
+    final MembersDerivedAttribute members =
+        createMembersAttribute(null, "100", null);
+
+    CountingRequestInterface ldapInterface =
+        new CountingRequestInterface(false);
+    assertEquals(getMemberIDs(members.toSCIMAttribute(
+        groupEntry, ldapInterface, groupResolver)).size(), 3);
+    assertEquals(ldapInterface.memberSearches, 3);
+
+    // The cached values are used by a later request.
+    ldapInterface = new CountingRequestInterface(false);
+    assertEquals(getMemberIDs(members.toSCIMAttribute(
+        groupEntry, ldapInterface, groupResolver)).size(), 3);
+    assertEquals(ldapInterface.memberSearches, 0);
+
+    // A modified member is retrieved again.
+    members.invalidateCachedEntry(new DN(memberDNs.get(0)));
+    ldapInterface = new CountingRequestInterface(false);
+    assertEquals(getMemberIDs(members.toSCIMAttribute(
+        groupEntry, ldapInterface, groupResolver)).size(), 3);
+    assertEquals(ldapInterface.memberSearches, 1);
+
+    // A deleted member is no longer returned once its value is discarded.
+    ds.delete(tempDN);
+    members.invalidateCachedEntry(new DN(tempDN));
+    ldapInterface = new CountingRequestInterface(false);
+    assertEquals(getMemberIDs(members.toSCIMAttribute(
+        groupEntry, ldapInterface, groupResolver)),
+        Arrays.asList(new DN(memberDNs.get(0)).toNormalizedString(),
+                      new DN(memberDNs.get(1)).toNormalizedString()));
+    assertEquals(ldapInterface.memberSearches, 1);
+  }
+
+
+
+  /**
+   * Verify that member values in the shared member cache expire.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testSharedMemberCacheExpiration()
+      throws Exception
+  {
+    final Entry groupEntry = createGroupEntry(memberDNs.get(0));
+    final MembersDerivedAttribute members =
+        createMembersAttribute(null, "100", "1");
+
+    CountingRequestInterface ldapInterface =
+        new CountingRequestInterface(false);
+    members.toSCIMAttribute(groupEntry, ldapInterface, groupResolver);
+    assertEquals(ldapInterface.memberSearches, 1);
+
+    Thread.sleep(1100);
+
+    ldapInterface = new CountingRequestInterface(false);
+    assertEquals(getMemberIDs(members.toSCIMAttribute(
+        groupEntry, ldapInterface, groupResolver)),
+        Arrays.asList(new DN(memberDNs.get(0)).toNormalizedString()));
+    assertEquals(ldapInterface.memberSearches, 1);
+  }
+
+
+
+  /**
+   * Add a user entry to the directory server.
+   *
+   * @param uid  The uid of the user.
+   * @param ou   The organizational unit containing the user.
+   *
+   * @return  The DN of the user entry.
+   *
+   * @throws Exception  If the entry could not be added.
+   */
+  private String addUser(final String uid, final String ou)
+      throws Exception
+  {
+    final String dn = "uid=" + uid + ",ou=" + ou + ",dc=example,dc=com";
+    ds.add(new Entry("dn: " + dn,
+                     "objectClass: top",
+                     "objectClass: person",
+                     "objectClass: organizationalPerson",
+                     "objectClass: inetOrgPerson",
+                     "uid: " + uid,
+                     "cn: " + uid,
+                     "sn: " + uid));
+    return dn;
+  }
+
+
+
+  /**
+   * Create an LDAP search resolver whose resource IDs map to DNs.
+   *
+   * @param filter   The filter for resource entries.
+   * @param baseDNs  The base DNs for resource entries.
+   *
+   * @return  The LDAP search resolver.
+   *
+   * @throws Exception  If the resolver could not be created.
+   */
+  private static LDAPSearchResolver createResolver(final String filter,
+                                                   final String... baseDNs)
+      throws Exception
+  {
+    final LDAPSearchParameters parameters = new LDAPSearchParameters();
+    Collections.addAll(parameters.getBaseDN(), baseDNs);
+    parameters.setFilter(filter);
+    return new LDAPSearchResolver(parameters, new HashSet<DN>());
+  }
+
+
+
+  /**
+   * Create and initialize a members derived attribute.
+   *
+   * @param memberBatchSize         The value of the memberBatchSize
+   *                                argument, or {@code null} if members are
+   *                                not resolved in batches.
+   * @param maxSharedMembersCached  The value of the maxSharedMembersCached
+   *                                argument, or {@code null} if member
+   *                                values are not cached across requests.
+   * @param sharedCacheTTLSeconds   The value of the
+   *                                sharedMembersCacheTTLSeconds argument, or
+   *                                {@code null} to use the default.
+   *
+   * @return  The members derived attribute.
+   *
+   * @throws Exception  If the derived attribute could not be created.
+   */
+  private MembersDerivedAttribute createMembersAttribute(
+      final String memberBatchSize,
+      final String maxSharedMembersCached,
+      final String sharedCacheTTLSeconds)
+      throws Exception
+  {
+    final MembersDerivedAttribute members =
+        (MembersDerivedAttribute) DerivedAttribute.create(
+            MembersDerivedAttribute.class.getName(), null);
+    members.getArguments().put(DerivedAttribute.LDAP_SEARCH_REF,
+                               userResolver);
+    if (memberBatchSize != null)
+    {
+      members.getArguments().put("memberBatchSize", memberBatchSize);
+    }
+    if (maxSharedMembersCached != null)
+    {
+      members.getArguments().put("maxSharedMembersCached",
+                                 maxSharedMembersCached);
+    }
+    if (sharedCacheTTLSeconds != null)
+    {
+      members.getArguments().put("sharedMembersCacheTTLSeconds",
+                                 sharedCacheTTLSeconds);
+    }
+    members.initialize(CoreSchema.GROUP_DESCRIPTOR.getAttribute(
+        SCIMConstants.SCHEMA_URI_CORE, "members"));
+    return members;
+  }
+
+
+
+  /**
+   * Create the entry for the group whose members are to be resolved.
+   *
+   * @return  The group entry.
+   */
+  private Entry createGroupEntry()
+  {
+    return createGroupEntry(
+        groupMemberDNs.toArray(new String[groupMemberDNs.size()]));
+  }
+
+
+
+  /**
+   * Create the entry for a group with the provided members.
+   *
+   * @param members  The DNs of the group members.
+   *
+   * @return  The group entry.
+   */
+  private static Entry createGroupEntry(final String... members)
+  {
+    final Entry entry = new Entry("cn=all,ou=groups,dc=example,dc=com");
+    entry.addAttribute("objectClass", "top", "groupOfNames");
+    entry.addAttribute("cn", "all");
+    entry.addAttribute("member", members);
+    return entry;
+  }
+
+
+
+  /**
+   * Retrieve the expected resource IDs of the group members, in member order.
+   *
+   * @return  The expected resource IDs of the group members.
+   *
+   * @throws Exception  If a DN could not be parsed.
+   */
+  private List<String> getMemberIDs()
+      throws Exception
+  {
+    final List<String> ids = new ArrayList<String>();
+    for (final String dn : memberDNs)
+    {
+      ids.add(new DN(dn).toNormalizedString());
+    }
+    return ids;
+  }
+
+
+
+  /**
+   * Retrieve the resource IDs of the values of a members attribute.
+   *
+   * @param attribute  The members attribute.
+   *
+   * @return  The resource IDs of the members.
+   */
+  private static List<String> getMemberIDs(final SCIMAttribute attribute)
+  {
+    final List<String> ids = new ArrayList<String>();
+    for (final SCIMAttributeValue v : attribute.getValues())
+    {
+      ids.add(v.getAttribute("value").getValue().getStringValue());
+    }
+    return ids;
+  }
+
+
+
+  /**
+   * An LDAP request interface that counts the searches for group members,
+   * and that can make each batch search fail after returning its first
+   * entry.
+   */
+  private final class CountingRequestInterface
+      extends LDAPRequestInterface
+  {
+    /**
+     * Whether batch searches are to fail.
+     */
+    private final boolean failBatches;
+
+    /**
+     * The number of batch searches.
+     */
+    private int batchSearches;
+
+    /**
+     * The number of base object searches for a single member.
+     */
+    private int memberSearches;
+
+
+
+    /**
+     * Create a new instance of this LDAP request interface.
+     *
+     * @param failBatches  Whether batch searches are to fail.
+     *
+     * @throws Exception  If a connection could not be established.
+     */
+    private CountingRequestInterface(final boolean failBatches)
+        throws Exception
+    {
+      super(ds.getConnection());
+      this.failBatches = failBatches;
+    }
+
+
+
+    @Override
+    public SearchResult search(final SearchRequest searchRequest)
+        throws LDAPSearchException
+    {
+      if (searchRequest.getScope() == SearchScope.BASE)
+      {
+        memberSearches++;
+        return super.search(searchRequest);
+      }
+
+      batchSearches++;
+      final SearchResult result = super.search(searchRequest);
+      if (!failBatches)
+      {
+        return result;
+      }
+
+      throw new LDAPSearchException(new SearchResult(
+          result.getMessageID(), ResultCode.SIZE_LIMIT_EXCEEDED,
+          "Size limit exceeded", null, null,
+          result.getSearchEntries().subList(0, 1),
+          Collections.<SearchResultReference>emptyList(), 1, 0, null));
+    }
+  }
+}
@@ -20,6 +20,7 @@ package com.unboundid.scim.facade.org.apache.wink.client;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.client.InvocationCallback;
 import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.Cookie;
 import jakarta.ws.rs.core.MediaType;
@@ -27,6 +28,7 @@ import jakarta.ws.rs.core.MultivaluedHashMap;
 import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.Response;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 /**
  *  Wink compatibility layer class - see Wink docs.
@@ -288,4 +290,55 @@ public class Resource
         ClientResponse clientResponse = new ClientResponse(response);
     return clientResponse;
   }
+
+  /**
+   * Invoke the request asynchronously using the JAX-RS async invoker. This
+   * method is not part of Wink.
+   *
+   * @param operation The HTTP method.
+   * @param entity The request entity, or {@code null} if there is none.
+   * @return A future providing the response, or completed exceptionally if
+   *         the request could not be processed.
+   */
+  public CompletableFuture<ClientResponse> invokeAsync(final String operation,
+                                                       final Object entity)
+  {
+    Invocation.Builder builder = webTarget.request();
+    builder.headers(headers);
+    if(acceptType != null)
+    {
+      builder.accept(acceptType);
+    }
+    if(cookie != null)
+    {
+      builder.cookie(cookie);
+    }
+
+    final CompletableFuture<ClientResponse> future =
+        new CompletableFuture<ClientResponse>();
+    final InvocationCallback<Response> callback =
+        new InvocationCallback<Response>()
+        {
+          public void completed(final Response response)
+          {
+            future.complete(new ClientResponse(response));
+          }
+
+          public void failed(final Throwable throwable)
+          {
+            future.completeExceptionally(throwable);
+          }
+        };
+
+    if(entity == null)
+    {
+      builder.async().method(operation, callback);
+    }
+    else
+    {
+      builder.async().method(operation,
+          Entity.entity(entity, contentType), callback);
+    }
+    return future;
+  }
 }
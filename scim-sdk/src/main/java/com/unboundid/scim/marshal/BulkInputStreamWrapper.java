@@ -26,13 +26,17 @@ import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class is a wrapper around an input stream that allows us to determine
- * how many bytes have been read from the stream.
+ * how many bytes have been read from the stream, and optionally limits the
+ * number of bytes that may be read.
  */
 public class BulkInputStreamWrapper extends FilterInputStream
 {
   // The number of bytes read from the stream.
   private final AtomicLong bytesRead;
 
+  // The maximum number of bytes that may be read from the stream.
+  private final long maxBytesRead;
+
 
 
   /**
@@ -42,9 +46,26 @@ public class BulkInputStreamWrapper extends FilterInputStream
    * @param  s  The input stream to be wrapped.
    */
   public BulkInputStreamWrapper(final InputStream s)
+  {
+    this(s, Long.MAX_VALUE);
+  }
+
+
+
+  /**
+   * Creates a new instance of this input stream that wraps the provided
+   * stream, and fails any read that takes the number of bytes read beyond
+   * the provided limit.
+   *
+   * @param  s             The input stream to be wrapped.
+   * @param  maxBytesRead  The maximum number of bytes that may be read from
+   *                       the stream.
+   */
+  public BulkInputStreamWrapper(final InputStream s, final long maxBytesRead)
   {
     super(s);
     bytesRead  = new AtomicLong(0L);
+    this.maxBytesRead = maxBytesRead;
   }
 
 
@@ -70,7 +91,7 @@ public class BulkInputStreamWrapper extends FilterInputStream
     int c = in.read();
     if (c != -1)
     {
-      bytesRead.incrementAndGet();
+      checkBytesRead(bytesRead.incrementAndGet());
     }
 
     return c;
@@ -119,7 +140,7 @@ public class BulkInputStreamWrapper extends FilterInputStream
     int n = in.read(b);
     if (n != -1)
     {
-      bytesRead.addAndGet(n);
+      checkBytesRead(bytesRead.addAndGet(n));
     }
 
     return n;
@@ -189,7 +210,7 @@ public class BulkInputStreamWrapper extends FilterInputStream
     int n = in.read(b, off, len);
     if (n != -1)
     {
-      bytesRead.addAndGet(n);
+      checkBytesRead(bytesRead.addAndGet(n));
     }
 
     return n;
@@ -219,7 +240,7 @@ public class BulkInputStreamWrapper extends FilterInputStream
   public long skip(final long n) throws IOException
   {
     long skipped = in.skip(n);
-    bytesRead.addAndGet(skipped);
+    checkBytesRead(bytesRead.addAndGet(skipped));
 
     return n;
   }
@@ -235,4 +256,38 @@ public class BulkInputStreamWrapper extends FilterInputStream
   {
     return bytesRead.get();
   }
+
+
+
+  /**
+   * Indicates whether a read failed because it took the number of bytes read
+   * beyond the maximum.
+   *
+   * @return  {@code true} if the maximum number of bytes read was exceeded.
+   */
+  public boolean isMaxBytesReadExceeded()
+  {
+    return bytesRead.get() > maxBytesRead;
+  }
+
+
+
+  /**
+   * Fail a read that took the number of bytes read beyond the maximum, so
+   * that the content beyond the maximum is never returned.
+   *
+   * @param totalBytesRead  The number of bytes read, including the read
+   *                        being checked.
+   *
+   * @throws IOException  If the maximum number of bytes read was exceeded.
+   */
+  private void checkBytesRead(final long totalBytesRead)
+      throws IOException
+  {
+    if (totalBytesRead > maxBytesRead)
+    {
+      throw new IOException("The number of bytes read exceeds the maximum (" +
+                            maxBytesRead + ")");
+    }
+  }
 }
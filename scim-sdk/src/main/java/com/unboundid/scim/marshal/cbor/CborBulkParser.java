@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.cbor;
+
+import com.unboundid.scim.data.BulkConfig;
+import com.unboundid.scim.marshal.json.JsonBulkParser;
+import com.unboundid.scim.sdk.BulkContentHandler;
+import com.unboundid.scim.sdk.Debug;
+import com.unboundid.scim.sdk.InvalidResourceException;
+import com.unboundid.scim.sdk.SCIMException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+
+/**
+ * This class is a helper class to handle parsing of CBOR bulk operations.
+ * Each operation is read into a JSON object and handled as it is read, in
+ * the same way as JSON bulk operations.
+ */
+class CborBulkParser extends JsonBulkParser
+{
+  /**
+   * Create a new instance of this bulk unmarshaller.
+   *
+   * @param inputStream  The input stream containing the bulk content to be
+   *                     read.
+   * @param bulkConfig   The bulk configuration settings to be enforced.
+   * @param handler      A bulk operation listener to handle the content as it
+   *                     is read.
+   */
+  CborBulkParser(final InputStream inputStream,
+                 final BulkConfig bulkConfig,
+                 final BulkContentHandler handler)
+  {
+    super(inputStream, bulkConfig, handler);
+  }
+
+
+
+  /**
+   * Reads a SCIM bulk request or response from the input stream.
+   *
+   * @throws SCIMException If the bulk content could not be read.
+   */
+  @Override
+  public void unmarshal()
+      throws SCIMException
+  {
+    try
+    {
+      final CborReader reader = new CborReader(getInputStream());
+      final long length = reader.readMapStart();
+      for (long i = 0; reader.hasNext(length, i); i++)
+      {
+        final String key = reader.readKey();
+        if (key.equals("failOnErrors"))
+        {
+          final Object failOnErrors = reader.read();
+          if (!(failOnErrors instanceof Number))
+          {
+            throw new IOException("failOnErrors must be an integer");
+          }
+          getHandler().handleFailOnErrors(((Number) failOnErrors).intValue());
+        }
+        else if (key.equals("Operations"))
+        {
+          final long operations = reader.readArrayStart();
+          for (long j = 0; reader.hasNext(operations, j); j++)
+          {
+            checkOperationLimits();
+            handleOperation(reader.read());
+          }
+        }
+        else
+        {
+          // Skip.
+          reader.read();
+        }
+      }
+    }
+    catch (SCIMException e)
+    {
+      throw e;
+    }
+    catch (Exception e)
+    {
+      Debug.debugException(e);
+      checkPayloadSize();
+      throw new InvalidResourceException(
+          "Error while reading CBOR Bulk content: " + e.getMessage(), e);
+    }
+  }
+}
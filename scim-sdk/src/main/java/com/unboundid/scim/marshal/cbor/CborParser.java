@@ -0,0 +1,215 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.cbor;
+
+import com.unboundid.scim.data.BaseResource;
+import com.unboundid.scim.data.ResourceFactory;
+import com.unboundid.scim.marshal.json.JsonParser;
+import com.unboundid.scim.schema.ResourceDescriptor;
+import com.unboundid.scim.sdk.Debug;
+import com.unboundid.scim.sdk.DebugType;
+import com.unboundid.scim.sdk.InvalidResourceException;
+import com.unboundid.scim.sdk.Resources;
+import com.unboundid.scim.sdk.SCIMException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+
+
+/**
+ * Helper class for CBOR unmarshalling. The CBOR content is read into JSON
+ * objects, which are then read by the JSON parser.
+ */
+class CborParser extends JsonParser
+{
+  private final CborReader reader;
+
+
+
+  /**
+   * Create a new instance of this parser.
+   *
+   * @param inputStream  The input stream containing the CBOR content to be
+   *                     read.
+   */
+  CborParser(final InputStream inputStream)
+  {
+    this.reader = new CborReader(inputStream);
+  }
+
+
+
+  /**
+   * Read a SCIM resource from the input stream.
+   *
+   * @param <R> The type of resource instance.
+   * @param resourceDescriptor The descriptor of the SCIM resource to be read.
+   * @param resourceFactory The resource factory to use to create the resource
+   *                        instance.
+   *
+   * @return  The SCIM resource that was read.
+   *
+   * @throws IOException If the CBOR content could not be read.
+   * @throws JSONException If the content cannot be represented as JSON.
+   * @throws InvalidResourceException if a schema error occurs.
+   */
+  <R extends BaseResource> R unmarshal(
+      final ResourceDescriptor resourceDescriptor,
+      final ResourceFactory<R> resourceFactory)
+      throws IOException, JSONException, InvalidResourceException
+  {
+    return unmarshal(readObject(), resourceDescriptor, resourceFactory, null);
+  }
+
+
+
+  /**
+   * Read a SCIM query response from the input stream.
+   *
+   * @param <R> The type of resource instance.
+   * @param resourceDescriptor The descriptor of the SCIM resource to be read.
+   * @param resourceFactory The resource factory to use to create the resource
+   *                        instance.
+   *
+   * @return  The SCIM query response that was read.
+   *
+   * @throws IOException If the CBOR content could not be read.
+   * @throws JSONException If the content cannot be represented as JSON.
+   * @throws InvalidResourceException if a schema error occurs.
+   */
+  <R extends BaseResource> Resources<R> unmarshalResources(
+      final ResourceDescriptor resourceDescriptor,
+      final ResourceFactory<R> resourceFactory)
+      throws IOException, JSONException, InvalidResourceException
+  {
+    final JSONObject jsonObject = readObject();
+
+    int totalResults = 0;
+    if (jsonObject.has("totalresults"))
+    {
+      totalResults = jsonObject.getInt("totalresults");
+    }
+
+    int startIndex = 1;
+    if (jsonObject.has("startindex"))
+    {
+      startIndex = jsonObject.getInt("startindex");
+    }
+
+    final JSONArray schemas = jsonObject.optJSONArray("schemas");
+
+    List<R> resources = new ArrayList<R>();
+    final JSONArray resourcesArray = jsonObject.optJSONArray("resources");
+    if (resourcesArray != null)
+    {
+      resources = new ArrayList<R>(resourcesArray.length());
+      for (int i = 0; i < resourcesArray.length(); i++)
+      {
+        final JSONObject subObject =
+            makeCaseInsensitive(resourcesArray.getJSONObject(i));
+        resources.add(unmarshal(subObject, resourceDescriptor,
+                                resourceFactory, schemas));
+      }
+    }
+
+    // Handle an edge case in which the content being unmarshalled does not
+    // in fact represent a list of SCIM resources. This can happen, for
+    // example, if a client calls SCIMEndpoint.query(...) for a SCIM service's
+    // "/Schemas" endpoint, and the SCIM service returns a single schema
+    // resource rather than a search response.
+    try
+    {
+      if (resources.isEmpty() &&
+          !jsonObject.has("totalresults") &&
+          !jsonObject.has("startindex"))
+      {
+        Debug.debug(Level.WARNING, DebugType.OTHER,
+            "CBOR object is not a SCIM list response");
+        final R resource = unmarshal(jsonObject, resourceDescriptor,
+                                     resourceFactory, schemas);
+        resources = new ArrayList<R>(1);
+        resources.add(resource);
+        totalResults = 1;
+      }
+    }
+    catch (Exception e)
+    {
+      // If this fails, do nothing and return an empty Resources object.
+      Debug.debugException(e);
+    }
+
+    return new Resources<R>(resources, totalResults, startIndex);
+  }
+
+
+
+  /**
+   * Read a SCIM error response from the input stream.
+   *
+   * @return  The SCIM error response that was read, or {@code null} if the
+   *          content does not contain an error.
+   *
+   * @throws IOException If the CBOR content could not be read.
+   * @throws JSONException If the content cannot be represented as JSON.
+   */
+  SCIMException unmarshalError()
+      throws IOException, JSONException
+  {
+    final JSONObject jsonObject = readObject();
+
+    final JSONArray errors = jsonObject.optJSONArray("errors");
+    if (errors != null && errors.length() >= 1)
+    {
+      final JSONObject error = errors.getJSONObject(0);
+      final int code = error.optInt("code");
+      final String description = error.optString("description");
+      return SCIMException.createException(code, description);
+    }
+    return null;
+  }
+
+
+
+  /**
+   * Read a map from the input stream.
+   *
+   * @return  A JSON object holding the content of the map, with the keys
+   *          lower-cased.
+   *
+   * @throws IOException If the CBOR content could not be read or is not a
+   *                     map.
+   * @throws JSONException If the content cannot be represented as JSON.
+   */
+  private JSONObject readObject()
+      throws IOException, JSONException
+  {
+    final Object o = reader.read();
+    if (!(o instanceof JSONObject))
+    {
+      throw new IOException("CBOR content must be a map");
+    }
+    return makeCaseInsensitive((JSONObject) o);
+  }
+}
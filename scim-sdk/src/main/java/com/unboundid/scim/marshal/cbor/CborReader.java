@@ -0,0 +1,646 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.cbor;
+
+import jakarta.xml.bind.DatatypeConverter;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.unboundid.scim.marshal.cbor.CborWriter.BREAK;
+import static com.unboundid.scim.marshal.cbor.CborWriter.FALSE;
+import static com.unboundid.scim.marshal.cbor.CborWriter.FLOAT16;
+import static com.unboundid.scim.marshal.cbor.CborWriter.FLOAT32;
+import static com.unboundid.scim.marshal.cbor.CborWriter.FLOAT64;
+import static com.unboundid.scim.marshal.cbor.CborWriter.INDEFINITE;
+import static com.unboundid.scim.marshal.cbor.CborWriter.MAJOR_ARRAY;
+import static com.unboundid.scim.marshal.cbor.CborWriter.MAJOR_BYTES;
+import static com.unboundid.scim.marshal.cbor.CborWriter.MAJOR_MAP;
+import static com.unboundid.scim.marshal.cbor.CborWriter.MAJOR_NEGATIVE;
+import static com.unboundid.scim.marshal.cbor.CborWriter.MAJOR_TAG;
+import static com.unboundid.scim.marshal.cbor.CborWriter.MAJOR_TEXT;
+import static com.unboundid.scim.marshal.cbor.CborWriter.MAJOR_UNSIGNED;
+import static com.unboundid.scim.marshal.cbor.CborWriter.NULL;
+import static com.unboundid.scim.marshal.cbor.CborWriter.TRUE;
+import static com.unboundid.scim.marshal.cbor.CborWriter.UNDEFINED;
+
+
+
+/**
+ * This class reads CBOR (RFC 8949) data items from an input stream into the
+ * same representation that is produced by the {@code org.json} parser, so
+ * that they may be read by the JSON parsers: maps become JSON objects,
+ * arrays become JSON arrays, integers are read as {@code Long} values,
+ * floating-point numbers as {@code Double} values, null and undefined as
+ * {@code JSONObject.NULL}, and byte strings as their base64 encoding. Tags
+ * are ignored.
+ */
+final class CborReader
+{
+  /**
+   * The size of the buffer holding content read from the input stream.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * The maximum number of bytes allocated in advance for a string, so that
+   * a malformed length does not cause a large allocation.
+   */
+  private static final int MAX_PREALLOCATED = 65536;
+
+  /**
+   * The maximum depth of nested maps, arrays and tags.
+   */
+  private static final int MAX_DEPTH = 256;
+
+  /**
+   * The input stream from which the data items are read.
+   */
+  private final InputStream inputStream;
+
+  /**
+   * The buffer holding content read from the input stream.
+   */
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+
+  /**
+   * The position of the next byte to be read from the buffer.
+   */
+  private int position;
+
+  /**
+   * The number of bytes in the buffer.
+   */
+  private int limit;
+
+  /**
+   * The depth of the data item being read.
+   */
+  private int depth;
+
+
+
+  /**
+   * Create a new CBOR reader.
+   *
+   * @param inputStream  The input stream from which the data items are read.
+   */
+  CborReader(final InputStream inputStream)
+  {
+    this.inputStream = inputStream;
+  }
+
+
+
+  /**
+   * Read a data item.
+   *
+   * @return  The data item that was read.
+   *
+   * @throws IOException    If the data item could not be read or is
+   *                        malformed.
+   * @throws JSONException  If the data item cannot be represented as JSON.
+   */
+  Object read()
+      throws IOException, JSONException
+  {
+    return readItem(readByte());
+  }
+
+
+
+  /**
+   * Read the head of a map.
+   *
+   * @return  The number of entries in the map, or -1 if the map has an
+   *          indefinite length and is ended by a break.
+   *
+   * @throws IOException  If the head could not be read or is not the head of
+   *                      a map.
+   */
+  long readMapStart()
+      throws IOException
+  {
+    return readContainerStart(MAJOR_MAP, "map");
+  }
+
+
+
+  /**
+   * Read the head of an array.
+   *
+   * @return  The number of elements in the array, or -1 if the array has an
+   *          indefinite length and is ended by a break.
+   *
+   * @throws IOException  If the head could not be read or is not the head of
+   *                      an array.
+   */
+  long readArrayStart()
+      throws IOException
+  {
+    return readContainerStart(MAJOR_ARRAY, "array");
+  }
+
+
+
+  /**
+   * Determine whether there is another entry in a map or element in an
+   * array, consuming the break that ends an indefinite length container.
+   *
+   * @param length  The length of the container, or -1 if it has an
+   *                indefinite length.
+   * @param index   The number of entries or elements already read.
+   *
+   * @return  {@code true} if there is another entry or element.
+   *
+   * @throws IOException  If the content could not be read.
+   */
+  boolean hasNext(final long length, final long index)
+      throws IOException
+  {
+    if (length >= 0)
+    {
+      return index < length;
+    }
+
+    fill(1);
+    if ((buffer[position] & 0xFF) == BREAK)
+    {
+      position++;
+      return false;
+    }
+    return true;
+  }
+
+
+
+  /**
+   * Read a map key.
+   *
+   * @return  The key that was read, which is converted to a string if it is
+   *          not a text string.
+   *
+   * @throws IOException    If the key could not be read or is malformed.
+   * @throws JSONException  If the key cannot be represented as JSON.
+   */
+  String readKey()
+      throws IOException, JSONException
+  {
+    final Object key = read();
+    return key instanceof String ? (String) key : String.valueOf(key);
+  }
+
+
+
+  /**
+   * Read a data item given its initial byte.
+   *
+   * @param initialByte  The initial byte of the data item.
+   *
+   * @return  The data item that was read.
+   *
+   * @throws IOException    If the data item could not be read or is
+   *                        malformed.
+   * @throws JSONException  If the data item cannot be represented as JSON.
+   */
+  private Object readItem(final int initialByte)
+      throws IOException, JSONException
+  {
+    final int majorType = initialByte >> 5;
+    final int info = initialByte & 0x1F;
+    switch (majorType)
+    {
+      case MAJOR_UNSIGNED:
+        return readInteger(info);
+
+      case MAJOR_NEGATIVE:
+        return ~readInteger(info);
+
+      case MAJOR_BYTES:
+        return DatatypeConverter.printBase64Binary(
+            readString(MAJOR_BYTES, info));
+
+      case MAJOR_TEXT:
+        return new String(readString(MAJOR_TEXT, info),
+                          StandardCharsets.UTF_8);
+
+      case MAJOR_ARRAY:
+        enter();
+        final long arrayLength = readLength(info, true);
+        final JSONArray array = new JSONArray();
+        for (long i = 0; hasNext(arrayLength, i); i++)
+        {
+          array.put(read());
+        }
+        depth--;
+        return array;
+
+      case MAJOR_MAP:
+        enter();
+        final long mapLength = readLength(info, true);
+        final JSONObject object = new JSONObject();
+        for (long i = 0; hasNext(mapLength, i); i++)
+        {
+          final String key = readKey();
+          object.put(key, read());
+        }
+        depth--;
+        return object;
+
+      case MAJOR_TAG:
+        enter();
+        readLength(info, false);
+        final Object tagged = read();
+        depth--;
+        return tagged;
+
+      default:
+        return readSimple(initialByte);
+    }
+  }
+
+
+
+  /**
+   * Read a floating-point number or simple value.
+   *
+   * @param initialByte  The initial byte of the data item.
+   *
+   * @return  The value that was read.
+   *
+   * @throws IOException  If the value could not be read or is not supported.
+   */
+  private Object readSimple(final int initialByte)
+      throws IOException
+  {
+    switch (initialByte)
+    {
+      case FALSE:
+        return Boolean.FALSE;
+      case TRUE:
+        return Boolean.TRUE;
+      case NULL:
+      case UNDEFINED:
+        return JSONObject.NULL;
+      case FLOAT16:
+        return halfToDouble((int) readBits(2));
+      case FLOAT32:
+        return (double) Float.intBitsToFloat((int) readBits(4));
+      case FLOAT64:
+        return Double.longBitsToDouble(readBits(8));
+      default:
+        throw new IOException("Unsupported CBOR simple value with initial " +
+            "byte 0x" + Integer.toHexString(initialByte));
+    }
+  }
+
+
+
+  /**
+   * Read the argument of an integer.
+   *
+   * @param info  The additional information from the initial byte.
+   *
+   * @return  The argument.
+   *
+   * @throws IOException  If the argument could not be read or is out of
+   *                      range.
+   */
+  private long readInteger(final int info)
+      throws IOException
+  {
+    final long argument = readLength(info, false);
+    if (argument < 0)
+    {
+      throw new IOException("CBOR integer is out of range");
+    }
+    return argument;
+  }
+
+
+
+  /**
+   * Read the argument of a data item, which is a length for strings, arrays
+   * and maps.
+   *
+   * @param info      The additional information from the initial byte.
+   * @param isLength  Indicates whether the argument is a length, which may
+   *                  be indefinite.
+   *
+   * @return  The argument, or -1 for an indefinite length. An eight byte
+   *          argument that is not a length and does not fit in a signed long
+   *          is returned as a negative value.
+   *
+   * @throws IOException  If the argument could not be read or is malformed.
+   */
+  private long readLength(final int info, final boolean isLength)
+      throws IOException
+  {
+    if (info < 24)
+    {
+      return info;
+    }
+
+    final long argument;
+    switch (info)
+    {
+      case 24:
+        argument = readBits(1);
+        break;
+      case 25:
+        argument = readBits(2);
+        break;
+      case 26:
+        argument = readBits(4);
+        break;
+      case 27:
+        argument = readBits(8);
+        break;
+      case INDEFINITE:
+        argument = -1;
+        break;
+      default:
+        throw new IOException("Malformed CBOR additional information " +
+            info);
+    }
+
+    if (info == INDEFINITE && !isLength)
+    {
+      throw new IOException("Malformed CBOR indefinite length");
+    }
+    if (argument < 0 && info != INDEFINITE && isLength)
+    {
+      throw new IOException("CBOR length is out of range");
+    }
+    return argument;
+  }
+
+
+
+  /**
+   * Read the head of a map or array.
+   *
+   * @param majorType  The major type of the container.
+   * @param name       The name of the container, for error messages.
+   *
+   * @return  The length of the container, or -1 for an indefinite length.
+   *
+   * @throws IOException  If the head could not be read or is not of the
+   *                      expected major type.
+   */
+  private long readContainerStart(final int majorType, final String name)
+      throws IOException
+  {
+    final int initialByte = readByte();
+    if (initialByte >> 5 != majorType)
+    {
+      throw new IOException("Expected a CBOR " + name);
+    }
+    return readLength(initialByte & 0x1F, true);
+  }
+
+
+
+  /**
+   * Read the content of a byte string or text string, joining the chunks of
+   * an indefinite length string.
+   *
+   * @param majorType  The major type of the string.
+   * @param info       The additional information from the initial byte.
+   *
+   * @return  The content of the string.
+   *
+   * @throws IOException  If the string could not be read or is malformed.
+   */
+  private byte[] readString(final int majorType, final int info)
+      throws IOException
+  {
+    final long length = readLength(info, true);
+    if (length >= 0)
+    {
+      return readBytes(length);
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int initialByte = readByte(); initialByte != BREAK;
+         initialByte = readByte())
+    {
+      final int chunkInfo = initialByte & 0x1F;
+      if (initialByte >> 5 != majorType || chunkInfo == INDEFINITE)
+      {
+        throw new IOException("Malformed CBOR indefinite length string");
+      }
+      out.write(readBytes(readLength(chunkInfo, true)));
+    }
+    return out.toByteArray();
+  }
+
+
+
+  /**
+   * Read the given number of bytes.
+   *
+   * @param length  The number of bytes to be read.
+   *
+   * @return  The bytes that were read.
+   *
+   * @throws IOException  If the bytes could not be read.
+   */
+  private byte[] readBytes(final long length)
+      throws IOException
+  {
+    if (length > Integer.MAX_VALUE - 8)
+    {
+      throw new IOException("CBOR string is too long");
+    }
+
+    final int n = (int) length;
+    if (n <= MAX_PREALLOCATED)
+    {
+      final byte[] bytes = new byte[n];
+      readFully(bytes, 0, n);
+      return bytes;
+    }
+
+    // Read the string in chunks so that memory is only used for content that
+    // is actually present.
+    final ByteArrayOutputStream out =
+        new ByteArrayOutputStream(MAX_PREALLOCATED);
+    final byte[] chunk = new byte[MAX_PREALLOCATED];
+    int remaining = n;
+    while (remaining > 0)
+    {
+      final int chunkLength = Math.min(remaining, chunk.length);
+      readFully(chunk, 0, chunkLength);
+      out.write(chunk, 0, chunkLength);
+      remaining -= chunkLength;
+    }
+    return out.toByteArray();
+  }
+
+
+
+  /**
+   * Read bytes into an array.
+   *
+   * @param bytes   The array into which the bytes are read.
+   * @param offset  The offset in the array of the first byte.
+   * @param length  The number of bytes to be read.
+   *
+   * @throws IOException  If the bytes could not be read.
+   */
+  private void readFully(final byte[] bytes, final int offset,
+                         final int length)
+      throws IOException
+  {
+    int copied = 0;
+    while (copied < length)
+    {
+      if (position == limit)
+      {
+        fill(1);
+      }
+      final int n = Math.min(length - copied, limit - position);
+      System.arraycopy(buffer, position, bytes, offset + copied, n);
+      position += n;
+      copied += n;
+    }
+  }
+
+
+
+  /**
+   * Read an unsigned number in network byte order.
+   *
+   * @param bytes  The number of bytes to be read.
+   *
+   * @return  The number that was read.
+   *
+   * @throws IOException  If the number could not be read.
+   */
+  private long readBits(final int bytes)
+      throws IOException
+  {
+    fill(bytes);
+    long bits = 0;
+    for (int i = 0; i < bytes; i++)
+    {
+      bits = (bits << 8) | (buffer[position++] & 0xFF);
+    }
+    return bits;
+  }
+
+
+
+  /**
+   * Read a single byte.
+   *
+   * @return  The byte that was read, as an unsigned value.
+   *
+   * @throws IOException  If the byte could not be read.
+   */
+  private int readByte()
+      throws IOException
+  {
+    fill(1);
+    return buffer[position++] & 0xFF;
+  }
+
+
+
+  /**
+   * Make sure the buffer holds at least the given number of bytes, which
+   * must not exceed the size of the buffer.
+   *
+   * @param length  The number of bytes required.
+   *
+   * @throws IOException  If the bytes could not be read.
+   */
+  private void fill(final int length)
+      throws IOException
+  {
+    if (limit - position >= length)
+    {
+      return;
+    }
+
+    System.arraycopy(buffer, position, buffer, 0, limit - position);
+    limit -= position;
+    position = 0;
+    while (limit < length)
+    {
+      final int n = inputStream.read(buffer, limit, BUFFER_SIZE - limit);
+      if (n < 0)
+      {
+        throw new EOFException("Unexpected end of CBOR content");
+      }
+      limit += n;
+    }
+  }
+
+
+
+  /**
+   * Enter a nested map, array or tag.
+   *
+   * @throws IOException  If the maximum depth has been reached.
+   */
+  private void enter()
+      throws IOException
+  {
+    if (++depth > MAX_DEPTH)
+    {
+      throw new IOException("CBOR content is nested too deeply");
+    }
+  }
+
+
+
+  /**
+   * Convert a half-precision floating-point number to a double.
+   *
+   * @param half  The bits of the half-precision number.
+   *
+   * @return  The value of the number.
+   */
+  private static double halfToDouble(final int half)
+  {
+    final int exponent = (half >> 10) & 0x1F;
+    final int mantissa = half & 0x3FF;
+    final double value;
+    if (exponent == 0)
+    {
+      value = mantissa * Math.pow(2, -24);
+    }
+    else if (exponent == 0x1F)
+    {
+      value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+    }
+    else
+    {
+      value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+    }
+    return (half & 0x8000) != 0 ? -value : value;
+  }
+}
@@ -0,0 +1,725 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.cbor;
+
+import com.unboundid.scim.data.BaseResource;
+import com.unboundid.scim.marshal.StreamMarshaller;
+import com.unboundid.scim.schema.ResourceDescriptor;
+import com.unboundid.scim.sdk.BulkOperation;
+import com.unboundid.scim.sdk.Debug;
+import com.unboundid.scim.sdk.Resources;
+import com.unboundid.scim.sdk.SCIMAttribute;
+import com.unboundid.scim.sdk.SCIMAttributeValue;
+import com.unboundid.scim.sdk.SCIMConstants;
+import com.unboundid.scim.sdk.SCIMException;
+import com.unboundid.scim.sdk.ServerErrorException;
+import com.unboundid.scim.sdk.StreamingResources;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+
+/**
+ * This class provides a SCIM object marshaller implementation to write a
+ * stream of SCIM objects to their CBOR representation.
+ */
+public class CborStreamMarshaller implements StreamMarshaller
+{
+  /**
+   * The keys written by this marshaller, encoded in advance.
+   */
+  private static final byte[] KEY_SCHEMAS =
+      CborWriter.encode(SCIMConstants.SCHEMAS_ATTRIBUTE_NAME);
+  private static final byte[] KEY_TOTAL_RESULTS =
+      CborWriter.encode("totalResults");
+  private static final byte[] KEY_ITEMS_PER_PAGE =
+      CborWriter.encode("itemsPerPage");
+  private static final byte[] KEY_START_INDEX =
+      CborWriter.encode("startIndex");
+  private static final byte[] KEY_RESOURCES =
+      CborWriter.encode("Resources");
+  private static final byte[] KEY_ERRORS =
+      CborWriter.encode("Errors");
+  private static final byte[] KEY_CODE =
+      CborWriter.encode("code");
+  private static final byte[] KEY_DESCRIPTION =
+      CborWriter.encode("description");
+  private static final byte[] KEY_FAIL_ON_ERRORS =
+      CborWriter.encode("failOnErrors");
+  private static final byte[] KEY_OPERATIONS =
+      CborWriter.encode("Operations");
+  private static final byte[] KEY_METHOD =
+      CborWriter.encode("method");
+  private static final byte[] KEY_BULK_ID =
+      CborWriter.encode("bulkId");
+  private static final byte[] KEY_VERSION =
+      CborWriter.encode("version");
+  private static final byte[] KEY_PATH =
+      CborWriter.encode("path");
+  private static final byte[] KEY_LOCATION =
+      CborWriter.encode("location");
+  private static final byte[] KEY_DATA =
+      CborWriter.encode("data");
+  private static final byte[] KEY_STATUS =
+      CborWriter.encode("status");
+
+  /**
+   * The maximum number of encoded schema URIs to be cached.
+   */
+  private static final int MAX_CACHED_SCHEMAS = 1000;
+
+  /**
+   * The schema URIs that have been written, encoded in advance.
+   */
+  private static final ConcurrentHashMap<String,byte[]> ENCODED_SCHEMAS =
+      new ConcurrentHashMap<String,byte[]>();
+
+  private final CborWriter cborWriter;
+
+
+
+  /**
+   * Create a CBOR marshaller that writes to the given output stream.
+   * The resulting marshaller must be closed after use.
+   *
+   * @param outputStream  The ouput stream to write to.
+   */
+  public CborStreamMarshaller(final OutputStream outputStream)
+  {
+    cborWriter = new CborWriter(outputStream);
+  }
+
+
+
+  /**
+   * Retrieve the encoding of a schema URI, which is cached since the same
+   * few schema URIs are written repeatedly.
+   *
+   * @param schemaURI  The schema URI.
+   *
+   * @return  The encoding of the schema URI as a CBOR text string.
+   */
+  private static byte[] encodeSchema(final String schemaURI)
+  {
+    byte[] encoded = ENCODED_SCHEMAS.get(schemaURI);
+    if (encoded == null)
+    {
+      encoded = CborWriter.encode(schemaURI);
+      if (ENCODED_SCHEMAS.size() < MAX_CACHED_SCHEMAS)
+      {
+        ENCODED_SCHEMAS.put(schemaURI, encoded);
+      }
+    }
+    return encoded;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close()
+      throws SCIMException
+  {
+    try
+    {
+      cborWriter.close();
+    }
+    catch (IOException e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Cannot close marshaller: " + e.getMessage());
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  public void marshal(final BaseResource resource)
+      throws SCIMException
+  {
+    boolean includeSchemas = !(resource instanceof ResourceDescriptor);
+    try
+    {
+      marshal(resource, includeSchemas);
+    }
+    catch (IOException e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Cannot write resource: " + e.getMessage());
+    }
+  }
+
+
+
+  /**
+   * Write a SCIM resource to a CBOR writer.
+   *
+   * @param resource   The SCIM resource to be written.
+   * @param includeSchemas  Indicates whether the schemas should be written
+   *                        at the start of the object.
+   * @throws IOException Thrown if error writing to output.
+   */
+  private void marshal(final BaseResource resource,
+                       final boolean includeSchemas)
+      throws IOException
+  {
+    cborWriter.object();
+
+    final Set<String> schemas = new HashSet<String>(
+        resource.getResourceDescriptor().getAttributeSchemas());
+    if (includeSchemas)
+    {
+      // Write out the schemas for this object.
+      cborWriter.encoded(KEY_SCHEMAS);
+      cborWriter.array();
+      for (final String schema : schemas)
+      {
+        cborWriter.encoded(encodeSchema(schema));
+      }
+      cborWriter.endArray();
+    }
+
+    // first write out core schema, then if any extensions write them
+    // out in their own CBOR map keyed by the schema name
+
+    for (final SCIMAttribute attribute : resource.getScimObject()
+        .getAttributes(SCIMConstants.SCHEMA_URI_CORE))
+    {
+      if (attribute.getAttributeDescriptor().isMultiValued())
+      {
+        this.writeMultiValuedAttribute(attribute, cborWriter);
+      }
+      else
+      {
+        this.writeSingularAttribute(attribute, cborWriter);
+      }
+    }
+
+    // write out any custom schemas
+    for (final String schema : schemas)
+    {
+      if (!schema.equalsIgnoreCase(SCIMConstants.SCHEMA_URI_CORE))
+      {
+        Collection<SCIMAttribute> attributes =
+            resource.getScimObject().getAttributes(schema);
+        if(!attributes.isEmpty())
+        {
+          cborWriter.encoded(encodeSchema(schema));
+          cborWriter.object();
+          for (SCIMAttribute attribute : attributes)
+          {
+            if (attribute.getAttributeDescriptor().isMultiValued())
+            {
+              this.writeMultiValuedAttribute(attribute, cborWriter);
+            }
+            else
+            {
+              this.writeSingularAttribute(attribute, cborWriter);
+            }
+          }
+          cborWriter.endObject();
+        }
+      }
+    }
+    cborWriter.endObject();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void marshal(final Resources<? extends BaseResource> response)
+      throws SCIMException
+  {
+    if (response instanceof StreamingResources &&
+        !((StreamingResources) response).isProduced())
+    {
+      marshalStreaming((StreamingResources<? extends BaseResource>) response);
+      return;
+    }
+
+    try
+    {
+      cborWriter.object();
+      cborWriter.encoded(KEY_TOTAL_RESULTS);
+      cborWriter.value(response.getTotalResults());
+
+      cborWriter.encoded(KEY_ITEMS_PER_PAGE);
+      cborWriter.value(response.getItemsPerPage());
+
+      cborWriter.encoded(KEY_START_INDEX);
+      cborWriter.value(response.getStartIndex());
+
+      // Figure out what schemas are referenced by the resources.
+      final Set<String> schemaURIs = new HashSet<String>();
+      for (final BaseResource resource : response)
+      {
+        schemaURIs.addAll(
+            resource.getResourceDescriptor().getAttributeSchemas());
+      }
+
+      // Write the schemas.
+      cborWriter.encoded(KEY_SCHEMAS);
+      cborWriter.array();
+      for (final String schemaURI : schemaURIs)
+      {
+        cborWriter.encoded(encodeSchema(schemaURI));
+      }
+      cborWriter.endArray();
+
+      // Write the resources.
+      cborWriter.encoded(KEY_RESOURCES);
+      cborWriter.array();
+      for (final BaseResource resource : response)
+      {
+        marshal(resource, false);
+      }
+      cborWriter.endArray();
+
+      cborWriter.endObject();
+    }
+    catch (IOException e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Cannot write resources response: " + e.getMessage());
+    }
+  }
+
+
+  /**
+   * Write a SCIM query response whose resources are written as they are
+   * produced. The schemas are taken from the resource descriptor of the
+   * response, and the totalResults, itemsPerPage and startIndex values are
+   * written after the resources since they are not known until all the
+   * resources have been produced.
+   *
+   * @param response  The SCIM response to be written.
+   * @param <R>       The type of resources in the response.
+   *
+   * @throws SCIMException  If the data could not be written.
+   */
+  private <R extends BaseResource> void marshalStreaming(
+      final StreamingResources<R> response)
+      throws SCIMException
+  {
+    try
+    {
+      cborWriter.object();
+
+      // Write the schemas.
+      cborWriter.encoded(KEY_SCHEMAS);
+      cborWriter.array();
+      for (final String schemaURI :
+          response.getResourceDescriptor().getAttributeSchemas())
+      {
+        cborWriter.encoded(encodeSchema(schemaURI));
+      }
+      cborWriter.endArray();
+
+      // Write the resources as they are produced.
+      cborWriter.encoded(KEY_RESOURCES);
+      cborWriter.array();
+      response.stream(new StreamingResources.ResourceHandler<R>()
+      {
+        public void handleResource(final R resource) throws SCIMException
+        {
+          try
+          {
+            marshal(resource, false);
+          }
+          catch (IOException e)
+          {
+            Debug.debugException(e);
+            throw new ServerErrorException(
+                "Cannot write resource: " + e.getMessage());
+          }
+        }
+      });
+      cborWriter.endArray();
+
+      cborWriter.encoded(KEY_TOTAL_RESULTS);
+      cborWriter.value(response.getTotalResults());
+
+      cborWriter.encoded(KEY_ITEMS_PER_PAGE);
+      cborWriter.value(response.getItemsPerPage());
+
+      cborWriter.encoded(KEY_START_INDEX);
+      cborWriter.value(response.getStartIndex());
+
+      cborWriter.endObject();
+    }
+    catch (IOException e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Cannot write resources response: " + e.getMessage());
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  public void marshal(final SCIMException response)
+      throws SCIMException
+  {
+    try
+    {
+      cborWriter.object();
+      cborWriter.encoded(KEY_ERRORS);
+      cborWriter.array();
+
+      cborWriter.object();
+
+      cborWriter.encoded(KEY_CODE);
+      cborWriter.value(String.valueOf(response.getStatusCode()));
+
+      final String description = response.getMessage();
+      if (description != null)
+      {
+        cborWriter.encoded(KEY_DESCRIPTION);
+        cborWriter.value(description);
+      }
+
+      cborWriter.endObject();
+
+      cborWriter.endArray();
+
+      cborWriter.endObject();
+    }
+    catch (IOException e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Cannot write error response: " + e.getMessage());
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  public void writeBulkStart(final int failOnErrors,
+                             final Set<String> schemaURIs)
+      throws SCIMException
+  {
+    try
+    {
+      cborWriter.object();
+
+      if (failOnErrors >= 0)
+      {
+        cborWriter.encoded(KEY_FAIL_ON_ERRORS);
+        cborWriter.value(failOnErrors);
+      }
+
+      // Write the schemas.
+      cborWriter.encoded(KEY_SCHEMAS);
+      cborWriter.array();
+      for (final String schemaURI : schemaURIs)
+      {
+        cborWriter.encoded(encodeSchema(schemaURI));
+      }
+      cborWriter.endArray();
+
+      // Write the operations.
+      cborWriter.encoded(KEY_OPERATIONS);
+      cborWriter.array();
+    }
+    catch (IOException e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Cannot write start of bulk operations: " + e.getMessage());
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  public void writeBulkOperation(final BulkOperation o)
+      throws SCIMException
+  {
+    try
+    {
+      cborWriter.object();
+      if (o.getMethod() != null)
+      {
+        cborWriter.encoded(KEY_METHOD);
+        cborWriter.value(o.getMethod());
+      }
+      if (o.getBulkId() != null)
+      {
+        cborWriter.encoded(KEY_BULK_ID);
+        cborWriter.value(o.getBulkId());
+      }
+      if (o.getVersion() != null)
+      {
+        cborWriter.encoded(KEY_VERSION);
+        cborWriter.value(o.getVersion());
+      }
+      if (o.getPath() != null)
+      {
+        cborWriter.encoded(KEY_PATH);
+        cborWriter.value(o.getPath());
+      }
+      if (o.getLocation() != null)
+      {
+        cborWriter.encoded(KEY_LOCATION);
+        cborWriter.value(o.getLocation());
+      }
+      if (o.getData() != null)
+      {
+        cborWriter.encoded(KEY_DATA);
+        marshal(o.getData(), true);
+      }
+      if (o.getStatus() != null)
+      {
+        cborWriter.encoded(KEY_STATUS);
+        cborWriter.object();
+        cborWriter.encoded(KEY_CODE);
+        cborWriter.value(o.getStatus().getCode());
+        if (o.getStatus().getDescription() != null)
+        {
+          cborWriter.encoded(KEY_DESCRIPTION);
+          cborWriter.value(o.getStatus().getDescription());
+        }
+        cborWriter.endObject();
+      }
+      cborWriter.endObject();
+    }
+    catch (IOException e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Cannot write bulk operation: " + e.getMessage());
+    }
+  }
+
+
+  /**
+   * {@inheritDoc}
+   */
+  public void writeBulkFinish()
+      throws SCIMException
+  {
+    try
+    {
+      cborWriter.endArray();
+      cborWriter.endObject();
+    }
+    catch (IOException e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Cannot write end of bulk operations: " + e.getMessage());
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  public void bulkMarshal(final int failOnErrors,
+                          final List<BulkOperation> operations)
+      throws SCIMException
+  {
+    // Figure out what schemas are referenced by the resources.
+    final Set<String> schemaURIs = new HashSet<String>();
+    for (final BulkOperation o : operations)
+    {
+      final BaseResource resource = o.getData();
+      if (resource != null)
+      {
+        schemaURIs.addAll(
+            o.getData().getResourceDescriptor().getAttributeSchemas());
+      }
+    }
+
+    writeBulkStart(failOnErrors, schemaURIs);
+    for (final BulkOperation o : operations)
+    {
+      writeBulkOperation(o);
+    }
+    writeBulkFinish();
+  }
+
+
+
+  /**
+   * Write a multi-valued attribute to a CBOR stream.
+   *
+   * @param scimAttribute The attribute to be written.
+   * @param cborWriter    Output to write the attribute to.
+   *
+   * @throws IOException Thrown if error writing to output.
+   */
+  private void writeMultiValuedAttribute(final SCIMAttribute scimAttribute,
+                                         final CborWriter cborWriter)
+      throws IOException
+  {
+
+    SCIMAttributeValue[] values = scimAttribute.getValues();
+    cborWriter.key(scimAttribute.getName());
+    cborWriter.array();
+    for (SCIMAttributeValue value : values)
+    {
+      if (value == null)
+      {
+        continue;
+      }
+
+      if (value.isComplex())
+      {
+        cborWriter.object();
+        for (SCIMAttribute attribute : value.getAttributes().values())
+        {
+          if (attribute.getAttributeDescriptor().isMultiValued())
+          {
+            this.writeMultiValuedAttribute(attribute, cborWriter);
+          }
+          else
+          {
+            this.writeSingularAttribute(attribute, cborWriter);
+          }
+        }
+        cborWriter.endObject();
+      }
+      else
+      {
+        if (scimAttribute.getAttributeDescriptor().getDataType() != null)
+        {
+          switch (scimAttribute.getAttributeDescriptor().getDataType())
+          {
+            case BOOLEAN:
+              cborWriter.value(value.getBooleanValue());
+              break;
+
+            case DECIMAL:
+              cborWriter.value(value.getDecimalValue());
+              break;
+
+            case INTEGER:
+              cborWriter.value(value.getIntegerValue());
+              break;
+
+            case BINARY:
+              cborWriter.value(value.getBinaryValue());
+              break;
+
+            case DATETIME:
+            case STRING:
+            default:
+              cborWriter.value(value.getStringValue());
+              break;
+          }
+        }
+        else
+        {
+          cborWriter.value(value.getStringValue());
+        }
+      }
+    }
+    cborWriter.endArray();
+  }
+
+
+
+  /**
+   * Write a singular attribute to a CBOR stream.
+   *
+   * @param scimAttribute The attribute to be written.
+   * @param cborWriter    Output to write the attribute to.
+   *
+   * @throws IOException Thrown if error writing to output.
+   */
+  private void writeSingularAttribute(final SCIMAttribute scimAttribute,
+                                      final CborWriter cborWriter)
+      throws IOException
+  {
+    cborWriter.key(scimAttribute.getName());
+    SCIMAttributeValue val = scimAttribute.getValue();
+    if (val.isComplex())
+    {
+      cborWriter.object();
+      for (SCIMAttribute a : val.getAttributes().values())
+      {
+        if (a.getAttributeDescriptor().isMultiValued())
+        {
+          this.writeMultiValuedAttribute(a, cborWriter);
+        }
+        else
+        {
+          this.writeSingularAttribute(a, cborWriter);
+        }
+      }
+      cborWriter.endObject();
+    }
+    else
+    {
+      if (scimAttribute.getAttributeDescriptor().getDataType() != null)
+      {
+        switch (scimAttribute.getAttributeDescriptor().getDataType())
+        {
+          case BOOLEAN:
+            cborWriter.value(val.getBooleanValue());
+            break;
+
+          case DECIMAL:
+            cborWriter.value(val.getDecimalValue());
+            break;
+
+          case INTEGER:
+            cborWriter.value(val.getIntegerValue());
+            break;
+
+          case BINARY:
+            cborWriter.value(val.getBinaryValue());
+            break;
+
+          case DATETIME:
+          case STRING:
+          default:
+            cborWriter.value(val.getStringValue());
+            break;
+        }
+      }
+      else
+      {
+        cborWriter.value(val.getStringValue());
+      }
+    }
+  }
+}
@@ -0,0 +1,606 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.cbor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+
+/**
+ * This class writes CBOR (RFC 8949) data items directly to an output stream.
+ * Maps and arrays are written with indefinite lengths so that their contents
+ * may be written as they are produced, and keys and values that are written
+ * often may be encoded once in advance.
+ */
+final class CborWriter
+{
+  /**
+   * The size of the buffer holding content not yet written to the output
+   * stream.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * The major type of an unsigned integer.
+   */
+  static final int MAJOR_UNSIGNED = 0;
+
+  /**
+   * The major type of a negative integer.
+   */
+  static final int MAJOR_NEGATIVE = 1;
+
+  /**
+   * The major type of a byte string.
+   */
+  static final int MAJOR_BYTES = 2;
+
+  /**
+   * The major type of a text string.
+   */
+  static final int MAJOR_TEXT = 3;
+
+  /**
+   * The major type of an array.
+   */
+  static final int MAJOR_ARRAY = 4;
+
+  /**
+   * The major type of a map.
+   */
+  static final int MAJOR_MAP = 5;
+
+  /**
+   * The major type of a tagged data item.
+   */
+  static final int MAJOR_TAG = 6;
+
+  /**
+   * The major type of a floating-point number or simple value.
+   */
+  static final int MAJOR_SIMPLE = 7;
+
+  /**
+   * The additional information indicating an indefinite length.
+   */
+  static final int INDEFINITE = 31;
+
+  /**
+   * The initial byte of the break that ends an indefinite length item.
+   */
+  static final int BREAK = 0xFF;
+
+  /**
+   * The initial byte of the simple value false.
+   */
+  static final int FALSE = 0xF4;
+
+  /**
+   * The initial byte of the simple value true.
+   */
+  static final int TRUE = 0xF5;
+
+  /**
+   * The initial byte of the simple value null.
+   */
+  static final int NULL = 0xF6;
+
+  /**
+   * The initial byte of the simple value undefined.
+   */
+  static final int UNDEFINED = 0xF7;
+
+  /**
+   * The initial byte of a half-precision floating-point number.
+   */
+  static final int FLOAT16 = 0xF9;
+
+  /**
+   * The initial byte of a single-precision floating-point number.
+   */
+  static final int FLOAT32 = 0xFA;
+
+  /**
+   * The initial byte of a double-precision floating-point number.
+   */
+  static final int FLOAT64 = 0xFB;
+
+  /**
+   * The output stream to which the data items are written.
+   */
+  private final OutputStream outputStream;
+
+  /**
+   * The buffer holding content not yet written to the output stream.
+   */
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+
+  /**
+   * The number of bytes in the buffer.
+   */
+  private int position;
+
+  /**
+   * Indicates whether the writer has been closed.
+   */
+  private boolean closed;
+
+
+
+  /**
+   * Create a new CBOR writer.
+   *
+   * @param outputStream  The output stream to which the data items are
+   *                      written.
+   */
+  CborWriter(final OutputStream outputStream)
+  {
+    this.outputStream = outputStream;
+  }
+
+
+
+  /**
+   * Encode a string as a CBOR text string, so that it may be written as a
+   * key or value without being encoded each time.
+   *
+   * @param s  The string to be encoded.
+   *
+   * @return  The encoded text string.
+   */
+  static byte[] encode(final String s)
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final CborWriter writer = new CborWriter(out);
+    try
+    {
+      writer.value(s);
+      writer.close();
+    }
+    catch (IOException e)
+    {
+      // This cannot happen when writing to a byte array.
+      throw new IllegalStateException(e);
+    }
+    return out.toByteArray();
+  }
+
+
+
+  /**
+   * Begin a map. Keys and values are then written alternately, and the map
+   * is ended by {@link #endObject}.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void object()
+      throws IOException
+  {
+    writeByte((MAJOR_MAP << 5) | INDEFINITE);
+  }
+
+
+
+  /**
+   * End a map.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void endObject()
+      throws IOException
+  {
+    writeByte(BREAK);
+  }
+
+
+
+  /**
+   * Begin an array. Values are then written, and the array is ended by
+   * {@link #endArray}.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void array()
+      throws IOException
+  {
+    writeByte((MAJOR_ARRAY << 5) | INDEFINITE);
+  }
+
+
+
+  /**
+   * End an array.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void endArray()
+      throws IOException
+  {
+    writeByte(BREAK);
+  }
+
+
+
+  /**
+   * Write a map key.
+   *
+   * @param key  The key to be written.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void key(final String key)
+      throws IOException
+  {
+    writeText(key);
+  }
+
+
+
+  /**
+   * Write a key or value that was encoded by {@link #encode}.
+   *
+   * @param encoded  The encoded data item.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void encoded(final byte[] encoded)
+      throws IOException
+  {
+    if (encoded.length > BUFFER_SIZE - position)
+    {
+      flushBuffer();
+      if (encoded.length > BUFFER_SIZE)
+      {
+        outputStream.write(encoded);
+        return;
+      }
+    }
+    System.arraycopy(encoded, 0, buffer, position, encoded.length);
+    position += encoded.length;
+  }
+
+
+
+  /**
+   * Write a boolean value.
+   *
+   * @param b  The value to be written.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void value(final boolean b)
+      throws IOException
+  {
+    writeByte(b ? TRUE : FALSE);
+  }
+
+
+
+  /**
+   * Write an integer value.
+   *
+   * @param l  The value to be written.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void value(final long l)
+      throws IOException
+  {
+    if (l < 0)
+    {
+      writeHead(MAJOR_NEGATIVE, ~l);
+    }
+    else
+    {
+      writeHead(MAJOR_UNSIGNED, l);
+    }
+  }
+
+
+
+  /**
+   * Write a floating-point value, using single precision if that represents
+   * the value exactly.
+   *
+   * @param d  The value to be written.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void value(final double d)
+      throws IOException
+  {
+    ensureCapacity(9);
+    final float f = (float) d;
+    if (f == d || Double.isNaN(d))
+    {
+      buffer[position++] = (byte) FLOAT32;
+      writeBits(Float.floatToIntBits(f), 4);
+    }
+    else
+    {
+      buffer[position++] = (byte) FLOAT64;
+      writeBits(Double.doubleToLongBits(d), 8);
+    }
+  }
+
+
+
+  /**
+   * Write a value. A {@code null} value is written as null, booleans as
+   * simple values, integral numbers as integers, other numbers as
+   * floating-point numbers, byte arrays as byte strings, and any other
+   * object as the text string of its {@code toString} method.
+   *
+   * @param o  The value to be written.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  void value(final Object o)
+      throws IOException
+  {
+    if (o == null)
+    {
+      writeByte(NULL);
+    }
+    else if (o instanceof Boolean)
+    {
+      value(((Boolean) o).booleanValue());
+    }
+    else if (o instanceof Long || o instanceof Integer ||
+             o instanceof Short || o instanceof Byte)
+    {
+      value(((Number) o).longValue());
+    }
+    else if (o instanceof Number)
+    {
+      value(((Number) o).doubleValue());
+    }
+    else if (o instanceof byte[])
+    {
+      final byte[] bytes = (byte[]) o;
+      writeHead(MAJOR_BYTES, bytes.length);
+      encoded(bytes);
+    }
+    else
+    {
+      writeText(o.toString());
+    }
+  }
+
+
+
+  /**
+   * Write any buffered content and close the output stream.
+   *
+   * @throws IOException  If the content could not be written or the stream
+   *                      could not be closed.
+   */
+  void close()
+      throws IOException
+  {
+    if (closed)
+    {
+      return;
+    }
+
+    closed = true;
+    try
+    {
+      flushBuffer();
+    }
+    finally
+    {
+      outputStream.close();
+    }
+  }
+
+
+
+  /**
+   * Write a text string, replacing any unpaired surrogate character with a
+   * question mark.
+   *
+   * @param s  The string to be written.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  private void writeText(final String s)
+      throws IOException
+  {
+    final int length = s.length();
+
+    // The head must give the length of the UTF-8 encoding.
+    long encodedLength = 0;
+    for (int i = 0; i < length; i++)
+    {
+      final char c = s.charAt(i);
+      if (c < 0x80)
+      {
+        encodedLength++;
+      }
+      else if (c < 0x800)
+      {
+        encodedLength += 2;
+      }
+      else if (Character.isHighSurrogate(c) && i + 1 < length &&
+               Character.isLowSurrogate(s.charAt(i + 1)))
+      {
+        encodedLength += 4;
+        i++;
+      }
+      else if (Character.isSurrogate(c))
+      {
+        encodedLength++;
+      }
+      else
+      {
+        encodedLength += 3;
+      }
+    }
+    writeHead(MAJOR_TEXT, encodedLength);
+
+    for (int i = 0; i < length; i++)
+    {
+      final char c = s.charAt(i);
+
+      // The longest encoding of a character is four bytes.
+      ensureCapacity(4);
+      if (c < 0x80)
+      {
+        buffer[position++] = (byte) c;
+      }
+      else if (c < 0x800)
+      {
+        buffer[position++] = (byte) (0xC0 | (c >> 6));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+      else if (Character.isHighSurrogate(c) && i + 1 < length &&
+               Character.isLowSurrogate(s.charAt(i + 1)))
+      {
+        final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+        buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+      }
+      else if (Character.isSurrogate(c))
+      {
+        buffer[position++] = '?';
+      }
+      else
+      {
+        buffer[position++] = (byte) (0xE0 | (c >> 12));
+        buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+
+
+  /**
+   * Write the head of a data item, using the shortest encoding of the
+   * argument.
+   *
+   * @param majorType  The major type of the data item.
+   * @param argument   The argument, which is treated as unsigned.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  private void writeHead(final int majorType, final long argument)
+      throws IOException
+  {
+    ensureCapacity(9);
+    final int type = majorType << 5;
+    if (argument >= 0 && argument < 24)
+    {
+      buffer[position++] = (byte) (type | (int) argument);
+    }
+    else if (argument >= 0 && argument < 0x100)
+    {
+      buffer[position++] = (byte) (type | 24);
+      writeBits(argument, 1);
+    }
+    else if (argument >= 0 && argument < 0x10000)
+    {
+      buffer[position++] = (byte) (type | 25);
+      writeBits(argument, 2);
+    }
+    else if (argument >= 0 && argument < 0x100000000L)
+    {
+      buffer[position++] = (byte) (type | 26);
+      writeBits(argument, 4);
+    }
+    else
+    {
+      buffer[position++] = (byte) (type | 27);
+      writeBits(argument, 8);
+    }
+  }
+
+
+
+  /**
+   * Write the low order bytes of a value in network byte order. The buffer
+   * must have room for them.
+   *
+   * @param bits   The value to be written.
+   * @param bytes  The number of bytes to be written.
+   */
+  private void writeBits(final long bits, final int bytes)
+  {
+    for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8)
+    {
+      buffer[position++] = (byte) (bits >>> shift);
+    }
+  }
+
+
+
+  /**
+   * Write a single byte.
+   *
+   * @param b  The byte to be written.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  private void writeByte(final int b)
+      throws IOException
+  {
+    ensureCapacity(1);
+    buffer[position++] = (byte) b;
+  }
+
+
+
+  /**
+   * Make sure the buffer has room for the given number of bytes, writing its
+   * content to the output stream if necessary.
+   *
+   * @param length  The number of bytes required.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  private void ensureCapacity(final int length)
+      throws IOException
+  {
+    if (position + length > BUFFER_SIZE)
+    {
+      flushBuffer();
+    }
+  }
+
+
+
+  /**
+   * Write the content of the buffer to the output stream.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  private void flushBuffer()
+      throws IOException
+  {
+    if (position > 0)
+    {
+      outputStream.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+}
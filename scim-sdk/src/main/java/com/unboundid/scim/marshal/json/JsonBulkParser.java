@@ -65,7 +65,8 @@ public class JsonBulkParser extends JsonParser
                         final BulkConfig bulkConfig,
                         final BulkContentHandler handler)
   {
-    this.bulkInputStream = new BulkInputStreamWrapper(inputStream);
+    this.bulkInputStream = new BulkInputStreamWrapper(
+        inputStream, bulkConfig.getMaxPayloadSize());
     this.bulkConfig      = bulkConfig;
     this.handler         = handler;
     this.operationIndex = 0;
@@ -170,6 +171,7 @@ public class JsonBulkParser extends JsonParser
     catch (Exception e)
     {
       Debug.debugException(e);
+      checkPayloadSize();
       throw new InvalidResourceException(
           "Error while reading JSON Bulk content: " + e.getMessage(), e);
     }
@@ -198,38 +200,8 @@ public class JsonBulkParser extends JsonParser
         if (tokener.nextClean() != ',')
         {
           tokener.back();
-          if (operationIndex >= bulkConfig.getMaxOperations())
-          {
-            throw SCIMException.createException(
-                413,
-                "The number of operations in the bulk operation exceeds " +
-                "maxOperations (" + bulkConfig.getMaxOperations() + ")");
-          }
-
-          if (bulkInputStream.getBytesRead() > bulkConfig.getMaxPayloadSize())
-          {
-            throw SCIMException.createException(
-                413,
-                "The size of the bulk operation exceeds the maxPayloadSize " +
-                "(" + bulkConfig.getMaxPayloadSize() + ")");
-          }
-          if (skipOperations)
-          {
-            tokener.nextValue();
-          }
-          else
-          {
-            JSONObject o = makeCaseInsensitive((JSONObject)tokener.nextValue());
-            try
-            {
-              handler.handleOperation(operationIndex, parseBulkOperation(o));
-            }
-            catch (BulkException e)
-            {
-              handler.handleException(operationIndex, e);
-            }
-          }
-          operationIndex++;
+          checkOperationLimits();
+          handleOperation(tokener.nextValue());
         }
 
         switch (tokener.nextClean())
@@ -253,6 +225,107 @@ public class JsonBulkParser extends JsonParser
 
 
 
+  /**
+   * Check that another operation may be read without exceeding the
+   * maxOperations of the bulk configuration. The maxPayloadSize is enforced
+   * as the content is read.
+   *
+   * @throws SCIMException  If the limit would be exceeded.
+   */
+  protected void checkOperationLimits()
+      throws SCIMException
+  {
+    if (operationIndex >= bulkConfig.getMaxOperations())
+    {
+      throw SCIMException.createException(
+          413,
+          "The number of operations in the bulk operation exceeds " +
+          "maxOperations (" + bulkConfig.getMaxOperations() + ")");
+    }
+  }
+
+
+
+  /**
+   * Check whether the bulk content could not be read because it exceeds the
+   * maxPayloadSize of the bulk configuration.
+   *
+   * @throws SCIMException  If the maxPayloadSize was exceeded.
+   */
+  protected void checkPayloadSize()
+      throws SCIMException
+  {
+    if (bulkInputStream.isMaxBytesReadExceeded())
+    {
+      throw SCIMException.createException(
+          413,
+          "The size of the bulk operation exceeds the maxPayloadSize " +
+          "(" + bulkConfig.getMaxPayloadSize() + ")");
+    }
+  }
+
+
+
+  /**
+   * Pass an operation that has been read to the handler, unless operations
+   * are being skipped.
+   *
+   * @param operation  The JSON object representing the operation.
+   *
+   * @throws JSONException  If the operation is not a JSON object.
+   * @throws SCIMException  If the handler could not handle the operation.
+   */
+  protected void handleOperation(final Object operation)
+      throws JSONException, SCIMException
+  {
+    if (!skipOperations)
+    {
+      if (!(operation instanceof JSONObject))
+      {
+        throw new JSONException("Bulk operation " + operationIndex +
+            " is not an object");
+      }
+
+      final JSONObject o = makeCaseInsensitive((JSONObject) operation);
+      try
+      {
+        handler.handleOperation(operationIndex, parseBulkOperation(o));
+      }
+      catch (BulkException e)
+      {
+        handler.handleException(operationIndex, e);
+      }
+    }
+    operationIndex++;
+  }
+
+
+
+  /**
+   * Retrieve the input stream containing the bulk content to be read.
+   *
+   * @return  The input stream containing the bulk content to be read.
+   */
+  protected InputStream getInputStream()
+  {
+    return bulkInputStream;
+  }
+
+
+
+  /**
+   * Retrieve the bulk operation listener that handles the content as it is
+   * read.
+   *
+   * @return  The bulk operation listener.
+   */
+  protected BulkContentHandler getHandler()
+  {
+    return handler;
+  }
+
+
+
   /**
    * Parse an individual operation in a bulk operation request or response.
    *
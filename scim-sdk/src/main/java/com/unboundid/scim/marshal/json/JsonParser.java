@@ -430,7 +430,7 @@ public class JsonParser
    * @return a new JSONObject with the keys all lower-cased.
    * @throws JSONException if there is an error creating the new JSONObject.
    */
-  static final JSONObject makeCaseInsensitive(final JSONObject jsonObject)
+  protected static JSONObject makeCaseInsensitive(final JSONObject jsonObject)
           throws JSONException
   {
     if (jsonObject == null)
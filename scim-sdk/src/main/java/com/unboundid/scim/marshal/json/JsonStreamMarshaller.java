@@ -45,16 +45,16 @@ import com.unboundid.scim.sdk.SCIMAttributeValue;
 import com.unboundid.scim.sdk.SCIMConstants;
 import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.ServerErrorException;
+import com.unboundid.scim.sdk.StreamingResources;
 import org.json.JSONException;
-import org.json.JSONWriter;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 
@@ -64,8 +64,56 @@ import java.util.Set;
  */
 public class JsonStreamMarshaller implements StreamMarshaller
 {
-  private final OutputStreamWriter outputStreamWriter;
-  private final JSONWriter jsonWriter;
+  /**
+   * The keys written by this marshaller, encoded in advance.
+   */
+  private static final byte[] KEY_SCHEMAS =
+      JsonStreamWriter.encode(SCIMConstants.SCHEMAS_ATTRIBUTE_NAME);
+  private static final byte[] KEY_TOTAL_RESULTS =
+      JsonStreamWriter.encode("totalResults");
+  private static final byte[] KEY_ITEMS_PER_PAGE =
+      JsonStreamWriter.encode("itemsPerPage");
+  private static final byte[] KEY_START_INDEX =
+      JsonStreamWriter.encode("startIndex");
+  private static final byte[] KEY_RESOURCES =
+      JsonStreamWriter.encode("Resources");
+  private static final byte[] KEY_ERRORS =
+      JsonStreamWriter.encode("Errors");
+  private static final byte[] KEY_CODE =
+      JsonStreamWriter.encode("code");
+  private static final byte[] KEY_DESCRIPTION =
+      JsonStreamWriter.encode("description");
+  private static final byte[] KEY_FAIL_ON_ERRORS =
+      JsonStreamWriter.encode("failOnErrors");
+  private static final byte[] KEY_OPERATIONS =
+      JsonStreamWriter.encode("Operations");
+  private static final byte[] KEY_METHOD =
+      JsonStreamWriter.encode("method");
+  private static final byte[] KEY_BULK_ID =
+      JsonStreamWriter.encode("bulkId");
+  private static final byte[] KEY_VERSION =
+      JsonStreamWriter.encode("version");
+  private static final byte[] KEY_PATH =
+      JsonStreamWriter.encode("path");
+  private static final byte[] KEY_LOCATION =
+      JsonStreamWriter.encode("location");
+  private static final byte[] KEY_DATA =
+      JsonStreamWriter.encode("data");
+  private static final byte[] KEY_STATUS =
+      JsonStreamWriter.encode("status");
+
+  /**
+   * The maximum number of encoded schema URIs to be cached.
+   */
+  private static final int MAX_CACHED_SCHEMAS = 1000;
+
+  /**
+   * The schema URIs that have been written, encoded in advance.
+   */
+  private static final ConcurrentHashMap<String,byte[]> ENCODED_SCHEMAS =
+      new ConcurrentHashMap<String,byte[]>();
+
+  private final JsonStreamWriter jsonWriter;
 
 
 
@@ -82,8 +130,7 @@ public class JsonStreamMarshaller implements StreamMarshaller
   {
     try
     {
-      outputStreamWriter = new OutputStreamWriter(outputStream);
-      jsonWriter = new JSONWriter(outputStreamWriter);
+      jsonWriter = new JsonStreamWriter(outputStream);
     }
     catch (Exception e)
     {
@@ -95,6 +142,30 @@ public class JsonStreamMarshaller implements StreamMarshaller
 
 
 
+  /**
+   * Retrieve the encoding of a schema URI, which is cached since the same
+   * few schema URIs are written repeatedly.
+   *
+   * @param schemaURI  The schema URI.
+   *
+   * @return  The encoding of the schema URI as a JSON string.
+   */
+  private static byte[] encodeSchema(final String schemaURI)
+  {
+    byte[] encoded = ENCODED_SCHEMAS.get(schemaURI);
+    if (encoded == null)
+    {
+      encoded = JsonStreamWriter.encode(schemaURI);
+      if (ENCODED_SCHEMAS.size() < MAX_CACHED_SCHEMAS)
+      {
+        ENCODED_SCHEMAS.put(schemaURI, encoded);
+      }
+    }
+    return encoded;
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
@@ -104,7 +175,7 @@ public class JsonStreamMarshaller implements StreamMarshaller
   {
     try
     {
-      outputStreamWriter.close();
+      jsonWriter.close();
     }
     catch (IOException e)
     {
@@ -156,11 +227,11 @@ public class JsonStreamMarshaller implements StreamMarshaller
     if (includeSchemas)
     {
       // Write out the schemas for this object.
-      jsonWriter.key(SCIMConstants.SCHEMAS_ATTRIBUTE_NAME);
+      jsonWriter.encodedKey(KEY_SCHEMAS);
       jsonWriter.array();
       for (final String schema : schemas)
       {
-        jsonWriter.value(schema);
+        jsonWriter.encodedValue(encodeSchema(schema));
       }
       jsonWriter.endArray();
     }
@@ -190,7 +261,7 @@ public class JsonStreamMarshaller implements StreamMarshaller
             resource.getScimObject().getAttributes(schema);
         if(!attributes.isEmpty())
         {
-          jsonWriter.key(schema);
+          jsonWriter.encodedKey(encodeSchema(schema));
           jsonWriter.object();
           for (SCIMAttribute attribute : attributes)
           {
@@ -216,16 +287,23 @@ public class JsonStreamMarshaller implements StreamMarshaller
   public void marshal(final Resources<? extends BaseResource> response)
       throws SCIMException
   {
+    if (response instanceof StreamingResources &&
+        !((StreamingResources) response).isProduced())
+    {
+      marshalStreaming((StreamingResources<? extends BaseResource>) response);
+      return;
+    }
+
     try
     {
       jsonWriter.object();
-      jsonWriter.key("totalResults");
+      jsonWriter.encodedKey(KEY_TOTAL_RESULTS);
       jsonWriter.value(response.getTotalResults());
 
-      jsonWriter.key("itemsPerPage");
+      jsonWriter.encodedKey(KEY_ITEMS_PER_PAGE);
       jsonWriter.value(response.getItemsPerPage());
 
-      jsonWriter.key("startIndex");
+      jsonWriter.encodedKey(KEY_START_INDEX);
       jsonWriter.value(response.getStartIndex());
 
       // Figure out what schemas are referenced by the resources.
@@ -237,16 +315,16 @@ public class JsonStreamMarshaller implements StreamMarshaller
       }
 
       // Write the schemas.
-      jsonWriter.key(SCIMConstants.SCHEMAS_ATTRIBUTE_NAME);
+      jsonWriter.encodedKey(KEY_SCHEMAS);
       jsonWriter.array();
       for (final String schemaURI : schemaURIs)
       {
-        jsonWriter.value(schemaURI);
+        jsonWriter.encodedValue(encodeSchema(schemaURI));
       }
       jsonWriter.endArray();
 
       // Write the resources.
-      jsonWriter.key("Resources");
+      jsonWriter.encodedKey(KEY_RESOURCES);
       jsonWriter.array();
       for (final BaseResource resource : response)
       {
@@ -265,6 +343,78 @@ public class JsonStreamMarshaller implements StreamMarshaller
   }
 
 
+  /**
+   * Write a SCIM query response whose resources are written as they are
+   * produced. The schemas are taken from the resource descriptor of the
+   * response, and the totalResults, itemsPerPage and startIndex values are
+   * written after the resources since they are not known until all the
+   * resources have been produced.
+   *
+   * @param response  The SCIM response to be written.
+   * @param <R>       The type of resources in the response.
+   *
+   * @throws SCIMException  If the data could not be written.
+   */
+  private <R extends BaseResource> void marshalStreaming(
+      final StreamingResources<R> response)
+      throws SCIMException
+  {
+    try
+    {
+      jsonWriter.object();
+
+      // Write the schemas.
+      jsonWriter.encodedKey(KEY_SCHEMAS);
+      jsonWriter.array();
+      for (final String schemaURI :
+          response.getResourceDescriptor().getAttributeSchemas())
+      {
+        jsonWriter.encodedValue(encodeSchema(schemaURI));
+      }
+      jsonWriter.endArray();
+
+      // Write the resources as they are produced.
+      jsonWriter.encodedKey(KEY_RESOURCES);
+      jsonWriter.array();
+      response.stream(new StreamingResources.ResourceHandler<R>()
+      {
+        public void handleResource(final R resource) throws SCIMException
+        {
+          try
+          {
+            marshal(resource, false);
+          }
+          catch (JSONException e)
+          {
+            Debug.debugException(e);
+            throw new ServerErrorException(
+                "Cannot write resource: " + e.getMessage());
+          }
+        }
+      });
+      jsonWriter.endArray();
+
+      jsonWriter.encodedKey(KEY_TOTAL_RESULTS);
+      jsonWriter.value(response.getTotalResults());
+
+      jsonWriter.encodedKey(KEY_ITEMS_PER_PAGE);
+      jsonWriter.value(response.getItemsPerPage());
+
+      jsonWriter.encodedKey(KEY_START_INDEX);
+      jsonWriter.value(response.getStartIndex());
+
+      jsonWriter.endObject();
+    }
+    catch (JSONException e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Cannot write resources response: " + e.getMessage());
+    }
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
@@ -274,18 +424,18 @@ public class JsonStreamMarshaller implements StreamMarshaller
     try
     {
       jsonWriter.object();
-      jsonWriter.key("Errors");
+      jsonWriter.encodedKey(KEY_ERRORS);
       jsonWriter.array();
 
       jsonWriter.object();
 
-      jsonWriter.key("code");
+      jsonWriter.encodedKey(KEY_CODE);
       jsonWriter.value(String.valueOf(response.getStatusCode()));
 
       final String description = response.getMessage();
       if (description != null)
       {
-        jsonWriter.key("description");
+        jsonWriter.encodedKey(KEY_DESCRIPTION);
         jsonWriter.value(description);
       }
 
@@ -318,21 +468,21 @@ public class JsonStreamMarshaller implements StreamMarshaller
 
       if (failOnErrors >= 0)
       {
-        jsonWriter.key("failOnErrors");
+        jsonWriter.encodedKey(KEY_FAIL_ON_ERRORS);
         jsonWriter.value(failOnErrors);
       }
 
       // Write the schemas.
-      jsonWriter.key(SCIMConstants.SCHEMAS_ATTRIBUTE_NAME);
+      jsonWriter.encodedKey(KEY_SCHEMAS);
       jsonWriter.array();
       for (final String schemaURI : schemaURIs)
       {
-        jsonWriter.value(schemaURI);
+        jsonWriter.encodedValue(encodeSchema(schemaURI));
       }
       jsonWriter.endArray();
 
       // Write the operations.
-      jsonWriter.key("Operations");
+      jsonWriter.encodedKey(KEY_OPERATIONS);
       jsonWriter.array();
     }
     catch (JSONException e)
@@ -356,43 +506,43 @@ public class JsonStreamMarshaller implements StreamMarshaller
       jsonWriter.object();
       if (o.getMethod() != null)
       {
-        jsonWriter.key("method");
+        jsonWriter.encodedKey(KEY_METHOD);
         jsonWriter.value(o.getMethod());
       }
       if (o.getBulkId() != null)
       {
-        jsonWriter.key("bulkId");
+        jsonWriter.encodedKey(KEY_BULK_ID);
         jsonWriter.value(o.getBulkId());
       }
       if (o.getVersion() != null)
       {
-        jsonWriter.key("version");
+        jsonWriter.encodedKey(KEY_VERSION);
         jsonWriter.value(o.getVersion());
       }
       if (o.getPath() != null)
       {
-        jsonWriter.key("path");
+        jsonWriter.encodedKey(KEY_PATH);
         jsonWriter.value(o.getPath());
       }
       if (o.getLocation() != null)
       {
-        jsonWriter.key("location");
+        jsonWriter.encodedKey(KEY_LOCATION);
         jsonWriter.value(o.getLocation());
       }
       if (o.getData() != null)
       {
-        jsonWriter.key("data");
+        jsonWriter.encodedKey(KEY_DATA);
         marshal(o.getData(), true);
       }
       if (o.getStatus() != null)
       {
-        jsonWriter.key("status");
+        jsonWriter.encodedKey(KEY_STATUS);
         jsonWriter.object();
-        jsonWriter.key("code");
+        jsonWriter.encodedKey(KEY_CODE);
         jsonWriter.value(o.getStatus().getCode());
         if (o.getStatus().getDescription() != null)
         {
-          jsonWriter.key("description");
+          jsonWriter.encodedKey(KEY_DESCRIPTION);
           jsonWriter.value(o.getStatus().getDescription());
         }
         jsonWriter.endObject();
@@ -467,7 +617,7 @@ public class JsonStreamMarshaller implements StreamMarshaller
    * @throws JSONException Thrown if error writing to output.
    */
   private void writeMultiValuedAttribute(final SCIMAttribute scimAttribute,
-                                         final JSONWriter jsonWriter)
+                                         final JsonStreamWriter jsonWriter)
       throws JSONException
   {
 
@@ -543,7 +693,7 @@ public class JsonStreamMarshaller implements StreamMarshaller
    * @throws org.json.JSONException Thrown if error writing to output.
    */
   private void writeSingularAttribute(final SCIMAttribute scimAttribute,
-                                      final JSONWriter jsonWriter)
+                                      final JsonStreamWriter jsonWriter)
       throws JSONException
   {
     jsonWriter.key(scimAttribute.getName());
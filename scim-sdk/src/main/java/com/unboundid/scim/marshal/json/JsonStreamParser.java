@@ -0,0 +1,969 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.json;
+
+import com.unboundid.scim.data.BaseResource;
+import com.unboundid.scim.data.ResourceFactory;
+import com.unboundid.scim.marshal.json.JsonTokenReader.Token;
+import com.unboundid.scim.schema.AttributeDescriptor;
+import com.unboundid.scim.schema.CoreSchema;
+import com.unboundid.scim.schema.ResourceDescriptor;
+import com.unboundid.scim.sdk.Debug;
+import com.unboundid.scim.sdk.DebugType;
+import com.unboundid.scim.sdk.InvalidResourceException;
+import com.unboundid.scim.sdk.Resources;
+import com.unboundid.scim.sdk.SCIMAttribute;
+import com.unboundid.scim.sdk.SCIMAttributeValue;
+import com.unboundid.scim.sdk.SCIMConstants;
+import com.unboundid.scim.sdk.SCIMException;
+import com.unboundid.scim.sdk.SCIMObject;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+import static com.unboundid.scim.sdk.StaticUtils.toLowerCase;
+
+
+
+/**
+ * Helper class for JSON unmarshalling that builds SCIM objects directly from
+ * a stream of JSON tokens, without first reading the JSON text into a tree of
+ * JSON objects. Keys are matched without regard to case, as they are by
+ * {@link JsonParser}.
+ * <p>
+ * The attributes of a resource can only be interpreted once its schemas are
+ * known. If an attribute appears before the schemas attribute of the
+ * resource, it is interpreted using the schemas of the enclosing list
+ * response if there are any, and is otherwise held as JSON text until the end
+ * of the resource.
+ */
+class JsonStreamParser
+{
+  /**
+   * The content of a resource that has been read.
+   */
+  private static final class ResourceContent
+  {
+    private final SCIMObject scimObject = new SCIMObject();
+    private Set<String> schemaSet;
+    private List<String[]> deferredAttributes;
+  }
+
+  private final JsonTokenReader reader;
+  private final boolean implicitSchemaChecking;
+
+
+
+  /**
+   * Create a new parser to read from the provided input stream.
+   *
+   * @param inputStream  The input stream containing the JSON text.
+   */
+  JsonStreamParser(final InputStream inputStream)
+  {
+    this.reader = new JsonTokenReader(
+        new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    this.implicitSchemaChecking =
+        Boolean.getBoolean(SCIMConstants.IMPLICIT_SCHEMA_CHECKING_PROPERTY);
+  }
+
+
+
+  /**
+   * Read a SCIM resource.
+   *
+   * @param <R> The type of resource instance.
+   * @param resourceDescriptor The descriptor of the SCIM resource to be read.
+   * @param resourceFactory The resource factory to use to create the resource
+   *                        instance.
+   *
+   * @return  The SCIM resource that was read.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   * @throws InvalidResourceException If the resource is not valid.
+   */
+  <R extends BaseResource> R unmarshal(
+      final ResourceDescriptor resourceDescriptor,
+      final ResourceFactory<R> resourceFactory)
+      throws IOException, JSONException, InvalidResourceException
+  {
+    expectObject(reader.next());
+    final ResourceContent content = readResource(resourceDescriptor, null);
+    return createResource(content, resourceDescriptor, resourceFactory, null);
+  }
+
+
+
+  /**
+   * Read a SCIM query response.
+   *
+   * @param <R> The type of resource instance.
+   * @param resourceDescriptor The descriptor of the SCIM resource to be read.
+   * @param resourceFactory The resource factory to use to create the resource
+   *                        instances.
+   *
+   * @return  The SCIM query response that was read.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   * @throws InvalidResourceException If a resource is not valid.
+   */
+  <R extends BaseResource> Resources<R> unmarshalResources(
+      final ResourceDescriptor resourceDescriptor,
+      final ResourceFactory<R> resourceFactory)
+      throws IOException, JSONException, InvalidResourceException
+  {
+    expectObject(reader.next());
+
+    int totalResults = 0;
+    boolean hasTotalResults = false;
+    int startIndex = 1;
+    boolean hasStartIndex = false;
+    List<String> schemas = null;
+    final List<ResourceContent> contents = new ArrayList<ResourceContent>();
+
+    // Any other fields are kept in case this is not a list response.
+    final ResourceContent otherFields = new ResourceContent();
+
+    for (Token t = reader.next(); t != Token.END_OBJECT; t = reader.next())
+    {
+      final String key = toLowerCase(reader.getText());
+      t = reader.next();
+      if (key.equals("totalresults"))
+      {
+        totalResults = readInt(t);
+        hasTotalResults = true;
+      }
+      else if (key.equals("startindex"))
+      {
+        startIndex = readInt(t);
+        hasStartIndex = true;
+      }
+      else if (key.equals(SCIMConstants.SCHEMAS_ATTRIBUTE_NAME) &&
+               t == Token.START_ARRAY)
+      {
+        schemas = readStrings();
+      }
+      else if (key.equals("resources"))
+      {
+        if (t != Token.START_ARRAY)
+        {
+          throw reader.syntaxError("Resources must be an array");
+        }
+        for (t = reader.next(); t != Token.END_ARRAY; t = reader.next())
+        {
+          expectObject(t);
+          contents.add(readResource(resourceDescriptor, schemas));
+        }
+      }
+      else
+      {
+        deferAttribute(otherFields, key, reader.captureValue(t));
+      }
+    }
+
+    List<R> resources = Collections.emptyList();
+    if (!contents.isEmpty())
+    {
+      resources = new ArrayList<R>(contents.size());
+      for (final ResourceContent content : contents)
+      {
+        resources.add(createResource(content, resourceDescriptor,
+                                     resourceFactory, schemas));
+      }
+    }
+
+    // Handle an edge case in which the JSON being unmarshalled does not in
+    // fact represent a list of SCIM resources. This can happen, for example,
+    // if a client calls SCIMEndpoint.query(...) for a SCIM service's
+    // "/Schemas" endpoint, and the SCIM service returns a single schema
+    // resource rather than a search response.
+    try
+    {
+      if (resources.isEmpty() && !hasTotalResults && !hasStartIndex)
+      {
+        Debug.debug(Level.WARNING, DebugType.OTHER,
+            "JSON object is not a SCIM list response");
+        if (schemas != null)
+        {
+          otherFields.schemaSet = createSchemaSet(resourceDescriptor, schemas);
+        }
+        final R resource = createResource(otherFields, resourceDescriptor,
+                                          resourceFactory, null);
+        resources = new ArrayList<R>(1);
+        resources.add(resource);
+        totalResults = 1;
+      }
+    }
+    catch (Exception e)
+    {
+      // If this fails, do nothing and return an empty Resources object.
+      Debug.debugException(e);
+    }
+
+    return new Resources<R>(resources, totalResults, startIndex);
+  }
+
+
+
+  /**
+   * Read a SCIM error response.
+   *
+   * @return  The SCIM error response that was read, or {@code null} if the
+   *          response does not contain an error.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   */
+  SCIMException unmarshalError()
+      throws IOException, JSONException
+  {
+    expectObject(reader.next());
+    for (Token t = reader.next(); t != Token.END_OBJECT; t = reader.next())
+    {
+      final String key = toLowerCase(reader.getText());
+      t = reader.next();
+      if (!key.equals("errors") || t != Token.START_ARRAY)
+      {
+        reader.skipValue(t);
+        continue;
+      }
+
+      t = reader.next();
+      if (t == Token.END_ARRAY)
+      {
+        return null;
+      }
+      expectObject(t);
+
+      // Only the first error is used.
+      int code = 0;
+      String description = "";
+      for (t = reader.next(); t != Token.END_OBJECT; t = reader.next())
+      {
+        final String errorKey = toLowerCase(reader.getText());
+        t = reader.next();
+        if (errorKey.equals("code") &&
+            (t == Token.NUMBER || t == Token.STRING))
+        {
+          try
+          {
+            code = (int) Double.parseDouble(reader.getText());
+          }
+          catch (NumberFormatException e)
+          {
+            Debug.debugException(e);
+          }
+        }
+        else if (errorKey.equals("description") && t != Token.NULL &&
+                 t != Token.START_OBJECT && t != Token.START_ARRAY)
+        {
+          description = reader.getText();
+        }
+        else
+        {
+          reader.skipValue(t);
+        }
+      }
+      return SCIMException.createException(code, description);
+    }
+    return null;
+  }
+
+
+
+  /**
+   * Read the fields of a resource, after the start of the object. The
+   * attributes are added to the SCIM object as they are read if the schemas
+   * of the resource are already known.
+   *
+   * @param resourceDescriptor The descriptor of the SCIM resource to be read.
+   * @param defaultSchemas The schemas of the enclosing list response, or
+   *                       {@code null} if they are not known.
+   *
+   * @return  The content of the resource.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   * @throws InvalidResourceException If the resource is not valid.
+   */
+  private ResourceContent readResource(
+      final ResourceDescriptor resourceDescriptor,
+      final List<String> defaultSchemas)
+      throws IOException, JSONException, InvalidResourceException
+  {
+    final ResourceContent content = new ResourceContent();
+    final Set<String> defaultSchemaSet = defaultSchemas == null ? null :
+        createSchemaSet(resourceDescriptor, defaultSchemas);
+    List<String> defaultSchemaKeys = null;
+    try
+    {
+      for (Token t = reader.next(); t != Token.END_OBJECT; t = reader.next())
+      {
+        final String key = toLowerCase(reader.getText());
+        t = reader.next();
+        if (key.equals(SCIMConstants.SCHEMAS_ATTRIBUTE_NAME))
+        {
+          if (t != Token.START_ARRAY)
+          {
+            throw new InvalidResourceException(
+                "The schemas attribute must be an array");
+          }
+          content.schemaSet =
+              createSchemaSet(resourceDescriptor, readStrings());
+          if (defaultSchemaKeys != null)
+          {
+            checkDefaultSchemaKeys(defaultSchemaSet, content.schemaSet,
+                                   defaultSchemaKeys);
+          }
+        }
+        else if (content.schemaSet != null)
+        {
+          readAttribute(reader, t, key, content.schemaSet,
+                        content.scimObject, resourceDescriptor);
+        }
+        else if (defaultSchemaSet != null &&
+                 !mayBeSchemaContainer(key, t, defaultSchemaSet))
+        {
+          readAttribute(reader, t, key, defaultSchemaSet,
+                        content.scimObject, resourceDescriptor);
+          if (defaultSchemaKeys == null)
+          {
+            defaultSchemaKeys = new ArrayList<String>();
+          }
+          defaultSchemaKeys.add(key);
+        }
+        else
+        {
+          deferAttribute(content, key, reader.captureValue(t));
+        }
+      }
+    }
+    catch (InvalidResourceException e)
+    {
+      throw malformed(resourceDescriptor, e);
+    }
+    return content;
+  }
+
+
+
+  /**
+   * Indicates whether a field might be a container for the attributes of an
+   * extended schema that is not one of the provided schemas, but might be
+   * declared later by the resource.
+   *
+   * @param key The lower-cased name of the field.
+   * @param token The first token of the value of the field.
+   * @param schemaSet The schemas that are known.
+   *
+   * @return  {@code true} if the field might be a container for an extended
+   *          schema that is not yet known.
+   */
+  private static boolean mayBeSchemaContainer(final String key,
+                                              final Token token,
+                                              final Set<String> schemaSet)
+  {
+    return token == Token.START_OBJECT && key.indexOf(':') >= 0 &&
+           !schemaSet.contains(key);
+  }
+
+
+
+  /**
+   * Check that the fields of a resource that were interpreted using the
+   * schemas of the enclosing list response would be interpreted in the same
+   * way using the schemas declared later by the resource.
+   *
+   * @param defaultSchemaSet The schemas of the enclosing list response.
+   * @param schemaSet The schemas declared by the resource.
+   * @param keys The lower-cased names of the fields that were interpreted.
+   *
+   * @throws InvalidResourceException If a field would be interpreted
+   *                                  differently.
+   */
+  private void checkDefaultSchemaKeys(final Set<String> defaultSchemaSet,
+                                      final Set<String> schemaSet,
+                                      final List<String> keys)
+      throws InvalidResourceException
+  {
+    for (final String key : keys)
+    {
+      final boolean isContainer = defaultSchemaSet.contains(key);
+      if (isContainer != schemaSet.contains(key))
+      {
+        throw new InvalidResourceException("Field '" + key +
+            "' is not valid for the schemas declared by the resource");
+      }
+      if (!isContainer && !implicitSchemaChecking &&
+          !schemaSet.contains(SCIMConstants.SCHEMA_URI_CORE))
+      {
+        throw new InvalidResourceException(
+            "'" + SCIMConstants.SCHEMA_URI_CORE +
+            "' must be declared in the schemas attribute.");
+      }
+    }
+  }
+
+
+
+  /**
+   * Create a resource from its content, first adding any attributes that
+   * were read before the schemas of the resource were known.
+   *
+   * @param <R> The type of resource instance.
+   * @param content The content of the resource.
+   * @param resourceDescriptor The descriptor of the SCIM resource.
+   * @param resourceFactory The resource factory to use to create the resource
+   *                        instance.
+   * @param defaultSchemas The schemas to use if the resource does not declare
+   *                       any, or {@code null} if there are none.
+   *
+   * @return  The resource.
+   *
+   * @throws InvalidResourceException If the resource is not valid.
+   */
+  private <R extends BaseResource> R createResource(
+      final ResourceContent content,
+      final ResourceDescriptor resourceDescriptor,
+      final ResourceFactory<R> resourceFactory,
+      final List<String> defaultSchemas)
+      throws InvalidResourceException
+  {
+    try
+    {
+      if (content.schemaSet == null)
+      {
+        content.schemaSet = createSchemaSet(resourceDescriptor,
+            defaultSchemas != null ? defaultSchemas :
+            Collections.singletonList(resourceDescriptor.getSchema()));
+      }
+
+      if (content.deferredAttributes != null)
+      {
+        for (final String[] attribute : content.deferredAttributes)
+        {
+          final JsonTokenReader valueReader =
+              new JsonTokenReader(new StringReader(attribute[1]));
+          readAttribute(valueReader, valueReader.next(), attribute[0],
+                        content.schemaSet, content.scimObject,
+                        resourceDescriptor);
+        }
+        content.deferredAttributes = null;
+      }
+
+      return resourceFactory.createResource(resourceDescriptor,
+                                            content.scimObject);
+    }
+    catch (Exception e)
+    {
+      throw malformed(resourceDescriptor, e);
+    }
+  }
+
+
+
+  /**
+   * Read a top-level field of a resource and add it to the resource.
+   *
+   * @param tokenReader The reader positioned at the value of the field.
+   * @param token The first token of the value.
+   * @param key The lower-cased name of the field.
+   * @param schemaSet The schemas of the resource.
+   * @param scimObject The SCIM object to which the attribute is to be added.
+   * @param resourceDescriptor The descriptor of the SCIM resource.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   * @throws InvalidResourceException If the attribute is not valid.
+   */
+  private void readAttribute(final JsonTokenReader tokenReader,
+                             final Token token,
+                             final String key,
+                             final Set<String> schemaSet,
+                             final SCIMObject scimObject,
+                             final ResourceDescriptor resourceDescriptor)
+      throws IOException, JSONException, InvalidResourceException
+  {
+    if (schemaSet.contains(key))
+    {
+      // This key is a container for some extended schema.
+      if (token != Token.START_OBJECT)
+      {
+        throw new InvalidResourceException(
+            "JSON object expected for schema '" + key + "'");
+      }
+      for (Token t = tokenReader.next(); t != Token.END_OBJECT;
+           t = tokenReader.next())
+      {
+        final AttributeDescriptor attributeDescriptor =
+            resourceDescriptor.getAttribute(key, tokenReader.getText());
+        addAttribute(scimObject, readAttributeValue(
+            tokenReader, tokenReader.next(), attributeDescriptor, null));
+      }
+    }
+    else if (implicitSchemaChecking)
+    {
+      // Try to determine the schema for this attribute.
+      final String schema = resourceDescriptor.findAttributeSchema(key);
+      final AttributeDescriptor attributeDescriptor =
+          resourceDescriptor.getAttribute(schema, key);
+
+      // The meta.attributes sub-attribute contains the names of attributes
+      // to remove during a PATCH operation. These ought to be qualified by
+      // the client, but if they are not we can try to qualify them here.
+      final ResourceDescriptor qualifyingDescriptor =
+          CoreSchema.META_DESCRIPTOR.equals(attributeDescriptor) ?
+          resourceDescriptor : null;
+      addAttribute(scimObject, readAttributeValue(
+          tokenReader, token, attributeDescriptor, qualifyingDescriptor));
+    }
+    else
+    {
+      if (!schemaSet.contains(SCIMConstants.SCHEMA_URI_CORE))
+      {
+        throw new InvalidResourceException(
+            "'" + SCIMConstants.SCHEMA_URI_CORE +
+            "' must be declared in the schemas attribute.");
+      }
+      final AttributeDescriptor attributeDescriptor =
+          resourceDescriptor.getAttribute(SCIMConstants.SCHEMA_URI_CORE, key);
+      addAttribute(scimObject, readAttributeValue(
+          tokenReader, token, attributeDescriptor, null));
+    }
+  }
+
+
+
+  /**
+   * Read the value of an attribute.
+   *
+   * @param tokenReader The reader positioned at the value.
+   * @param token The first token of the value.
+   * @param descriptor The attribute descriptor.
+   * @param qualifyingDescriptor The resource descriptor to be used to qualify
+   *                             the names in meta.attributes, or
+   *                             {@code null} if they are not to be qualified.
+   *
+   * @return  The attribute, or {@code null} if the value is null.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   * @throws InvalidResourceException If the attribute is not valid.
+   */
+  private SCIMAttribute readAttributeValue(
+      final JsonTokenReader tokenReader,
+      final Token token,
+      final AttributeDescriptor descriptor,
+      final ResourceDescriptor qualifyingDescriptor)
+      throws IOException, JSONException, InvalidResourceException
+  {
+    if (token == Token.NULL)
+    {
+      return null;
+    }
+
+    if (descriptor.isMultiValued())
+    {
+      if (token == Token.START_ARRAY)
+      {
+        return readMultiValuedAttribute(tokenReader, descriptor, null);
+      }
+
+      // A single value is accepted in place of an array.
+      final SCIMAttributeValue value;
+      if (token == Token.START_OBJECT)
+      {
+        value = readComplexValue(tokenReader, descriptor, null);
+      }
+      else
+      {
+        value = createValueValue(
+            descriptor, readScalar(tokenReader, token), null);
+      }
+      return SCIMAttribute.create(descriptor, value);
+    }
+    else if (descriptor.getDataType() == AttributeDescriptor.DataType.COMPLEX)
+    {
+      if (token != Token.START_OBJECT)
+      {
+        throw new InvalidResourceException(
+            "JSON object expected for complex attribute '" +
+            descriptor.getName() + "'");
+      }
+      return SCIMAttribute.create(
+          descriptor,
+          readComplexValue(tokenReader, descriptor, qualifyingDescriptor));
+    }
+    else
+    {
+      return SCIMAttribute.create(
+          descriptor,
+          SCIMAttributeValue.createValue(descriptor.getDataType(),
+                                         readScalar(tokenReader, token)));
+    }
+  }
+
+
+
+  /**
+   * Read the values of a multi-valued attribute, after the start of the
+   * array.
+   *
+   * @param tokenReader The reader positioned within the array.
+   * @param descriptor The attribute descriptor.
+   * @param qualifyingDescriptor The resource descriptor to be used to qualify
+   *                             attribute names in the values, or
+   *                             {@code null} if they are not to be qualified.
+   *
+   * @return  The attribute, or {@code null} if there are no non-null values
+   *          in the array.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   * @throws InvalidResourceException If the attribute is not valid.
+   */
+  private SCIMAttribute readMultiValuedAttribute(
+      final JsonTokenReader tokenReader,
+      final AttributeDescriptor descriptor,
+      final ResourceDescriptor qualifyingDescriptor)
+      throws IOException, JSONException, InvalidResourceException
+  {
+    final List<SCIMAttributeValue> values = new ArrayList<SCIMAttributeValue>();
+    for (Token t = tokenReader.next(); t != Token.END_ARRAY;
+         t = tokenReader.next())
+    {
+      if (t == Token.NULL)
+      {
+        continue;
+      }
+
+      if (t == Token.START_OBJECT)
+      {
+        values.add(readComplexValue(tokenReader, descriptor, null));
+      }
+      else
+      {
+        values.add(createValueValue(descriptor, readScalar(tokenReader, t),
+                                    qualifyingDescriptor));
+      }
+    }
+
+    if (values.isEmpty())
+    {
+      return null;
+    }
+
+    return SCIMAttribute.create(
+        descriptor, values.toArray(new SCIMAttributeValue[values.size()]));
+  }
+
+
+
+  /**
+   * Read a complex value, after the start of the object.
+   *
+   * @param tokenReader The reader positioned within the object.
+   * @param descriptor The attribute descriptor.
+   * @param qualifyingDescriptor The resource descriptor to be used to qualify
+   *                             the names in meta.attributes, or
+   *                             {@code null} if they are not to be qualified.
+   *
+   * @return  The complex value.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   * @throws InvalidResourceException If the value is not valid.
+   */
+  private SCIMAttributeValue readComplexValue(
+      final JsonTokenReader tokenReader,
+      final AttributeDescriptor descriptor,
+      final ResourceDescriptor qualifyingDescriptor)
+      throws IOException, JSONException, InvalidResourceException
+  {
+    final List<SCIMAttribute> complexAttrs = new ArrayList<SCIMAttribute>();
+    for (Token t = tokenReader.next(); t != Token.END_OBJECT;
+         t = tokenReader.next())
+    {
+      final String key = tokenReader.getText();
+      final AttributeDescriptor subAttribute =
+          descriptor.getSubAttribute(key);
+      t = tokenReader.next();
+      if (t == Token.NULL)
+      {
+        continue;
+      }
+
+      final SCIMAttribute childAttr;
+      // Allow multi-valued sub-attribute as the resource schema needs this.
+      if (subAttribute.isMultiValued())
+      {
+        if (t != Token.START_ARRAY)
+        {
+          throw new InvalidResourceException(
+              "JSON array expected for sub-attribute '" + key + "'");
+        }
+        childAttr = readMultiValuedAttribute(tokenReader, subAttribute,
+            "attributes".equals(toLowerCase(key)) ?
+            qualifyingDescriptor : null);
+      }
+      else
+      {
+        childAttr = SCIMAttribute.create(
+            subAttribute,
+            SCIMAttributeValue.createValue(subAttribute.getDataType(),
+                                           readScalar(tokenReader, t)));
+      }
+      if (childAttr != null)
+      {
+        complexAttrs.add(childAttr);
+      }
+    }
+
+    return SCIMAttributeValue.createComplexValue(complexAttrs);
+  }
+
+
+
+  /**
+   * Create a complex value holding a single value sub-attribute, to
+   * represent a plain value of a multi-valued attribute.
+   *
+   * @param descriptor The descriptor of the multi-valued attribute.
+   * @param value The plain value.
+   * @param qualifyingDescriptor The resource descriptor to be used to qualify
+   *                             the value as an attribute name, or
+   *                             {@code null} if it is not to be qualified.
+   *
+   * @return  The complex value.
+   *
+   * @throws InvalidResourceException If the value is not valid.
+   */
+  private static SCIMAttributeValue createValueValue(
+      final AttributeDescriptor descriptor,
+      final String value,
+      final ResourceDescriptor qualifyingDescriptor)
+      throws InvalidResourceException
+  {
+    String v = value;
+    if (qualifyingDescriptor != null)
+    {
+      // The schema returned will be null if the attribute name is already
+      // fully qualified.
+      final String schema = qualifyingDescriptor.findAttributeSchema(value);
+      if (schema != null)
+      {
+        v = schema + SCIMConstants.SEPARATOR_CHAR_QUALIFIED_ATTRIBUTE + value;
+      }
+    }
+
+    return SCIMAttributeValue.createComplexValue(
+        SCIMAttribute.create(
+            descriptor.getSubAttribute("value"),
+            SCIMAttributeValue.createValue(descriptor.getDataType(), v)));
+  }
+
+
+
+  /**
+   * Read a value that is expected to be a string, number or boolean. An
+   * object or array is returned in its JSON representation.
+   *
+   * @param tokenReader The reader positioned at the value.
+   * @param token The first token of the value.
+   *
+   * @return  The text of the value.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   */
+  private static String readScalar(final JsonTokenReader tokenReader,
+                                   final Token token)
+      throws IOException, JSONException
+  {
+    if (token == Token.START_OBJECT || token == Token.START_ARRAY)
+    {
+      return tokenReader.captureValue(token);
+    }
+    return tokenReader.getText();
+  }
+
+
+
+  /**
+   * Read an array of strings, after the start of the array.
+   *
+   * @return  The strings.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the JSON text is malformed.
+   */
+  private List<String> readStrings()
+      throws IOException, JSONException
+  {
+    final List<String> strings = new ArrayList<String>(2);
+    for (Token t = reader.next(); t != Token.END_ARRAY; t = reader.next())
+    {
+      strings.add(readScalar(reader, t));
+    }
+    return strings;
+  }
+
+
+
+  /**
+   * Read an integer value, which may be represented as a number or string.
+   *
+   * @param token The first token of the value.
+   *
+   * @return  The integer value.
+   *
+   * @throws IOException If the JSON text could not be read.
+   * @throws JSONException If the value is not a number.
+   */
+  private int readInt(final Token token)
+      throws IOException, JSONException
+  {
+    if (token == Token.NUMBER || token == Token.STRING)
+    {
+      try
+      {
+        return (int) Double.parseDouble(reader.getText());
+      }
+      catch (NumberFormatException e)
+      {
+        Debug.debugException(e);
+      }
+    }
+    throw reader.syntaxError("Expected a number");
+  }
+
+
+
+  /**
+   * Create the set of schemas used to interpret the attributes of a
+   * resource.
+   *
+   * @param resourceDescriptor The descriptor of the SCIM resource.
+   * @param schemas The schemas declared for the resource.
+   *
+   * @return  The lower-cased schemas.
+   */
+  private Set<String> createSchemaSet(
+      final ResourceDescriptor resourceDescriptor,
+      final List<String> schemas)
+  {
+    final Set<String> schemaSet = new HashSet<String>(schemas.size());
+    if (implicitSchemaChecking)
+    {
+      schemaSet.addAll(resourceDescriptor.getAttributeSchemas());
+    }
+    for (final String schema : schemas)
+    {
+      schemaSet.add(toLowerCase(schema));
+    }
+    return schemaSet;
+  }
+
+
+
+  /**
+   * Hold the value of an attribute to be read once the schemas of the
+   * resource are known.
+   *
+   * @param content The content of the resource.
+   * @param key The lower-cased name of the field.
+   * @param value The JSON representation of the value.
+   */
+  private static void deferAttribute(final ResourceContent content,
+                                     final String key,
+                                     final String value)
+  {
+    if (content.deferredAttributes == null)
+    {
+      content.deferredAttributes = new ArrayList<String[]>();
+    }
+    content.deferredAttributes.add(new String[] { key, value });
+  }
+
+
+
+  /**
+   * Add an attribute to a SCIM object.
+   *
+   * @param scimObject The SCIM object.
+   * @param attribute The attribute to be added, or {@code null} if there is
+   *                  no attribute to add.
+   */
+  private static void addAttribute(final SCIMObject scimObject,
+                                   final SCIMAttribute attribute)
+  {
+    if (attribute != null)
+    {
+      scimObject.addAttribute(attribute);
+    }
+  }
+
+
+
+  /**
+   * Check that a token is the start of an object.
+   *
+   * @param token The token to be checked.
+   *
+   * @throws JSONException If the token is not the start of an object.
+   */
+  private void expectObject(final Token token)
+      throws JSONException
+  {
+    if (token != Token.START_OBJECT)
+    {
+      throw reader.syntaxError("A JSON object was expected");
+    }
+  }
+
+
+
+  /**
+   * Create an exception indicating that a resource is malformed.
+   *
+   * @param resourceDescriptor The descriptor of the SCIM resource.
+   * @param e The exception that occurred while reading the resource.
+   *
+   * @return  The exception to be thrown.
+   */
+  private static InvalidResourceException malformed(
+      final ResourceDescriptor resourceDescriptor,
+      final Exception e)
+  {
+    return new InvalidResourceException(
+        "Resource '" + resourceDescriptor.getName() + "' is malformed: " +
+        e.getMessage(), e);
+  }
+}
@@ -0,0 +1,856 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.json;
+
+import org.json.JSONException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+
+
+
+/**
+ * This class writes JSON text as UTF-8 directly to an output stream. It
+ * produces the same text as {@code org.json.JSONWriter} writing through a
+ * UTF-8 {@code OutputStreamWriter}, but encodes characters straight into a
+ * byte buffer that is reused between writers, and allows keys and values
+ * that are written often to be encoded once in advance.
+ */
+final class JsonStreamWriter
+{
+  /**
+   * The size of the buffer holding content not yet written to the output
+   * stream.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * Buffers released by closed writers, available for use by new writers.
+   */
+  private static final ArrayBlockingQueue<byte[]> BUFFER_POOL =
+      new ArrayBlockingQueue<byte[]>(16);
+
+  /**
+   * The hexadecimal digits used for unicode escapes.
+   */
+  private static final byte[] HEX_DIGITS =
+      { '0', '1', '2', '3', '4', '5', '6', '7',
+        '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+  /**
+   * The mode when nothing has been written yet.
+   */
+  private static final char MODE_INIT = 'i';
+
+  /**
+   * The mode when a key is expected within an object.
+   */
+  private static final char MODE_KEY = 'k';
+
+  /**
+   * The mode when the value for a key is expected.
+   */
+  private static final char MODE_OBJECT = 'o';
+
+  /**
+   * The mode when values are expected within an array.
+   */
+  private static final char MODE_ARRAY = 'a';
+
+  /**
+   * The mode when the outermost object or array has been written.
+   */
+  private static final char MODE_DONE = 'd';
+
+  /**
+   * The output stream to which the JSON text is written.
+   */
+  private final OutputStream outputStream;
+
+  /**
+   * The buffer holding content not yet written to the output stream.
+   */
+  private byte[] buffer;
+
+  /**
+   * The number of bytes in the buffer.
+   */
+  private int position;
+
+  /**
+   * The kinds of the objects and arrays being written, from the outermost.
+   * Each is either {@code MODE_KEY} for an object or {@code MODE_ARRAY} for
+   * an array.
+   */
+  private char[] stack = new char[20];
+
+  /**
+   * The number of objects and arrays being written.
+   */
+  private int top;
+
+  /**
+   * The current mode.
+   */
+  private char mode = MODE_INIT;
+
+  /**
+   * Indicates whether a comma is needed before the next array element or
+   * object key.
+   */
+  private boolean comma;
+
+
+
+  /**
+   * Create a new JSON writer.
+   *
+   * @param outputStream  The output stream to which the JSON text is written.
+   */
+  JsonStreamWriter(final OutputStream outputStream)
+  {
+    this.outputStream = outputStream;
+
+    final byte[] pooled = BUFFER_POOL.poll();
+    buffer = pooled != null ? pooled : new byte[BUFFER_SIZE];
+  }
+
+
+
+  /**
+   * Encode a string as a quoted JSON string, so that it may be written as a
+   * key or value without being encoded each time.
+   *
+   * @param s  The string to be encoded.
+   *
+   * @return  The UTF-8 encoding of the quoted JSON string.
+   */
+  static byte[] encode(final String s)
+  {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final JsonStreamWriter writer = new JsonStreamWriter(outputStream);
+    try
+    {
+      writer.writeString(s);
+      writer.close();
+    }
+    catch (JSONException e)
+    {
+      // This cannot happen when writing to a byte array.
+      throw new IllegalStateException(e);
+    }
+    catch (IOException e)
+    {
+      // This cannot happen when writing to a byte array.
+      throw new IllegalStateException(e);
+    }
+    return outputStream.toByteArray();
+  }
+
+
+
+  /**
+   * Begin an object.
+   *
+   * @throws JSONException  If an object is not allowed here, or the content
+   *                        could not be written.
+   */
+  void object()
+      throws JSONException
+  {
+    if (mode == MODE_INIT)
+    {
+      mode = MODE_OBJECT;
+    }
+    if (mode != MODE_OBJECT && mode != MODE_ARRAY)
+    {
+      throw new JSONException("Misplaced object.");
+    }
+    beginValue();
+    writeByte('{');
+    endValue();
+    push(MODE_KEY);
+    comma = false;
+  }
+
+
+
+  /**
+   * End an object.
+   *
+   * @throws JSONException  If an object is not being written, or the content
+   *                        could not be written.
+   */
+  void endObject()
+      throws JSONException
+  {
+    end(MODE_KEY, '}', "Misplaced endObject.");
+  }
+
+
+
+  /**
+   * Begin an array.
+   *
+   * @throws JSONException  If an array is not allowed here, or the content
+   *                        could not be written.
+   */
+  void array()
+      throws JSONException
+  {
+    if (mode != MODE_INIT && mode != MODE_OBJECT && mode != MODE_ARRAY)
+    {
+      throw new JSONException("Misplaced array.");
+    }
+    push(MODE_ARRAY);
+    beginValue();
+    writeByte('[');
+    endValue();
+    comma = false;
+  }
+
+
+
+  /**
+   * End an array.
+   *
+   * @throws JSONException  If an array is not being written, or the content
+   *                        could not be written.
+   */
+  void endArray()
+      throws JSONException
+  {
+    end(MODE_ARRAY, ']', "Misplaced endArray.");
+  }
+
+
+
+  /**
+   * Write a key within an object.
+   *
+   * @param key  The key to be written.
+   *
+   * @throws JSONException  If a key is not allowed here, or the content could
+   *                        not be written.
+   */
+  void key(final String key)
+      throws JSONException
+  {
+    if (key == null)
+    {
+      throw new JSONException("Null key.");
+    }
+    beginKey();
+    writeString(key);
+    endKey();
+  }
+
+
+
+  /**
+   * Write a key within an object that has been encoded in advance.
+   *
+   * @param encodedKey  The key as encoded by {@link #encode}.
+   *
+   * @throws JSONException  If a key is not allowed here, or the content could
+   *                        not be written.
+   */
+  void encodedKey(final byte[] encodedKey)
+      throws JSONException
+  {
+    beginKey();
+    writeBytes(encodedKey);
+    endKey();
+  }
+
+
+
+  /**
+   * Write a string value that has been encoded in advance.
+   *
+   * @param encodedValue  The value as encoded by {@link #encode}.
+   *
+   * @throws JSONException  If a value is not allowed here, or the content
+   *                        could not be written.
+   */
+  void encodedValue(final byte[] encodedValue)
+      throws JSONException
+  {
+    beginValue();
+    writeBytes(encodedValue);
+    endValue();
+  }
+
+
+
+  /**
+   * Write a boolean value.
+   *
+   * @param b  The value to be written.
+   *
+   * @throws JSONException  If a value is not allowed here, or the content
+   *                        could not be written.
+   */
+  void value(final boolean b)
+      throws JSONException
+  {
+    beginValue();
+    writeAscii(b ? "true" : "false");
+    endValue();
+  }
+
+
+
+  /**
+   * Write an integer value.
+   *
+   * @param l  The value to be written.
+   *
+   * @throws JSONException  If a value is not allowed here, or the content
+   *                        could not be written.
+   */
+  void value(final long l)
+      throws JSONException
+  {
+    beginValue();
+    writeLong(l);
+    endValue();
+  }
+
+
+
+  /**
+   * Write a value. Strings are quoted, numbers and booleans are written
+   * as they are, {@code null} is written as null, and any other object is
+   * written as its quoted string representation.
+   *
+   * @param o  The value to be written.
+   *
+   * @throws JSONException  If a value is not allowed here, or the content
+   *                        could not be written.
+   */
+  void value(final Object o)
+      throws JSONException
+  {
+    beginValue();
+    if (o == null)
+    {
+      writeAscii("null");
+    }
+    else if (o instanceof String)
+    {
+      writeString((String) o);
+    }
+    else if (o instanceof Long || o instanceof Integer ||
+             o instanceof Short || o instanceof Byte)
+    {
+      writeLong(((Number) o).longValue());
+    }
+    else if (o instanceof Number)
+    {
+      writeAscii(numberToString((Number) o));
+    }
+    else if (o instanceof Boolean)
+    {
+      writeAscii(o.toString());
+    }
+    else
+    {
+      writeString(o.toString());
+    }
+    endValue();
+  }
+
+
+
+  /**
+   * Write any buffered content to the output stream and close it. The
+   * buffer is made available to other writers.
+   *
+   * @throws IOException  If the content could not be written or the output
+   *                      stream could not be closed.
+   */
+  void close()
+      throws IOException
+  {
+    if (buffer == null)
+    {
+      return;
+    }
+
+    try
+    {
+      flushBuffer();
+      outputStream.close();
+    }
+    finally
+    {
+      BUFFER_POOL.offer(buffer);
+      buffer = null;
+    }
+  }
+
+
+
+  /**
+   * Prepare to write a key.
+   *
+   * @throws JSONException  If a key is not allowed here, or the content could
+   *                        not be written.
+   */
+  private void beginKey()
+      throws JSONException
+  {
+    if (mode != MODE_KEY)
+    {
+      throw new JSONException("Misplaced key.");
+    }
+    if (comma)
+    {
+      writeByte(',');
+    }
+  }
+
+
+
+  /**
+   * Finish writing a key.
+   *
+   * @throws JSONException  If the content could not be written.
+   */
+  private void endKey()
+      throws JSONException
+  {
+    writeByte(':');
+    comma = false;
+    mode = MODE_OBJECT;
+  }
+
+
+
+  /**
+   * Prepare to write a value, or the start of an object or array.
+   *
+   * @throws JSONException  If a value is not allowed here, or the content
+   *                        could not be written.
+   */
+  private void beginValue()
+      throws JSONException
+  {
+    if (mode != MODE_OBJECT && mode != MODE_ARRAY)
+    {
+      throw new JSONException("Value out of sequence.");
+    }
+    if (comma && mode == MODE_ARRAY)
+    {
+      writeByte(',');
+    }
+  }
+
+
+
+  /**
+   * Finish writing a value, or the start of an object or array.
+   */
+  private void endValue()
+  {
+    if (mode == MODE_OBJECT)
+    {
+      mode = MODE_KEY;
+    }
+    comma = true;
+  }
+
+
+
+  /**
+   * End an object or array.
+   *
+   * @param expectedMode  The mode expected while writing the object or
+   *                      array.
+   * @param c             The character ending the object or array.
+   * @param message       The message if the mode is not the expected mode.
+   *
+   * @throws JSONException  If the object or array is not being written, or
+   *                        the content could not be written.
+   */
+  private void end(final char expectedMode, final char c,
+                   final String message)
+      throws JSONException
+  {
+    if (mode != expectedMode)
+    {
+      throw new JSONException(message);
+    }
+    if (top == 0 || stack[top - 1] != expectedMode)
+    {
+      throw new JSONException("Nesting error.");
+    }
+    top--;
+    mode = top == 0 ? MODE_DONE : stack[top - 1];
+    writeByte(c);
+    comma = true;
+  }
+
+
+
+  /**
+   * Begin an object or array.
+   *
+   * @param newMode  The mode while writing the object or array.
+   */
+  private void push(final char newMode)
+  {
+    if (top == stack.length)
+    {
+      final char[] newStack = new char[stack.length * 2];
+      System.arraycopy(stack, 0, newStack, 0, top);
+      stack = newStack;
+    }
+    stack[top++] = newMode;
+    mode = newMode;
+  }
+
+
+
+  /**
+   * Write a string as a quoted JSON string. Characters are escaped in the
+   * same way as {@code org.json.JSONObject.quote}, and an unpaired surrogate
+   * is replaced with a question mark as by the UTF-8 charset encoder.
+   *
+   * @param s  The string to be written.
+   *
+   * @throws JSONException  If the content could not be written.
+   */
+  private void writeString(final String s)
+      throws JSONException
+  {
+    final int length = s == null ? 0 : s.length();
+    ensureCapacity(1);
+    buffer[position++] = '"';
+
+    char previous = 0;
+    for (int i = 0; i < length; i++)
+    {
+      final char c = s.charAt(i);
+
+      // The longest encoding of a character is a six byte escape.
+      ensureCapacity(6);
+      if (c >= ' ' && c < 0x80 && c != '"' && c != '\\' && c != '/')
+      {
+        buffer[position++] = (byte) c;
+      }
+      else
+      {
+        switch (c)
+        {
+          case '"':
+          case '\\':
+            buffer[position++] = '\\';
+            buffer[position++] = (byte) c;
+            break;
+
+          case '/':
+            if (previous == '<')
+            {
+              buffer[position++] = '\\';
+            }
+            buffer[position++] = '/';
+            break;
+
+          case '\b':
+            buffer[position++] = '\\';
+            buffer[position++] = 'b';
+            break;
+
+          case '\t':
+            buffer[position++] = '\\';
+            buffer[position++] = 't';
+            break;
+
+          case '\n':
+            buffer[position++] = '\\';
+            buffer[position++] = 'n';
+            break;
+
+          case '\f':
+            buffer[position++] = '\\';
+            buffer[position++] = 'f';
+            break;
+
+          case '\r':
+            buffer[position++] = '\\';
+            buffer[position++] = 'r';
+            break;
+
+          default:
+            if (c < ' ' || (c >= 0x80 && c < 0xa0) ||
+                (c >= 0x2000 && c < 0x2100))
+            {
+              buffer[position++] = '\\';
+              buffer[position++] = 'u';
+              buffer[position++] = HEX_DIGITS[(c >> 12) & 0xf];
+              buffer[position++] = HEX_DIGITS[(c >> 8) & 0xf];
+              buffer[position++] = HEX_DIGITS[(c >> 4) & 0xf];
+              buffer[position++] = HEX_DIGITS[c & 0xf];
+            }
+            else if (c < 0x800)
+            {
+              buffer[position++] = (byte) (0xc0 | (c >> 6));
+              buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if (Character.isSurrogate(c))
+            {
+              if (Character.isHighSurrogate(c) && i + 1 < length &&
+                  Character.isLowSurrogate(s.charAt(i + 1)))
+              {
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | (cp >> 18));
+                buffer[position++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (cp & 0x3f));
+              }
+              else
+              {
+                buffer[position++] = '?';
+              }
+            }
+            else
+            {
+              buffer[position++] = (byte) (0xe0 | (c >> 12));
+              buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+              buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+            break;
+        }
+      }
+      previous = s.charAt(i);
+    }
+
+    ensureCapacity(1);
+    buffer[position++] = '"';
+  }
+
+
+
+  /**
+   * Write the decimal representation of an integer.
+   *
+   * @param l  The integer to be written.
+   *
+   * @throws JSONException  If the content could not be written.
+   */
+  private void writeLong(final long l)
+      throws JSONException
+  {
+    if (l == Long.MIN_VALUE)
+    {
+      writeAscii(Long.toString(l));
+      return;
+    }
+
+    // The longest representation is a sign and 19 digits.
+    ensureCapacity(20);
+    long remaining = l;
+    if (remaining < 0)
+    {
+      buffer[position++] = '-';
+      remaining = -remaining;
+    }
+
+    final int start = position;
+    do
+    {
+      buffer[position++] = (byte) ('0' + (remaining % 10));
+      remaining /= 10;
+    }
+    while (remaining != 0);
+
+    // The digits were written in reverse order.
+    for (int i = start, j = position - 1; i < j; i++, j--)
+    {
+      final byte b = buffer[i];
+      buffer[i] = buffer[j];
+      buffer[j] = b;
+    }
+  }
+
+
+
+  /**
+   * Write a string containing only ASCII characters.
+   *
+   * @param s  The string to be written.
+   *
+   * @throws JSONException  If the content could not be written.
+   */
+  private void writeAscii(final String s)
+      throws JSONException
+  {
+    final int length = s.length();
+    for (int i = 0; i < length; i++)
+    {
+      ensureCapacity(1);
+      buffer[position++] = (byte) s.charAt(i);
+    }
+  }
+
+
+
+  /**
+   * Write a single byte.
+   *
+   * @param b  The byte to be written.
+   *
+   * @throws JSONException  If the content could not be written.
+   */
+  private void writeByte(final char b)
+      throws JSONException
+  {
+    ensureCapacity(1);
+    buffer[position++] = (byte) b;
+  }
+
+
+
+  /**
+   * Write an array of bytes.
+   *
+   * @param bytes  The bytes to be written.
+   *
+   * @throws JSONException  If the content could not be written.
+   */
+  private void writeBytes(final byte[] bytes)
+      throws JSONException
+  {
+    if (bytes.length > buffer.length - position)
+    {
+      flush();
+      if (bytes.length > buffer.length)
+      {
+        try
+        {
+          outputStream.write(bytes);
+        }
+        catch (IOException e)
+        {
+          throw new JSONException(e);
+        }
+        return;
+      }
+    }
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+
+
+  /**
+   * Make room in the buffer for the provided number of bytes, writing the
+   * buffered content to the output stream if necessary.
+   *
+   * @param length  The number of bytes to make room for.
+   *
+   * @throws JSONException  If the content could not be written.
+   */
+  private void ensureCapacity(final int length)
+      throws JSONException
+  {
+    if (position + length > buffer.length)
+    {
+      flush();
+    }
+  }
+
+
+
+  /**
+   * Write the buffered content to the output stream.
+   *
+   * @throws JSONException  If the content could not be written.
+   */
+  private void flush()
+      throws JSONException
+  {
+    try
+    {
+      flushBuffer();
+    }
+    catch (IOException e)
+    {
+      throw new JSONException(e);
+    }
+  }
+
+
+
+  /**
+   * Write the buffered content to the output stream.
+   *
+   * @throws IOException  If the content could not be written.
+   */
+  private void flushBuffer()
+      throws IOException
+  {
+    if (position > 0)
+    {
+      outputStream.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+
+
+  /**
+   * Produce the string representation of a number in the same way as
+   * {@code org.json.JSONObject.numberToString}.
+   *
+   * @param n  The number.
+   *
+   * @return  The string representation of the number.
+   *
+   * @throws JSONException  If the number is not finite.
+   */
+  private static String numberToString(final Number n)
+      throws JSONException
+  {
+    if ((n instanceof Double &&
+         (((Double) n).isInfinite() || ((Double) n).isNaN())) ||
+        (n instanceof Float &&
+         (((Float) n).isInfinite() || ((Float) n).isNaN())))
+    {
+      throw new JSONException("JSON does not allow non-finite numbers.");
+    }
+
+    String s = n.toString();
+    if (s.indexOf('.') > 0 && s.indexOf('e') < 0 && s.indexOf('E') < 0)
+    {
+      while (s.endsWith("0"))
+      {
+        s = s.substring(0, s.length() - 1);
+      }
+      if (s.endsWith("."))
+      {
+        s = s.substring(0, s.length() - 1);
+      }
+    }
+    return s;
+  }
+}
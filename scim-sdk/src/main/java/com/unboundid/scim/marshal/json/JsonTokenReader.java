@@ -0,0 +1,729 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.json;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+
+
+/**
+ * This class reads JSON text one token at a time, so that it can be
+ * processed without first building a tree of JSON objects. The structure of
+ * the text is checked as it is read, but no more than one token is held in
+ * memory at once.
+ */
+final class JsonTokenReader
+{
+  /**
+   * The kinds of token that may be read.
+   */
+  enum Token
+  {
+    /**
+     * The start of a JSON object.
+     */
+    START_OBJECT,
+
+    /**
+     * The end of a JSON object.
+     */
+    END_OBJECT,
+
+    /**
+     * The start of a JSON array.
+     */
+    START_ARRAY,
+
+    /**
+     * The end of a JSON array.
+     */
+    END_ARRAY,
+
+    /**
+     * The name of a field in a JSON object.
+     */
+    FIELD_NAME,
+
+    /**
+     * A string value.
+     */
+    STRING,
+
+    /**
+     * A number value.
+     */
+    NUMBER,
+
+    /**
+     * The value true.
+     */
+    TRUE,
+
+    /**
+     * The value false.
+     */
+    FALSE,
+
+    /**
+     * The value null.
+     */
+    NULL,
+
+    /**
+     * The end of the input.
+     */
+    END_OF_INPUT
+  }
+
+  /**
+   * The state of an object or array that has just been entered.
+   */
+  private static final int STATE_START = 0;
+
+  /**
+   * The state of an object or array after a comma.
+   */
+  private static final int STATE_AFTER_COMMA = 1;
+
+  /**
+   * The state of an object after a field name and its colon.
+   */
+  private static final int STATE_AFTER_NAME = 2;
+
+  /**
+   * The state of an object or array after a value.
+   */
+  private static final int STATE_AFTER_VALUE = 3;
+
+  private final Reader reader;
+  private final char[] buffer = new char[8192];
+  private int bufferPos;
+  private int bufferEnd;
+  private long position;
+
+  private final StringBuilder textBuilder = new StringBuilder();
+  private String text;
+
+  /**
+   * Indicates for each level of nesting whether it is an object or an array.
+   */
+  private boolean[] inObject = new boolean[16];
+
+  /**
+   * The state of each level of nesting, which determines the tokens that may
+   * follow.
+   */
+  private int[] states = new int[16];
+  private int depth;
+
+
+
+  /**
+   * Create a new token reader.
+   *
+   * @param reader  The reader providing the JSON text.
+   */
+  JsonTokenReader(final Reader reader)
+  {
+    this.reader = reader;
+  }
+
+
+
+  /**
+   * Read the next token.
+   *
+   * @return  The next token.
+   *
+   * @throws IOException    If the JSON text could not be read.
+   * @throws JSONException  If the JSON text is malformed.
+   */
+  Token next()
+      throws IOException, JSONException
+  {
+    text = null;
+    int c = nextNonWhitespace();
+    boolean expectFieldName = false;
+    if (depth > 0)
+    {
+      final boolean isObject = inObject[depth - 1];
+      if (states[depth - 1] == STATE_AFTER_VALUE)
+      {
+        if (c == ',')
+        {
+          states[depth - 1] = STATE_AFTER_COMMA;
+          c = nextNonWhitespace();
+        }
+        else if (c != (isObject ? '}' : ']'))
+        {
+          throw syntaxError(isObject ? "Expected ',' or '}'" :
+                                       "Expected ',' or ']'");
+        }
+      }
+      else if (c == ',')
+      {
+        throw syntaxError("Unexpected ','");
+      }
+
+      final int state = states[depth - 1];
+      if (isObject && state != STATE_AFTER_NAME)
+      {
+        if (c != '"' && (c != '}' || state == STATE_AFTER_COMMA))
+        {
+          throw syntaxError("Expected a field name");
+        }
+        expectFieldName = (c == '"');
+      }
+      else if (state != STATE_AFTER_VALUE &&
+               (c == '}' || (c == ']' && state != STATE_START)))
+      {
+        throw syntaxError("Expected a value");
+      }
+    }
+    else if (c == ',')
+    {
+      throw syntaxError("Unexpected ','");
+    }
+
+    switch (c)
+    {
+      case -1:
+        if (depth > 0)
+        {
+          throw syntaxError("Unexpected end of input");
+        }
+        return Token.END_OF_INPUT;
+
+      case '{':
+        push(true);
+        return Token.START_OBJECT;
+
+      case '}':
+        pop(true);
+        return Token.END_OBJECT;
+
+      case '[':
+        push(false);
+        return Token.START_ARRAY;
+
+      case ']':
+        pop(false);
+        return Token.END_ARRAY;
+
+      case '"':
+        text = readString();
+        if (expectFieldName)
+        {
+          if (nextNonWhitespace() != ':')
+          {
+            throw syntaxError("Expected ':' after a field name");
+          }
+          states[depth - 1] = STATE_AFTER_NAME;
+          return Token.FIELD_NAME;
+        }
+        valueRead();
+        return Token.STRING;
+
+      case 't':
+        readLiteral("true");
+        valueRead();
+        return Token.TRUE;
+
+      case 'f':
+        readLiteral("false");
+        valueRead();
+        return Token.FALSE;
+
+      case 'n':
+        readLiteral("null");
+        valueRead();
+        return Token.NULL;
+
+      default:
+        if (c == '-' || (c >= '0' && c <= '9'))
+        {
+          text = readNumber((char) c);
+          valueRead();
+          return Token.NUMBER;
+        }
+        throw syntaxError("Unexpected character '" + (char) c + "'");
+    }
+  }
+
+
+
+  /**
+   * Retrieve the text of the last token read, which is the name of a field,
+   * the contents of a string, or the representation of a number, boolean or
+   * null value.
+   *
+   * @return  The text of the last token read, or {@code null} if the token
+   *          is the start or end of an object or array.
+   */
+  String getText()
+  {
+    return text;
+  }
+
+
+
+  /**
+   * Skip over a value, including all of its contents if it is an object or
+   * array.
+   *
+   * @param token  The first token of the value, which has already been read.
+   *
+   * @throws IOException    If the JSON text could not be read.
+   * @throws JSONException  If the JSON text is malformed.
+   */
+  void skipValue(final Token token)
+      throws IOException, JSONException
+  {
+    if (token == Token.START_OBJECT || token == Token.START_ARRAY)
+    {
+      final int valueDepth = depth;
+      while (depth >= valueDepth)
+      {
+        next();
+      }
+    }
+  }
+
+
+
+  /**
+   * Read a value and return its compact JSON representation, so that it can
+   * be parsed later.
+   *
+   * @param token  The first token of the value, which has already been read.
+   *
+   * @return  The JSON representation of the value.
+   *
+   * @throws IOException    If the JSON text could not be read.
+   * @throws JSONException  If the JSON text is malformed.
+   */
+  String captureValue(final Token token)
+      throws IOException, JSONException
+  {
+    final StringBuilder builder = new StringBuilder();
+    writeValue(token, builder);
+    return builder.toString();
+  }
+
+
+
+  /**
+   * Create an exception for malformed JSON text.
+   *
+   * @param message  The error message.
+   *
+   * @return  The exception.
+   */
+  JSONException syntaxError(final String message)
+  {
+    return new JSONException(message + " at character " + position);
+  }
+
+
+
+  /**
+   * Append the JSON representation of a value.
+   *
+   * @param token    The first token of the value, which has already been
+   *                 read.
+   * @param builder  The buffer to which the value is to be appended.
+   *
+   * @throws IOException    If the JSON text could not be read.
+   * @throws JSONException  If the JSON text is malformed.
+   */
+  private void writeValue(final Token token, final StringBuilder builder)
+      throws IOException, JSONException
+  {
+    switch (token)
+    {
+      case START_OBJECT:
+        builder.append('{');
+        boolean firstField = true;
+        for (Token t = next(); t != Token.END_OBJECT; t = next())
+        {
+          if (!firstField)
+          {
+            builder.append(',');
+          }
+          firstField = false;
+          writeString(text, builder);
+          builder.append(':');
+          writeValue(next(), builder);
+        }
+        builder.append('}');
+        break;
+
+      case START_ARRAY:
+        builder.append('[');
+        boolean firstValue = true;
+        for (Token t = next(); t != Token.END_ARRAY; t = next())
+        {
+          if (!firstValue)
+          {
+            builder.append(',');
+          }
+          firstValue = false;
+          writeValue(t, builder);
+        }
+        builder.append(']');
+        break;
+
+      case STRING:
+        writeString(text, builder);
+        break;
+
+      case NUMBER:
+      case TRUE:
+      case FALSE:
+      case NULL:
+        builder.append(text);
+        break;
+
+      default:
+        throw syntaxError("Expected a value");
+    }
+  }
+
+
+
+  /**
+   * Append a string in its JSON representation.
+   *
+   * @param s        The string.
+   * @param builder  The buffer to which the string is to be appended.
+   */
+  private static void writeString(final String s, final StringBuilder builder)
+  {
+    builder.append('"');
+    for (int i = 0; i < s.length(); i++)
+    {
+      final char c = s.charAt(i);
+      switch (c)
+      {
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        default:
+          if (c < ' ')
+          {
+            builder.append(String.format("\\u%04x", (int) c));
+          }
+          else
+          {
+            builder.append(c);
+          }
+      }
+    }
+    builder.append('"');
+  }
+
+
+
+  /**
+   * Enter an object or array.
+   *
+   * @param isObject  {@code true} for an object, {@code false} for an array.
+   */
+  private void push(final boolean isObject)
+  {
+    if (depth == inObject.length)
+    {
+      final boolean[] newInObject = new boolean[depth * 2];
+      System.arraycopy(inObject, 0, newInObject, 0, depth);
+      inObject = newInObject;
+      final int[] newStates = new int[depth * 2];
+      System.arraycopy(states, 0, newStates, 0, depth);
+      states = newStates;
+    }
+    inObject[depth] = isObject;
+    states[depth++] = STATE_START;
+  }
+
+
+
+  /**
+   * Leave an object or array.
+   *
+   * @param isObject  {@code true} for an object, {@code false} for an array.
+   *
+   * @throws JSONException  If the object or array was not the one entered
+   *                        most recently.
+   */
+  private void pop(final boolean isObject)
+      throws JSONException
+  {
+    if (depth == 0 || inObject[depth - 1] != isObject)
+    {
+      throw syntaxError("Unexpected '" + (isObject ? '}' : ']') + "'");
+    }
+    depth--;
+    valueRead();
+  }
+
+
+
+  /**
+   * Record that a value has been read in the current object or array, so
+   * that it must be followed by a comma or the end of the object or array.
+   */
+  private void valueRead()
+  {
+    if (depth > 0)
+    {
+      states[depth - 1] = STATE_AFTER_VALUE;
+    }
+  }
+
+
+
+  /**
+   * Read the contents of a string, after the opening quote.
+   *
+   * @return  The contents of the string.
+   *
+   * @throws IOException    If the JSON text could not be read.
+   * @throws JSONException  If the string is malformed.
+   */
+  private String readString()
+      throws IOException, JSONException
+  {
+    // Most strings have no escapes and lie entirely within the buffer.
+    for (int i = bufferPos; i < bufferEnd; i++)
+    {
+      final char c = buffer[i];
+      if (c == '"')
+      {
+        final String s = new String(buffer, bufferPos, i - bufferPos);
+        position += i + 1 - bufferPos;
+        bufferPos = i + 1;
+        return s;
+      }
+      if (c == '\\' || c < ' ')
+      {
+        break;
+      }
+    }
+
+    textBuilder.setLength(0);
+    while (true)
+    {
+      int c = read();
+      switch (c)
+      {
+        case -1:
+          throw syntaxError("Unterminated string");
+        case '"':
+          return textBuilder.toString();
+        case '\\':
+          c = read();
+          switch (c)
+          {
+            case '"':
+            case '\\':
+            case '/':
+              textBuilder.append((char) c);
+              break;
+            case 'b':
+              textBuilder.append('\b');
+              break;
+            case 'f':
+              textBuilder.append('\f');
+              break;
+            case 'n':
+              textBuilder.append('\n');
+              break;
+            case 'r':
+              textBuilder.append('\r');
+              break;
+            case 't':
+              textBuilder.append('\t');
+              break;
+            case 'u':
+              int codePoint = 0;
+              for (int i = 0; i < 4; i++)
+              {
+                final int digit = Character.digit(read(), 16);
+                if (digit < 0)
+                {
+                  throw syntaxError("Illegal unicode escape");
+                }
+                codePoint = (codePoint << 4) | digit;
+              }
+              textBuilder.append((char) codePoint);
+              break;
+            default:
+              throw syntaxError("Illegal escape");
+          }
+          break;
+        default:
+          if (c < ' ')
+          {
+            throw syntaxError("Illegal control character in string");
+          }
+          textBuilder.append((char) c);
+      }
+    }
+  }
+
+
+
+  /**
+   * Read the representation of a number.
+   *
+   * @param first  The first character of the number.
+   *
+   * @return  The representation of the number.
+   *
+   * @throws IOException  If the JSON text could not be read.
+   */
+  private String readNumber(final char first)
+      throws IOException
+  {
+    textBuilder.setLength(0);
+    textBuilder.append(first);
+    while (true)
+    {
+      if (bufferPos == bufferEnd && !fill())
+      {
+        break;
+      }
+      final char c = buffer[bufferPos];
+      if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' ||
+          c == '+' || c == '-')
+      {
+        textBuilder.append(c);
+        bufferPos++;
+        position++;
+      }
+      else
+      {
+        break;
+      }
+    }
+    return textBuilder.toString();
+  }
+
+
+
+  /**
+   * Read the remainder of a literal value.
+   *
+   * @param literal  The expected literal, whose first character has already
+   *                 been read.
+   *
+   * @throws IOException    If the JSON text could not be read.
+   * @throws JSONException  If the literal does not match.
+   */
+  private void readLiteral(final String literal)
+      throws IOException, JSONException
+  {
+    for (int i = 1; i < literal.length(); i++)
+    {
+      if (read() != literal.charAt(i))
+      {
+        throw syntaxError("Expected '" + literal + "'");
+      }
+    }
+    text = literal;
+  }
+
+
+
+  /**
+   * Read the next character that is not whitespace.
+   *
+   * @return  The next character that is not whitespace, or -1 at the end of
+   *          the input.
+   *
+   * @throws IOException  If the JSON text could not be read.
+   */
+  private int nextNonWhitespace()
+      throws IOException
+  {
+    while (true)
+    {
+      final int c = read();
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+      {
+        return c;
+      }
+    }
+  }
+
+
+
+  /**
+   * Read the next character.
+   *
+   * @return  The next character, or -1 at the end of the input.
+   *
+   * @throws IOException  If the JSON text could not be read.
+   */
+  private int read()
+      throws IOException
+  {
+    if (bufferPos == bufferEnd && !fill())
+    {
+      return -1;
+    }
+    position++;
+    return buffer[bufferPos++];
+  }
+
+
+
+  /**
+   * Read more of the JSON text into the buffer, which must be empty.
+   *
+   * @return  {@code false} if the end of the input has been reached.
+   *
+   * @throws IOException  If the JSON text could not be read.
+   */
+  private boolean fill()
+      throws IOException
+  {
+    final int n = reader.read(buffer, 0, buffer.length);
+    if (n <= 0)
+    {
+      return false;
+    }
+    bufferPos = 0;
+    bufferEnd = n;
+    return true;
+  }
+}
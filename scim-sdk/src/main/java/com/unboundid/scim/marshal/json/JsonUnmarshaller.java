@@ -24,28 +24,18 @@ import com.unboundid.scim.marshal.Unmarshaller;
 import com.unboundid.scim.schema.ResourceDescriptor;
 import com.unboundid.scim.sdk.BulkContentHandler;
 import com.unboundid.scim.sdk.Debug;
-import com.unboundid.scim.sdk.DebugType;
 import com.unboundid.scim.sdk.InvalidResourceException;
 import com.unboundid.scim.sdk.Resources;
 import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.ServerErrorException;
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONTokener;
 
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.logging.Level;
-
-import static com.unboundid.scim.marshal.json.JsonParser.makeCaseInsensitive;
 
 
 
@@ -65,18 +55,19 @@ public class JsonUnmarshaller implements Unmarshaller
   {
     try
     {
-      final JSONObject jsonObject =
-            makeCaseInsensitive(new JSONObject(new JSONTokener(inputStream)));
-
-      final JsonParser parser = new JsonParser();
-      return parser.unmarshal(jsonObject, resourceDescriptor, resourceFactory,
-                              null);
+      final JsonStreamParser parser = new JsonStreamParser(inputStream);
+      return parser.unmarshal(resourceDescriptor, resourceFactory);
     }
     catch(JSONException e)
     {
       throw new InvalidResourceException("Error while reading JSON: " +
           e.getMessage(), e);
     }
+    catch(IOException e)
+    {
+      throw new InvalidResourceException("Error while reading JSON: " +
+          e.getMessage(), e);
+    }
   }
 
   /**
@@ -89,77 +80,19 @@ public class JsonUnmarshaller implements Unmarshaller
   {
     try
     {
-      final JsonParser parser = new JsonParser();
-      final JSONObject jsonObject =
-              makeCaseInsensitive(new JSONObject(new JSONTokener(inputStream)));
-
-      int totalResults = 0;
-      if(jsonObject.has("totalresults"))
-      {
-        totalResults = jsonObject.getInt("totalresults");
-      }
-
-      int startIndex = 1;
-      if(jsonObject.has("startindex"))
-      {
-        startIndex = jsonObject.getInt("startindex");
-      }
-
-      final JSONArray schemas = jsonObject.optJSONArray("schemas");
-
-      List<R> resources = Collections.emptyList();
-      if(jsonObject.has("resources"))
-      {
-        JSONArray resourcesArray = jsonObject.getJSONArray("resources");
-        resources = new ArrayList<R>(resourcesArray.length());
-        for(int i = 0; i < resourcesArray.length(); i++)
-        {
-          JSONObject subObject = makeCaseInsensitive(
-                  resourcesArray.getJSONObject(i));
-
-          R resource = parser.unmarshal(subObject,
-                                        resourceDescriptor,
-                                        resourceFactory,
-                                        schemas);
-          resources.add(resource);
-        }
-      }
-
-      // Handle an edge case in which the JSON being unmarshalled does not in
-      // fact represent a list of SCIM resources. This can happen, for example,
-      // if a client calls SCIMEndpoint.query(...) for a SCIM service's
-      // "/Schemas" endpoint, and the SCIM service returns a single schema
-      // resource rather than a search response.
-      try
-      {
-        if(resources.isEmpty() &&
-            !jsonObject.has("totalresults") &&
-            !jsonObject.has("startindex"))
-        {
-          Debug.debug(Level.WARNING, DebugType.OTHER,
-              "JSON object is not a SCIM list response");
-          R resource = parser.unmarshal(jsonObject,
-                                        resourceDescriptor,
-                                        resourceFactory,
-                                        schemas);
-          resources = new ArrayList<R>(1);
-          resources.add(resource);
-          totalResults = 1;
-        }
-      }
-      catch(Exception e)
-      {
-        // If this fails, do nothing and return an empty Resources object.
-        Debug.debugException(e);
-      }
-
-      return new Resources<R>(resources, totalResults, startIndex);
+      final JsonStreamParser parser = new JsonStreamParser(inputStream);
+      return parser.unmarshalResources(resourceDescriptor, resourceFactory);
     }
     catch(JSONException e)
     {
       throw new InvalidResourceException("Error while reading JSON: " +
           e.getMessage(), e);
     }
+    catch(IOException e)
+    {
+      throw new InvalidResourceException("Error while reading JSON: " +
+          e.getMessage(), e);
+    }
   }
 
 
@@ -171,27 +104,19 @@ public class JsonUnmarshaller implements Unmarshaller
   {
     try
     {
-      final JSONObject jsonObject =
-          makeCaseInsensitive(new JSONObject(new JSONTokener(inputStream)));
-
-      if(jsonObject.has("errors"))
-      {
-        JSONArray errors = jsonObject.getJSONArray("errors");
-        if(errors.length() >= 1)
-        {
-          JSONObject error = errors.getJSONObject(0);
-          int code = error.optInt("code");
-          String description = error.optString("description");
-          return SCIMException.createException(code, description);
-        }
-      }
-      return null;
+      final JsonStreamParser parser = new JsonStreamParser(inputStream);
+      return parser.unmarshalError();
     }
     catch (JSONException e)
     {
       throw new InvalidResourceException("Error while reading JSON: " +
           e.getMessage(), e);
     }
+    catch (IOException e)
+    {
+      throw new InvalidResourceException("Error while reading JSON: " +
+          e.getMessage(), e);
+    }
   }
 
 
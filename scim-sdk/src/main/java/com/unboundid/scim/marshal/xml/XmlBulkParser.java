@@ -35,7 +35,6 @@ import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMObject;
 import com.unboundid.scim.sdk.Status;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
@@ -74,7 +73,8 @@ public class XmlBulkParser
                        final BulkConfig bulkConfig,
                        final BulkContentHandler handler)
   {
-    this.bulkInputStream     = new BulkInputStreamWrapper(inputStream);
+    this.bulkInputStream     = new BulkInputStreamWrapper(
+        inputStream, bulkConfig.getMaxPayloadSize());
     this.bulkConfig          = bulkConfig;
     this.handler             = handler;
     this.operationIndex      = 0;
@@ -103,14 +103,10 @@ public class XmlBulkParser
   public void unmarshal()
       throws SCIMException
   {
-    final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
     try
     {
-      // Increase protection against XML bombs (DS-8081).
-      xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
-
       xmlStreamReader =
-          xmlInputFactory.createXMLStreamReader(bulkInputStream, "UTF-8");
+          XmlStreamParser.createXMLStreamReader(bulkInputStream);
       try
       {
         xmlStreamReader.require(START_DOCUMENT, null, null);
@@ -151,6 +147,13 @@ public class XmlBulkParser
     catch (Exception e)
     {
       Debug.debugException(e);
+      if (bulkInputStream.isMaxBytesReadExceeded())
+      {
+        throw SCIMException.createException(
+            413,
+            "The size of the bulk operation exceeds the maxPayloadSize " +
+            "(" + bulkConfig.getMaxPayloadSize() + ")");
+      }
       throw new InvalidResourceException("Error reading XML Bulk operation: " +
           e.getMessage(), e);
     }
@@ -231,13 +234,6 @@ public class XmlBulkParser
                   "The number of operations in the bulk operation exceeds " +
                   "maxOperations (" + bulkConfig.getMaxOperations() + ")");
             }
-            if (bulkInputStream.getBytesRead() > bulkConfig.getMaxPayloadSize())
-            {
-              throw SCIMException.createException(
-                  413,
-                  "The size of the bulk operation exceeds the maxPayloadSize " +
-                  "(" + bulkConfig.getMaxPayloadSize() + ")");
-            }
             if (skipOperations)
             {
               skipElement();
@@ -0,0 +1,704 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.xml;
+
+import com.unboundid.scim.data.BaseResource;
+import com.unboundid.scim.data.ResourceFactory;
+import com.unboundid.scim.schema.AttributeDescriptor;
+import com.unboundid.scim.schema.ResourceDescriptor;
+import com.unboundid.scim.sdk.InvalidResourceException;
+import com.unboundid.scim.sdk.Resources;
+import com.unboundid.scim.sdk.SCIMAttribute;
+import com.unboundid.scim.sdk.SCIMAttributeValue;
+import com.unboundid.scim.sdk.SCIMException;
+import com.unboundid.scim.sdk.SCIMObject;
+
+import jakarta.xml.bind.DatatypeConverter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+
+
+/**
+ * Helper class for XML unmarshalling that builds SCIM objects directly from
+ * a stream of XML events, without first reading the document into a DOM.
+ */
+class XmlStreamParser
+{
+  /**
+   * The factory used to create XML stream readers. Once configured, the
+   * factory may be used by concurrent threads.
+   */
+  private static final XMLInputFactory XML_INPUT_FACTORY =
+      createXMLInputFactory();
+
+  private final XMLStreamReader xmlStreamReader;
+
+
+
+  /**
+   * Create a new parser to read from the provided input stream.
+   *
+   * @param inputStream  The input stream containing the XML document.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   */
+  XmlStreamParser(final InputStream inputStream)
+      throws XMLStreamException
+  {
+    this.xmlStreamReader = createXMLStreamReader(inputStream);
+  }
+
+
+
+  /**
+   * Create an XML stream reader that is better protected against attacks
+   * from XML bombs.
+   *
+   * @param inputStream  The input stream containing the XML document.
+   *
+   * @return  An XML stream reader.
+   *
+   * @throws XMLStreamException If the XML stream reader could not be created.
+   */
+  static XMLStreamReader createXMLStreamReader(final InputStream inputStream)
+      throws XMLStreamException
+  {
+    return XML_INPUT_FACTORY.createXMLStreamReader(inputStream, "UTF-8");
+  }
+
+
+
+  /**
+   * Read a SCIM resource.
+   *
+   * @param <R> The type of resource instance.
+   * @param resourceDescriptor The descriptor of the SCIM resource to be read.
+   * @param resourceFactory The resource factory to use to create the resource
+   *                        instance.
+   *
+   * @return  The SCIM resource that was read.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   * @throws InvalidResourceException If the resource is not valid.
+   */
+  <R extends BaseResource> R unmarshal(
+      final ResourceDescriptor resourceDescriptor,
+      final ResourceFactory<R> resourceFactory)
+      throws XMLStreamException, InvalidResourceException
+  {
+    nextStartElement();
+    return parseResource(getNamespaceURI(), resourceDescriptor,
+                         resourceFactory);
+  }
+
+
+
+  /**
+   * Read a SCIM query response.
+   *
+   * @param <R> The type of resource instance.
+   * @param resourceDescriptor The descriptor of the SCIM resource to be read.
+   * @param resourceFactory The resource factory to use to create the resource
+   *                        instances.
+   *
+   * @return  The SCIM query response that was read.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   * @throws InvalidResourceException If a resource is not valid.
+   */
+  <R extends BaseResource> Resources<R> unmarshalResources(
+      final ResourceDescriptor resourceDescriptor,
+      final ResourceFactory<R> resourceFactory)
+      throws XMLStreamException, InvalidResourceException
+  {
+    nextStartElement();
+    final String documentNamespaceURI = getNamespaceURI();
+
+    int totalResults = 0;
+    int startIndex = 1;
+    List<R> resources = Collections.emptyList();
+    while (nextChildElement())
+    {
+      final String name = xmlStreamReader.getLocalName();
+      if (name.equals("totalResults"))
+      {
+        totalResults = parseInt(readText());
+      }
+      else if (name.equals("startIndex"))
+      {
+        startIndex = parseInt(readText());
+      }
+      else if (name.equals("Resources"))
+      {
+        resources = new ArrayList<R>();
+        while (nextChildElement())
+        {
+          if (xmlStreamReader.getLocalName().equals("Resource"))
+          {
+            resources.add(parseResource(documentNamespaceURI,
+                                        resourceDescriptor, resourceFactory));
+          }
+          else
+          {
+            skipElement();
+          }
+        }
+      }
+      else
+      {
+        skipElement();
+      }
+    }
+
+    return new Resources<R>(resources, totalResults, startIndex);
+  }
+
+
+
+  /**
+   * Read a SCIM error response.
+   *
+   * @return  The SCIM error response that was read, or {@code null} if the
+   *          response does not contain an error.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   * @throws InvalidResourceException If the error code is not valid.
+   */
+  SCIMException unmarshalError()
+      throws XMLStreamException, InvalidResourceException
+  {
+    nextStartElement();
+
+    // Only the first error in the first child element is used.
+    if (!nextChildElement() || !nextChildElement())
+    {
+      return null;
+    }
+
+    String code = null;
+    String description = null;
+    while (nextChildElement())
+    {
+      final String name = xmlStreamReader.getLocalName();
+      if (name.equals("code"))
+      {
+        code = readText();
+      }
+      else if (name.equals("description"))
+      {
+        description = readText();
+      }
+      else
+      {
+        skipElement();
+      }
+    }
+    return SCIMException.createException(parseInt(code), description);
+  }
+
+
+
+  /**
+   * Parse a resource element, and leave the reader positioned on the
+   * END_ELEMENT.
+   *
+   * @param <R> The type of resource instance.
+   * @param documentNamespaceURI The namespace URI of the XML document.
+   * @param resourceDescriptor The descriptor of the SCIM resource to be read.
+   * @param resourceFactory The resource factory to use to create the resource
+   *                        instance.
+   *
+   * @return  The SCIM resource that was read.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   * @throws InvalidResourceException If the resource is not valid.
+   */
+  private <R extends BaseResource> R parseResource(
+      final String documentNamespaceURI,
+      final ResourceDescriptor resourceDescriptor,
+      final ResourceFactory<R> resourceFactory)
+      throws XMLStreamException, InvalidResourceException
+  {
+    final SCIMObject scimObject = new SCIMObject();
+    while (nextChildElement())
+    {
+      final String name = xmlStreamReader.getLocalName();
+      String namespaceURI = getNamespaceURI();
+      if (namespaceURI == null)
+      {
+        // Try to find the appropriate schema
+        namespaceURI =
+            resourceDescriptor.findAttributeSchema(name, documentNamespaceURI);
+        if (namespaceURI == null)
+        {
+          // Fall back to this if we couldn't find it above
+          namespaceURI = documentNamespaceURI;
+        }
+      }
+
+      final AttributeDescriptor attributeDescriptor =
+          resourceDescriptor.getAttribute(namespaceURI, name);
+
+      final SCIMAttribute attr;
+      if (attributeDescriptor.isMultiValued())
+      {
+        attr = parseMultiValuedAttribute(attributeDescriptor);
+      }
+      else if (attributeDescriptor.getDataType() ==
+               AttributeDescriptor.DataType.COMPLEX)
+      {
+        attr = SCIMAttribute.create(attributeDescriptor,
+            parseComplexAttributeValue(attributeDescriptor));
+      }
+      else
+      {
+        attr = parseSimpleAttribute(attributeDescriptor);
+      }
+
+      scimObject.addAttribute(attr);
+    }
+    return resourceFactory.createResource(resourceDescriptor, scimObject);
+  }
+
+
+
+  /**
+   * Parse a simple attribute element, and leave the reader positioned on the
+   * END_ELEMENT.
+   *
+   * @param attributeDescriptor The attribute descriptor.
+   *
+   * @return The parsed attribute.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   */
+  private SCIMAttribute parseSimpleAttribute(
+      final AttributeDescriptor attributeDescriptor)
+      throws XMLStreamException
+  {
+    final boolean base64Encoded = isBase64Encoded();
+    return SCIMAttribute.create(attributeDescriptor,
+        SCIMAttributeValue.createValue(attributeDescriptor.getDataType(),
+                                       decode(readText(), base64Encoded)));
+  }
+
+
+
+  /**
+   * Parse a multi-valued attribute element, and leave the reader positioned
+   * on the END_ELEMENT.
+   *
+   * @param attributeDescriptor The attribute descriptor.
+   *
+   * @return The parsed attribute.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   * @throws InvalidResourceException If the attribute is not valid.
+   */
+  private SCIMAttribute parseMultiValuedAttribute(
+      final AttributeDescriptor attributeDescriptor)
+      throws XMLStreamException, InvalidResourceException
+  {
+    final List<SCIMAttributeValue> values = new ArrayList<SCIMAttributeValue>();
+    while (nextChildElement())
+    {
+      if (xmlStreamReader.getLocalName().equals(
+          attributeDescriptor.getMultiValuedChildName()))
+      {
+        values.add(parseValue(attributeDescriptor));
+      }
+      else
+      {
+        skipElement();
+      }
+    }
+
+    SCIMAttributeValue[] vals = new SCIMAttributeValue[values.size()];
+    vals = values.toArray(vals);
+    return SCIMAttribute.create(attributeDescriptor, vals);
+  }
+
+
+
+  /**
+   * Parse a value of a multi-valued attribute, which is either a complex
+   * value or a plain value, and leave the reader positioned on the
+   * END_ELEMENT.
+   *
+   * @param attributeDescriptor The descriptor of the multi-valued attribute.
+   *
+   * @return The parsed value.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   * @throws InvalidResourceException If the value is not valid.
+   */
+  private SCIMAttributeValue parseValue(
+      final AttributeDescriptor attributeDescriptor)
+      throws XMLStreamException, InvalidResourceException
+  {
+    final boolean base64Encoded = isBase64Encoded();
+    final StringBuilder text = new StringBuilder();
+    List<SCIMAttribute> complexAttrs = null;
+    while (true)
+    {
+      switch (xmlStreamReader.next())
+      {
+        case START_ELEMENT:
+          if (complexAttrs == null)
+          {
+            complexAttrs = new ArrayList<SCIMAttribute>();
+          }
+          complexAttrs.add(parseSubAttribute(attributeDescriptor));
+          break;
+
+        case CHARACTERS:
+        case CDATA:
+        case SPACE:
+          if (complexAttrs == null)
+          {
+            text.append(xmlStreamReader.getText());
+          }
+          break;
+
+        case END_ELEMENT:
+          if (complexAttrs != null)
+          {
+            return SCIMAttributeValue.createComplexValue(complexAttrs);
+          }
+          final SCIMAttribute subAttr = SCIMAttribute.create(
+              attributeDescriptor.getSubAttribute("value"),
+              SCIMAttributeValue.createValue(
+                  attributeDescriptor.getDataType(),
+                  decode(text.toString(), base64Encoded)));
+          return SCIMAttributeValue.createComplexValue(subAttr);
+
+        case END_DOCUMENT:
+          throw new XMLStreamException("Unexpected end of document");
+      }
+    }
+  }
+
+
+
+  /**
+   * Parse a complex attribute value element, and leave the reader positioned
+   * on the END_ELEMENT.
+   *
+   * @param attributeDescriptor The attribute descriptor.
+   *
+   * @return The parsed value.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   * @throws InvalidResourceException If the value is not valid.
+   */
+  private SCIMAttributeValue parseComplexAttributeValue(
+      final AttributeDescriptor attributeDescriptor)
+      throws XMLStreamException, InvalidResourceException
+  {
+    final List<SCIMAttribute> complexAttrs = new ArrayList<SCIMAttribute>();
+    while (nextChildElement())
+    {
+      complexAttrs.add(parseSubAttribute(attributeDescriptor));
+    }
+    return SCIMAttributeValue.createComplexValue(complexAttrs);
+  }
+
+
+
+  /**
+   * Parse a sub-attribute element of a complex value, and leave the reader
+   * positioned on the END_ELEMENT.
+   *
+   * @param attributeDescriptor The descriptor of the complex attribute.
+   *
+   * @return The parsed sub-attribute.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   * @throws InvalidResourceException If the sub-attribute is not valid.
+   */
+  private SCIMAttribute parseSubAttribute(
+      final AttributeDescriptor attributeDescriptor)
+      throws XMLStreamException, InvalidResourceException
+  {
+    final String namespaceURI = getNamespaceURI();
+    if (namespaceURI != null &&
+        !namespaceURI.equalsIgnoreCase(attributeDescriptor.getSchema()))
+    {
+      // Sub-attributes should have the same namespace URI as the complex
+      // attribute.
+      throw new InvalidResourceException("Sub-attribute " +
+          xmlStreamReader.getLocalName() + " does not use the same namespace " +
+          "as the containing complex attribute " +
+          attributeDescriptor.getName());
+    }
+
+    final AttributeDescriptor subAttribute =
+        attributeDescriptor.getSubAttribute(xmlStreamReader.getLocalName());
+
+    // Allow multi-valued sub-attribute as the resource schema needs this.
+    if (subAttribute.isMultiValued())
+    {
+      return parseMultiValuedAttribute(subAttribute);
+    }
+    else
+    {
+      return parseSimpleAttribute(subAttribute);
+    }
+  }
+
+
+
+  /**
+   * Move to the first START_ELEMENT of the document.
+   *
+   * @throws XMLStreamException If the document has no elements.
+   */
+  private void nextStartElement()
+      throws XMLStreamException
+  {
+    while (xmlStreamReader.hasNext())
+    {
+      if (xmlStreamReader.next() == START_ELEMENT)
+      {
+        return;
+      }
+    }
+    throw new XMLStreamException("The document has no elements");
+  }
+
+
+
+  /**
+   * Move to the next child element of the current element.
+   *
+   * @return  {@code true} if the reader is positioned on the START_ELEMENT
+   *          of the next child element, or {@code false} if it is positioned
+   *          on the END_ELEMENT of the current element.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   */
+  private boolean nextChildElement()
+      throws XMLStreamException
+  {
+    while (true)
+    {
+      switch (xmlStreamReader.next())
+      {
+        case START_ELEMENT:
+          return true;
+        case END_ELEMENT:
+          return false;
+        case END_DOCUMENT:
+          throw new XMLStreamException("Unexpected end of document");
+      }
+    }
+  }
+
+
+
+  /**
+   * Read the text content of the current element, including the text of any
+   * child elements, and leave the reader positioned on the END_ELEMENT.
+   *
+   * @return  The text content of the element.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   */
+  private String readText()
+      throws XMLStreamException
+  {
+    StringBuilder text = null;
+    String firstText = "";
+    int nesting = 1;
+    while (true)
+    {
+      switch (xmlStreamReader.next())
+      {
+        case START_ELEMENT:
+          nesting++;
+          break;
+
+        case CHARACTERS:
+        case CDATA:
+        case SPACE:
+          // Avoid copying when the text is reported as a single event.
+          if (text == null && firstText.isEmpty())
+          {
+            firstText = xmlStreamReader.getText();
+          }
+          else
+          {
+            if (text == null)
+            {
+              text = new StringBuilder(firstText);
+            }
+            text.append(xmlStreamReader.getText());
+          }
+          break;
+
+        case END_ELEMENT:
+          if (--nesting == 0)
+          {
+            return text == null ? firstText : text.toString();
+          }
+          break;
+
+        case END_DOCUMENT:
+          throw new XMLStreamException("Unexpected end of document");
+      }
+    }
+  }
+
+
+
+  /**
+   * Skip over the current element, and leave the reader positioned on the
+   * END_ELEMENT.
+   *
+   * @throws XMLStreamException If the XML document could not be read.
+   */
+  private void skipElement()
+      throws XMLStreamException
+  {
+    int nesting = 1;
+    while (nesting > 0)
+    {
+      switch (xmlStreamReader.next())
+      {
+        case START_ELEMENT:
+          nesting++;
+          break;
+        case END_ELEMENT:
+          nesting--;
+          break;
+        case END_DOCUMENT:
+          throw new XMLStreamException("Unexpected end of document");
+      }
+    }
+  }
+
+
+
+  /**
+   * Retrieve the namespace URI of the current element.
+   *
+   * @return  The namespace URI of the current element, or {@code null} if it
+   *          has no namespace.
+   */
+  private String getNamespaceURI()
+  {
+    final String namespaceURI = xmlStreamReader.getNamespaceURI();
+    if (namespaceURI == null || namespaceURI.isEmpty())
+    {
+      return null;
+    }
+    return namespaceURI;
+  }
+
+
+
+  /**
+   * Indicates whether the value of the current element is base64-encoded.
+   *
+   * @return  {@code true} if the value of the current element is
+   *          base64-encoded.
+   */
+  private boolean isBase64Encoded()
+  {
+    return Boolean.parseBoolean(
+        xmlStreamReader.getAttributeValue(null, "base64Encoded"));
+  }
+
+
+
+  /**
+   * Decode the text of a value if it is base64-encoded.
+   *
+   * @param text The text of the value.
+   * @param base64Encoded Indicates whether the text is base64-encoded.
+   *
+   * @return  The decoded value.
+   */
+  private static String decode(final String text, final boolean base64Encoded)
+  {
+    if (!base64Encoded)
+    {
+      return text;
+    }
+    return new String(DatatypeConverter.parseBase64Binary(text),
+                      StandardCharsets.UTF_8);
+  }
+
+
+
+  /**
+   * Parse an integer value.
+   *
+   * @param text The text of the value.
+   *
+   * @return  The integer value.
+   *
+   * @throws InvalidResourceException If the text is not an integer.
+   */
+  private static int parseInt(final String text)
+      throws InvalidResourceException
+  {
+    try
+    {
+      return Integer.parseInt(text.trim());
+    }
+    catch (RuntimeException e)
+    {
+      throw new InvalidResourceException(
+          "Expected an integer value but found '" + text + "'", e);
+    }
+  }
+
+
+
+  /**
+   * Create the factory used to create XML stream readers.
+   *
+   * @return  The factory used to create XML stream readers.
+   */
+  private static XMLInputFactory createXMLInputFactory()
+  {
+    final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+    // Increase protection against XML bombs (DS-8081).
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlInputFactory.setProperty(
+        XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+    return xmlInputFactory;
+  }
+}
@@ -377,6 +377,10 @@ public final class AttributeDescriptor {
 
   private final String name;
 
+  private final String lowerCaseSchema;
+
+  private final String lowerCaseName;
+
   private final String description;
 
   private final boolean readOnly;
@@ -426,6 +430,8 @@ public final class AttributeDescriptor {
     this.multiValuedChildName = multiValuedChildName;
     this.description = description;
     this.schema = schema;
+    this.lowerCaseSchema = intern(toLowerCase(schema));
+    this.lowerCaseName = intern(toLowerCase(name));
     this.readOnly = readOnly;
     this.required = required;
     this.caseExact = caseExact;
@@ -466,6 +472,18 @@ public final class AttributeDescriptor {
     return schema;
   }
 
+  /**
+   * The URI for the schema that defines the SCIM attribute, in lower case.
+   * The returned string is interned, so that it may be used as a key to look
+   * up attributes without converting the schema to lower case each time.
+   *
+   * @return The lower case URI for the schema that defines the SCIM
+   *         attribute.
+   */
+  public String getLowerCaseSchema() {
+    return lowerCaseSchema;
+  }
+
   /**
    * The attribute name to be used in any external representation of the SCIM
    * attribute.
@@ -477,6 +495,17 @@ public final class AttributeDescriptor {
     return name;
   }
 
+  /**
+   * The attribute name in lower case. The returned string is interned, so
+   * that it may be used as a key to look up attributes without converting the
+   * name to lower case each time.
+   *
+   * @return The attribute name in lower case.
+   */
+  public String getLowerCaseName() {
+    return lowerCaseName;
+  }
+
   /**
    * Indicates whether the attribute is a multi-valued attribute.
    *
@@ -642,8 +671,8 @@ public final class AttributeDescriptor {
   {
     int hashCode = 0;
 
-    hashCode += toLowerCase(schema).hashCode();
-    hashCode += toLowerCase(name).hashCode();
+    hashCode += lowerCaseSchema.hashCode();
+    hashCode += lowerCaseName.hashCode();
 
     return hashCode;
   }
@@ -677,6 +706,19 @@ public final class AttributeDescriptor {
     }
   }
 
+  /**
+   * Retrieve the canonical representation of the provided string.
+   *
+   * @param s  The string to intern, or {@code null}.
+   *
+   * @return  The canonical representation of the string, or {@code null} if
+   *          the string is {@code null}.
+   */
+  private static String intern(final String s)
+  {
+    return s == null ? null : s.intern();
+  }
+
   /**
    * Create a new sub-attribute descriptor with the provided information.
    *
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+
+/**
+ * This class limits the number of asynchronous requests in progress for a
+ * SCIMService. Requests beyond the limit are queued rather than blocking the
+ * calling thread, and are started as earlier requests complete.
+ */
+final class AsyncRequestLimiter
+{
+  /**
+   * The requests waiting to be started.
+   */
+  private final ConcurrentLinkedQueue<Runnable> waiting =
+      new ConcurrentLinkedQueue<Runnable>();
+
+  /**
+   * The number of requests in progress.
+   */
+  private final AtomicInteger inProgress = new AtomicInteger();
+
+  /**
+   * The maximum number of requests in progress.
+   */
+  private volatile int maxInProgress;
+
+
+
+  /**
+   * Create a new limiter.
+   *
+   * @param maxInProgress The maximum number of requests in progress.
+   */
+  AsyncRequestLimiter(final int maxInProgress)
+  {
+    setMaxInProgress(maxInProgress);
+  }
+
+
+
+  /**
+   * Retrieve the maximum number of requests in progress.
+   *
+   * @return The maximum number of requests in progress.
+   */
+  int getMaxInProgress()
+  {
+    return maxInProgress;
+  }
+
+
+
+  /**
+   * Specify the maximum number of requests in progress. This takes effect as
+   * requests are started and completed.
+   *
+   * @param maxInProgress The maximum number of requests in progress.
+   */
+  void setMaxInProgress(final int maxInProgress)
+  {
+    this.maxInProgress = Math.max(1, maxInProgress);
+    startWaiting();
+  }
+
+
+
+  /**
+   * Retrieve the number of requests in progress.
+   *
+   * @return The number of requests in progress.
+   */
+  int getInProgress()
+  {
+    return inProgress.get();
+  }
+
+
+
+  /**
+   * Retrieve the number of requests waiting to be started.
+   *
+   * @return The number of requests waiting to be started.
+   */
+  int getWaiting()
+  {
+    return waiting.size();
+  }
+
+
+
+  /**
+   * Start a request now if the limit allows it, or when an earlier request
+   * completes. The request must call {@link #release} exactly once when it
+   * completes.
+   *
+   * @param request The task that starts the request.
+   */
+  void execute(final Runnable request)
+  {
+    waiting.add(request);
+    startWaiting();
+  }
+
+
+
+  /**
+   * Indicate that a request has completed, starting a waiting request if
+   * there is one.
+   */
+  void release()
+  {
+    inProgress.decrementAndGet();
+    startWaiting();
+  }
+
+
+
+  /**
+   * Start waiting requests while the number in progress is below the limit.
+   */
+  private void startWaiting()
+  {
+    while (!waiting.isEmpty())
+    {
+      final int current = inProgress.get();
+      if (current >= maxInProgress)
+      {
+        return;
+      }
+      if (!inProgress.compareAndSet(current, current + 1))
+      {
+        continue;
+      }
+
+      final Runnable request = waiting.poll();
+      if (request == null)
+      {
+        // Another thread started the request. Check again in case a request
+        // was added after the queue was found to be empty.
+        inProgress.decrementAndGet();
+        continue;
+      }
+      request.run();
+    }
+  }
+}
@@ -20,6 +20,8 @@ package com.unboundid.scim.sdk;
 import com.unboundid.scim.data.BulkConfig;
 import com.unboundid.scim.marshal.Marshaller;
 import com.unboundid.scim.marshal.Unmarshaller;
+import com.unboundid.scim.marshal.cbor.CborMarshaller;
+import com.unboundid.scim.marshal.cbor.CborUnmarshaller;
 import com.unboundid.scim.marshal.json.JsonMarshaller;
 import com.unboundid.scim.marshal.json.JsonUnmarshaller;
 import com.unboundid.scim.marshal.xml.XmlMarshaller;
@@ -73,6 +75,10 @@ public class BulkEndpoint
     {
       this.marshaller = new JsonMarshaller();
     }
+    else if (contentType.equals(SCIMConstants.APPLICATION_CBOR_TYPE))
+    {
+      this.marshaller = new CborMarshaller();
+    }
     else
     {
       this.marshaller = new XmlMarshaller();
@@ -82,6 +88,10 @@ public class BulkEndpoint
     {
       this.unmarshaller = new JsonUnmarshaller();
     }
+    else if (acceptType.equals(SCIMConstants.APPLICATION_CBOR_TYPE))
+    {
+      this.unmarshaller = new CborUnmarshaller();
+    }
     else
     {
       this.unmarshaller = new XmlUnmarshaller();
@@ -19,35 +19,35 @@ package com.unboundid.scim.sdk;
 
 import com.unboundid.scim.marshal.Marshaller;
 import com.unboundid.scim.marshal.StreamMarshaller;
+import com.unboundid.scim.marshal.cbor.CborStreamMarshaller;
 import com.unboundid.scim.marshal.json.JsonStreamMarshaller;
 import com.unboundid.scim.marshal.xml.XmlStreamMarshaller;
 import com.unboundid.scim.wink.RequestContext;
 import com.unboundid.scim.wink.SCIMApplication;
 
 import jakarta.ws.rs.core.MediaType;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Set;
-import java.util.logging.Level;
 
 
 
 /**
  * Implements a SCIMResponse to handle bulk responses without keeping the
- * entire response in memory.
+ * entire response in memory. The response is either buffered until it is
+ * marshalled, in memory up to a threshold and in a temporary file beyond
+ * that, or written directly to the client as the operations complete.
  */
 public class BulkStreamResponse implements SCIMResponse
 {
-  private final File file;
+  private final SpillOutputStream buffer;
   private final StreamMarshaller streamMarshaller;
 
 
   /**
-   * Create a new bulk stream response.
+   * Create a new bulk stream response that is buffered until it is
+   * marshalled.
    *
    * @param application     The SCIM JAX-RS application.
    * @param requestContext  The bulk request context.
@@ -58,83 +58,98 @@ public class BulkStreamResponse implements SCIMResponse
                             final RequestContext requestContext)
       throws SCIMException
   {
+    buffer = new SpillOutputStream(
+        application.getBulkResponseBufferSize(),
+        "scim-bulk-response-",
+        "." + requestContext.getProduceMediaType().getSubtype(),
+        application.getTmpDataDir());
+
     try
     {
-      file = File.createTempFile(
-          "scim-bulk-response-",
-          "." + requestContext.getProduceMediaType().getSubtype(),
-          application.getTmpDataDir());
-      file.deleteOnExit();
+      streamMarshaller = startResponse(requestContext, buffer);
     }
-    catch (Exception e)
+    catch (SCIMException e)
     {
       Debug.debugException(e);
-      throw new ServerErrorException(
-          "Cannot create a temporary file for the bulk response" +
-          e.getMessage());
+      buffer.delete();
+      throw e;
     }
+  }
 
-    final OutputStream outputStream;
-    try
+
+
+  /**
+   * Create a new bulk stream response that is written directly to the
+   * provided output stream as the operations complete.
+   *
+   * @param requestContext  The bulk request context.
+   * @param outputStream    The output stream to which the response is
+   *                        written.
+   *
+   * @throws SCIMException  If the bulk stream response could not be created.
+   */
+  public BulkStreamResponse(final RequestContext requestContext,
+                            final OutputStream outputStream)
+      throws SCIMException
+  {
+    buffer = null;
+    streamMarshaller = startResponse(requestContext, outputStream);
+  }
+
+
+
+  /**
+   * Create a stream marshaller for the response and write the start of the
+   * response.
+   *
+   * @param requestContext  The bulk request context.
+   * @param outputStream    The output stream to which the response is
+   *                        written.
+   *
+   * @return  The stream marshaller for the response.
+   *
+   * @throws SCIMException  If the start of the response could not be
+   *                        written.
+   */
+  private static StreamMarshaller startResponse(
+      final RequestContext requestContext, final OutputStream outputStream)
+      throws SCIMException
+  {
+    final StreamMarshaller marshaller;
+    if (requestContext.getProduceMediaType().equals(
+        MediaType.APPLICATION_JSON_TYPE))
     {
-      outputStream = new BufferedOutputStream(new FileOutputStream(file));
+      marshaller = new JsonStreamMarshaller(outputStream);
     }
-    catch (Exception e)
+    else if (requestContext.getProduceMediaType().equals(
+        SCIMConstants.APPLICATION_CBOR_TYPE))
     {
-      Debug.debugException(e);
-      if (!file.delete())
-      {
-        Debug.debug(Level.WARNING, DebugType.OTHER,
-                    "Could not delete temporary file " +
-                    file.getAbsolutePath());
-      }
-
-      throw new ServerErrorException(
-          "Cannot create output stream for temporary file '" + file + "': " +
-          e.getMessage());
+      marshaller = new CborStreamMarshaller(outputStream);
     }
-
-    try
+    else
     {
-      if (requestContext.getProduceMediaType().equals(
-          MediaType.APPLICATION_JSON_TYPE))
-      {
-        streamMarshaller = new JsonStreamMarshaller(outputStream);
-      }
-      else
-      {
-        streamMarshaller = new XmlStreamMarshaller(outputStream);
-      }
-
-      // Bulk responses contain no data so there is only core schema.
-      final Set<String> schemaURIs =
-          Collections.singleton(SCIMConstants.SCHEMA_URI_CORE);
-      streamMarshaller.writeBulkStart(-1, schemaURIs);
+      marshaller = new XmlStreamMarshaller(outputStream);
     }
-    catch (SCIMException e)
-    {
-      Debug.debugException(e);
 
-      try
-      {
-        outputStream.close();
-      }
-      catch (Exception e1)
-      {
-        Debug.debugException(e1);
-      }
-      finally
-      {
-        if (!file.delete())
-        {
-          Debug.debug(Level.WARNING, DebugType.OTHER,
-                      "Could not delete temporary file " +
-                      file.getAbsolutePath());
-        }
-      }
+    // Bulk responses contain no data so there is only core schema.
+    final Set<String> schemaURIs =
+        Collections.singleton(SCIMConstants.SCHEMA_URI_CORE);
+    marshaller.writeBulkStart(-1, schemaURIs);
+    return marshaller;
+  }
 
-      throw e;
-    }
+
+
+  /**
+   * Retrieve the temporary file holding the buffered response.
+   *
+   * @return  The temporary file holding the buffered response, or
+   *          {@code null} if the response is held in memory or is not
+   *          buffered.
+   */
+  File getResponseFile()
+  {
+    return buffer == null ? null : buffer.getFile();
   }
 
 
@@ -159,11 +174,9 @@ public class BulkStreamResponse implements SCIMResponse
    */
   public void finalizeResponse()
   {
-    if (file.exists() && !file.delete())
+    if (buffer != null)
     {
-      Debug.debug(Level.WARNING, DebugType.OTHER,
-                  "Could not delete temporary file " +
-                  file.getAbsolutePath());
+      buffer.delete();
     }
   }
 
@@ -171,6 +184,9 @@ public class BulkStreamResponse implements SCIMResponse
 
   /**
    * {@inheritDoc}
+   * <p>
+   * If the response is written directly to the client then this only writes
+   * the end of the response, and the provided output stream is not used.
    */
   @Override
   public void marshal(final Marshaller marshaller,
@@ -179,22 +195,19 @@ public class BulkStreamResponse implements SCIMResponse
   {
     try
     {
-      // Finish writing the response to the temporary file.
+      // Finish writing the response.
       streamMarshaller.writeBulkFinish();
       streamMarshaller.close();
 
-      // Copy the temporary file to the output stream.
-      final FileInputStream inputStream = new FileInputStream(file);
-      final byte[] buffer = new byte[8192];
-      int bytesRead;
-      while ((bytesRead = inputStream.read(buffer)) != -1)
+      // Copy the buffered response to the output stream.
+      if (buffer != null)
       {
-        outputStream.write(buffer, 0, bytesRead);
+        buffer.writeTo(outputStream);
       }
     }
     finally
     {
-      // Delete the temporary response file.
+      // Delete any temporary response file.
       finalizeResponse();
     }
   }
@@ -30,6 +30,13 @@ class ComplexSCIMAttributeValue extends SCIMAttributeValue
    */
   private final Map<String,SCIMAttribute> attributes;
 
+  /**
+   * The hash code of this value, or zero if it has not yet been computed.
+   * Complex values are immutable, so the hash code is only computed once,
+   * which makes it cheap to compare large sets of values.
+   */
+  private int hash;
+
 
   /**
    * Create a new instance of a SCIM complex attribute value.
@@ -110,6 +117,10 @@ class ComplexSCIMAttributeValue extends SCIMAttributeValue
 
     var that = (ComplexSCIMAttributeValue) o;
 
+    if (hash != 0 && that.hash != 0 && hash != that.hash) {
+      return false;
+    }
+
     if (attributes != null ? !attributes.equals(that.attributes) :
         that.attributes != null) {
       return false;
@@ -124,6 +135,12 @@ class ComplexSCIMAttributeValue extends SCIMAttributeValue
    */
   @Override
   public int hashCode() {
-    return attributes != null ? attributes.hashCode() : 0;
+    int h = hash;
+    if (h == 0 && attributes != null)
+    {
+      h = attributes.hashCode();
+      hash = h;
+    }
+    return h;
   }
 }
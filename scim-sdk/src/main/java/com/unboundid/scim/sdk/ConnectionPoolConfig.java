@@ -0,0 +1,257 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+
+
+/**
+ * This class contains the settings for the pool of HTTP connections used by
+ * a {@link SCIMService}, which is shared by all of the SCIMEndpoints obtained
+ * from that service. A timeout or time-to-live of zero means that there is
+ * no limit.
+ */
+public class ConnectionPoolConfig
+{
+  /**
+   * The maximum number of connections in the pool.
+   */
+  private int maxTotalConnections = 100;
+
+  /**
+   * The maximum number of connections in the pool for each route.
+   */
+  private int maxConnectionsPerRoute = 100;
+
+  /**
+   * The length of time in milliseconds that an idle connection may be kept
+   * alive, if the server does not specify a shorter time.
+   */
+  private long keepAliveMillis = 0;
+
+  /**
+   * The length of time in milliseconds after which idle connections are
+   * closed by a background thread.
+   */
+  private long maxIdleMillis = 0;
+
+  /**
+   * The timeout in milliseconds for establishing a connection.
+   */
+  private int connectTimeoutMillis = 0;
+
+  /**
+   * The timeout in milliseconds for waiting for data from the server.
+   */
+  private int socketTimeoutMillis = 0;
+
+  /**
+   * The timeout in milliseconds for obtaining a connection from the pool.
+   */
+  private int connectionRequestTimeoutMillis = 0;
+
+
+
+  /**
+   * Retrieve the maximum number of connections in the pool.
+   *
+   * @return  The maximum number of connections in the pool.
+   */
+  public int getMaxTotalConnections()
+  {
+    return maxTotalConnections;
+  }
+
+
+
+  /**
+   * Specify the maximum number of connections in the pool.
+   *
+   * @param maxTotalConnections  The maximum number of connections in the
+   *                             pool.
+   */
+  public void setMaxTotalConnections(final int maxTotalConnections)
+  {
+    this.maxTotalConnections = maxTotalConnections;
+  }
+
+
+
+  /**
+   * Retrieve the maximum number of connections in the pool for each route
+   * (that is, for each target host and port).
+   *
+   * @return  The maximum number of connections in the pool for each route.
+   */
+  public int getMaxConnectionsPerRoute()
+  {
+    return maxConnectionsPerRoute;
+  }
+
+
+
+  /**
+   * Specify the maximum number of connections in the pool for each route
+   * (that is, for each target host and port).
+   *
+   * @param maxConnectionsPerRoute  The maximum number of connections in the
+   *                                pool for each route.
+   */
+  public void setMaxConnectionsPerRoute(final int maxConnectionsPerRoute)
+  {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+
+
+  /**
+   * Retrieve the length of time in milliseconds that an idle connection may
+   * be kept alive, if the server does not specify a shorter time in a
+   * Keep-Alive response header.
+   *
+   * @return  The keep-alive time in milliseconds, or zero if connections are
+   *          kept alive for as long as the server allows.
+   */
+  public long getKeepAliveMillis()
+  {
+    return keepAliveMillis;
+  }
+
+
+
+  /**
+   * Specify the length of time in milliseconds that an idle connection may
+   * be kept alive, if the server does not specify a shorter time in a
+   * Keep-Alive response header.
+   *
+   * @param keepAliveMillis  The keep-alive time in milliseconds, or zero if
+   *                         connections are kept alive for as long as the
+   *                         server allows.
+   */
+  public void setKeepAliveMillis(final long keepAliveMillis)
+  {
+    this.keepAliveMillis = keepAliveMillis;
+  }
+
+
+
+  /**
+   * Retrieve the length of time in milliseconds after which idle connections
+   * are closed by a background thread. Expired connections are also closed
+   * by the background thread when this is set.
+   *
+   * @return  The maximum idle time in milliseconds, or zero if idle
+   *          connections are not closed in the background.
+   */
+  public long getMaxIdleMillis()
+  {
+    return maxIdleMillis;
+  }
+
+
+
+  /**
+   * Specify the length of time in milliseconds after which idle connections
+   * are closed by a background thread. Expired connections are also closed
+   * by the background thread when this is set.
+   *
+   * @param maxIdleMillis  The maximum idle time in milliseconds, or zero if
+   *                       idle connections are not closed in the background.
+   */
+  public void setMaxIdleMillis(final long maxIdleMillis)
+  {
+    this.maxIdleMillis = maxIdleMillis;
+  }
+
+
+
+  /**
+   * Retrieve the timeout in milliseconds for establishing a connection.
+   *
+   * @return  The connect timeout in milliseconds.
+   */
+  public int getConnectTimeoutMillis()
+  {
+    return connectTimeoutMillis;
+  }
+
+
+
+  /**
+   * Specify the timeout in milliseconds for establishing a connection.
+   *
+   * @param connectTimeoutMillis  The connect timeout in milliseconds.
+   */
+  public void setConnectTimeoutMillis(final int connectTimeoutMillis)
+  {
+    this.connectTimeoutMillis = connectTimeoutMillis;
+  }
+
+
+
+  /**
+   * Retrieve the timeout in milliseconds for waiting for data from the
+   * server.
+   *
+   * @return  The socket timeout in milliseconds.
+   */
+  public int getSocketTimeoutMillis()
+  {
+    return socketTimeoutMillis;
+  }
+
+
+
+  /**
+   * Specify the timeout in milliseconds for waiting for data from the
+   * server.
+   *
+   * @param socketTimeoutMillis  The socket timeout in milliseconds.
+   */
+  public void setSocketTimeoutMillis(final int socketTimeoutMillis)
+  {
+    this.socketTimeoutMillis = socketTimeoutMillis;
+  }
+
+
+
+  /**
+   * Retrieve the timeout in milliseconds for obtaining a connection from the
+   * pool when all connections are in use.
+   *
+   * @return  The connection request timeout in milliseconds.
+   */
+  public int getConnectionRequestTimeoutMillis()
+  {
+    return connectionRequestTimeoutMillis;
+  }
+
+
+
+  /**
+   * Specify the timeout in milliseconds for obtaining a connection from the
+   * pool when all connections are in use.
+   *
+   * @param connectionRequestTimeoutMillis  The connection request timeout in
+   *                                        milliseconds.
+   */
+  public void setConnectionRequestTimeoutMillis(
+      final int connectionRequestTimeoutMillis)
+  {
+    this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+  }
+}
@@ -568,9 +568,11 @@ public final class Diff<R extends BaseResource>
       }
     }
 
-    final SCIMObject sourceOnlyAttrs = new SCIMObject();
-    final SCIMObject targetOnlyAttrs = new SCIMObject();
-    final SCIMObject commonAttrs = new SCIMObject();
+    // Partition the attributes to be compared by looking up each attribute
+    // in the other object, rather than building temporary objects.
+    final List<SCIMAttribute> sourceOnlyAttrs = new ArrayList<SCIMAttribute>();
+    final List<SCIMAttribute> targetOnlyAttrs = new ArrayList<SCIMAttribute>();
+    final List<SCIMAttribute> commonAttrs = new ArrayList<SCIMAttribute>();
 
     for (final String schema : sourceObject.getSchemas())
     {
@@ -581,8 +583,15 @@ public final class Diff<R extends BaseResource>
           continue;
         }
 
-        sourceOnlyAttrs.setAttribute(attribute);
-        commonAttrs.setAttribute(attribute);
+        if (targetObject.getAttribute(attribute.getAttributeDescriptor()) ==
+            null)
+        {
+          sourceOnlyAttrs.add(attribute);
+        }
+        else
+        {
+          commonAttrs.add(attribute);
+        }
       }
     }
 
@@ -595,225 +604,214 @@ public final class Diff<R extends BaseResource>
           continue;
         }
 
-        if (!sourceOnlyAttrs.removeAttribute(
-            attribute.getSchema(), attribute.getName()))
+        if (sourceObject.getAttribute(attribute.getAttributeDescriptor()) ==
+            null)
         {
           // It wasn't in the set of source attributes, so it must be a
           // target-only attribute.
-          targetOnlyAttrs.setAttribute(attribute);
+          targetOnlyAttrs.add(attribute);
         }
       }
     }
 
-    for (final String schema : sourceOnlyAttrs.getSchemas())
-    {
-      for (final SCIMAttribute attribute :
-          sourceOnlyAttrs.getAttributes(schema))
-      {
-        commonAttrs.removeAttribute(attribute.getSchema(), attribute.getName());
-      }
-    }
-
     final Set<String> attributesToDelete = new HashSet<String>();
     final List<SCIMAttribute> attributesToUpdate =
         new ArrayList<SCIMAttribute>(10);
 
     // Delete all attributes that are only in the source object
-    for (final String schema : sourceOnlyAttrs.getSchemas())
+    for (final SCIMAttribute sourceAttribute : sourceOnlyAttrs)
     {
-      for (final SCIMAttribute sourceAttribute :
-          sourceOnlyAttrs.getAttributes(schema))
-      {
-        deleteAttribute(compareAttrs, attributesToDelete, sourceAttribute);
-      }
+      deleteAttribute(compareAttrs, attributesToDelete, sourceAttribute);
     }
 
     // Add all attributes that are only in the target object
-    for (final String schema : targetOnlyAttrs.getSchemas())
+    for (final SCIMAttribute targetAttribute : targetOnlyAttrs)
     {
-      for (final SCIMAttribute targetAttribute :
-          targetOnlyAttrs.getAttributes(schema))
+      if (targetAttribute.getAttributeDescriptor().isMultiValued())
       {
-        if (targetAttribute.getAttributeDescriptor().isMultiValued())
-        {
-          ArrayList<SCIMAttributeValue> targetValues =
-              new ArrayList<SCIMAttributeValue>(
-                  targetAttribute.getValues().length);
-          for (SCIMAttributeValue targetValue : targetAttribute.getValues())
-          {
-            Map<String, SCIMAttribute> subAttrs =
-                filterSubAttributes(compareAttrs, targetAttribute,
-                    targetValue);
-            if(!subAttrs.isEmpty())
-            {
-              targetValues.add(
-                  SCIMAttributeValue.createComplexValue(subAttrs.values()));
-            }
-          }
-          if(!targetValues.isEmpty())
-          {
-            attributesToUpdate.add(SCIMAttribute.create(
-                targetAttribute.getAttributeDescriptor(), targetValues.toArray(
-                new SCIMAttributeValue[targetValues.size()])));
-          }
-        }
-        else if(targetAttribute.getValue().isComplex())
+        ArrayList<SCIMAttributeValue> targetValues =
+            new ArrayList<SCIMAttributeValue>(
+                targetAttribute.getValues().length);
+        for (SCIMAttributeValue targetValue : targetAttribute.getValues())
         {
           Map<String, SCIMAttribute> subAttrs =
               filterSubAttributes(compareAttrs, targetAttribute,
-                  targetAttribute.getValue());
+                  targetValue);
           if(!subAttrs.isEmpty())
           {
-            attributesToUpdate.add(
-                SCIMAttribute.create(targetAttribute.getAttributeDescriptor(),
-                    SCIMAttributeValue.createComplexValue(subAttrs.values())));
+            targetValues.add(
+                SCIMAttributeValue.createComplexValue(subAttrs.values()));
           }
         }
-        else
+        if(!targetValues.isEmpty())
+        {
+          attributesToUpdate.add(SCIMAttribute.create(
+              targetAttribute.getAttributeDescriptor(), targetValues.toArray(
+              new SCIMAttributeValue[targetValues.size()])));
+        }
+      }
+      else if(targetAttribute.getValue().isComplex())
+      {
+        Map<String, SCIMAttribute> subAttrs =
+            filterSubAttributes(compareAttrs, targetAttribute,
+                targetAttribute.getValue());
+        if(!subAttrs.isEmpty())
         {
-          attributesToUpdate.add(targetAttribute);
+          attributesToUpdate.add(
+              SCIMAttribute.create(targetAttribute.getAttributeDescriptor(),
+                  SCIMAttributeValue.createComplexValue(subAttrs.values())));
         }
       }
+      else
+      {
+        attributesToUpdate.add(targetAttribute);
+      }
     }
 
     // Add all common attributes with different values
-    for (final String schema : commonAttrs.getSchemas())
+    for (final SCIMAttribute sourceAttribute : commonAttrs)
     {
-      for (final SCIMAttribute sourceAttribute :
-          commonAttrs.getAttributes(schema))
+      SCIMAttribute targetAttribute =
+          targetObject.getAttribute(sourceAttribute.getAttributeDescriptor());
+
+      if(sourceAttribute.getAttributeDescriptor().isMultiValued())
       {
-        SCIMAttribute targetAttribute =
-            targetObject.getAttribute(sourceAttribute.getSchema(),
-                sourceAttribute.getName());
-        if (sourceAttribute.equals(targetAttribute))
+        // Index the values by hash code so that the added and removed values
+        // are found in linear time. Values cache their hash codes, so each
+        // value is only hashed once.
+        Set<SCIMAttributeValue> sourceValues =
+            new LinkedHashSet<SCIMAttributeValue>(
+                sourceAttribute.getValues().length);
+        Set<SCIMAttributeValue> targetValues =
+            new LinkedHashSet<SCIMAttributeValue>(
+                targetAttribute.getValues().length);
+        Collections.addAll(sourceValues, sourceAttribute.getValues());
+        Collections.addAll(targetValues, targetAttribute.getValues());
+
+        final Iterator<SCIMAttributeValue> targetValueIterator =
+            targetValues.iterator();
+        while (targetValueIterator.hasNext())
         {
-          continue;
+          // Any value left could be an added or updated value
+          // TODO: Support matching on value sub-attribute if possible?
+          if (sourceValues.remove(targetValueIterator.next()))
+          {
+            targetValueIterator.remove();
+          }
         }
 
-        if(sourceAttribute.getAttributeDescriptor().isMultiValued())
+        if (sourceValues.isEmpty() && targetValues.isEmpty())
         {
-          Set<SCIMAttributeValue> sourceValues =
-              new LinkedHashSet<SCIMAttributeValue>(
-                  sourceAttribute.getValues().length);
-          Set<SCIMAttributeValue> targetValues =
-              new LinkedHashSet<SCIMAttributeValue>(
-                  targetAttribute.getValues().length);
-          Collections.addAll(sourceValues, sourceAttribute.getValues());
-
-          for (SCIMAttributeValue v : targetAttribute.getValues())
-          {
-            if (!sourceValues.remove(v))
-            {
-              // This value could be an added or updated value
-              // TODO: Support matching on value sub-attribute if possible?
-              targetValues.add(v);
-            }
-          }
+          continue;
+        }
 
-          if(sourceValues.size() == sourceAttribute.getValues().length)
-          {
-            // All source values seem to have been deleted. Just delete the
-            // attribute instead of listing all delete values.
-            deleteAttribute(compareAttrs, attributesToDelete, sourceAttribute);
-            sourceValues = Collections.emptySet();
-          }
+        if(sourceValues.size() == sourceAttribute.getValues().length)
+        {
+          // All source values seem to have been deleted. Just delete the
+          // attribute instead of listing all delete values.
+          deleteAttribute(compareAttrs, attributesToDelete, sourceAttribute);
+          sourceValues = Collections.emptySet();
+        }
 
-          ArrayList<SCIMAttributeValue> patchValues =
-              new ArrayList<SCIMAttributeValue>(
-                  sourceValues.size() + targetValues.size());
-          for (SCIMAttributeValue sourceValue : sourceValues)
+        ArrayList<SCIMAttributeValue> patchValues =
+            new ArrayList<SCIMAttributeValue>(
+                sourceValues.size() + targetValues.size());
+        for (SCIMAttributeValue sourceValue : sourceValues)
+        {
+          Map<String, SCIMAttribute> subAttrs =
+              filterSubAttributes(compareAttrs, sourceAttribute, sourceValue);
+          if(!subAttrs.isEmpty())
           {
-            Map<String, SCIMAttribute> subAttrs =
-                filterSubAttributes(compareAttrs, sourceAttribute, sourceValue);
-            if(!subAttrs.isEmpty())
+            SCIMAttribute operationAttr;
+            try
             {
-              SCIMAttribute operationAttr;
-              try
-              {
-                operationAttr = SCIMAttribute.create(
-                    sourceAttribute.getAttributeDescriptor().getSubAttribute(
-                        "operation"),
-                    SCIMAttributeValue.createStringValue("delete"));
-              }
-              catch (InvalidResourceException e)
-              {
-                // This should never happen
-                throw new IllegalStateException(e);
-              }
-              subAttrs.put(toLowerCase(operationAttr.getName()), operationAttr);
-              patchValues.add(SCIMAttributeValue.createComplexValue(
-                  subAttrs.values()));
+              operationAttr = SCIMAttribute.create(
+                  sourceAttribute.getAttributeDescriptor().getSubAttribute(
+                      "operation"),
+                  SCIMAttributeValue.createStringValue("delete"));
             }
-          }
-          for (SCIMAttributeValue targetValue : targetValues)
-          {
-            // Add any new or updated target sub-attributes
-            Map<String, SCIMAttribute> subAttrs =
-                filterSubAttributes(compareAttrs, targetAttribute, targetValue);
-            if(!subAttrs.isEmpty())
+            catch (InvalidResourceException e)
             {
-              patchValues.add(SCIMAttributeValue.createComplexValue(
-                              subAttrs.values()));
+              // This should never happen
+              throw new IllegalStateException(e);
             }
+            subAttrs.put(toLowerCase(operationAttr.getName()), operationAttr);
+            patchValues.add(SCIMAttributeValue.createComplexValue(
+                subAttrs.values()));
           }
-          if(!patchValues.isEmpty())
+        }
+        for (SCIMAttributeValue targetValue : targetValues)
+        {
+          // Add any new or updated target sub-attributes
+          Map<String, SCIMAttribute> subAttrs =
+              filterSubAttributes(compareAttrs, targetAttribute, targetValue);
+          if(!subAttrs.isEmpty())
           {
-            attributesToUpdate.add(SCIMAttribute.create(
-                sourceAttribute.getAttributeDescriptor(), patchValues.toArray(
-                new SCIMAttributeValue[patchValues.size()])));
+            patchValues.add(SCIMAttributeValue.createComplexValue(
+                            subAttrs.values()));
           }
         }
-        else if(sourceAttribute.getValue().isComplex())
+        if(!patchValues.isEmpty())
         {
-          // Remove any source only sub-attributes
-          SCIMAttributeValue sourceAttributeValue =
-              sourceAttribute.getValue();
-          SCIMAttributeValue targetAttributeValue =
-              targetAttribute.getValue();
-          for (final Map.Entry<String, SCIMAttribute> e :
-              filterSubAttributes(compareAttrs, sourceAttribute,
-                  sourceAttributeValue).entrySet())
+          attributesToUpdate.add(SCIMAttribute.create(
+              sourceAttribute.getAttributeDescriptor(), patchValues.toArray(
+              new SCIMAttributeValue[patchValues.size()])));
+        }
+      }
+      else if (sourceAttribute.equals(targetAttribute))
+      {
+        continue;
+      }
+      else if(sourceAttribute.getValue().isComplex())
+      {
+        // Remove any source only sub-attributes
+        SCIMAttributeValue sourceAttributeValue =
+            sourceAttribute.getValue();
+        SCIMAttributeValue targetAttributeValue =
+            targetAttribute.getValue();
+        for (final Map.Entry<String, SCIMAttribute> e :
+            filterSubAttributes(compareAttrs, sourceAttribute,
+                sourceAttributeValue).entrySet())
+        {
+          if(!targetAttributeValue.hasAttribute(e.getKey()))
           {
-            if(!targetAttributeValue.hasAttribute(e.getKey()))
-            {
-              final AttributePath path =
-                  new AttributePath(sourceAttribute.getSchema(),
-                      sourceAttribute.getName(), e.getValue().getName());
-              attributesToDelete.add(path.toString());
-            }
+            final AttributePath path =
+                new AttributePath(sourceAttribute.getSchema(),
+                    sourceAttribute.getName(), e.getValue().getName());
+            attributesToDelete.add(path.toString());
           }
+        }
 
-          // Add any new or updated target sub-attributes
-          Map<String, SCIMAttribute> targetSubAttrs =
-              filterSubAttributes(compareAttrs, targetAttribute,
-                  targetAttributeValue);
-          final Iterator<Map.Entry<String, SCIMAttribute>> targetIterator =
-              targetSubAttrs.entrySet().iterator();
-          while(targetIterator.hasNext())
-          {
-            Map.Entry<String, SCIMAttribute> e = targetIterator.next();
-            SCIMAttribute sourceSubAttr =
-                sourceAttributeValue.getAttribute(e.getKey());
-            if(sourceSubAttr != null && sourceSubAttr.equals(e.getValue()))
-            {
-              // This sub-attribute is the same so do not include it in the
-              // patch.
-              targetIterator.remove();
-            }
-          }
-          if(!targetSubAttrs.isEmpty())
+        // Add any new or updated target sub-attributes
+        Map<String, SCIMAttribute> targetSubAttrs =
+            filterSubAttributes(compareAttrs, targetAttribute,
+                targetAttributeValue);
+        final Iterator<Map.Entry<String, SCIMAttribute>> targetIterator =
+            targetSubAttrs.entrySet().iterator();
+        while(targetIterator.hasNext())
+        {
+          Map.Entry<String, SCIMAttribute> e = targetIterator.next();
+          SCIMAttribute sourceSubAttr =
+              sourceAttributeValue.getAttribute(e.getKey());
+          if(sourceSubAttr != null && sourceSubAttr.equals(e.getValue()))
           {
-            attributesToUpdate.add(SCIMAttribute.create(
-                targetAttribute.getAttributeDescriptor(),
-                SCIMAttributeValue.createComplexValue(
-                    targetSubAttrs.values())));
+            // This sub-attribute is the same so do not include it in the
+            // patch.
+            targetIterator.remove();
           }
         }
-        else
+        if(!targetSubAttrs.isEmpty())
         {
-          attributesToUpdate.add(targetAttribute);
+          attributesToUpdate.add(SCIMAttribute.create(
+              targetAttribute.getAttributeDescriptor(),
+              SCIMAttributeValue.createComplexValue(
+                  targetSubAttrs.values())));
         }
       }
+      else
+      {
+        attributesToUpdate.add(targetAttribute);
+      }
     }
 
     return new Diff<R>(source.getResourceDescriptor(),
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+
+/**
+ * A bounded cache of parsed SCIM filters, keyed by filter template. A
+ * template is a filter with its values replaced by placeholders, so filters
+ * that differ only in their values share a cached parsed filter, and the
+ * values of a filter are bound into a copy of it. This avoids parsing the
+ * attribute paths and building the expression tree when clients send the
+ * same kinds of filter repeatedly. This class is thread-safe.
+ */
+public class FilterCache
+{
+  /**
+   * The default maximum number of cached templates.
+   */
+  public static final int DEFAULT_MAX_TEMPLATES = 1000;
+
+  private final int maxTemplates;
+  private final ConcurrentHashMap<String,SCIMFilter> templates =
+      new ConcurrentHashMap<String, SCIMFilter>();
+
+
+
+  /**
+   * Create a new filter cache with the default maximum number of templates.
+   */
+  public FilterCache()
+  {
+    this(DEFAULT_MAX_TEMPLATES);
+  }
+
+
+
+  /**
+   * Create a new filter cache.
+   *
+   * @param maxTemplates  The maximum number of cached templates. The cache is
+   *                      cleared when it is reached.
+   */
+  public FilterCache(final int maxTemplates)
+  {
+    this.maxTemplates = maxTemplates;
+  }
+
+
+
+  /**
+   * Parse a filter from its string representation, using a cached template
+   * if there is one. The result is the same as for
+   * {@link SCIMFilter#parse(String, String)}.
+   *
+   * @param filterString  The string representation of the filter expression.
+   * @param defaultSchema The default schema that should be assumed when
+   *                      parsing attributes without the schema explicitly
+   *                      defined in the URN.
+   *
+   * @return  The parsed filter.
+   *
+   * @throws  SCIMException  If the filter string could not be parsed.
+   */
+  public SCIMFilter parse(final String filterString,
+                          final String defaultSchema)
+      throws SCIMException
+  {
+    final List<Object> values = new ArrayList<Object>();
+    String template;
+    try
+    {
+      template = new FilterParser(filterString, defaultSchema)
+          .readTemplate(values);
+    }
+    catch (Exception e)
+    {
+      // Let the parser report the error.
+      Debug.debugException(e);
+      template = null;
+    }
+    if (template == null)
+    {
+      return SCIMFilter.parse(filterString, defaultSchema);
+    }
+
+    final String key = defaultSchema + ' ' + template;
+    final SCIMFilter cached = templates.get(key);
+    if (cached != null)
+    {
+      final int[] index = new int[1];
+      final SCIMFilter filter = bind(cached, values, index);
+      if (index[0] == values.size())
+      {
+        return filter;
+      }
+    }
+
+    final SCIMFilter filter = SCIMFilter.parse(filterString, defaultSchema);
+    if (templates.size() >= maxTemplates)
+    {
+      templates.clear();
+    }
+    templates.put(key, filter);
+    return filter;
+  }
+
+
+
+  /**
+   * Retrieves the number of cached templates.
+   *
+   * @return  The number of cached templates.
+   */
+  public int size()
+  {
+    return templates.size();
+  }
+
+
+
+  /**
+   * Remove all of the cached templates.
+   */
+  public void clear()
+  {
+    templates.clear();
+  }
+
+
+
+  /**
+   * Create a copy of a cached filter with the provided values. The values
+   * are bound to the attribute filters in the order in which they appear in
+   * the filter string, which is the order of the filter components.
+   *
+   * @param template  The cached filter.
+   * @param values    The values of the filter.
+   * @param index     The index of the next value to be bound, which is
+   *                  updated as values are bound.
+   *
+   * @return  The filter with the provided values.
+   */
+  private static SCIMFilter bind(final SCIMFilter template,
+                                 final List<Object> values,
+                                 final int[] index)
+  {
+    switch (template.getFilterType())
+    {
+      case AND:
+      case OR:
+        final List<SCIMFilter> components =
+            new ArrayList<SCIMFilter>(template.getFilterComponents().size());
+        for (final SCIMFilter component : template.getFilterComponents())
+        {
+          components.add(bind(component, values, index));
+        }
+        return new SCIMFilter(template.getFilterType(), null, null, false,
+                              components);
+
+      case PRESENCE:
+        return template;
+
+      default:
+        if (index[0] >= values.size())
+        {
+          // The cached filter has more values than the filter string,
+          // which is not expected since they have the same template.
+          index[0] = values.size() + 1;
+          return template;
+        }
+        final Object value = values.get(index[0]++);
+        return new SCIMFilter(template.getFilterType(),
+                              template.getFilterAttribute(),
+                              value.toString(), value instanceof String,
+                              null);
+    }
+  }
+}
@@ -0,0 +1,975 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import com.unboundid.scim.schema.AttributeDescriptor;
+import com.unboundid.scim.schema.ResourceDescriptor;
+
+import jakarta.xml.bind.DatatypeConverter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+
+
+/**
+ * A compiler for SCIM filters. A compiled filter is a predicate that matches
+ * the same SCIM objects as {@link SCIMObject#matchesFilter}, but the
+ * attribute descriptors are resolved and the filter values are parsed once
+ * when the filter is compiled, rather than each time an object is tested.
+ * A compiled filter is immutable and may be used by multiple threads.
+ */
+public final class FilterCompiler
+{
+  /**
+   * A predicate that never matches.
+   */
+  private static final Predicate<SCIMObject> NONE = new Predicate<SCIMObject>()
+  {
+    public boolean test(final SCIMObject scimObject)
+    {
+      return false;
+    }
+  };
+
+
+
+  /**
+   * Prevent this class from being instantiated.
+   */
+  private FilterCompiler()
+  {
+    // No implementation required.
+  }
+
+
+
+  /**
+   * Compile a filter into a predicate for SCIM objects.
+   *
+   * @param filter              The filter to be compiled.
+   * @param resourceDescriptor  The resource descriptor of the objects to be
+   *                            tested, which is used to resolve the filter
+   *                            attributes.
+   *
+   * @return  A predicate that matches the SCIM objects that match the filter.
+   */
+  public static Predicate<SCIMObject> compile(
+      final SCIMFilter filter, final ResourceDescriptor resourceDescriptor)
+  {
+    switch (filter.getFilterType())
+    {
+      case AND:
+        return new AndPredicate(
+            compileComponents(filter, resourceDescriptor));
+      case OR:
+        return new OrPredicate(
+            compileComponents(filter, resourceDescriptor));
+      default:
+        return compileAttributeFilter(filter, resourceDescriptor);
+    }
+  }
+
+
+
+  /**
+   * Compile the components of an AND or OR filter.
+   *
+   * @param filter              The AND or OR filter.
+   * @param resourceDescriptor  The resource descriptor of the objects to be
+   *                            tested.
+   *
+   * @return  The compiled components.
+   */
+  @SuppressWarnings("unchecked")
+  private static Predicate<SCIMObject>[] compileComponents(
+      final SCIMFilter filter, final ResourceDescriptor resourceDescriptor)
+  {
+    final List<SCIMFilter> components = filter.getFilterComponents();
+    final Predicate<SCIMObject>[] predicates =
+        new Predicate[components.size()];
+    for (int i = 0; i < predicates.length; i++)
+    {
+      predicates[i] = compile(components.get(i), resourceDescriptor);
+    }
+    return predicates;
+  }
+
+
+
+  /**
+   * Compile a filter that compares an attribute with a value.
+   *
+   * @param filter              The filter to be compiled.
+   * @param resourceDescriptor  The resource descriptor of the objects to be
+   *                            tested.
+   *
+   * @return  The compiled filter.
+   */
+  private static Predicate<SCIMObject> compileAttributeFilter(
+      final SCIMFilter filter, final ResourceDescriptor resourceDescriptor)
+  {
+    final AttributePath path = filter.getFilterAttribute();
+    final AttributeDescriptor descriptor = resourceDescriptor.findAttribute(
+        path.getAttributeSchema(), path.getAttributeName());
+    if (descriptor == null)
+    {
+      // The attribute is not defined by the resource, so the descriptor of
+      // any attribute in the object is not known in advance.
+      return new InterpretedPredicate(filter);
+    }
+
+    final AttributeMatcher matcher;
+    try
+    {
+      matcher = compileAttribute(descriptor, path.getAttributeSchema(),
+          path.getSubAttributeName(), filter);
+    }
+    catch (InvalidResourceException e)
+    {
+      Debug.debugException(e);
+      return new InterpretedPredicate(filter);
+    }
+    if (matcher == null)
+    {
+      return NONE;
+    }
+
+    return new AttributePredicate(
+        StaticUtils.toLowerCase(path.getAttributeSchema()),
+        StaticUtils.toLowerCase(path.getAttributeName()), matcher);
+  }
+
+
+
+  /**
+   * Compile a matcher for an attribute.
+   *
+   * @param descriptor        The descriptor of the attribute.
+   * @param schema            The schema of the filter attribute.
+   * @param subAttributeName  The filter sub-attribute name, or {@code null}
+   *                          if there is none.
+   * @param filter            The filter to be compiled.
+   *
+   * @return  The attribute matcher, or {@code null} if no attribute with
+   *          the provided descriptor can match.
+   *
+   * @throws InvalidResourceException  If a sub-attribute is not defined.
+   */
+  private static AttributeMatcher compileAttribute(
+      final AttributeDescriptor descriptor, final String schema,
+      final String subAttributeName, final SCIMFilter filter)
+      throws InvalidResourceException
+  {
+    if (!schema.equalsIgnoreCase(descriptor.getSchema()))
+    {
+      return null;
+    }
+
+    final String subName =
+        subAttributeName == null ? "value" : subAttributeName;
+    final ValueMatcher valueMatcher =
+        compileValue(descriptor.getDataType(), filter);
+
+    if (descriptor.isMultiValued())
+    {
+      // Any sub-attribute of a complex value may match, since the client
+      // specifies 'emails' rather than 'emails.email'.
+      final Collection<AttributeDescriptor> subDescriptors =
+          descriptor.getSubAttributes();
+      final List<String> names = new ArrayList<String>();
+      final List<AttributeMatcher> matchers =
+          new ArrayList<AttributeMatcher>();
+      if (subDescriptors != null)
+      {
+        for (final AttributeDescriptor subDescriptor : subDescriptors)
+        {
+          final AttributeMatcher matcher =
+              compileAttribute(subDescriptor, schema, subName, filter);
+          if (matcher != null)
+          {
+            names.add(StaticUtils.toLowerCase(subDescriptor.getName()));
+            matchers.add(matcher);
+          }
+        }
+      }
+      return new MultiValuedMatcher(
+          names.toArray(new String[names.size()]),
+          matchers.toArray(new AttributeMatcher[matchers.size()]),
+          valueMatcher);
+    }
+
+    AttributeMatcher subMatcher = null;
+    if (descriptor.getDataType() == AttributeDescriptor.DataType.COMPLEX)
+    {
+      subMatcher = compileAttribute(
+          descriptor.getSubAttribute(subName), schema, null, filter);
+    }
+    return new SingularMatcher(
+        StaticUtils.toLowerCase(subName), subMatcher, valueMatcher);
+  }
+
+
+
+  /**
+   * Compile a matcher for the simple values of an attribute.
+   *
+   * @param dataType  The data type of the attribute.
+   * @param filter    The filter to be compiled.
+   *
+   * @return  The value matcher.
+   */
+  private static ValueMatcher compileValue(
+      final AttributeDescriptor.DataType dataType, final SCIMFilter filter)
+  {
+    final SCIMFilterType type = filter.getFilterType();
+    final String filterValue = filter.getFilterValue();
+    if (type == SCIMFilterType.PRESENCE)
+    {
+      return PresenceMatcher.INSTANCE;
+    }
+
+    try
+    {
+      switch (dataType)
+      {
+        case STRING:
+          return new StringMatcher(type, filterValue);
+        case BOOLEAN:
+          return new BooleanMatcher(type, Boolean.parseBoolean(filterValue));
+        case DATETIME:
+          return new DateMatcher(
+              type, new SimpleValue(filterValue).getDateValue());
+        case DECIMAL:
+          return new DecimalMatcher(type, Double.parseDouble(filterValue));
+        case INTEGER:
+          return new IntegerMatcher(type, Long.parseLong(filterValue));
+        case BINARY:
+          return new BinaryMatcher(
+              type, DatatypeConverter.parseBase64Binary(filterValue));
+        default:
+          return NoneMatcher.INSTANCE;
+      }
+    }
+    catch (IllegalArgumentException e)
+    {
+      // The filter value is not valid for the data type, so no value can
+      // match. This includes NumberFormatException.
+      Debug.debugException(e);
+      return NoneMatcher.INSTANCE;
+    }
+  }
+
+
+
+  /**
+   * Determine whether a string contains or starts with another string,
+   * ignoring case.
+   *
+   * @param value        The string to be tested.
+   * @param lowerFilter  The lower case string to look for.
+   * @param startsWith   Whether the value must start with the string.
+   *
+   * @return  {@code true} if the value contains or starts with the string.
+   */
+  private static boolean containsIgnoreCase(final String value,
+                                            final String lowerFilter,
+                                            final boolean startsWith)
+  {
+    for (int i = 0; i < value.length(); i++)
+    {
+      if (value.charAt(i) > 0x7F)
+      {
+        final String lowerValue = StaticUtils.toLowerCase(value);
+        return startsWith ? lowerValue.startsWith(lowerFilter) :
+            lowerValue.contains(lowerFilter);
+      }
+    }
+
+    final int last =
+        startsWith ? 0 : value.length() - lowerFilter.length();
+    for (int i = 0; i <= last; i++)
+    {
+      int j = 0;
+      while (j < lowerFilter.length() && i + j < value.length())
+      {
+        char c = value.charAt(i + j);
+        if (c >= 'A' && c <= 'Z')
+        {
+          c = (char) (c + ('a' - 'A'));
+        }
+        if (c != lowerFilter.charAt(j))
+        {
+          break;
+        }
+        j++;
+      }
+      if (j == lowerFilter.length())
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+  /**
+   * A predicate that matches if all of its components match.
+   */
+  private static final class AndPredicate implements Predicate<SCIMObject>
+  {
+    private final Predicate<SCIMObject>[] components;
+
+    /**
+     * Create a new AND predicate.
+     *
+     * @param components  The component predicates.
+     */
+    private AndPredicate(final Predicate<SCIMObject>[] components)
+    {
+      this.components = components;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean test(final SCIMObject scimObject)
+    {
+      for (final Predicate<SCIMObject> component : components)
+      {
+        if (!component.test(scimObject))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+
+
+  /**
+   * A predicate that matches if any of its components match.
+   */
+  private static final class OrPredicate implements Predicate<SCIMObject>
+  {
+    private final Predicate<SCIMObject>[] components;
+
+    /**
+     * Create a new OR predicate.
+     *
+     * @param components  The component predicates.
+     */
+    private OrPredicate(final Predicate<SCIMObject>[] components)
+    {
+      this.components = components;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean test(final SCIMObject scimObject)
+    {
+      for (final Predicate<SCIMObject> component : components)
+      {
+        if (component.test(scimObject))
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+
+
+  /**
+   * A predicate that interprets a filter each time an object is tested. This
+   * is used for attributes that are not defined by the resource descriptor.
+   */
+  private static final class InterpretedPredicate
+      implements Predicate<SCIMObject>
+  {
+    private final SCIMFilter filter;
+
+    /**
+     * Create a new interpreted predicate.
+     *
+     * @param filter  The filter to be interpreted.
+     */
+    private InterpretedPredicate(final SCIMFilter filter)
+    {
+      this.filter = filter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean test(final SCIMObject scimObject)
+    {
+      return scimObject.matchesFilter(filter);
+    }
+  }
+
+
+
+  /**
+   * A predicate that tests an attribute of an object.
+   */
+  private static final class AttributePredicate
+      implements Predicate<SCIMObject>
+  {
+    private final String lowerSchema;
+    private final String lowerName;
+    private final AttributeMatcher matcher;
+
+    /**
+     * Create a new attribute predicate.
+     *
+     * @param lowerSchema  The lower case schema of the attribute.
+     * @param lowerName    The lower case name of the attribute.
+     * @param matcher      The matcher for the attribute.
+     */
+    private AttributePredicate(final String lowerSchema,
+                               final String lowerName,
+                               final AttributeMatcher matcher)
+    {
+      this.lowerSchema = lowerSchema;
+      this.lowerName = lowerName;
+      this.matcher = matcher;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean test(final SCIMObject scimObject)
+    {
+      final SCIMAttribute attribute =
+          scimObject.getAttributeLowerCase(lowerSchema, lowerName);
+      return attribute != null && matcher.matches(attribute);
+    }
+  }
+
+
+
+  /**
+   * The base class for matchers of attributes.
+   */
+  private abstract static class AttributeMatcher
+  {
+    /**
+     * Determine whether an attribute matches.
+     *
+     * @param attribute  The attribute to be tested.
+     *
+     * @return  {@code true} if the attribute matches.
+     */
+    abstract boolean matches(SCIMAttribute attribute);
+  }
+
+
+
+  /**
+   * A matcher for multi-valued attributes, which matches if a sub-attribute
+   * of any complex value matches, or if any simple value matches.
+   */
+  private static final class MultiValuedMatcher extends AttributeMatcher
+  {
+    private final String[] subAttributeNames;
+    private final AttributeMatcher[] subAttributeMatchers;
+    private final ValueMatcher valueMatcher;
+
+    /**
+     * Create a new multi-valued attribute matcher.
+     *
+     * @param subAttributeNames     The lower case names of the
+     *                              sub-attributes.
+     * @param subAttributeMatchers  The matchers for the sub-attributes.
+     * @param valueMatcher          The matcher for simple values.
+     */
+    private MultiValuedMatcher(final String[] subAttributeNames,
+                               final AttributeMatcher[] subAttributeMatchers,
+                               final ValueMatcher valueMatcher)
+    {
+      this.subAttributeNames = subAttributeNames;
+      this.subAttributeMatchers = subAttributeMatchers;
+      this.valueMatcher = valueMatcher;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttribute attribute)
+    {
+      for (final SCIMAttributeValue value : attribute.getValues())
+      {
+        if (value.isComplex())
+        {
+          final Map<String,SCIMAttribute> attributes = value.getAttributes();
+          for (int i = 0; i < subAttributeNames.length; i++)
+          {
+            final SCIMAttribute a = attributes.get(subAttributeNames[i]);
+            if (a != null && subAttributeMatchers[i].matches(a))
+            {
+              return true;
+            }
+          }
+        }
+        else if (valueMatcher.matches(value))
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+
+
+  /**
+   * A matcher for singular attributes, which tests the filter sub-attribute
+   * of a complex value, or a simple value.
+   */
+  private static final class SingularMatcher extends AttributeMatcher
+  {
+    private final String subAttributeName;
+    private final AttributeMatcher subAttributeMatcher;
+    private final ValueMatcher valueMatcher;
+
+    /**
+     * Create a new singular attribute matcher.
+     *
+     * @param subAttributeName     The lower case name of the filter
+     *                             sub-attribute.
+     * @param subAttributeMatcher  The matcher for the filter sub-attribute,
+     *                             or {@code null} if the attribute is not
+     *                             complex.
+     * @param valueMatcher         The matcher for a simple value.
+     */
+    private SingularMatcher(final String subAttributeName,
+                            final AttributeMatcher subAttributeMatcher,
+                            final ValueMatcher valueMatcher)
+    {
+      this.subAttributeName = subAttributeName;
+      this.subAttributeMatcher = subAttributeMatcher;
+      this.valueMatcher = valueMatcher;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttribute attribute)
+    {
+      final SCIMAttributeValue value = attribute.getValue();
+      if (value.isComplex())
+      {
+        if (subAttributeMatcher == null)
+        {
+          return false;
+        }
+        final SCIMAttribute a = value.getAttributes().get(subAttributeName);
+        return a != null && subAttributeMatcher.matches(a);
+      }
+      return valueMatcher.matches(value);
+    }
+  }
+
+
+
+  /**
+   * The base class for matchers of simple values.
+   */
+  private abstract static class ValueMatcher
+  {
+    /**
+     * Determine whether a simple value matches.
+     *
+     * @param value  The value to be tested.
+     *
+     * @return  {@code true} if the value matches.
+     */
+    abstract boolean matches(SCIMAttributeValue value);
+  }
+
+
+
+  /**
+   * A matcher for a presence filter, which matches any simple value.
+   */
+  private static final class PresenceMatcher extends ValueMatcher
+  {
+    private static final PresenceMatcher INSTANCE = new PresenceMatcher();
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttributeValue value)
+    {
+      return true;
+    }
+  }
+
+
+
+  /**
+   * A matcher that matches no values.
+   */
+  private static final class NoneMatcher extends ValueMatcher
+  {
+    private static final NoneMatcher INSTANCE = new NoneMatcher();
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttributeValue value)
+    {
+      return false;
+    }
+  }
+
+
+
+  /**
+   * A matcher for string values, which are compared ignoring case.
+   */
+  private static final class StringMatcher extends ValueMatcher
+  {
+    private final SCIMFilterType type;
+    private final String filterValue;
+    private final String lowerFilterValue;
+
+    /**
+     * Create a new string matcher.
+     *
+     * @param type         The filter type.
+     * @param filterValue  The filter value.
+     */
+    private StringMatcher(final SCIMFilterType type, final String filterValue)
+    {
+      this.type = type;
+      this.filterValue = filterValue;
+      this.lowerFilterValue = StaticUtils.toLowerCase(filterValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttributeValue value)
+    {
+      final String s = value.getStringValue();
+      if (s == null)
+      {
+        return false;
+      }
+
+      switch (type)
+      {
+        case EQUALITY:
+          return s.equalsIgnoreCase(filterValue);
+        case CONTAINS:
+          return containsIgnoreCase(s, lowerFilterValue, false);
+        case STARTS_WITH:
+          return containsIgnoreCase(s, lowerFilterValue, true);
+        case GREATER_THAN:
+          return s.compareToIgnoreCase(filterValue) > 0;
+        case GREATER_OR_EQUAL:
+          return s.compareToIgnoreCase(filterValue) >= 0;
+        case LESS_THAN:
+          return s.compareToIgnoreCase(filterValue) < 0;
+        case LESS_OR_EQUAL:
+          return s.compareToIgnoreCase(filterValue) <= 0;
+        default:
+          return false;
+      }
+    }
+  }
+
+
+
+  /**
+   * A matcher for boolean values, which only supports equality.
+   */
+  private static final class BooleanMatcher extends ValueMatcher
+  {
+    private final boolean equality;
+    private final boolean filterValue;
+
+    /**
+     * Create a new boolean matcher.
+     *
+     * @param type         The filter type.
+     * @param filterValue  The filter value.
+     */
+    private BooleanMatcher(final SCIMFilterType type,
+                           final boolean filterValue)
+    {
+      this.equality = type == SCIMFilterType.EQUALITY ||
+                      type == SCIMFilterType.CONTAINS;
+      this.filterValue = filterValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttributeValue value)
+    {
+      final Boolean b = value.getBooleanValue();
+      return b != null && equality && b.booleanValue() == filterValue;
+    }
+  }
+
+
+
+  /**
+   * A matcher for date-time values.
+   */
+  private static final class DateMatcher extends ValueMatcher
+  {
+    private final SCIMFilterType type;
+    private final long filterValue;
+
+    /**
+     * Create a new date-time matcher.
+     *
+     * @param type         The filter type.
+     * @param filterValue  The filter value.
+     */
+    private DateMatcher(final SCIMFilterType type, final Date filterValue)
+    {
+      this.type = type;
+      this.filterValue = filterValue.getTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttributeValue value)
+    {
+      final SimpleValue simpleValue = value.getValue();
+      if (simpleValue == null)
+      {
+        return false;
+      }
+
+      final long d = simpleValue.getDateMillis();
+
+      switch (type)
+      {
+        case EQUALITY:
+        case CONTAINS:
+          return d == filterValue;
+        case GREATER_THAN:
+          return d > filterValue;
+        case GREATER_OR_EQUAL:
+          return d >= filterValue;
+        case LESS_THAN:
+          return d < filterValue;
+        case LESS_OR_EQUAL:
+          return d <= filterValue;
+        default:
+          return false;
+      }
+    }
+  }
+
+
+
+  /**
+   * A matcher for decimal values.
+   */
+  private static final class DecimalMatcher extends ValueMatcher
+  {
+    private final SCIMFilterType type;
+    private final double filterValue;
+
+    /**
+     * Create a new decimal matcher.
+     *
+     * @param type         The filter type.
+     * @param filterValue  The filter value.
+     */
+    private DecimalMatcher(final SCIMFilterType type, final double filterValue)
+    {
+      this.type = type;
+      this.filterValue = filterValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttributeValue value)
+    {
+      final Double d = value.getDecimalValue();
+      if (d == null)
+      {
+        return false;
+      }
+
+      final double v = d.doubleValue();
+      switch (type)
+      {
+        case EQUALITY:
+        case CONTAINS:
+          return v == filterValue;
+        case GREATER_THAN:
+          return v > filterValue;
+        case GREATER_OR_EQUAL:
+          return v >= filterValue;
+        case LESS_THAN:
+          return v < filterValue;
+        case LESS_OR_EQUAL:
+          return v <= filterValue;
+        default:
+          return false;
+      }
+    }
+  }
+
+
+
+  /**
+   * A matcher for integer values.
+   */
+  private static final class IntegerMatcher extends ValueMatcher
+  {
+    private final SCIMFilterType type;
+    private final long filterValue;
+
+    /**
+     * Create a new integer matcher.
+     *
+     * @param type         The filter type.
+     * @param filterValue  The filter value.
+     */
+    private IntegerMatcher(final SCIMFilterType type, final long filterValue)
+    {
+      this.type = type;
+      this.filterValue = filterValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttributeValue value)
+    {
+      final Long l = value.getIntegerValue();
+      if (l == null)
+      {
+        return false;
+      }
+
+      final long v = l.longValue();
+      switch (type)
+      {
+        case EQUALITY:
+        case CONTAINS:
+          return v == filterValue;
+        case GREATER_THAN:
+          return v > filterValue;
+        case GREATER_OR_EQUAL:
+          return v >= filterValue;
+        case LESS_THAN:
+          return v < filterValue;
+        case LESS_OR_EQUAL:
+          return v <= filterValue;
+        default:
+          return false;
+      }
+    }
+  }
+
+
+
+  /**
+   * A matcher for binary values.
+   */
+  private static final class BinaryMatcher extends ValueMatcher
+  {
+    private final SCIMFilterType type;
+    private final byte[] filterValue;
+
+    /**
+     * Create a new binary matcher.
+     *
+     * @param type         The filter type.
+     * @param filterValue  The filter value.
+     */
+    private BinaryMatcher(final SCIMFilterType type, final byte[] filterValue)
+    {
+      this.type = type;
+      this.filterValue = filterValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    boolean matches(final SCIMAttributeValue value)
+    {
+      final byte[] b = value.getBinaryValue();
+      if (b == null)
+      {
+        return false;
+      }
+
+      switch (type)
+      {
+        case EQUALITY:
+          return Arrays.equals(b, filterValue);
+        case CONTAINS:
+          for (int i = 0; i <= b.length - filterValue.length; i++)
+          {
+            if (regionMatches(b, i))
+            {
+              return true;
+            }
+          }
+          return false;
+        case STARTS_WITH:
+          return b.length >= filterValue.length && regionMatches(b, 0);
+        default:
+          return false;
+      }
+    }
+
+    /**
+     * Determine whether the filter value occurs in a binary value at the
+     * provided offset.
+     *
+     * @param b       The binary value, which must be long enough.
+     * @param offset  The offset in the binary value.
+     *
+     * @return  {@code true} if the filter value occurs at the offset.
+     */
+    private boolean regionMatches(final byte[] b, final int offset)
+    {
+      for (int j = 0; j < filterValue.length; j++)
+      {
+        if (b[offset + j] != filterValue[j])
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
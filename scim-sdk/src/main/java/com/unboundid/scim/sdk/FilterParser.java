@@ -270,6 +270,55 @@ public class FilterParser
 
 
 
+  /**
+   * Read the filter provided in the constructor as a template, which is the
+   * filter with each value replaced by a placeholder. Filters that differ
+   * only in their values have the same template. The template is not
+   * validated, so a filter must still be parsed before its template is known
+   * to be valid.
+   *
+   * @param values  A list to which the values of the filter are added, in
+   *                the order in which they appear.
+   *
+   * @return  The template, or {@code null} if the end of the input was
+   *          reached unexpectedly. An IllegalArgumentException is thrown if
+   *          a value could not be read.
+   */
+  String readTemplate(final List<Object> values)
+  {
+    final StringBuilder builder = new StringBuilder(endPos);
+    for (String word = readWord(); word != null; word = readWord())
+    {
+      builder.append(word).append(' ');
+      if (word.equalsIgnoreCase("and") || word.equalsIgnoreCase("or") ||
+          word.equals("(") || word.equals(")"))
+      {
+        continue;
+      }
+
+      final String operator = readWord();
+      if (operator == null)
+      {
+        return null;
+      }
+      builder.append(operator).append(' ');
+
+      if (!operator.equalsIgnoreCase("pr"))
+      {
+        final Object value = readValue();
+        if (value == null)
+        {
+          return null;
+        }
+        values.add(value);
+        builder.append(value instanceof String ? "\"?\" " : "? ");
+      }
+    }
+    return builder.toString();
+  }
+
+
+
   /**
    * Read a filter component at the current position. A filter component is
    * <pre>
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import com.unboundid.scim.data.BaseResource;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+
+/**
+ * This class provides all of the resources matching a query, fetching them
+ * from the service provider one page at a time as they are consumed. While
+ * the resources in one page are being consumed, the next page is fetched and
+ * unmarshalled in the background, so at most two pages are held in memory at
+ * once. Each call to {@link #iterator} or {@link #stream} runs the query again
+ * from the first page.
+ * <p>
+ * The resources are only consistent if the result set does not change while
+ * it is being paged through. Errors from the service provider are thrown as
+ * {@link UncheckedSCIMException} by the iterator.
+ *
+ * @param <R> The type of resources returned by the query.
+ */
+public class PagedResources<R extends BaseResource> implements Iterable<R>
+{
+  private final SCIMEndpoint<R> endpoint;
+  private final String filter;
+  private final SortParameters sortParameters;
+  private final int pageSize;
+  private final Map<String,String> additionalQueryParams;
+  private final String[] requestedAttributes;
+
+
+
+  /**
+   * Create a new instance of the resources matching a query.
+   *
+   * @param endpoint The endpoint to be queried.
+   * @param filter The filter that should be used.
+   * @param sortParameters The sort parameters that should be used.
+   * @param pageSize The number of resources to request in each page, or zero
+   *                 if the server should choose how many to return.
+   * @param additionalQueryParams A map of additional query parameters that
+   *                              should be included.
+   * @param requestedAttributes The attributes of the resource to retrieve.
+   */
+  PagedResources(final SCIMEndpoint<R> endpoint,
+                 final String filter,
+                 final SortParameters sortParameters,
+                 final int pageSize,
+                 final Map<String,String> additionalQueryParams,
+                 final String... requestedAttributes)
+  {
+    this.endpoint = endpoint;
+    this.filter = filter;
+    this.sortParameters = sortParameters;
+    this.pageSize = pageSize;
+    this.additionalQueryParams = additionalQueryParams;
+    this.requestedAttributes = requestedAttributes;
+  }
+
+
+
+  /**
+   * Returns an iterator over the resources matching the query. The first page
+   * is requested immediately.
+   *
+   * @return An iterator over the resources matching the query.
+   */
+  public PageIterator iterator()
+  {
+    return new PageIterator();
+  }
+
+
+
+  /**
+   * Returns a sequential stream of the resources matching the query. Closing
+   * the stream cancels the request for the next page if it is still in
+   * progress.
+   *
+   * @return A sequential stream of the resources matching the query.
+   */
+  public Stream<R> stream()
+  {
+    final PageIterator iterator = iterator();
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(
+            iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+        false).onClose(new Runnable()
+        {
+          public void run()
+          {
+            iterator.close();
+          }
+        });
+  }
+
+
+
+  /**
+   * An iterator over the resources matching the query, which requests the
+   * next page as soon as the current page has been received.
+   */
+  public final class PageIterator implements Iterator<R>, Closeable
+  {
+    private Iterator<R> currentPage = Collections.<R>emptyList().iterator();
+    private CompletableFuture<Resources<R>> nextPage;
+    private int nextStartIndex;
+
+
+
+    /**
+     * Create a new iterator, requesting the first page.
+     */
+    private PageIterator()
+    {
+      nextPage = fetchPage(1);
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasNext()
+    {
+      while (!currentPage.hasNext())
+      {
+        if (nextPage == null)
+        {
+          return false;
+        }
+
+        final Resources<R> page;
+        try
+        {
+          page = nextPage.join();
+        }
+        catch (RuntimeException e)
+        {
+          nextPage = null;
+          throw new UncheckedSCIMException(
+              SCIMEndpoint.toSCIMException(e));
+        }
+
+        // Use the requested start index rather than the one in the response
+        // so that a server ignoring the page parameters cannot cause the
+        // same page to be fetched forever.
+        final int itemsInPage = page.getItemsPerPage();
+        final int startIndex = nextStartIndex;
+        if (itemsInPage > 0 &&
+            startIndex + itemsInPage <= page.getTotalResults())
+        {
+          nextPage = fetchPage(startIndex + itemsInPage);
+        }
+        else
+        {
+          nextPage = null;
+        }
+        currentPage = page.iterator();
+      }
+
+      return true;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public R next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      return currentPage.next();
+    }
+
+
+
+    /**
+     * Stop iterating, cancelling the request for the next page if it is still
+     * in progress.
+     */
+    public void close()
+    {
+      if (nextPage != null)
+      {
+        nextPage.cancel(false);
+        nextPage = null;
+      }
+      currentPage = Collections.<R>emptyList().iterator();
+    }
+
+
+
+    /**
+     * Request a page of resources.
+     *
+     * @param startIndex The 1-based index of the first resource in the page.
+     * @return A future providing the page of resources.
+     */
+    private CompletableFuture<Resources<R>> fetchPage(final int startIndex)
+    {
+      nextStartIndex = startIndex;
+      return endpoint.queryAsync(filter, sortParameters,
+          new PageParameters(startIndex, pageSize),
+          additionalQueryParams, requestedAttributes);
+    }
+  }
+}
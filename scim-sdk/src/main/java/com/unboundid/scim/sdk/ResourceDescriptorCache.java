@@ -0,0 +1,289 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import com.unboundid.scim.schema.ResourceDescriptor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+
+/**
+ * This class caches the results of queries of the resource schemas for a
+ * SCIMService, so that the resource descriptors are not retrieved from the
+ * service provider each time they are needed. Caching is disabled unless a
+ * time-to-live is set. Cached results are used until their time-to-live
+ * expires, after which they are revalidated with a conditional request using
+ * the entity tag of the cached result. When several threads request the same
+ * result at once, only one of them retrieves it and the others wait for it.
+ */
+final class ResourceDescriptorCache
+{
+  /**
+   * The interface used to query the resource schemas.
+   */
+  interface Loader
+  {
+    /**
+     * Retrieve the resource descriptors that match a filter.
+     *
+     * @param filter   The filter that should be used.
+     * @param etag     The entity tag of the cached result, or {@code null}
+     *                 if there is none.
+     * @param etagRef  Receives the entity tag of the retrieved result, if
+     *                 the service provider returned one.
+     *
+     * @return  The resource descriptors that match the filter, or
+     *          {@code null} if the service provider indicated that the
+     *          cached result has not been modified.
+     *
+     * @throws SCIMException  If the resource descriptors could not be read.
+     */
+    Resources<ResourceDescriptor> query(String filter, String etag,
+                                        AtomicReference<String> etagRef)
+        throws SCIMException;
+  }
+
+
+
+  /**
+   * A cached query result.
+   */
+  private static final class Entry
+  {
+    private final Resources<ResourceDescriptor> resources;
+    private final String etag;
+    private final long loadedAt;
+
+    /**
+     * Create a new cached query result.
+     *
+     * @param resources  The resource descriptors that match the filter.
+     * @param etag       The entity tag of the result, or {@code null}.
+     * @param loadedAt   The value of {@link System#nanoTime} when the
+     *                   result was retrieved or last revalidated.
+     */
+    private Entry(final Resources<ResourceDescriptor> resources,
+                  final String etag, final long loadedAt)
+    {
+      this.resources = resources;
+      this.etag = etag;
+      this.loadedAt = loadedAt;
+    }
+  }
+
+
+
+  private final Loader loader;
+  private final ConcurrentHashMap<String,Entry> entries =
+      new ConcurrentHashMap<String, Entry>();
+  private final ConcurrentHashMap<String,CompletableFuture<Entry>> loading =
+      new ConcurrentHashMap<String, CompletableFuture<Entry>>();
+  private volatile long timeToLiveMillis;
+
+
+
+  /**
+   * Create a new resource descriptor cache.
+   *
+   * @param loader            The loader used to query the resource schemas.
+   * @param timeToLiveMillis  The length of time in milliseconds for which
+   *                          cached results are used without revalidation,
+   *                          or zero if results are not cached.
+   */
+  ResourceDescriptorCache(final Loader loader, final long timeToLiveMillis)
+  {
+    this.loader = loader;
+    this.timeToLiveMillis = Math.max(0, timeToLiveMillis);
+  }
+
+
+
+  /**
+   * Retrieve the length of time in milliseconds for which cached results are
+   * used without revalidation.
+   *
+   * @return  The time-to-live in milliseconds.
+   */
+  long getTimeToLiveMillis()
+  {
+    return timeToLiveMillis;
+  }
+
+
+
+  /**
+   * Specify the length of time in milliseconds for which cached results are
+   * used without revalidation.
+   *
+   * @param timeToLiveMillis  The time-to-live in milliseconds. A value of
+   *                          zero disables the cache and removes any cached
+   *                          results.
+   */
+  void setTimeToLiveMillis(final long timeToLiveMillis)
+  {
+    this.timeToLiveMillis = Math.max(0, timeToLiveMillis);
+    if (this.timeToLiveMillis == 0)
+    {
+      entries.clear();
+    }
+  }
+
+
+
+  /**
+   * Retrieve the resource descriptors that match a filter, from the cache
+   * if possible. If the cache is enabled, the returned descriptors are shared
+   * and must not be modified.
+   *
+   * @param filter  The filter that should be used.
+   *
+   * @return  The resource descriptors that match the filter.
+   *
+   * @throws SCIMException  If the resource descriptors could not be read.
+   */
+  Resources<ResourceDescriptor> query(final String filter)
+      throws SCIMException
+  {
+    final long ttlMillis = timeToLiveMillis;
+    if (ttlMillis == 0)
+    {
+      return load(filter, null).resources;
+    }
+
+    final Entry entry = entries.get(filter);
+    if (entry != null && System.nanoTime() - entry.loadedAt <
+        TimeUnit.MILLISECONDS.toNanos(ttlMillis))
+    {
+      return entry.resources;
+    }
+
+    final CompletableFuture<Entry> future = new CompletableFuture<Entry>();
+    final CompletableFuture<Entry> existing =
+        loading.putIfAbsent(filter, future);
+    if (existing != null)
+    {
+      return await(existing).resources;
+    }
+
+    try
+    {
+      final Entry loaded = load(filter, entry);
+      entries.put(filter, loaded);
+      future.complete(loaded);
+      return loaded.resources;
+    }
+    catch (SCIMException e)
+    {
+      future.completeExceptionally(e);
+      throw e;
+    }
+    catch (RuntimeException e)
+    {
+      future.completeExceptionally(e);
+      throw e;
+    }
+    finally
+    {
+      loading.remove(filter, future);
+    }
+  }
+
+
+
+  /**
+   * Remove all of the cached results.
+   */
+  void invalidate()
+  {
+    entries.clear();
+  }
+
+
+
+  /**
+   * Retrieve a result from the service provider, revalidating the cached
+   * result if there is one.
+   *
+   * @param filter  The filter that should be used.
+   * @param cached  The cached result, or {@code null} if there is none.
+   *
+   * @return  The retrieved or revalidated result.
+   *
+   * @throws SCIMException  If the resource descriptors could not be read.
+   */
+  private Entry load(final String filter, final Entry cached)
+      throws SCIMException
+  {
+    final AtomicReference<String> etagRef = new AtomicReference<String>();
+    final Resources<ResourceDescriptor> resources = loader.query(
+        filter, cached == null ? null : cached.etag, etagRef);
+    final long loadedAt = System.nanoTime();
+
+    if (resources == null)
+    {
+      if (cached == null)
+      {
+        // The request was not conditional, so there is nothing to reuse.
+        throw new ServerErrorException("The service provider indicated " +
+            "that the resource schemas were not modified, although there " +
+            "was no cached result");
+      }
+      return new Entry(cached.resources, cached.etag, loadedAt);
+    }
+
+    for (final ResourceDescriptor descriptor : resources)
+    {
+      descriptor.setStrictMode(false);
+    }
+    return new Entry(resources, etagRef.get(), loadedAt);
+  }
+
+
+
+  /**
+   * Wait for a result being retrieved by another thread.
+   *
+   * @param future  The future providing the result.
+   *
+   * @return  The result.
+   *
+   * @throws SCIMException  If the resource descriptors could not be read.
+   */
+  private static Entry await(final CompletableFuture<Entry> future)
+      throws SCIMException
+  {
+    try
+    {
+      return future.join();
+    }
+    catch (CompletionException e)
+    {
+      if (e.getCause() instanceof SCIMException)
+      {
+        throw (SCIMException) e.getCause();
+      }
+      throw new ServerErrorException(
+          "Error reading resource descriptors", e.getCause());
+    }
+  }
+}
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * This class provides an implementation of the SCIM server backend API that
@@ -108,13 +109,15 @@ public class ResourceSchemaBackend extends SCIMBackend
         new ArrayList<BaseResource>(
             application.getBackend().getResourceDescriptors().size());
 
+    final Predicate<SCIMObject> filter = request.getFilter() == null ? null :
+        FilterCompiler.compile(request.getFilter(),
+                               request.getResourceDescriptor());
     for(ResourceDescriptor resourceDescriptor :
         application.getBackend().getResourceDescriptors())
     {
       ResourceDescriptor copy =
           copyAndSetIdAndMetaAttributes(resourceDescriptor, request);
-      if(request.getFilter() == null ||
-          copy.getScimObject().matchesFilter(request.getFilter()))
+      if(filter == null || filter.test(copy.getScimObject()))
       {
         rds.add(copy);
       }
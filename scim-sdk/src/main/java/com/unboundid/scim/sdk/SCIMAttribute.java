@@ -65,6 +65,12 @@ public final class SCIMAttribute
    */
   private final SCIMAttributeValue[] values;
 
+  /**
+   * The hash code of this attribute, or zero if it has not yet been
+   * computed.
+   */
+  private int hash;
+
 
   /**
    * Create a new instance of an attribute.
@@ -827,6 +833,14 @@ public final class SCIMAttribute
 
     SCIMAttribute that = (SCIMAttribute) o;
 
+    if (hash != 0 && that.hash != 0 && hash != that.hash) {
+      return false;
+    }
+
+    if (Arrays.equals(values, that.values)) {
+      return attributeDescriptor.equals(that.attributeDescriptor);
+    }
+
     //Convert the value arrays into Sets so that the order of the attributes
     //doesn't matter.
     Set<SCIMAttributeValue> valueSet1 =
@@ -840,10 +854,17 @@ public final class SCIMAttribute
 
   @Override
   public int hashCode() {
-    int result = attributeDescriptor.hashCode();
-    result = 31 * result + (values != null ?
-        Arrays.hashCode(values) : 0);
-    return result;
+    int h = hash;
+    if (h == 0)
+    {
+      // The order of the values does not matter, for consistency with equals.
+      h = attributeDescriptor.hashCode();
+      h = 31 * h + (values != null ?
+          new HashSet<SCIMAttributeValue>(Arrays.asList(values)).hashCode() :
+          0);
+      hash = h;
+    }
+    return h;
   }
 
   @Override
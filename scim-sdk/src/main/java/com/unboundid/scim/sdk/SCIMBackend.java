@@ -20,6 +20,7 @@ package com.unboundid.scim.sdk;
 import com.unboundid.scim.data.AuthenticationScheme;
 import com.unboundid.scim.data.BaseResource;
 import com.unboundid.scim.schema.ResourceDescriptor;
+import com.unboundid.scim.wink.ResourceStats;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -176,6 +177,19 @@ public abstract class SCIMBackend
 
 
 
+  /**
+   * Retrieves any statistics maintained by this backend, such as cache
+   * statistics, to be included in the monitor data.
+   *
+   * @return  The statistics maintained by this backend, which may be empty.
+   */
+  public Collection<ResourceStats> getBackendStats()
+  {
+    return Collections.emptyList();
+  }
+
+
+
   /**
    * Retrieve the resource descriptors served by this backend.
    *
@@ -37,6 +37,12 @@ public class SCIMBackendConfig
    */
   private final AtomicBoolean checkSchema = new AtomicBoolean(true);
 
+  /**
+   * Whether query results may be streamed to the client as they are
+   * retrieved.
+   */
+  private final AtomicBoolean streamQueryResults = new AtomicBoolean(false);
+
 
 
   /**
@@ -85,4 +91,36 @@ public class SCIMBackendConfig
   {
     this.checkSchema.set(checkSchema);
   }
+
+
+
+  /**
+   * Whether query results may be streamed to the client as they are
+   * retrieved, rather than being collected before the response is written.
+   *
+   * @return {@code true} if query results may be streamed and
+   *         {@code false} otherwise.
+   */
+  public boolean isStreamQueryResults()
+  {
+    return streamQueryResults.get();
+  }
+
+
+
+  /**
+   * Specify whether query results may be streamed to the client as they are
+   * retrieved. When streaming, the response status has already been sent by
+   * the time the results are retrieved, so an error that occurs part way
+   * through a query results in an incomplete response rather than an error
+   * response. For JSON responses, the totalResults, itemsPerPage and
+   * startIndex values are written after the resources.
+   *
+   * @param streamQueryResults {@code true} if query results may be streamed
+   *                           and {@code false} otherwise.
+   */
+  public void setStreamQueryResults(final boolean streamQueryResults)
+  {
+    this.streamQueryResults.set(streamQueryResults);
+  }
 }
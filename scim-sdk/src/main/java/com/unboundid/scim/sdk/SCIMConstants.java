@@ -17,6 +17,8 @@
 
 package com.unboundid.scim.sdk;
 
+import jakarta.ws.rs.core.MediaType;
+
 
 
 /**
@@ -191,6 +193,19 @@ public final class SCIMConstants
   public static final String HEADER_NAME_ORIGIN  =
       "Origin";
 
+  /**
+   * The media type of SCIM content in the Concise Binary Object
+   * Representation (CBOR) defined by RFC 8949.
+   */
+  public static final String APPLICATION_CBOR = "application/cbor";
+
+  /**
+   * The media type of SCIM content in the Concise Binary Object
+   * Representation (CBOR) defined by RFC 8949.
+   */
+  public static final MediaType APPLICATION_CBOR_TYPE =
+      new MediaType("application", "cbor");
+
   /**
    * The system property to allow implicit schema checking.
    * This is NOT supported but is provided for migration purposes only.
@@ -23,6 +23,8 @@ import com.unboundid.scim.data.BaseResource;
 import com.unboundid.scim.facade.org.apache.wink.client.Resource;
 import com.unboundid.scim.marshal.Marshaller;
 import com.unboundid.scim.marshal.Unmarshaller;
+import com.unboundid.scim.marshal.cbor.CborMarshaller;
+import com.unboundid.scim.marshal.cbor.CborUnmarshaller;
 import com.unboundid.scim.marshal.json.JsonMarshaller;
 import com.unboundid.scim.marshal.json.JsonUnmarshaller;
 import com.unboundid.scim.marshal.xml.XmlMarshaller;
@@ -45,6 +47,7 @@ import com.unboundid.scim.facade.org.apache.wink.client.ClientRuntimeException;
 import com.unboundid.scim.facade.org.apache.wink.client.ClientWebException;
 import com.unboundid.scim.facade.org.apache.wink.client.RestClient;
 
+import jakarta.ws.rs.HttpMethod;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
@@ -59,6 +62,12 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import static com.unboundid.scim.sdk.SCIMConstants.*;
 
@@ -115,6 +124,11 @@ public class SCIMEndpoint<R extends BaseResource>
     {
       this.marshaller = new JsonMarshaller();
     }
+    else if (scimService.getContentType().equals(
+        SCIMConstants.APPLICATION_CBOR_TYPE))
+    {
+      this.marshaller = new CborMarshaller();
+    }
     else
     {
       this.marshaller = new XmlMarshaller();
@@ -124,6 +138,11 @@ public class SCIMEndpoint<R extends BaseResource>
     {
       this.unmarshaller = new JsonUnmarshaller();
     }
+    else if (scimService.getAcceptType().equals(
+        SCIMConstants.APPLICATION_CBOR_TYPE))
+    {
+      this.unmarshaller = new CborUnmarshaller();
+    }
     else
     {
       this.unmarshaller = new XmlUnmarshaller();
@@ -175,6 +194,89 @@ public class SCIMEndpoint<R extends BaseResource>
   public R get(final String id, final String etag,
                final String... requestedAttributes)
       throws SCIMException
+  {
+    final Resource clientResource =
+        createGetResource(id, etag, requestedAttributes);
+
+    ClientResponse response = null;
+    try
+    {
+      response = clientResource.get();
+      return readResource(response, Response.Status.OK);
+    }
+    catch(SCIMException e)
+    {
+      throw e;
+    }
+    catch(Exception e)
+    {
+      throw SCIMException.createException(getStatusCode(e),
+                                          getExceptionMessage(e), e);
+    }
+    finally
+    {
+      if (response != null) {
+        response.close();
+      }
+    }
+  }
+
+  /**
+   * Asynchronously retrieves a resource instance given the ID.
+   *
+   * @param id The ID of the resource to retrieve.
+   * @return A future providing the retrieved resource, or completed
+   *         exceptionally with a SCIMException if an error occurs.
+   */
+  public CompletableFuture<R> getAsync(final String id)
+  {
+    return getAsync(id, null, (String[]) null);
+  }
+
+  /**
+   * Asynchronously retrieves a resource instance given the ID, only if the
+   * current version has been modified. The request does not block the
+   * calling thread, and the response is unmarshalled by the async executor of
+   * the SCIMService.
+   *
+   * @param id The ID of the resource to retrieve.
+   * @param etag The entity tag that indicates the entry should be returned
+   *             only if the entity tag of the current resource is different
+   *             from the provided value and a value of "*" will not return
+   *             an entry if the resource still exists. A value of
+   *             <code>null</code> indicates unconditional return.
+   * @param requestedAttributes The attributes of the resource to retrieve.
+   * @return A future providing the retrieved resource, or completed
+   *         exceptionally with a SCIMException if an error occurs.
+   */
+  public CompletableFuture<R> getAsync(final String id, final String etag,
+                                       final String... requestedAttributes)
+  {
+    final Resource clientResource =
+        createGetResource(id, etag, requestedAttributes);
+
+    return invokeAsync(clientResource, HttpMethod.GET, null,
+        new ResponseHandler<R>()
+        {
+          public R handleResponse(final ClientResponse response)
+              throws SCIMException
+          {
+            return readResource(response, Response.Status.OK);
+          }
+        });
+  }
+
+  /**
+   * Create the client resource for a request to retrieve a resource.
+   *
+   * @param id The ID of the resource to retrieve.
+   * @param etag The entity tag for the If-None-Match header, or
+   *             {@code null} if the header is not required.
+   * @param requestedAttributes The attributes of the resource to retrieve.
+   * @return The client resource.
+   */
+  private Resource createGetResource(final String id, final String etag,
+                                     final String... requestedAttributes)
   {
     final UriBuilder uriBuilder = UriBuilder.fromUri(scimService.getBaseURL());
     uriBuilder.path(resourceDescriptor.getEndpoint());
@@ -205,40 +307,7 @@ public class SCIMEndpoint<R extends BaseResource>
     {
       clientResource.header(HttpHeaders.IF_NONE_MATCH, etag);
     }
-
-    ClientResponse response = null;
-    try
-    {
-      response = clientResource.get();
-      InputStream entity = response.getEntity(InputStream.class);
-
-      if(response.getStatusType() == Response.Status.OK)
-      {
-        R resource = unmarshaller.unmarshal(entity, resourceDescriptor,
-            resourceFactory);
-        addMissingMetaData(response, resource);
-        return resource;
-      }
-      else
-      {
-        throw createErrorResponseException(response, entity);
-      }
-    }
-    catch(SCIMException e)
-    {
-      throw e;
-    }
-    catch(Exception e)
-    {
-      throw SCIMException.createException(getStatusCode(e),
-                                          getExceptionMessage(e), e);
-    }
-    finally
-    {
-      if (response != null) {
-        response.close();
-      }
-    }
+    return clientResource;
   }
 
   /**
@@ -299,6 +368,194 @@ public class SCIMEndpoint<R extends BaseResource>
                             final Map<String,String> additionalQueryParams,
                             final String... requestedAttributes)
       throws SCIMException
+  {
+    final Resource clientResource =
+        createQueryResource(filter, sortParameters, pageParameters,
+            additionalQueryParams, requestedAttributes);
+
+    ClientResponse response = null;
+    try
+    {
+      response = clientResource.get();
+      return readResources(response);
+    }
+    catch(SCIMException e)
+    {
+      throw e;
+    }
+    catch(Exception e)
+    {
+      throw SCIMException.createException(getStatusCode(e),
+                                          getExceptionMessage(e), e);
+    }
+    finally
+    {
+      if (response != null) {
+        response.close();
+      }
+    }
+  }
+
+  /**
+   * Retrieves all resource instances that match the provided filter, unless
+   * the service provider indicates that they have not been modified since
+   * they were last retrieved.
+   *
+   * @param filter The filter that should be used.
+   * @param etag The entity tag for the If-None-Match header, or
+   *             {@code null} if the request is not conditional.
+   * @param etagRef Receives the entity tag of the response, if there is one.
+   * @return The resource instances that match the provided filter, or
+   *         {@code null} if they have not been modified.
+   * @throws SCIMException If an error occurs.
+   */
+  Resources<R> query(final String filter, final String etag,
+                     final AtomicReference<String> etagRef)
+      throws SCIMException
+  {
+    final Resource clientResource =
+        createQueryResource(filter, null, null, null);
+    if(etag != null && !etag.isEmpty())
+    {
+      clientResource.header(HttpHeaders.IF_NONE_MATCH, etag);
+    }
+
+    ClientResponse response = null;
+    try
+    {
+      response = clientResource.get();
+      if(response.getStatusType() == Response.Status.NOT_MODIFIED)
+      {
+        return null;
+      }
+      etagRef.set(response.getHeaders().getFirst(HttpHeaders.ETAG));
+      return readResources(response);
+    }
+    catch(SCIMException e)
+    {
+      throw e;
+    }
+    catch(Exception e)
+    {
+      throw SCIMException.createException(getStatusCode(e),
+                                          getExceptionMessage(e), e);
+    }
+    finally
+    {
+      if (response != null) {
+        response.close();
+      }
+    }
+  }
+
+  /**
+   * Asynchronously retrieves all resource instances that match the provided
+   * filter.
+   *
+   * @param filter The filter that should be used.
+   * @return A future providing the resource instances that match the provided
+   *         filter, or completed exceptionally with a SCIMException if an
+   *         error occurs.
+   */
+  public CompletableFuture<Resources<R>> queryAsync(final String filter)
+  {
+    return queryAsync(filter, null, null, null);
+  }
+
+  /**
+   * Asynchronously retrieves all resource instances that match the provided
+   * filter. The request does not block the calling thread, and the response
+   * is unmarshalled by the async executor of the SCIMService.
+   *
+   * @param filter The filter that should be used.
+   * @param sortParameters The sort parameters that should be used.
+   * @param pageParameters The page parameters that should be used.
+   * @param additionalQueryParams A map of additional query parameters that
+   *                              should be included.
+   * @param requestedAttributes The attributes of the resource to retrieve.
+   * @return A future providing the resource instances that match the provided
+   *         filter, or completed exceptionally with a SCIMException if an
+   *         error occurs.
+   */
+  public CompletableFuture<Resources<R>> queryAsync(
+      final String filter,
+      final SortParameters sortParameters,
+      final PageParameters pageParameters,
+      final Map<String,String> additionalQueryParams,
+      final String... requestedAttributes)
+  {
+    final Resource clientResource =
+        createQueryResource(filter, sortParameters, pageParameters,
+            additionalQueryParams, requestedAttributes);
+
+    return invokeAsync(clientResource, HttpMethod.GET, null,
+        new ResponseHandler<Resources<R>>()
+        {
+          public Resources<R> handleResponse(final ClientResponse response)
+              throws SCIMException
+          {
+            return readResources(response);
+          }
+        });
+  }
+
+  /**
+   * Retrieves all resource instances that match the provided filter, fetching
+   * them one page at a time as they are consumed.
+   *
+   * @param filter The filter that should be used.
+   * @param pageSize The number of resources to request in each page, or zero
+   *                 if the server should choose how many to return.
+   * @return The resource instances that match the provided filter.
+   */
+  public PagedResources<R> queryAll(final String filter, final int pageSize)
+  {
+    return queryAll(filter, null, pageSize, null);
+  }
+
+  /**
+   * Retrieves all resource instances that match the provided filter, fetching
+   * them one page at a time as they are consumed. The next page is requested
+   * in the background while the current page is being consumed, so the whole
+   * result set is never held in memory at once.
+   *
+   * @param filter The filter that should be used.
+   * @param sortParameters The sort parameters that should be used.
+   * @param pageSize The number of resources to request in each page, or zero
+   *                 if the server should choose how many to return.
+   * @param additionalQueryParams A map of additional query parameters that
+   *                              should be included.
+   * @param requestedAttributes The attributes of the resource to retrieve.
+   * @return The resource instances that match the provided filter.
+   */
+  public PagedResources<R> queryAll(
+      final String filter,
+      final SortParameters sortParameters,
+      final int pageSize,
+      final Map<String,String> additionalQueryParams,
+      final String... requestedAttributes)
+  {
+    return new PagedResources<R>(this, filter, sortParameters, pageSize,
+        additionalQueryParams, requestedAttributes);
+  }
+
+  /**
+   * Create the client resource for a query request.
+   *
+   * @param filter The filter that should be used.
+   * @param sortParameters The sort parameters that should be used.
+   * @param pageParameters The page parameters that should be used.
+   * @param additionalQueryParams A map of additional query parameters that
+   *                              should be included.
+   * @param requestedAttributes The attributes of the resource to retrieve.
+   * @return The client resource.
+   */
+  private Resource createQueryResource(
+      final String filter,
+      final SortParameters sortParameters,
+      final PageParameters pageParameters,
+      final Map<String,String> additionalQueryParams,
+      final String... requestedAttributes)
   {
     URI uri =
         UriBuilder.fromUri(scimService.getBaseURL()).path(
@@ -346,22 +603,31 @@ public class SCIMEndpoint<R extends BaseResource>
         clientResource.queryParam(key, additionalQueryParams.get(key));
       }
     }
+    return clientResource;
+  }
+
+
+  /**
+   * Create the specified resource instance at the service provider and return
+   * only the specified attributes from the newly inserted resource.
+   *
+   * @param resource The resource to create.
+   * @param requestedAttributes The attributes of the newly inserted resource
+   *                            to retrieve.
+   * @return The newly inserted resource returned by the service provider.
+   * @throws SCIMException If an error occurs.
+   */
+  public R create(final R resource,
+                  final String... requestedAttributes)
+      throws SCIMException
+  {
+    final Resource clientResource = createPostResource(requestedAttributes);
 
     ClientResponse response = null;
     try
     {
-      response = clientResource.get();
-      InputStream entity = response.getEntity(InputStream.class);
-
-      if(response.getStatusType() == Response.Status.OK)
-      {
-        return unmarshaller.unmarshalResources(entity, resourceDescriptor,
-            resourceFactory);
-      }
-      else
-      {
-        throw createErrorResponseException(response, entity);
-      }
+      response = clientResource.post(createOutput(resource));
+      return readResource(response, Response.Status.CREATED);
     }
     catch(SCIMException e)
     {
@@ -380,22 +646,45 @@ public class SCIMEndpoint<R extends BaseResource>
     }
   }
 
-
   /**
-   * Create the specified resource instance at the service provider and return
-   * only the specified attributes from the newly inserted resource.
+   * Asynchronously create the specified resource instance at the service
+   * provider and return only the specified attributes from the newly inserted
+   * resource. The request does not block the calling thread, and the response
+   * is unmarshalled by the async executor of the SCIMService.
    *
    * @param resource The resource to create.
    * @param requestedAttributes The attributes of the newly inserted resource
    *                            to retrieve.
-   * @return The newly inserted resource returned by the service provider.
-   * @throws SCIMException If an error occurs.
+   * @return A future providing the newly inserted resource returned by the
+   *         service provider, or completed exceptionally with a SCIMException
+   *         if an error occurs.
    */
-  public R create(final R resource,
-                  final String... requestedAttributes)
-      throws SCIMException
+  public CompletableFuture<R> createAsync(final R resource,
+                                          final String... requestedAttributes)
   {
+    final Resource clientResource = createPostResource(requestedAttributes);
+
+    return invokeAsync(clientResource, HttpMethod.POST,
+        createOutput(resource),
+        new ResponseHandler<R>()
+        {
+          public R handleResponse(final ClientResponse response)
+              throws SCIMException
+          {
+            return readResource(response, Response.Status.CREATED);
+          }
+        });
+  }
 
+  /**
+   * Create the client resource for a request to create a resource.
+   *
+   * @param requestedAttributes The attributes of the newly inserted resource
+   *                            to retrieve.
+   * @return The client resource.
+   */
+  private Resource createPostResource(final String... requestedAttributes)
+  {
     URI uri =
         UriBuilder.fromUri(scimService.getBaseURL()).path(
             resourceDescriptor.getEndpoint()).build();
@@ -412,51 +701,7 @@ public class SCIMEndpoint<R extends BaseResource>
       clientResource.header("User-Agent", scimService.getUserAgent());
     }
 
-    StreamingOutput output = new StreamingOutput() {
-      public void write(final OutputStream outputStream)
-          throws IOException, WebApplicationException {
-        try {
-          marshaller.marshal(resource, outputStream);
-        } catch (Exception e) {
-          throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
-        }
-      }
-    };
-
-
-    ClientResponse response = null;
-    try
-    {
-      response = clientResource.post(output);
-      InputStream entity = response.getEntity(InputStream.class);
-
-      if(response.getStatusType() == Response.Status.CREATED)
-      {
-        R postedResource = unmarshaller.unmarshal(entity, resourceDescriptor,
-            resourceFactory);
-        addMissingMetaData(response, postedResource);
-        return postedResource;
-      }
-      else
-      {
-        throw createErrorResponseException(response, entity);
-      }
-    }
-    catch(SCIMException e)
-    {
-      throw e;
-    }
-    catch(Exception e)
-    {
-      throw SCIMException.createException(getStatusCode(e),
-                                          getExceptionMessage(e), e);
-    }
-    finally
-    {
-      if (response != null) {
-        response.close();
-      }
-    }
+    return clientResource;
   }
 
   /**
@@ -529,6 +774,103 @@ public class SCIMEndpoint<R extends BaseResource>
   public R update(final String id, final String etag, final R resource,
                   final String... requestedAttributes)
       throws SCIMException
+  {
+    final Resource clientResource =
+        createUpdateResource(id, etag, requestedAttributes);
+    final StreamingOutput output = createOutput(resource);
+
+    ClientResponse response = null;
+    try
+    {
+      if(overrides[0])
+      {
+        clientResource.header("X-HTTP-Method-Override", "PUT");
+        response = clientResource.post(output);
+      }
+      else
+      {
+        response = clientResource.put(output);
+      }
+
+      return readResource(response, Response.Status.OK);
+    }
+    catch(SCIMException e)
+    {
+      throw e;
+    }
+    catch(Exception e)
+    {
+      throw SCIMException.createException(getStatusCode(e),
+                                          getExceptionMessage(e), e);
+    }
+    finally
+    {
+      if (response != null) {
+        response.close();
+      }
+    }
+  }
+
+  /**
+   * Asynchronously update the existing resource with the one provided (using
+   * the HTTP PUT method). This update is conditional upon the provided entity
+   * tag matching the tag from the current resource. The request does not
+   * block the calling thread, and the response is unmarshalled by the async
+   * executor of the SCIMService.
+   *
+   * @param id The ID of the resource to update.
+   * @param etag The entity tag value that is the expected value for the target
+   *             resource. A value of <code>null</code> will not set an
+   *             etag precondition and a value of "*" will perform an
+   *             unconditional update.
+   * @param resource The modified resource to be updated.
+   * @param requestedAttributes The attributes of updated resource
+   *                            to return.
+   * @return A future providing the updated resource returned by the service
+   *         provider, or completed exceptionally with a SCIMException if an
+   *         error occurs.
+   */
+  public CompletableFuture<R> updateAsync(final String id, final String etag,
+                                          final R resource,
+                                          final String... requestedAttributes)
+  {
+    final Resource clientResource =
+        createUpdateResource(id, etag, requestedAttributes);
+
+    final String method;
+    if(overrides[0])
+    {
+      clientResource.header("X-HTTP-Method-Override", "PUT");
+      method = HttpMethod.POST;
+    }
+    else
+    {
+      method = HttpMethod.PUT;
+    }
+
+    return invokeAsync(clientResource, method, createOutput(resource),
+        new ResponseHandler<R>()
+        {
+          public R handleResponse(final ClientResponse response)
+              throws SCIMException
+          {
+            return readResource(response, Response.Status.OK);
+          }
+        });
+  }
+
+  /**
+   * Create the client resource for a request to update a resource with PUT.
+   *
+   * @param id The ID of the resource to update.
+   * @param etag The entity tag for the If-Match header, or {@code null} if
+   *             the header is not required.
+   * @param requestedAttributes The attributes of updated resource
+   *                            to return.
+   * @return The client resource.
+   */
+  private Resource createUpdateResource(final String id, final String etag,
+                                        final String... requestedAttributes)
   {
     URI uri =
         UriBuilder.fromUri(scimService.getBaseURL()).path(
@@ -550,59 +892,7 @@ public class SCIMEndpoint<R extends BaseResource>
       clientResource.header(HttpHeaders.IF_MATCH, etag);
     }
 
-    StreamingOutput output = new StreamingOutput() {
-      public void write(final OutputStream outputStream)
-          throws IOException, WebApplicationException {
-        try {
-          marshaller.marshal(resource, outputStream);
-        } catch (Exception e) {
-          throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
-        }
-      }
-    };
-
-    ClientResponse response = null;
-    try
-    {
-      if(overrides[0])
-      {
-        clientResource.header("X-HTTP-Method-Override", "PUT");
-        response = clientResource.post(output);
-      }
-      else
-      {
-        response = clientResource.put(output);
-      }
-
-      InputStream entity = response.getEntity(InputStream.class);
-
-      if(response.getStatusType() == Response.Status.OK)
-      {
-        R postedResource = unmarshaller.unmarshal(entity, resourceDescriptor,
-            resourceFactory);
-        addMissingMetaData(response, postedResource);
-        return postedResource;
-      }
-      else
-      {
-        throw createErrorResponseException(response, entity);
-      }
-    }
-    catch(SCIMException e)
-    {
-      throw e;
-    }
-    catch(Exception e)
-    {
-      throw SCIMException.createException(getStatusCode(e),
-                                          getExceptionMessage(e), e);
-    }
-    finally
-    {
-      if (response != null) {
-        response.close();
-      }
-    }
+    return clientResource;
   }
 
   /**
@@ -693,16 +983,7 @@ public class SCIMEndpoint<R extends BaseResource>
     final BaseResource resource =
             diff.toPartialResource(resourceFactory, true);
 
-    StreamingOutput output = new StreamingOutput() {
-      public void write(final OutputStream outputStream)
-              throws IOException, WebApplicationException {
-        try {
-          marshaller.marshal(resource, outputStream);
-        } catch (Exception e) {
-          throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
-        }
-      }
-    };
+    final StreamingOutput output = createOutput(resource);
 
     ClientResponse response = null;
     try
@@ -832,25 +1113,7 @@ public class SCIMEndpoint<R extends BaseResource>
   public void delete(final String id, final String etag)
       throws SCIMException
   {
-    URI uri =
-        UriBuilder.fromUri(scimService.getBaseURL()).path(
-            resourceDescriptor.getEndpoint()).path(id).build();
-    Resource clientResource =
-        client.resource(completeUri(uri));
-    if(!useUrlSuffix)
-    {
-      clientResource.accept(acceptType);
-    }
-    clientResource.contentType(contentType);
-    if(scimService.getUserAgent() != null)
-    {
-      clientResource.header(HttpHeaders.USER_AGENT, scimService.getUserAgent());
-    }
-    if(etag != null && !etag.isEmpty())
-    {
-      clientResource.header(HttpHeaders.IF_MATCH, etag);
-    }
-
+    final Resource clientResource = createDeleteResource(id, etag);
 
     ClientResponse response = null;
     try
@@ -863,15 +1126,7 @@ public class SCIMEndpoint<R extends BaseResource>
       {
         response = clientResource.delete();
       }
-      if(response.getStatusType() != Response.Status.OK)
-      {
-        InputStream entity = response.getEntity(InputStream.class);
-        throw createErrorResponseException(response, entity);
-      }
-      else
-      {
-        response.consumeContent();
-      }
+      checkDeleteResponse(response);
     }
     catch(SCIMException e)
     {
@@ -899,6 +1154,350 @@ public class SCIMEndpoint<R extends BaseResource>
     }
   }
 
+  /**
+   * Asynchronously delete the resource instance specified by the provided
+   * ID. This delete is conditional upon the provided entity tag matching the
+   * tag from the current resource. The request does not block the calling
+   * thread.
+   *
+   * @param id The ID of the resource to delete.
+   * @param etag The entity tag value that is the expected value for the target
+   *             resource. A value of <code>null</code> will not set an
+   *             etag precondition and a value of "*" will perform an
+   *             unconditional delete.
+   * @return A future that is completed when the resource has been deleted,
+   *         or completed exceptionally with a SCIMException if an error
+   *         occurs.
+   */
+  public CompletableFuture<Void> deleteAsync(final String id,
+                                             final String etag)
+  {
+    final Resource clientResource = createDeleteResource(id, etag);
+
+    final String method;
+    if(overrides[2])
+    {
+      clientResource.header("X-HTTP-Method-Override", "DELETE");
+      method = HttpMethod.POST;
+    }
+    else
+    {
+      method = HttpMethod.DELETE;
+    }
+
+    return invokeAsync(clientResource, method, null,
+        new ResponseHandler<Void>()
+        {
+          public Void handleResponse(final ClientResponse response)
+              throws SCIMException, IOException
+          {
+            checkDeleteResponse(response);
+            return null;
+          }
+        });
+  }
+
+  /**
+   * Create the client resource for a request to delete a resource.
+   *
+   * @param id The ID of the resource to delete.
+   * @param etag The entity tag for the If-Match header, or {@code null} if
+   *             the header is not required.
+   * @return The client resource.
+   */
+  private Resource createDeleteResource(final String id, final String etag)
+  {
+    URI uri =
+        UriBuilder.fromUri(scimService.getBaseURL()).path(
+            resourceDescriptor.getEndpoint()).path(id).build();
+    Resource clientResource =
+        client.resource(completeUri(uri));
+    if(!useUrlSuffix)
+    {
+      clientResource.accept(acceptType);
+    }
+    clientResource.contentType(contentType);
+    if(scimService.getUserAgent() != null)
+    {
+      clientResource.header(HttpHeaders.USER_AGENT, scimService.getUserAgent());
+    }
+    if(etag != null && !etag.isEmpty())
+    {
+      clientResource.header(HttpHeaders.IF_MATCH, etag);
+    }
+
+    return clientResource;
+  }
+
+  /**
+   * The interface used to process the response to an asynchronous request.
+   *
+   * @param <T> The type of result provided by the response.
+   */
+  private interface ResponseHandler<T>
+  {
+    /**
+     * Process a response from the service provider.
+     *
+     * @param response The response from the service provider.
+     * @return The result provided by the response.
+     * @throws Exception If the response indicates an error or could not be
+     *                   processed.
+     */
+    T handleResponse(ClientResponse response) throws Exception;
+  }
+
+
+
+  /**
+   * Invoke a request asynchronously. The request is started once the number
+   * of asynchronous requests in progress for the SCIMService is below its
+   * limit, so the calling thread never waits. The response is processed by
+   * the async executor of the SCIMService rather than by the thread that
+   * received it.
+   *
+   * @param clientResource The client resource for the request.
+   * @param method The HTTP method.
+   * @param entity The request entity, or {@code null} if there is none.
+   * @param handler The handler used to process the response.
+   * @param <T> The type of result provided by the response.
+   * @return A future providing the result, or completed exceptionally with a
+   *         SCIMException if an error occurs.
+   */
+  private <T> CompletableFuture<T> invokeAsync(
+      final Resource clientResource,
+      final String method,
+      final Object entity,
+      final ResponseHandler<T> handler)
+  {
+    final CompletableFuture<T> result = new CompletableFuture<T>();
+    final AsyncRequestLimiter limiter = scimService.getAsyncRequestLimiter();
+    final Executor executor = scimService.getAsyncExecutor();
+
+    limiter.execute(new Runnable()
+    {
+      public void run()
+      {
+        final CompletableFuture<ClientResponse> responseFuture;
+        try
+        {
+          responseFuture = clientResource.invokeAsync(method, entity);
+        }
+        catch(Exception e)
+        {
+          limiter.release();
+          result.completeExceptionally(toSCIMException(e));
+          return;
+        }
+
+        // The response is dispatched to the executor from a synchronous
+        // completion stage, so that a task rejected by the executor still
+        // releases the request and completes the result.
+        responseFuture.whenComplete(
+            new BiConsumer<ClientResponse, Throwable>()
+            {
+              public void accept(final ClientResponse response,
+                                 final Throwable t)
+              {
+                try
+                {
+                  executor.execute(new Runnable()
+                  {
+                    public void run()
+                    {
+                      completeAsync(result, limiter, handler, response, t);
+                    }
+                  });
+                }
+                catch (RejectedExecutionException e)
+                {
+                  if (response != null) {
+                    response.close();
+                  }
+                  limiter.release();
+                  result.completeExceptionally(toSCIMException(e));
+                }
+              }
+            });
+      }
+    });
+
+    return result;
+  }
+
+
+
+  /**
+   * Process the response to an asynchronous request, complete its result,
+   * and release the request.
+   *
+   * @param result The future providing the result of the request.
+   * @param limiter The limiter of asynchronous requests in progress.
+   * @param handler The handler used to process the response.
+   * @param response The response, or {@code null} if the request failed.
+   * @param t The cause of the failure, or {@code null} if there is a
+   *          response.
+   * @param <T> The type of result provided by the response.
+   */
+  private static <T> void completeAsync(final CompletableFuture<T> result,
+                                        final AsyncRequestLimiter limiter,
+                                        final ResponseHandler<T> handler,
+                                        final ClientResponse response,
+                                        final Throwable t)
+  {
+    try
+    {
+      if (t != null)
+      {
+        result.completeExceptionally(toSCIMException(t));
+      }
+      else if (!result.isDone())
+      {
+        result.complete(handler.handleResponse(response));
+      }
+    }
+    catch(Exception e)
+    {
+      result.completeExceptionally(toSCIMException(e));
+    }
+    finally
+    {
+      if (response != null) {
+        response.close();
+      }
+      limiter.release();
+    }
+  }
+
+
+
+  /**
+   * Create the request entity for a resource.
+   *
+   * @param resource The resource to be sent.
+   * @return The request entity.
+   */
+  private StreamingOutput createOutput(final BaseResource resource)
+  {
+    return new StreamingOutput() {
+      public void write(final OutputStream outputStream)
+          throws IOException, WebApplicationException {
+        try {
+          marshaller.marshal(resource, outputStream);
+        } catch (Exception e) {
+          throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
+        }
+      }
+    };
+  }
+
+
+
+  /**
+   * Read a resource from a response.
+   *
+   * @param response The response from the service provider.
+   * @param expectedStatus The status of a successful response.
+   * @return The resource.
+   * @throws SCIMException If the response indicates an error or the resource
+   *                       could not be read.
+   */
+  private R readResource(final ClientResponse response,
+                         final Response.Status expectedStatus)
+      throws SCIMException
+  {
+    InputStream entity = response.getEntity(InputStream.class);
+
+    if(response.getStatusType() == expectedStatus)
+    {
+      R resource = unmarshaller.unmarshal(entity, resourceDescriptor,
+          resourceFactory);
+      addMissingMetaData(response, resource);
+      return resource;
+    }
+    else
+    {
+      throw createErrorResponseException(response, entity);
+    }
+  }
+
+
+
+  /**
+   * Read the resources from a query response.
+   *
+   * @param response The response from the service provider.
+   * @return The resources.
+   * @throws SCIMException If the response indicates an error or the resources
+   *                       could not be read.
+   */
+  private Resources<R> readResources(final ClientResponse response)
+      throws SCIMException
+  {
+    InputStream entity = response.getEntity(InputStream.class);
+
+    if(response.getStatusType() == Response.Status.OK)
+    {
+      return unmarshaller.unmarshalResources(entity, resourceDescriptor,
+          resourceFactory);
+    }
+    else
+    {
+      throw createErrorResponseException(response, entity);
+    }
+  }
+
+
+
+  /**
+   * Check the response to a delete request.
+   *
+   * @param response The response from the service provider.
+   * @throws SCIMException If the response indicates an error.
+   * @throws IOException If the response content could not be consumed.
+   */
+  private void checkDeleteResponse(final ClientResponse response)
+      throws SCIMException, IOException
+  {
+    if(response.getStatusType() != Response.Status.OK)
+    {
+      InputStream entity = response.getEntity(InputStream.class);
+      throw createErrorResponseException(response, entity);
+    }
+    else
+    {
+      response.consumeContent();
+    }
+  }
+
+
+
+  /**
+   * Convert an exception from a request into a SCIMException.
+   *
+   * @param t The exception.
+   * @return The SCIMException.
+   */
+  static SCIMException toSCIMException(final Throwable t)
+  {
+    Throwable cause = t;
+    if (cause instanceof CompletionException && cause.getCause() != null)
+    {
+      cause = cause.getCause();
+    }
+
+    if (cause instanceof SCIMException)
+    {
+      return (SCIMException) cause;
+    }
+
+    return SCIMException.createException(
+        getStatusCode(cause), getExceptionMessage(cause),
+        cause instanceof Exception ? (Exception) cause : null);
+  }
+
+
+
   /**
    * Add the attributes query parameter to the client resource request.
    *
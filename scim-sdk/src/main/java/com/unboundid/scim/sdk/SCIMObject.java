@@ -45,7 +45,9 @@ public class SCIMObject
 
   /**
    * The set of attributes in this object grouped by the URI of the schema to
-   * which they belong.
+   * which they belong. The keys are in lower case, and are the interned
+   * strings from the attribute descriptors for attributes that were added to
+   * this object, so that lookups by descriptor compare keys by reference.
    */
   private final HashMap<String,LinkedHashMap<String,SCIMAttribute>> attributes;
 
@@ -145,6 +147,45 @@ public class SCIMObject
 
 
 
+  /**
+   * Retrieves the attribute described by the provided attribute descriptor.
+   * This is more efficient than retrieving the attribute by schema and name,
+   * since the descriptor provides the lower case schema and name.
+   *
+   * @param descriptor  The descriptor of the attribute to retrieve. It must
+   *                    not be {@code null}.
+   *
+   * @return  The requested attribute from this object, or {@code null} if the
+   *          specified attribute is not present in this object.
+   */
+  public SCIMAttribute getAttribute(final AttributeDescriptor descriptor)
+  {
+    return getAttributeLowerCase(descriptor.getLowerCaseSchema(),
+                                 descriptor.getLowerCaseName());
+  }
+
+
+
+  /**
+   * Retrieves the attribute with the specified lower case schema and name.
+   * This avoids converting the schema and name to lower case when they are
+   * already known to be in lower case.
+   *
+   * @param lowerSchema  The lower case schema URI of the attribute.
+   * @param lowerName    The lower case name of the attribute.
+   *
+   * @return  The attribute, or {@code null} if the attribute is not present.
+   */
+  SCIMAttribute getAttributeLowerCase(final String lowerSchema,
+                                      final String lowerName)
+  {
+    final LinkedHashMap<String,SCIMAttribute> attrs =
+        attributes.get(lowerSchema);
+    return attrs == null ? null : attrs.get(lowerName);
+  }
+
+
+
   /**
    * Retrieves the set of attributes in this object from the specified schema.
    *
@@ -229,8 +270,9 @@ public class SCIMObject
    */
   public boolean addAttribute(final SCIMAttribute attribute)
   {
-    final String lowerCaseSchema = toLowerCase(attribute.getSchema());
-    final String lowerCaseName = toLowerCase(attribute.getName());
+    final AttributeDescriptor descriptor = attribute.getAttributeDescriptor();
+    final String lowerCaseSchema = descriptor.getLowerCaseSchema();
+    final String lowerCaseName = descriptor.getLowerCaseName();
 
     LinkedHashMap<String,SCIMAttribute> attrs = attributes.get(lowerCaseSchema);
     if (attrs == null)
@@ -264,8 +306,9 @@ public class SCIMObject
    */
   public void setAttribute(final SCIMAttribute attribute)
   {
-    final String lowerCaseSchema = toLowerCase(attribute.getSchema());
-    final String lowerCaseName = toLowerCase(attribute.getName());
+    final AttributeDescriptor descriptor = attribute.getAttributeDescriptor();
+    final String lowerCaseSchema = descriptor.getLowerCaseSchema();
+    final String lowerCaseName = descriptor.getLowerCaseName();
 
     LinkedHashMap<String,SCIMAttribute> attrs = attributes.get(lowerCaseSchema);
     if (attrs == null)
@@ -395,6 +438,8 @@ public class SCIMObject
 
   /**
    * Determine whether this object matches the provided filter parameters.
+   * When many objects are to be tested against the same filter, it is more
+   * efficient to compile the filter with {@link FilterCompiler}.
    *
    * @param filter  The filter parameters to compare against the object.
    *
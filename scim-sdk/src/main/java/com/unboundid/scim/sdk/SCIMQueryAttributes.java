@@ -242,8 +242,7 @@ public class SCIMQueryAttributes
       final AttributeDescriptor attributeDescriptor = entry.getKey();
 
       final SCIMAttribute a =
-          scimObject.getAttribute(attributeDescriptor.getSchema(),
-                                  attributeDescriptor.getName());
+          scimObject.getAttribute(attributeDescriptor);
       if (a != null)
       {
         final SCIMAttribute paredAttribute = pareAttribute(a);
@@ -350,9 +349,16 @@ public class SCIMQueryAttributes
       return new SCIMQueryAttributes(null);
     }
 
+    // The sub-attribute sets are copied so that neither of the merged
+    // instances is modified, since they may be shared by other requests.
     final Map<AttributeDescriptor,Set<AttributeDescriptor>> merged =
-        new HashMap<AttributeDescriptor, Set<AttributeDescriptor>>(
-            this.descriptors);
+        new HashMap<AttributeDescriptor, Set<AttributeDescriptor>>();
+    for (final Map.Entry<AttributeDescriptor,Set<AttributeDescriptor>> e :
+        this.descriptors.entrySet())
+    {
+      merged.put(e.getKey(),
+                 new HashSet<AttributeDescriptor>(e.getValue()));
+    }
 
     for (final Map.Entry<AttributeDescriptor,Set<AttributeDescriptor>> e :
         that.descriptors.entrySet())
@@ -363,7 +369,8 @@ public class SCIMQueryAttributes
       Set<AttributeDescriptor> thisSet = merged.get(attributeDescriptor);
       if (thisSet == null)
       {
-        merged.put(attributeDescriptor, thatSet);
+        merged.put(attributeDescriptor,
+                   new HashSet<AttributeDescriptor>(thatSet));
       }
       else
       {
@@ -24,13 +24,22 @@ import com.unboundid.scim.data.ServiceProviderConfig;
 import com.unboundid.scim.data.UserResource;
 import com.unboundid.scim.schema.CoreSchema;
 import com.unboundid.scim.schema.ResourceDescriptor;
+import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 import com.unboundid.scim.facade.org.apache.wink.client.RestClient;
 import org.glassfish.jersey.apache.connector.ApacheClientProperties;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.apache.connector
+           .ApacheHttpClientBuilderConfigurator;
 import org.glassfish.jersey.client.ClientConfig;
 
 import jakarta.ws.rs.client.ClientRequestContext;
@@ -39,6 +48,10 @@ import jakarta.ws.rs.core.MediaType;
 import java.io.IOException;
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.unboundid.scim.schema.CoreSchema
                  .createCustomGroupResourceDescriptor;
@@ -55,12 +68,27 @@ public class SCIMService
 {
   private final RestClient client;
   private final URI baseURL;
+  private final PoolingHttpClientConnectionManager connectionManager;
 
   private MediaType acceptType = MediaType.APPLICATION_JSON_TYPE;
   private MediaType contentType = MediaType.APPLICATION_JSON_TYPE;
   private final boolean[] overrides = new boolean[3];
   private String userAgent;
   private boolean useUrlSuffix;
+  private final AsyncRequestLimiter asyncRequestLimiter =
+      new AsyncRequestLimiter(100);
+  private volatile Executor asyncExecutor = ForkJoinPool.commonPool();
+  private final ResourceDescriptorCache resourceDescriptorCache =
+      new ResourceDescriptorCache(new ResourceDescriptorCache.Loader()
+      {
+        public Resources<ResourceDescriptor> query(
+            final String filter, final String etag,
+            final AtomicReference<String> etagRef)
+            throws SCIMException
+        {
+          return getResourceSchemaEndpoint().query(filter, etag, etagRef);
+        }
+      }, 0);
 
   /**
    * Constructs a new SCIMService from a url and a jersey client config.
@@ -72,6 +100,17 @@ public class SCIMService
   {
     this.baseURL = baseUrl;
     this.client = new RestClient(clientConfig);
+
+    final Object mgr =
+        clientConfig.getProperty(ApacheClientProperties.CONNECTION_MANAGER);
+    if (mgr instanceof PoolingHttpClientConnectionManager)
+    {
+      this.connectionManager = (PoolingHttpClientConnectionManager) mgr;
+    }
+    else
+    {
+      this.connectionManager = null;
+    }
   }
 
   /**
@@ -84,6 +123,17 @@ public class SCIMService
     this(baseUrl, createDefaultClientConfig());
   }
 
+  /**
+   * Constructs a new SCIMService using the provided connection pool settings.
+   *
+   * @param baseUrl The SCIM Service Provider URL.
+   * @param poolConfig The connection pool settings.
+   */
+  public SCIMService(final URI baseUrl, final ConnectionPoolConfig poolConfig)
+  {
+    this(baseUrl, createClientConfig(poolConfig));
+  }
+
   /**
    * Constructs a new SCIMService with OAuth authentication support
    * using the provided credentials.
@@ -92,7 +142,20 @@ public class SCIMService
    * @param oAuthToken The OAuth token.
    */
   public SCIMService(final URI baseUrl, final OAuthToken oAuthToken) {
-    this(baseUrl, createDefaultClientConfig().register(
+    this(baseUrl, oAuthToken, new ConnectionPoolConfig());
+  }
+
+  /**
+   * Constructs a new SCIMService with OAuth authentication support
+   * using the provided credentials and connection pool settings.
+
+   * @param baseUrl The SCIM Service Provider URL.
+   * @param oAuthToken The OAuth token.
+   * @param poolConfig The connection pool settings.
+   */
+  public SCIMService(final URI baseUrl, final OAuthToken oAuthToken,
+                     final ConnectionPoolConfig poolConfig) {
+    this(baseUrl, createClientConfig(poolConfig).register(
         new ClientRequestFilter()
         {
           public void filter(final ClientRequestContext clientRequestContext)
@@ -124,7 +187,23 @@ public class SCIMService
   public SCIMService(final URI baseUrl, final String username,
                      final String password)
   {
-    this(baseUrl, createDefaultClientConfig().
+    this(baseUrl, username, password, new ConnectionPoolConfig());
+  }
+
+  /**
+   * Constructs a new SCIMService with basic authentication support
+   * using the provided credentials and connection pool settings.
+   *
+   * @param baseUrl The SCIM Service Provider URL.
+   * @param username The username.
+   * @param password The password.
+   * @param poolConfig The connection pool settings.
+   */
+  public SCIMService(final URI baseUrl, final String username,
+                     final String password,
+                     final ConnectionPoolConfig poolConfig)
+  {
+    this(baseUrl, createClientConfig(poolConfig).
         property(ApacheClientProperties.CREDENTIALS_PROVIDER,
             createBasicCredentialsProvider(username, password)).
         property(ApacheClientProperties.PREEMPTIVE_BASIC_AUTHENTICATION, true));
@@ -269,7 +348,9 @@ public class SCIMService
 
   /**
    * Retrieves the ResourceDescriptor for the specified resource from the
-   * SCIM service provider.
+   * SCIM service provider. If resource descriptor caching has been enabled
+   * with {@link #setResourceDescriptorCacheTTLMillis}, the returned instance
+   * is shared and must not be modified.
    *
    * @param resourceName The name of the resource.
    * @param schema The schema URN of the resource or <code>null</code>
@@ -282,14 +363,13 @@ public class SCIMService
                                                   final String schema)
       throws SCIMException
   {
-    final SCIMEndpoint<ResourceDescriptor> endpoint =
-        getResourceSchemaEndpoint();
     String filter = "name eq \"" + resourceName + "\"";
     if(schema != null)
     {
       filter += " and schema eq \"" + schema + "\"";
     }
-    final Resources<ResourceDescriptor> resources = endpoint.query(filter);
+    final Resources<ResourceDescriptor> resources =
+        resourceDescriptorCache.query(filter);
     if(resources.getTotalResults() == 0)
     {
       return null;
@@ -301,15 +381,14 @@ public class SCIMService
               "with resource name '" + resourceName);
     }
 
-    ResourceDescriptor descriptor = resources.iterator().next();
-    descriptor.setStrictMode(false);
-
-    return descriptor;
+    return resources.iterator().next();
   }
 
   /**
    * Retrieves the ResourceDescriptor for the specified endpoint from the
-   * SCIM service provider.
+   * SCIM service provider. If resource descriptor caching has been enabled
+   * with {@link #setResourceDescriptorCacheTTLMillis}, the returned instance
+   * is shared and must not be modified.
    *
    * @param endpoint The name of the SCIM endpoint, e.g. "Users".
    * @return The ResourceDescriptor for the specified endpoint or
@@ -320,12 +399,10 @@ public class SCIMService
       final String endpoint)
       throws SCIMException
   {
-    final SCIMEndpoint<ResourceDescriptor> schemaEndpoint =
-        getResourceSchemaEndpoint();
     String filter = "endpoint eq \"" + endpoint + "\"";
 
     final Resources<ResourceDescriptor> resources =
-        schemaEndpoint.query(filter);
+        resourceDescriptorCache.query(filter);
     if(resources.getTotalResults() == 0)
     {
       return null;
@@ -337,10 +414,46 @@ public class SCIMService
               "for endpoint '" + endpoint);
     }
 
-    ResourceDescriptor descriptor = resources.iterator().next();
-    descriptor.setStrictMode(false);
+    return resources.iterator().next();
+  }
 
-    return descriptor;
+  /**
+   * Retrieves the length of time in milliseconds for which resource
+   * descriptors retrieved from the service provider are cached before they
+   * are revalidated. The default is zero, which means that resource
+   * descriptors are not cached.
+   *
+   * @return The resource descriptor cache time-to-live in milliseconds.
+   */
+  public long getResourceDescriptorCacheTTLMillis()
+  {
+    return resourceDescriptorCache.getTimeToLiveMillis();
+  }
+
+  /**
+   * Sets the length of time in milliseconds for which resource descriptors
+   * retrieved from the service provider are cached before they are
+   * revalidated. Revalidation uses a conditional request, so the resource
+   * descriptors are only retrieved again if they have changed. Cached
+   * resource descriptors are shared by all callers and must not be modified.
+   *
+   * @param ttlMillis The resource descriptor cache time-to-live in
+   *                  milliseconds. A value of zero disables the cache, so
+   *                  that new resource descriptors are retrieved each time
+   *                  they are requested.
+   */
+  public void setResourceDescriptorCacheTTLMillis(final long ttlMillis)
+  {
+    resourceDescriptorCache.setTimeToLiveMillis(ttlMillis);
+  }
+
+  /**
+   * Removes all of the cached resource descriptors, so that they are
+   * retrieved from the service provider when they are next requested.
+   */
+  public void invalidateResourceDescriptors()
+  {
+    resourceDescriptorCache.invalidate();
   }
 
   /**
@@ -568,18 +681,171 @@ public class SCIMService
     this.useUrlSuffix = useUrlSuffix;
   }
 
+  /**
+   * Retrieves the maximum number of asynchronous requests that may be in
+   * progress at once across all of the SCIMEndpoints obtained from this
+   * SCIMService. The default is 100.
+   *
+   * @return The maximum number of asynchronous requests in progress.
+   */
+  public int getMaxAsyncRequests()
+  {
+    return asyncRequestLimiter.getMaxInProgress();
+  }
+
+  /**
+   * Sets the maximum number of asynchronous requests that may be in progress
+   * at once across all of the SCIMEndpoints obtained from this SCIMService.
+   * Further requests are queued, without blocking the calling thread, until
+   * earlier requests complete. This should not normally exceed the maximum
+   * number of pooled connections.
+   *
+   * @param maxAsyncRequests The maximum number of asynchronous requests in
+   *                         progress.
+   */
+  public void setMaxAsyncRequests(final int maxAsyncRequests)
+  {
+    asyncRequestLimiter.setMaxInProgress(maxAsyncRequests);
+  }
+
+  /**
+   * Retrieves the number of asynchronous requests that are waiting to be
+   * started because the maximum number are already in progress.
+   *
+   * @return The number of asynchronous requests waiting to be started.
+   */
+  public int getPendingAsyncRequests()
+  {
+    return asyncRequestLimiter.getWaiting();
+  }
+
+  /**
+   * Sets the executor used to process the responses to asynchronous requests,
+   * including unmarshalling the response content. The common fork-join pool
+   * is used by default.
+   *
+   * @param asyncExecutor The executor used to process the responses to
+   *                      asynchronous requests.
+   */
+  public void setAsyncExecutor(final Executor asyncExecutor)
+  {
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  /**
+   * Retrieves the executor used to process the responses to asynchronous
+   * requests.
+   *
+   * @return The executor used to process the responses to asynchronous
+   *         requests.
+   */
+  Executor getAsyncExecutor()
+  {
+    return asyncExecutor;
+  }
+
+  /**
+   * Retrieves the limiter for asynchronous requests.
+   *
+   * @return The limiter for asynchronous requests.
+   */
+  AsyncRequestLimiter getAsyncRequestLimiter()
+  {
+    return asyncRequestLimiter;
+  }
+
+  /**
+   * Retrieves the current statistics for the pool of HTTP connections shared
+   * by the SCIMEndpoints obtained from this SCIMService. This may be used to
+   * determine whether the pool is sized appropriately: a non-zero number of
+   * pending requests indicates that requests are waiting for a connection.
+   *
+   * @return The number of leased, available and pending connections and the
+   *         maximum number of connections, or {@code null} if the client
+   *         config used by this SCIMService did not provide a
+   *         PoolingHttpClientConnectionManager.
+   */
+  public PoolStats getConnectionPoolStats()
+  {
+    if (connectionManager == null)
+    {
+      return null;
+    }
+
+    return connectionManager.getTotalStats();
+  }
+
   /**
    * Create a new ClientConfig with the default settings.
    *
    * @return A new ClientConfig with the default settings.
    */
   private static ClientConfig createDefaultClientConfig() {
+    return createClientConfig(new ConnectionPoolConfig());
+  }
+
+  /**
+   * Create a new ClientConfig that uses a pool of HTTP connections with the
+   * provided settings. The returned config may be customized further, for
+   * example to provide credentials, before being used to construct a
+   * SCIMService.
+   *
+   * @param poolConfig The connection pool settings.
+   * @return A new ClientConfig using the connection pool settings.
+   */
+  public static ClientConfig createClientConfig(
+      final ConnectionPoolConfig poolConfig) {
     final PoolingHttpClientConnectionManager mgr =
         new PoolingHttpClientConnectionManager();
-    mgr.setMaxTotal(100);
-    mgr.setDefaultMaxPerRoute(100);
+    mgr.setMaxTotal(poolConfig.getMaxTotalConnections());
+    mgr.setDefaultMaxPerRoute(poolConfig.getMaxConnectionsPerRoute());
+
+    final RequestConfig requestConfig = RequestConfig.custom().
+        setConnectTimeout(poolConfig.getConnectTimeoutMillis()).
+        setSocketTimeout(poolConfig.getSocketTimeoutMillis()).
+        setConnectionRequestTimeout(
+            poolConfig.getConnectionRequestTimeoutMillis()).
+        build();
 
     ClientConfig jerseyConfig = new ClientConfig();
+    jerseyConfig.property(ApacheClientProperties.CONNECTION_MANAGER, mgr);
+    jerseyConfig.property(ApacheClientProperties.REQUEST_CONFIG, requestConfig);
+
+    final long keepAliveMillis = poolConfig.getKeepAliveMillis();
+    if (keepAliveMillis > 0)
+    {
+      jerseyConfig.property(ApacheClientProperties.KEEPALIVE_STRATEGY,
+          new ConnectionKeepAliveStrategy()
+          {
+            public long getKeepAliveDuration(final HttpResponse response,
+                                             final HttpContext context)
+            {
+              final long duration = DefaultConnectionKeepAliveStrategy.
+                  INSTANCE.getKeepAliveDuration(response, context);
+              if (duration > 0 && duration < keepAliveMillis)
+              {
+                return duration;
+              }
+              return keepAliveMillis;
+            }
+          });
+    }
+
+    final long maxIdleMillis = poolConfig.getMaxIdleMillis();
+    if (maxIdleMillis > 0)
+    {
+      jerseyConfig.register(new ApacheHttpClientBuilderConfigurator()
+      {
+        public HttpClientBuilder configure(
+            final HttpClientBuilder httpClientBuilder)
+        {
+          return httpClientBuilder.
+              evictExpiredConnections().
+              evictIdleConnections(maxIdleMillis, TimeUnit.MILLISECONDS);
+        }
+      });
+    }
+
     ApacheConnectorProvider connectorProvider = new ApacheConnectorProvider();
     jerseyConfig.connectorProvider(connectorProvider);
     return jerseyConfig;
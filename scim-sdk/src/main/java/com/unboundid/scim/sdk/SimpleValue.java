@@ -18,6 +18,7 @@
 package com.unboundid.scim.sdk;
 
 import jakarta.xml.bind.DatatypeConverter;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -27,7 +28,9 @@ import java.util.TimeZone;
 
 /**
  * This class represents a SCIM simple value. Simple values can be String,
- * Boolean, DateTime or Binary.
+ * Boolean, DateTime or Binary. The canonical String or binary form is kept
+ * for marshalling and comparison, and the parsed form most recently
+ * retrieved is cached alongside it.
  */
 public class SimpleValue
 {
@@ -41,6 +44,15 @@ public class SimpleValue
    */
   private final Object value;
 
+  /**
+   * The most recently requested parsed form of the value, or {@code null} if
+   * the value has not yet been parsed. This is a Boolean, Long, Double or
+   * Date for a String value, or the base64 encoded String for a binary value,
+   * so that repeated retrievals of the same form do not parse the value
+   * again.
+   */
+  private volatile Object parsedValue;
+
 
 
   /**
@@ -63,6 +75,7 @@ public class SimpleValue
   public SimpleValue(final Boolean booleanValue)
   {
     this.value = booleanValue.toString();
+    this.parsedValue = booleanValue;
   }
 
 
@@ -77,6 +90,7 @@ public class SimpleValue
     final Calendar calendar = new GregorianCalendar(utcTimeZone);
     calendar.setTime(dateValue);
     this.value = DatatypeConverter.printDateTime(calendar);
+    this.parsedValue = new Date(dateValue.getTime());
   }
 
 
@@ -88,6 +102,7 @@ public class SimpleValue
   public SimpleValue(final Long longValue)
   {
     this.value = longValue.toString();
+    this.parsedValue = longValue;
   }
 
 
@@ -99,6 +114,7 @@ public class SimpleValue
   public SimpleValue(final Integer intValue)
   {
     this.value = intValue.toString();
+    this.parsedValue = Long.valueOf(intValue.longValue());
   }
 
   /**
@@ -109,6 +125,7 @@ public class SimpleValue
   public SimpleValue(final Double doubleValue)
   {
     this.value = doubleValue.toString();
+    this.parsedValue = doubleValue;
   }
 
 
@@ -133,7 +150,15 @@ public class SimpleValue
   {
     if (value instanceof byte[])
     {
-      return DatatypeConverter.printBase64Binary((byte[])value);
+      final Object parsed = parsedValue;
+      if (parsed instanceof String)
+      {
+        return (String)parsed;
+      }
+
+      final String base64 = DatatypeConverter.printBase64Binary((byte[])value);
+      parsedValue = base64;
+      return base64;
     }
     else
     {
@@ -150,7 +175,15 @@ public class SimpleValue
    */
   public Boolean getBooleanValue()
   {
-    return Boolean.valueOf((String)value);
+    final Object parsed = parsedValue;
+    if (parsed instanceof Boolean)
+    {
+      return (Boolean)parsed;
+    }
+
+    final Boolean booleanValue = Boolean.valueOf((String)value);
+    parsedValue = booleanValue;
+    return booleanValue;
   }
 
 
@@ -162,7 +195,15 @@ public class SimpleValue
    */
   public Double getDoubleValue()
   {
-    return Double.valueOf((String)value);
+    final Object parsed = parsedValue;
+    if (parsed instanceof Double)
+    {
+      return (Double)parsed;
+    }
+
+    final Double doubleValue = Double.valueOf((String)value);
+    parsedValue = doubleValue;
+    return doubleValue;
   }
 
 
@@ -174,7 +215,15 @@ public class SimpleValue
    */
   public Long getLongValue()
   {
-    return Long.valueOf((String)value);
+    final Object parsed = parsedValue;
+    if (parsed instanceof Long)
+    {
+      return (Long)parsed;
+    }
+
+    final Long longValue = Long.valueOf((String)value);
+    parsedValue = longValue;
+    return longValue;
   }
 
 
@@ -182,11 +231,34 @@ public class SimpleValue
   /**
    * Retrieves the simple value as a date.
    *
-   * @return  The simple value as a date.
+   * @return  The simple value as a date. A new Date is returned each time
+   *          since Date is mutable, but the value is only parsed once.
    */
   public Date getDateValue()
   {
-    return DatatypeConverter.parseDateTime((String)value).getTime();
+    return new Date(getDateMillis());
+  }
+
+
+
+  /**
+   * Retrieves the simple value as a date, in milliseconds since the epoch.
+   * This avoids creating a new Date when comparing date values.
+   *
+   * @return  The simple value as a date, in milliseconds since the epoch.
+   */
+  long getDateMillis()
+  {
+    final Object parsed = parsedValue;
+    if (parsed instanceof Date)
+    {
+      return ((Date)parsed).getTime();
+    }
+
+    final Date dateValue =
+        DatatypeConverter.parseDateTime((String)value).getTime();
+    parsedValue = dateValue;
+    return dateValue.getTime();
   }
 
 
@@ -230,6 +302,10 @@ public class SimpleValue
 
     SimpleValue that = (SimpleValue) o;
 
+    if (value instanceof byte[] && that.value instanceof byte[]) {
+      return Arrays.equals((byte[])value, (byte[])that.value);
+    }
+
     if (!value.equals(that.value)) {
       return false;
     }
@@ -243,6 +319,9 @@ public class SimpleValue
    */
   @Override
   public int hashCode() {
+    if (value instanceof byte[]) {
+      return Arrays.hashCode((byte[])value);
+    }
     return value.hashCode();
   }
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Level;
+
+
+
+/**
+ * An output stream that keeps the content in memory up to a threshold, and
+ * moves it to a temporary file if the threshold is exceeded.
+ */
+final class SpillOutputStream extends OutputStream
+{
+  /**
+   * The maximum number of bytes to keep in memory.
+   */
+  private final int threshold;
+
+  /**
+   * The prefix to use for the name of the temporary file.
+   */
+  private final String prefix;
+
+  /**
+   * The suffix to use for the name of the temporary file.
+   */
+  private final String suffix;
+
+  /**
+   * The directory in which to create the temporary file, or {@code null}
+   * for the system dependent default temporary-file directory.
+   */
+  private final File directory;
+
+  /**
+   * The content held in memory, or {@code null} if the content has been
+   * moved to the temporary file.
+   */
+  private ByteArrayOutputStream memory;
+
+  /**
+   * The temporary file, or {@code null} if the content is held in memory.
+   */
+  private File file;
+
+  /**
+   * The output stream writing to the temporary file, or {@code null} if the
+   * content is held in memory.
+   */
+  private OutputStream fileOutputStream;
+
+
+
+  /**
+   * Create a new output stream.
+   *
+   * @param threshold  The maximum number of bytes to keep in memory.
+   * @param prefix     The prefix to use for the name of the temporary file.
+   * @param suffix     The suffix to use for the name of the temporary file.
+   * @param directory  The directory in which to create the temporary file, or
+   *                   {@code null} for the system dependent default
+   *                   temporary-file directory.
+   */
+  SpillOutputStream(final int threshold, final String prefix,
+                    final String suffix, final File directory)
+  {
+    this.threshold = threshold;
+    this.prefix    = prefix;
+    this.suffix    = suffix;
+    this.directory = directory;
+    this.memory    = new ByteArrayOutputStream(Math.min(threshold, 8192));
+  }
+
+
+
+  /**
+   * Retrieve the temporary file holding the content.
+   *
+   * @return  The temporary file holding the content, or {@code null} if the
+   *          content is held in memory.
+   */
+  File getFile()
+  {
+    return file;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(final int b)
+      throws IOException
+  {
+    getOutputStream(1).write(b);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(final byte[] b, final int off, final int len)
+      throws IOException
+  {
+    getOutputStream(len).write(b, off, len);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void flush()
+      throws IOException
+  {
+    if (fileOutputStream != null)
+    {
+      fileOutputStream.flush();
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close()
+      throws IOException
+  {
+    if (fileOutputStream != null)
+    {
+      fileOutputStream.close();
+    }
+  }
+
+
+
+  /**
+   * Copy the content to the provided output stream. This stream must have
+   * been closed first.
+   *
+   * @param outputStream  The output stream to which the content is copied.
+   *
+   * @throws IOException  If the content could not be copied.
+   */
+  void writeTo(final OutputStream outputStream)
+      throws IOException
+  {
+    if (memory != null)
+    {
+      memory.writeTo(outputStream);
+      return;
+    }
+
+    final InputStream inputStream = new FileInputStream(file);
+    try
+    {
+      final byte[] buffer = new byte[8192];
+      int bytesRead;
+      while ((bytesRead = inputStream.read(buffer)) != -1)
+      {
+        outputStream.write(buffer, 0, bytesRead);
+      }
+    }
+    finally
+    {
+      inputStream.close();
+    }
+  }
+
+
+
+  /**
+   * Release the content, deleting the temporary file if there is one.
+   */
+  void delete()
+  {
+    memory = null;
+    if (file == null)
+    {
+      return;
+    }
+
+    if (fileOutputStream != null)
+    {
+      try
+      {
+        fileOutputStream.close();
+      }
+      catch (IOException e)
+      {
+        Debug.debugException(e);
+      }
+    }
+
+    if (file.exists() && !file.delete())
+    {
+      Debug.debug(Level.WARNING, DebugType.OTHER,
+                  "Could not delete temporary file " +
+                  file.getAbsolutePath());
+    }
+  }
+
+
+
+  /**
+   * Retrieve the stream to which content of the provided length should be
+   * written, moving the content to the temporary file if the threshold would
+   * be exceeded.
+   *
+   * @param length  The number of bytes to be written.
+   *
+   * @return  The stream to which the content should be written.
+   *
+   * @throws IOException  If the temporary file could not be created.
+   */
+  private OutputStream getOutputStream(final int length)
+      throws IOException
+  {
+    if (fileOutputStream != null)
+    {
+      return fileOutputStream;
+    }
+    if (memory == null)
+    {
+      throw new IOException("The output stream has been deleted");
+    }
+    if ((long) memory.size() + length <= threshold)
+    {
+      return memory;
+    }
+
+    file = File.createTempFile(prefix, suffix, directory);
+    file.deleteOnExit();
+    fileOutputStream = new BufferedOutputStream(new FileOutputStream(file));
+    memory.writeTo(fileOutputStream);
+    memory = null;
+    return fileOutputStream;
+  }
+}
@@ -38,7 +38,8 @@ public final class StaticUtils
 
 
   /**
-   * Retrieves an all-lowercase version of the provided string.
+   * Retrieves an all-lowercase version of the provided string. The provided
+   * string itself is returned if it is already all-lowercase ASCII.
    *
    * @param  s  The string for which to retrieve the lowercase version.
    *
@@ -52,8 +53,23 @@ public final class StaticUtils
     }
 
     final int length = s.length();
+    int firstChange = 0;
+    while (firstChange < length)
+    {
+      final char c = s.charAt(firstChange);
+      if ((c >= 'A' && c <= 'Z') || c > 0x7F)
+      {
+        break;
+      }
+      firstChange++;
+    }
+    if (firstChange == length)
+    {
+      return s;
+    }
+
     final char[] charArray = s.toCharArray();
-    for (int i=0; i < length; i++)
+    for (int i=firstChange; i < length; i++)
     {
       switch (charArray[i])
       {
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import com.unboundid.scim.data.BaseResource;
+import com.unboundid.scim.schema.ResourceDescriptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+
+
+/**
+ * Represents a list of SCIM resources returned by the service provider from
+ * a query/listing request, where the resources are produced one at a time
+ * (for example, as entries are returned from a directory search) rather than
+ * being collected up front. A stream marshaller that supports streaming
+ * writes each resource as soon as it is produced, so the complete list is
+ * never held in memory. Any other access to the resources causes them to be
+ * collected into a list first, as for a regular {@link Resources} response.
+ * <p>
+ * The resources may only be produced once, so a response that has already
+ * been streamed cannot subsequently be iterated.
+ *
+ * @param <R> The type of resources in the response.
+ */
+public abstract class StreamingResources<R extends BaseResource>
+    extends Resources<R>
+{
+  /**
+   * The handler interface used to receive resources as they are produced.
+   *
+   * @param <R> The type of resources handled.
+   */
+  public interface ResourceHandler<R extends BaseResource>
+  {
+    /**
+     * Handle a resource that has been produced.
+     *
+     * @param resource  The resource that has been produced.
+     *
+     * @throws SCIMException  If the resource could not be handled. No further
+     *                        resources will be provided to the handler.
+     */
+    void handleResource(R resource) throws SCIMException;
+  }
+
+  /**
+   * The resource descriptor of the resources in this response.
+   */
+  private final ResourceDescriptor resourceDescriptor;
+
+  /**
+   * The total number of results matching the query, available after the
+   * resources have been produced.
+   */
+  private long totalResults;
+
+  /**
+   * The 1-based index of the first result, available after the resources
+   * have been produced.
+   */
+  private long startIndex = 1;
+
+  /**
+   * The number of resources produced.
+   */
+  private int itemsPerPage;
+
+  /**
+   * Indicates whether the resources have been produced.
+   */
+  private boolean produced;
+
+  /**
+   * The collected resources, or {@code null} if the resources have not been
+   * collected.
+   */
+  private List<R> resourceList;
+
+
+
+  /**
+   * Create a new streaming resources response.
+   *
+   * @param resourceDescriptor  The resource descriptor of the resources in
+   *                            this response.
+   */
+  protected StreamingResources(final ResourceDescriptor resourceDescriptor)
+  {
+    super(Collections.<R>emptyList());
+    this.resourceDescriptor = resourceDescriptor;
+  }
+
+
+
+  /**
+   * Produce the resources for this response, providing each one to the
+   * given handler as it becomes available. Implementations must call
+   * {@link #setTotalResults} and {@link #setStartIndex} before returning.
+   *
+   * @param handler  The handler to receive the resources.
+   *
+   * @throws SCIMException  If an error occurs while producing the resources.
+   */
+  protected abstract void produceResources(ResourceHandler<R> handler)
+      throws SCIMException;
+
+
+
+  /**
+   * Provide each resource in this response to the given handler as it is
+   * produced. This method may only be called once, and only if the resources
+   * have not already been collected.
+   *
+   * @param handler  The handler to receive the resources.
+   *
+   * @throws SCIMException  If an error occurs while producing or handling
+   *                        the resources.
+   */
+  public synchronized void stream(final ResourceHandler<R> handler)
+      throws SCIMException
+  {
+    if (produced)
+    {
+      throw new IllegalStateException(
+          "The resources in this response have already been produced");
+    }
+    produced = true;
+
+    produceResources(new ResourceHandler<R>()
+    {
+      public void handleResource(final R resource) throws SCIMException
+      {
+        handler.handleResource(resource);
+        itemsPerPage++;
+      }
+    });
+  }
+
+
+
+  /**
+   * Indicates whether the resources in this response have been produced,
+   * either by streaming or by collecting them into a list.
+   *
+   * @return  {@code true} if the resources have been produced.
+   */
+  public synchronized boolean isProduced()
+  {
+    return produced;
+  }
+
+
+
+  /**
+   * Retrieves the resource descriptor of the resources in this response.
+   *
+   * @return  The resource descriptor of the resources in this response.
+   */
+  public ResourceDescriptor getResourceDescriptor()
+  {
+    return resourceDescriptor;
+  }
+
+
+
+  /**
+   * Specifies the total number of results matching the query.
+   *
+   * @param totalResults  The total number of results matching the query.
+   */
+  protected synchronized void setTotalResults(final long totalResults)
+  {
+    this.totalResults = totalResults;
+  }
+
+
+
+  /**
+   * Specifies the 1-based index of the first result in the current set of
+   * search results.
+   *
+   * @param startIndex  The 1-based index of the first result.
+   */
+  protected synchronized void setStartIndex(final long startIndex)
+  {
+    this.startIndex = startIndex;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * If the resources have not yet been produced, they are collected first.
+   */
+  @Override
+  public synchronized long getStartIndex()
+  {
+    collectResources();
+    return startIndex;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * If the resources have not yet been produced, they are collected first.
+   */
+  @Override
+  public synchronized long getTotalResults()
+  {
+    collectResources();
+    return totalResults;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * If the resources have not yet been produced, they are collected first.
+   */
+  @Override
+  public synchronized int getItemsPerPage()
+  {
+    collectResources();
+    return itemsPerPage;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * If the resources have not yet been produced, they are collected first.
+   */
+  @Override
+  public synchronized Iterator<R> iterator()
+  {
+    collectResources();
+    if (resourceList == null)
+    {
+      throw new IllegalStateException(
+          "The resources in this response have already been streamed");
+    }
+    return resourceList.iterator();
+  }
+
+
+
+  /**
+   * Collect the resources into a list if they have not yet been produced.
+   * This may be used to report any error producing the resources before a
+   * response that does not stream them is started.
+   *
+   * @throws SCIMException  If an error occurs while producing the resources.
+   */
+  public synchronized void collect()
+      throws SCIMException
+  {
+    if (produced)
+    {
+      return;
+    }
+
+    final List<R> list = new ArrayList<R>();
+    stream(new ResourceHandler<R>()
+    {
+      public void handleResource(final R resource)
+      {
+        list.add(resource);
+      }
+    });
+    resourceList = list;
+  }
+
+
+
+  /**
+   * Collect the resources into a list if they have not yet been produced.
+   * Any error producing the resources is reported as an unchecked exception
+   * since the accessors of {@link Resources} do not declare one.
+   */
+  private void collectResources()
+  {
+    try
+    {
+      collect();
+    }
+    catch (SCIMException e)
+    {
+      Debug.debugException(e);
+      throw new IllegalStateException(
+          "Unable to produce resources: " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+
+
+/**
+ * This class wraps a {@link SCIMException} in an unchecked exception. It is
+ * thrown where a checked exception is not permitted, such as while iterating
+ * over the resources returned by {@link SCIMEndpoint#queryAll}.
+ */
+public class UncheckedSCIMException extends RuntimeException
+{
+  private static final long serialVersionUID = 6146734386327398211L;
+
+
+
+  /**
+   * Create a new unchecked exception wrapping the provided SCIMException.
+   *
+   * @param cause  The SCIMException to be wrapped.
+   */
+  public UncheckedSCIMException(final SCIMException cause)
+  {
+    super(cause.getMessage(), cause);
+  }
+
+
+
+  /**
+   * Retrieve the wrapped SCIMException.
+   *
+   * @return  The wrapped SCIMException.
+   */
+  @Override
+  public SCIMException getCause()
+  {
+    return (SCIMException) super.getCause();
+  }
+}
@@ -21,14 +21,19 @@ import com.unboundid.scim.data.BulkConfig;
 import com.unboundid.scim.data.ServiceProviderConfig;
 import com.unboundid.scim.marshal.Marshaller;
 import com.unboundid.scim.marshal.Unmarshaller;
+import com.unboundid.scim.marshal.cbor.CborMarshaller;
+import com.unboundid.scim.marshal.cbor.CborUnmarshaller;
 import com.unboundid.scim.marshal.json.JsonMarshaller;
 import com.unboundid.scim.marshal.json.JsonUnmarshaller;
 import com.unboundid.scim.marshal.xml.XmlMarshaller;
 import com.unboundid.scim.marshal.xml.XmlUnmarshaller;
+import com.unboundid.scim.sdk.BulkException;
+import com.unboundid.scim.sdk.BulkOperation;
 import com.unboundid.scim.sdk.BulkStreamResponse;
 import com.unboundid.scim.sdk.Debug;
 import com.unboundid.scim.sdk.DebugType;
 import com.unboundid.scim.sdk.OAuthTokenHandler;
+import com.unboundid.scim.sdk.SCIMConstants;
 import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMResponse;
 import com.unboundid.scim.sdk.ServerErrorException;
@@ -38,11 +43,15 @@ import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.util.logging.Level;
 
 
@@ -93,19 +102,27 @@ public class AbstractBulkResource
   Response postBulk(final RequestContext requestContext,
                     final InputStream inputStream)
   {
+    final ResourceStats stats = application.getStatsForResource(RESOURCE_NAME);
     final Unmarshaller unmarshaller;
     if (requestContext.getConsumeMediaType().equals(
         MediaType.APPLICATION_JSON_TYPE))
     {
       unmarshaller = new JsonUnmarshaller();
-      application.getStatsForResource(RESOURCE_NAME).incrementStat(
-          ResourceStats.POST_CONTENT_JSON);
+      stats.incrementStat(ResourceStats.Operation.POST,
+                          ResourceStats.Outcome.CONTENT_JSON);
+    }
+    else if (requestContext.getConsumeMediaType().equals(
+        SCIMConstants.APPLICATION_CBOR_TYPE))
+    {
+      unmarshaller = new CborUnmarshaller();
+      stats.incrementStat(ResourceStats.Operation.POST,
+                          ResourceStats.Outcome.CONTENT_CBOR);
     }
     else
     {
       unmarshaller = new XmlUnmarshaller();
-      application.getStatsForResource(RESOURCE_NAME).incrementStat(
-          ResourceStats.POST_CONTENT_XML);
+      stats.incrementStat(ResourceStats.Operation.POST,
+                          ResourceStats.Outcome.CONTENT_XML);
     }
 
     Response.ResponseBuilder responseBuilder;
@@ -130,93 +147,58 @@ public class AbstractBulkResource
                  bulkConfig.getMaxPayloadSize() + ")");
       }
 
-      // Fail the request if the maximum concurrent requests would be exceeded.
-      application.acquireBulkRequestPermit();
-      try
+      if (application.isBulkResponseStreaming())
       {
-        // Write the request to a temporary file.
-        final File requestFile = File.createTempFile(
-            "scim-bulk-request-",
-            "." + requestContext.getConsumeMediaType().getSubtype(),
-            application.getTmpDataDir());
-        try
+        // Process the operations while the response is being written.
+        responseBuilder = Response.status(Response.Status.OK);
+        responseBuilder.type(requestContext.getProduceMediaType());
+        responseBuilder.entity(new StreamingOutput()
         {
-          requestFile.deleteOnExit();
-          final FileOutputStream fileOutputStream =
-              new FileOutputStream(requestFile);
-          try
+          public void write(final OutputStream outputStream)
+              throws IOException, WebApplicationException
           {
-            final byte[] buffer = new byte[8192];
-            int bytesRead;
-            long totalBytes = 0;
-            while ((bytesRead = inputStream.read(buffer)) != -1)
+            try
             {
-              totalBytes += bytesRead;
-              if (totalBytes > bulkConfig.getMaxPayloadSize())
-              {
-                throw SCIMException.createException(
-                    413,
-                    "The size of the bulk request exceeds the maxPayloadSize " +
-                    "(" + bulkConfig.getMaxPayloadSize() + ")");
-              }
-              fileOutputStream.write(buffer, 0, bytesRead);
+              executeBulkRequest(requestContext, unmarshaller, bulkConfig,
+                                 inputStream, outputStream)
+                  .marshal(null, outputStream);
+              stats.incrementStat(ResourceStats.Operation.POST,
+                                  ResourceStats.Outcome.SUCCESSFUL);
             }
-          }
-          finally
-          {
-            fileOutputStream.close();
-          }
+            catch (SCIMException e)
+            {
+              Debug.debugException(e);
+              stats.incrementStat(ResourceStats.Operation.POST,
+                                  e.getStatusCode());
 
-          // Write the response to a temporary file.
-          final BulkStreamResponse bulkStreamResponse =
-              new BulkStreamResponse(application, requestContext);
-          try
-          {
-            final BulkContentRequestHandler handler =
-                new BulkContentRequestHandler(application, requestContext,
-                                              application.getBackend(),
-                                              bulkStreamResponse,
-                                              tokenHandler);
-            unmarshaller.bulkUnmarshal(requestFile, bulkConfig, handler);
-
-            // Build the response.
-            responseBuilder = Response.status(Response.Status.OK);
-            setResponseEntity(responseBuilder,
-                              requestContext.getProduceMediaType(),
-                              bulkStreamResponse);
-            application.getStatsForResource(RESOURCE_NAME).incrementStat(
-                ResourceStats.POST_OK);
-          }
-          catch (Exception e)
-          {
-            Debug.debugException(e);
-            bulkStreamResponse.finalizeResponse();
-            throw e;
-          }
-        }
-        finally
-        {
-          if (!requestFile.delete())
-          {
-            Debug.debug(Level.WARNING, DebugType.OTHER,
-                        "Could not delete temporary file " +
-                        requestFile.getAbsolutePath());
+              // This response is only sent if no content has been written.
+              final Response.ResponseBuilder errorBuilder =
+                  Response.status(e.getStatusCode());
+              setResponseEntity(errorBuilder,
+                                requestContext.getProduceMediaType(), e);
+              throw new WebApplicationException(e, errorBuilder.build());
+            }
+            catch (Exception e)
+            {
+              Debug.debugException(e);
+              throw new WebApplicationException(
+                  e, Response.Status.INTERNAL_SERVER_ERROR);
+            }
           }
-        }
+        });
       }
-      catch (SCIMException e)
+      else
       {
-        throw e;
-      }
-      catch (Exception e)
-      {
-        Debug.debugException(e);
-        throw new ServerErrorException(
-            "Error processing bulk request: " + e.getMessage());
-      }
-      finally
-      {
-        application.releaseBulkRequestPermit();
+        final BulkStreamResponse bulkStreamResponse = executeBulkRequest(
+            requestContext, unmarshaller, bulkConfig, inputStream, null);
+
+        // Build the response.
+        responseBuilder = Response.status(Response.Status.OK);
+        setResponseEntity(responseBuilder,
+                          requestContext.getProduceMediaType(),
+                          bulkStreamResponse);
+        stats.incrementStat(ResourceStats.Operation.POST,
+                            ResourceStats.Outcome.SUCCESSFUL);
       }
     }
     catch (SCIMException e)
@@ -226,20 +208,26 @@ public class AbstractBulkResource
       responseBuilder = Response.status(e.getStatusCode());
       setResponseEntity(responseBuilder, requestContext.getProduceMediaType(),
                         e);
-      application.getStatsForResource(RESOURCE_NAME).incrementStat(
-          "post-" + e.getStatusCode());
+      stats.incrementStat(ResourceStats.Operation.POST,
+                          e.getStatusCode());
     }
 
     if (requestContext.getProduceMediaType() == MediaType.APPLICATION_JSON_TYPE)
     {
-      application.getStatsForResource(RESOURCE_NAME).incrementStat(
-          ResourceStats.POST_RESPONSE_JSON);
+      stats.incrementStat(ResourceStats.Operation.POST,
+                          ResourceStats.Outcome.RESPONSE_JSON);
     }
     else if (requestContext.getProduceMediaType() ==
              MediaType.APPLICATION_XML_TYPE)
     {
-      application.getStatsForResource(RESOURCE_NAME).incrementStat(
-          ResourceStats.POST_RESPONSE_XML);
+      stats.incrementStat(ResourceStats.Operation.POST,
+                          ResourceStats.Outcome.RESPONSE_XML);
+    }
+    else if (requestContext.getProduceMediaType().equals(
+             SCIMConstants.APPLICATION_CBOR_TYPE))
+    {
+      stats.incrementStat(ResourceStats.Operation.POST,
+                          ResourceStats.Outcome.RESPONSE_CBOR);
     }
 
     return responseBuilder.build();
@@ -247,6 +235,313 @@ public class AbstractBulkResource
 
 
 
+  /**
+   * Process the operations in a bulk request, failing the request if the
+   * maximum concurrent requests would be exceeded.
+   *
+   * @param requestContext  The request context.
+   * @param unmarshaller    The unmarshaller for the request content.
+   * @param bulkConfig      The bulk configuration.
+   * @param inputStream     The content to be consumed.
+   * @param outputStream    The output stream to which the response is
+   *                        written as the operations complete, or
+   *                        {@code null} if the response should be buffered.
+   *
+   * @return  The bulk response, which must be marshalled to finish it.
+   *
+   * @throws SCIMException  If the request could not be processed.
+   */
+  private BulkStreamResponse executeBulkRequest(
+      final RequestContext requestContext, final Unmarshaller unmarshaller,
+      final BulkConfig bulkConfig, final InputStream inputStream,
+      final OutputStream outputStream)
+      throws SCIMException
+  {
+    // Fail the request if the maximum concurrent requests would be exceeded.
+    application.acquireBulkRequestPermit();
+    try
+    {
+      final BulkStreamResponse bulkStreamResponse;
+      if (outputStream == null)
+      {
+        bulkStreamResponse =
+            new BulkStreamResponse(application, requestContext);
+      }
+      else
+      {
+        bulkStreamResponse =
+            new BulkStreamResponse(requestContext, outputStream);
+      }
+
+      try
+      {
+        if (application.isBulkRequestStreaming())
+        {
+          streamBulkRequest(requestContext, unmarshaller, bulkConfig,
+                            inputStream, bulkStreamResponse);
+        }
+        else
+        {
+          spoolBulkRequest(requestContext, unmarshaller, bulkConfig,
+                           inputStream, bulkStreamResponse);
+        }
+        return bulkStreamResponse;
+      }
+      catch (Exception e)
+      {
+        Debug.debugException(e);
+        bulkStreamResponse.finalizeResponse();
+        throw e;
+      }
+    }
+    catch (SCIMException e)
+    {
+      throw e;
+    }
+    catch (Exception e)
+    {
+      Debug.debugException(e);
+      throw new ServerErrorException(
+          "Error processing bulk request: " + e.getMessage());
+    }
+    finally
+    {
+      application.releaseBulkRequestPermit();
+    }
+  }
+
+
+
+  /**
+   * Process the operations in a bulk request as they are read from the
+   * request content. If the first operation is read before the failOnErrors
+   * value, the request is written to a temporary file and processed from
+   * there instead, so that the failOnErrors value is known before any
+   * operation is processed.
+   *
+   * @param requestContext      The request context.
+   * @param unmarshaller        The unmarshaller for the request content.
+   * @param bulkConfig          The bulk configuration.
+   * @param inputStream         The content to be consumed.
+   * @param bulkStreamResponse  The bulk response to write the operation
+   *                            responses to.
+   *
+   * @throws Exception  If the request could not be processed.
+   */
+  private void streamBulkRequest(
+      final RequestContext requestContext, final Unmarshaller unmarshaller,
+      final BulkConfig bulkConfig, final InputStream inputStream,
+      final BulkStreamResponse bulkStreamResponse)
+      throws Exception
+  {
+    final RecordingInputStream recordingStream =
+        new RecordingInputStream(inputStream);
+    try
+    {
+      processBulkRequest(requestContext, unmarshaller, bulkConfig,
+                         recordingStream, null, bulkStreamResponse);
+    }
+    catch (FailOnErrorsNotReadException e)
+    {
+      Debug.debugException(e);
+      spoolBulkRequest(requestContext, unmarshaller, bulkConfig,
+                       new SequenceInputStream(
+                           recordingStream.getRecordedContent(),
+                           inputStream),
+                       bulkStreamResponse);
+    }
+  }
+
+
+
+  /**
+   * Write the bulk request to a temporary file and process it from there.
+   * The operations are not processed until the entire request has been read
+   * and found to be within the maxPayloadSize.
+   *
+   * @param requestContext      The request context.
+   * @param unmarshaller        The unmarshaller for the request content.
+   * @param bulkConfig          The bulk configuration.
+   * @param inputStream         The content to be consumed.
+   * @param bulkStreamResponse  The bulk response to write the operation
+   *                            responses to.
+   *
+   * @throws Exception  If the request could not be processed.
+   */
+  private void spoolBulkRequest(
+      final RequestContext requestContext, final Unmarshaller unmarshaller,
+      final BulkConfig bulkConfig, final InputStream inputStream,
+      final BulkStreamResponse bulkStreamResponse)
+      throws Exception
+  {
+    // Write the request to a temporary file.
+    final File requestFile = File.createTempFile(
+        "scim-bulk-request-",
+        "." + requestContext.getConsumeMediaType().getSubtype(),
+        application.getTmpDataDir());
+    try
+    {
+      requestFile.deleteOnExit();
+      final FileOutputStream fileOutputStream =
+          new FileOutputStream(requestFile);
+      try
+      {
+        final byte[] buffer = new byte[8192];
+        int bytesRead;
+        long totalBytes = 0;
+        while ((bytesRead = inputStream.read(buffer)) != -1)
+        {
+          totalBytes += bytesRead;
+          if (totalBytes > bulkConfig.getMaxPayloadSize())
+          {
+            throw SCIMException.createException(
+                413,
+                "The size of the bulk request exceeds the maxPayloadSize " +
+                "(" + bulkConfig.getMaxPayloadSize() + ")");
+          }
+          fileOutputStream.write(buffer, 0, bytesRead);
+        }
+      }
+      finally
+      {
+        fileOutputStream.close();
+      }
+
+      processBulkRequest(requestContext, unmarshaller, bulkConfig,
+                         null, requestFile, bulkStreamResponse);
+    }
+    finally
+    {
+      if (!requestFile.delete())
+      {
+        Debug.debug(Level.WARNING, DebugType.OTHER,
+                    "Could not delete temporary file " +
+                    requestFile.getAbsolutePath());
+      }
+    }
+  }
+
+
+
+  /**
+   * Process the operations in a bulk request, either as they are read from
+   * the request content or from a temporary file holding the request.
+   *
+   * @param requestContext      The request context.
+   * @param unmarshaller        The unmarshaller for the request content.
+   * @param bulkConfig          The bulk configuration.
+   * @param inputStream         The content to be consumed, or {@code null}
+   *                            if the request is in a file.
+   * @param requestFile         The file holding the request, or
+   *                            {@code null} if the request is read from the
+   *                            input stream.
+   * @param bulkStreamResponse  The bulk response to write the operation
+   *                            responses to.
+   *
+   * @throws Exception  If the request could not be processed.
+   */
+  private void processBulkRequest(
+      final RequestContext requestContext, final Unmarshaller unmarshaller,
+      final BulkConfig bulkConfig, final RecordingInputStream inputStream,
+      final File requestFile, final BulkStreamResponse bulkStreamResponse)
+      throws Exception
+  {
+    final BulkContentRequestHandler handler;
+    if (requestFile != null)
+    {
+      handler = new BulkContentRequestHandler(application, requestContext,
+                                              application.getBackend(),
+                                              bulkStreamResponse,
+                                              tokenHandler);
+    }
+    else
+    {
+      // The failOnErrors value must be known before the first operation
+      // is processed, or the request is processed from a file instead.
+      handler = new BulkContentRequestHandler(application, requestContext,
+                                              application.getBackend(),
+                                              bulkStreamResponse,
+                                              tokenHandler)
+      {
+        private boolean failOnErrorsRead = false;
+
+        @Override
+        public void handleFailOnErrors(final int failOnErrors)
+        {
+          super.handleFailOnErrors(failOnErrors);
+          failOnErrorsRead = true;
+        }
+
+        @Override
+        public void handleOperation(final int opIndex,
+                                    final BulkOperation bulkOperation)
+            throws BulkException, SCIMException
+        {
+          checkFailOnErrorsRead();
+          super.handleOperation(opIndex, bulkOperation);
+        }
+
+        @Override
+        public boolean handleException(final int opIndex,
+                                       final BulkException bulkException)
+            throws SCIMException
+        {
+          checkFailOnErrorsRead();
+          return super.handleException(opIndex, bulkException);
+        }
+
+        /**
+         * Ensure that the failOnErrors value has been read before an
+         * operation is processed. The content read so far is no longer
+         * needed once an operation has been processed.
+         *
+         * @throws FailOnErrorsNotReadException  If the failOnErrors value
+         *                                       has not been read.
+         */
+        private void checkFailOnErrorsRead()
+            throws FailOnErrorsNotReadException
+        {
+          if (!failOnErrorsRead)
+          {
+            throw new FailOnErrorsNotReadException();
+          }
+          inputStream.stopRecording();
+        }
+      };
+    }
+
+    try
+    {
+      if (requestFile != null)
+      {
+        unmarshaller.bulkUnmarshal(requestFile, bulkConfig, handler);
+      }
+      else
+      {
+        unmarshaller.bulkUnmarshal(inputStream, bulkConfig, handler);
+      }
+    }
+    catch (Exception e)
+    {
+      // Operations that were scheduled must still complete, but a failure
+      // to wait for them must not hide the reason the request failed.
+      try
+      {
+        handler.awaitOperations();
+      }
+      catch (Exception awaitException)
+      {
+        Debug.debugException(awaitException);
+        e.addSuppressed(awaitException);
+      }
+      throw e;
+    }
+
+    handler.awaitOperations();
+  }
+
+
+
   /**
    * Sets the response entity (content) for a SCIM bulk response.
    *
@@ -264,6 +559,10 @@ public class AbstractBulkResource
     {
       marshaller = new JsonMarshaller();
     }
+    else if (mediaType.equals(SCIMConstants.APPLICATION_CBOR_TYPE))
+    {
+      marshaller = new CborMarshaller();
+    }
     else
     {
       marshaller = new XmlMarshaller();
@@ -288,4 +587,143 @@ public class AbstractBulkResource
     };
     builder.entity(output);
   }
+
+
+
+  /**
+   * An input stream that keeps a copy of the content read from the wrapped
+   * stream until it is told to stop recording.
+   */
+  private static final class RecordingInputStream extends FilterInputStream
+  {
+    /**
+     * The content read so far, or {@code null} if recording has stopped.
+     */
+    private ByteArrayOutputStream recordedContent =
+        new ByteArrayOutputStream();
+
+
+
+    /**
+     * Create a new recording input stream.
+     *
+     * @param inputStream  The input stream to be wrapped.
+     */
+    private RecordingInputStream(final InputStream inputStream)
+    {
+      super(inputStream);
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read()
+        throws IOException
+    {
+      final int c = in.read();
+      if (c != -1 && recordedContent != null)
+      {
+        recordedContent.write(c);
+      }
+      return c;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+        throws IOException
+    {
+      final int n = in.read(b, off, len);
+      if (n > 0 && recordedContent != null)
+      {
+        recordedContent.write(b, off, n);
+      }
+      return n;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip(final long n)
+        throws IOException
+    {
+      if (recordedContent == null)
+      {
+        return in.skip(n);
+      }
+
+      // Read the skipped content so that it is recorded.
+      final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+      final int bytesRead = read(buffer, 0, buffer.length);
+      return bytesRead < 0 ? 0 : bytesRead;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean markSupported()
+    {
+      return false;
+    }
+
+
+
+    /**
+     * Stop recording the content read, and discard the content recorded.
+     */
+    private void stopRecording()
+    {
+      recordedContent = null;
+    }
+
+
+
+    /**
+     * Retrieve the content read while recording.
+     *
+     * @return  An input stream containing the content read while recording.
+     */
+    private InputStream getRecordedContent()
+    {
+      return new ByteArrayInputStream(recordedContent.toByteArray());
+    }
+  }
+
+
+
+  /**
+   * Thrown when an operation is read from a bulk request being processed as
+   * it is read before the failOnErrors value.
+   */
+  private static final class FailOnErrorsNotReadException
+      extends SCIMException
+  {
+    /**
+     * The serial version UID required for this serializable class.
+     */
+    private static final long serialVersionUID = -2637460937185934412L;
+
+
+
+    /**
+     * Create a new instance of this exception.
+     */
+    private FailOnErrorsNotReadException()
+    {
+      super(500, "The failOnErrors value has not been read");
+    }
+  }
 }
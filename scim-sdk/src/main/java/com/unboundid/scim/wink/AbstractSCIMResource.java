@@ -19,7 +19,11 @@ package com.unboundid.scim.wink;
 
 import com.unboundid.scim.data.BaseResource;
 import com.unboundid.scim.marshal.Unmarshaller;
+import com.unboundid.scim.marshal.cbor.CborMarshaller;
+import com.unboundid.scim.marshal.cbor.CborUnmarshaller;
+import com.unboundid.scim.marshal.json.JsonMarshaller;
 import com.unboundid.scim.marshal.json.JsonUnmarshaller;
+import com.unboundid.scim.marshal.xml.XmlMarshaller;
 import com.unboundid.scim.marshal.xml.XmlUnmarshaller;
 import com.unboundid.scim.schema.ResourceDescriptor;
 import com.unboundid.scim.sdk.AttributePath;
@@ -47,8 +51,12 @@ import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMFilter;
 import com.unboundid.scim.sdk.SCIMQueryAttributes;
 import com.unboundid.scim.sdk.SCIMRequest;
+import com.unboundid.scim.sdk.SCIMResponse;
 import com.unboundid.scim.sdk.SortParameters;
+import com.unboundid.scim.sdk.StreamingResources;
 import com.unboundid.scim.sdk.UnauthorizedException;
+import com.unboundid.scim.wink.ResourceStats.Operation;
+import com.unboundid.scim.wink.ResourceStats.Outcome;
 
 
 import jakarta.ws.rs.core.HttpHeaders;
@@ -144,10 +152,12 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
   Response getUser(final RequestContext requestContext,
                    final String endpoint, final String userID)
   {
+    final long startTime = System.nanoTime();
     logIgnoredQueryParams(requestContext, COMMON_REQUEST_PARAMS);
 
     SCIMBackend backend;
     ResourceDescriptor resourceDescriptor = null;
+    ResourceStats stats = null;
     Response.ResponseBuilder responseBuilder;
     try {
       backend = getBackend(endpoint);
@@ -157,6 +167,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         throw new ResourceNotFoundException(
                 endpoint + " is not a valid resource endpoint");
       }
+      stats = application.getStatsForResource(resourceDescriptor.getName());
       String authID = requestContext.getAuthID();
       if(authID == null && tokenHandler == null) {
         throw new UnauthorizedException("Invalid credentials");
@@ -180,8 +191,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                               getResourceRequest, authIDRef, tokenHandler);
         if (response != null)
         {
-          application.getStatsForResource(resourceDescriptor.getName()).
-              incrementStat("get-" + response.getStatus());
+          stats.incrementStat(Operation.GET, response.getStatus());
           return response;
         }
         else
@@ -194,15 +204,41 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         }
       }
 
+      final String schemaResponseKey = getSchemaResponseKey(
+          requestContext, backend, queryAttributes, userID, null);
+      if (schemaResponseKey != null)
+      {
+        final CachedResponse cachedResponse =
+            application.getSchemaResponseCache().get(schemaResponseKey);
+        if (cachedResponse != null)
+        {
+          return getSchemaResponse(requestContext, cachedResponse, stats,
+                                   Operation.GET, startTime);
+        }
+      }
+
+      final long backendStartTime = System.nanoTime();
       BaseResource resource =
           backend.getResource(getResourceRequest);
+      stats.recordLatency(Operation.GET, ResourceStats.LATENCY_BACKEND,
+          System.nanoTime() - backendStartTime);
+
+      if (schemaResponseKey != null)
+      {
+        final CachedResponse cachedResponse = cacheSchemaResponse(
+            requestContext, schemaResponseKey, resource);
+        if (cachedResponse != null)
+        {
+          return getSchemaResponse(requestContext, cachedResponse, stats,
+                                   Operation.GET, startTime);
+        }
+      }
 
       // Build the response.
       responseBuilder = Response.status(Response.Status.OK);
         setResponseEntity(responseBuilder, requestContext.getProduceMediaType(),
-            resource);
-        application.getStatsForResource(resourceDescriptor.getName()).
-          incrementStat(ResourceStats.GET_OK);
+            resource, stats, Operation.GET, startTime);
+        stats.incrementStat(Operation.GET, Outcome.SUCCESSFUL);
       responseBuilder.contentLocation(resource.getMeta().getLocation());
       // cant use responsebuilder.tag ... it will quote the
       // already quoted string
@@ -211,22 +247,26 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
       if(requestContext.getProduceMediaType() ==
           MediaType.APPLICATION_JSON_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.GET_RESPONSE_JSON);
+        stats.incrementStat(Operation.GET, Outcome.RESPONSE_JSON);
       }
       else if(requestContext.getProduceMediaType() ==
               MediaType.APPLICATION_XML_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.GET_RESPONSE_XML);
+        stats.incrementStat(Operation.GET, Outcome.RESPONSE_XML);
+      }
+      else if(requestContext.getProduceMediaType().equals(
+              APPLICATION_CBOR_TYPE))
+      {
+        stats.incrementStat(Operation.GET, Outcome.RESPONSE_CBOR);
       }
     } catch (SCIMException e) {
       Debug.debugException(e);
       responseBuilder = error(e, requestContext);
-      if(resourceDescriptor != null)
+      if(stats != null)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat("get-" + e.getStatusCode());
+        stats.incrementStat(Operation.GET, e.getStatusCode());
+        stats.recordLatency(Operation.GET, ResourceStats.LATENCY_TOTAL,
+            System.nanoTime() - startTime);
       }
     }
 
@@ -261,10 +301,12 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                               final String pageStartIndex,
                               final String pageSize)
   {
+    final long startTime = System.nanoTime();
     logIgnoredQueryParams(requestContext, SEARCH_REQUEST_PARAMS);
 
     SCIMBackend backend;
     ResourceDescriptor resourceDescriptor = null;
+    ResourceStats stats = null;
     Response.ResponseBuilder responseBuilder;
     try
     {
@@ -275,6 +317,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         throw new ResourceNotFoundException(
                 endpoint + " is not a valid resource endpoint");
       }
+      stats = application.getStatsForResource(resourceDescriptor.getName());
       String authID = requestContext.getAuthID();
       if(authID == null && tokenHandler == null) {
         throw new UnauthorizedException("Invalid credentials");
@@ -379,8 +422,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                               getResourcesRequest, authIDRef, tokenHandler);
         if (response != null)
         {
-          application.getStatsForResource(resourceDescriptor.getName()).
-              incrementStat("query-" + response.getStatus());
+          stats.incrementStat(Operation.QUERY, response.getStatus());
           return response;
         }
         else
@@ -394,27 +436,70 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         }
       }
 
+      // Only unsorted and unpaged queries of the schemas are cached.
+      final String schemaResponseKey =
+          sortParameters == null && pageParameters == null &&
+          baseID == null && searchScope == null ?
+          getSchemaResponseKey(requestContext, backend, queryAttributes,
+                               null, filterString) : null;
+      if (schemaResponseKey != null)
+      {
+        final CachedResponse cachedResponse =
+            application.getSchemaResponseCache().get(schemaResponseKey);
+        if (cachedResponse != null)
+        {
+          return getSchemaResponse(requestContext, cachedResponse, stats,
+                                   Operation.QUERY, startTime);
+        }
+      }
+
+      final long backendStartTime = System.nanoTime();
       final Resources resources = backend.getResources(getResourcesRequest);
+      if (resources instanceof StreamingResources &&
+          !requestContext.getProduceMediaType().equals(
+              MediaType.APPLICATION_JSON_TYPE) &&
+          !requestContext.getProduceMediaType().equals(APPLICATION_CBOR_TYPE))
+      {
+        // Only the JSON and CBOR marshallers stream the resources, so collect
+        // them now for other formats so that an error producing them is
+        // reported with its own status.
+        ((StreamingResources) resources).collect();
+      }
+      stats.recordLatency(Operation.QUERY, ResourceStats.LATENCY_BACKEND,
+          System.nanoTime() - backendStartTime);
+
+      if (schemaResponseKey != null)
+      {
+        final CachedResponse cachedResponse = cacheSchemaResponse(
+            requestContext, schemaResponseKey, resources);
+        if (cachedResponse != null)
+        {
+          return getSchemaResponse(requestContext, cachedResponse, stats,
+                                   Operation.QUERY, startTime);
+        }
+      }
 
       // Build the response.
       responseBuilder =
           Response.status(Response.Status.OK);
       setResponseEntity(responseBuilder, requestContext.getProduceMediaType(),
-                        resources);
+          resources, stats, Operation.QUERY, startTime);
 
-      application.getStatsForResource(resourceDescriptor.getName()).
-          incrementStat(ResourceStats.QUERY_OK);
+      stats.incrementStat(Operation.QUERY, Outcome.SUCCESSFUL);
       if(requestContext.getProduceMediaType() ==
           MediaType.APPLICATION_JSON_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.QUERY_RESPONSE_JSON);
+        stats.incrementStat(Operation.QUERY, Outcome.RESPONSE_JSON);
       }
       else if(requestContext.getProduceMediaType() ==
               MediaType.APPLICATION_XML_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.QUERY_RESPONSE_XML);
+        stats.incrementStat(Operation.QUERY, Outcome.RESPONSE_XML);
+      }
+      else if(requestContext.getProduceMediaType().equals(
+              APPLICATION_CBOR_TYPE))
+      {
+        stats.incrementStat(Operation.QUERY, Outcome.RESPONSE_CBOR);
       }
     }
     catch(SCIMException e)
@@ -423,10 +508,11 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
           Response.status(e.getStatusCode());
       setResponseEntity(responseBuilder, requestContext.getProduceMediaType(),
                         e);
-      if(resourceDescriptor != null)
+      if(stats != null)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat("query-" + e.getStatusCode());
+        stats.incrementStat(Operation.QUERY, e.getStatusCode());
+        stats.recordLatency(Operation.QUERY, ResourceStats.LATENCY_TOTAL,
+            System.nanoTime() - startTime);
       }
     }
 
@@ -447,10 +533,12 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                     final String endpoint,
                     final InputStream inputStream)
   {
+    final long startTime = System.nanoTime();
     logIgnoredQueryParams(requestContext, COMMON_REQUEST_PARAMS);
 
     SCIMBackend backend;
     ResourceDescriptor resourceDescriptor = null;
+    ResourceStats stats = null;
     Response.ResponseBuilder responseBuilder;
     try
     {
@@ -461,19 +549,24 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         throw new ResourceNotFoundException(
                 endpoint + " is not a valid resource endpoint");
       }
+      stats = application.getStatsForResource(resourceDescriptor.getName());
       final Unmarshaller unmarshaller;
       if (requestContext.getConsumeMediaType().equals(
           MediaType.APPLICATION_JSON_TYPE))
       {
         unmarshaller = new JsonUnmarshaller();
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.POST_CONTENT_JSON);
+        stats.incrementStat(Operation.POST, Outcome.CONTENT_JSON);
+      }
+      else if (requestContext.getConsumeMediaType().equals(
+          APPLICATION_CBOR_TYPE))
+      {
+        unmarshaller = new CborUnmarshaller();
+        stats.incrementStat(Operation.POST, Outcome.CONTENT_CBOR);
       }
       else
       {
         unmarshaller = new XmlUnmarshaller();
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.POST_CONTENT_XML);
+        stats.incrementStat(Operation.POST, Outcome.CONTENT_XML);
       }
       String authID = requestContext.getAuthID();
       if(authID == null && tokenHandler == null)
@@ -504,8 +597,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                               postResourceRequest, authIDRef, tokenHandler);
         if (response != null)
         {
-          application.getStatsForResource(resourceDescriptor.getName()).
-              incrementStat("post-" + response.getStatus());
+          stats.incrementStat(Operation.POST, response.getStatus());
           return response;
         }
         else
@@ -518,36 +610,42 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         }
       }
 
+      final long backendStartTime = System.nanoTime();
       final BaseResource resource = backend.postResource(postResourceRequest);
+      stats.recordLatency(Operation.POST, ResourceStats.LATENCY_BACKEND,
+          System.nanoTime() - backendStartTime);
       // Build the response.
       responseBuilder = Response.status(Response.Status.CREATED);
       setResponseEntity(responseBuilder, requestContext.getProduceMediaType(),
-          resource);
+          resource, stats, Operation.POST, startTime);
       responseBuilder.location(resource.getMeta().getLocation());
       // cant use responsebuilder.tag ... it will quote the already
       // quoted string
       responseBuilder.header(HttpHeaders.ETAG, resource.getMeta().getVersion());
-      application.getStatsForResource(resourceDescriptor.getName()).
-          incrementStat(ResourceStats.POST_OK);
+      stats.incrementStat(Operation.POST, Outcome.SUCCESSFUL);
       if(requestContext.getProduceMediaType() ==
           MediaType.APPLICATION_JSON_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.POST_RESPONSE_JSON);
+        stats.incrementStat(Operation.POST, Outcome.RESPONSE_JSON);
       }
       else if(requestContext.getProduceMediaType() ==
               MediaType.APPLICATION_XML_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.POST_RESPONSE_XML);
+        stats.incrementStat(Operation.POST, Outcome.RESPONSE_XML);
+      }
+      else if(requestContext.getProduceMediaType().equals(
+              APPLICATION_CBOR_TYPE))
+      {
+        stats.incrementStat(Operation.POST, Outcome.RESPONSE_CBOR);
       }
     } catch (SCIMException e) {
       Debug.debugException(e);
       responseBuilder = error(e, requestContext);
-      if(resourceDescriptor != null)
+      if(stats != null)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat("post-" + e.getStatusCode());
+        stats.incrementStat(Operation.POST, e.getStatusCode());
+        stats.recordLatency(Operation.POST, ResourceStats.LATENCY_TOTAL,
+            System.nanoTime() - startTime);
       }
     }
 
@@ -571,10 +669,12 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                    final String userID,
                    final InputStream inputStream)
   {
+    final long startTime = System.nanoTime();
     logIgnoredQueryParams(requestContext, COMMON_REQUEST_PARAMS);
 
     SCIMBackend backend;
     ResourceDescriptor resourceDescriptor = null;
+    ResourceStats stats = null;
     Response.ResponseBuilder responseBuilder;
     try {
       backend = getBackend(endpoint);
@@ -584,19 +684,24 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         throw new ResourceNotFoundException(
                 endpoint + " is not a valid resource endpoint");
       }
+      stats = application.getStatsForResource(resourceDescriptor.getName());
       final Unmarshaller unmarshaller;
       if (requestContext.getConsumeMediaType().equals(
           MediaType.APPLICATION_JSON_TYPE))
       {
         unmarshaller = new JsonUnmarshaller();
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.PUT_CONTENT_JSON);
+        stats.incrementStat(Operation.PUT, Outcome.CONTENT_JSON);
+      }
+      else if (requestContext.getConsumeMediaType().equals(
+          APPLICATION_CBOR_TYPE))
+      {
+        unmarshaller = new CborUnmarshaller();
+        stats.incrementStat(Operation.PUT, Outcome.CONTENT_CBOR);
       }
       else
       {
         unmarshaller = new XmlUnmarshaller();
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.PUT_CONTENT_XML);
+        stats.incrementStat(Operation.PUT, Outcome.CONTENT_XML);
       }
       String authID = requestContext.getAuthID();
       if(authID == null && tokenHandler == null)
@@ -628,8 +733,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                               putResourceRequest, authIDRef, tokenHandler);
         if (response != null)
         {
-          application.getStatsForResource(resourceDescriptor.getName()).
-              incrementStat("put-" + response.getStatus());
+          stats.incrementStat(Operation.PUT, response.getStatus());
           return response;
         }
         else
@@ -643,37 +747,43 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         }
       }
 
+      final long backendStartTime = System.nanoTime();
       final BaseResource scimResponse = backend.putResource(putResourceRequest);
+      stats.recordLatency(Operation.PUT, ResourceStats.LATENCY_BACKEND,
+          System.nanoTime() - backendStartTime);
       // Build the response.
       responseBuilder = Response.status(Response.Status.OK);
       setResponseEntity(responseBuilder, requestContext.getProduceMediaType(),
-                        scimResponse);
+          scimResponse, stats, Operation.PUT, startTime);
       responseBuilder.contentLocation(scimResponse.getMeta().getLocation());
       // cant use responsebuilder.tag ... it will quote the already
       // quoted string
       responseBuilder.header(HttpHeaders.ETAG,
           scimResponse.getMeta().getVersion());
-      application.getStatsForResource(resourceDescriptor.getName()).
-          incrementStat(ResourceStats.PUT_OK);
+      stats.incrementStat(Operation.PUT, Outcome.SUCCESSFUL);
       if(requestContext.getProduceMediaType() ==
           MediaType.APPLICATION_JSON_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.PUT_RESPONSE_JSON);
+        stats.incrementStat(Operation.PUT, Outcome.RESPONSE_JSON);
       }
       else if(requestContext.getProduceMediaType() ==
               MediaType.APPLICATION_XML_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.PUT_RESPONSE_XML);
+        stats.incrementStat(Operation.PUT, Outcome.RESPONSE_XML);
+      }
+      else if(requestContext.getProduceMediaType().equals(
+              APPLICATION_CBOR_TYPE))
+      {
+        stats.incrementStat(Operation.PUT, Outcome.RESPONSE_CBOR);
       }
     } catch (SCIMException e) {
       Debug.debugException(e);
       responseBuilder = error(e, requestContext);
-      if(resourceDescriptor != null)
+      if(stats != null)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat("put-" + e.getStatusCode());
+        stats.incrementStat(Operation.PUT, e.getStatusCode());
+        stats.recordLatency(Operation.PUT, ResourceStats.LATENCY_TOTAL,
+            System.nanoTime() - startTime);
       }
     }
 
@@ -697,10 +807,12 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                      final String userID,
                      final InputStream inputStream)
   {
+    final long startTime = System.nanoTime();
     logIgnoredQueryParams(requestContext, COMMON_REQUEST_PARAMS);
 
     SCIMBackend backend;
     ResourceDescriptor resourceDescriptor = null;
+    ResourceStats stats = null;
     Response.ResponseBuilder responseBuilder;
     try {
       backend = getBackend(endpoint);
@@ -710,6 +822,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         throw new ResourceNotFoundException(
                 endpoint + " is not a valid resource endpoint");
       }
+      stats = application.getStatsForResource(resourceDescriptor.getName());
       String authID = requestContext.getAuthID();
       if(authID == null && tokenHandler == null)
       {
@@ -720,14 +833,18 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
               MediaType.APPLICATION_JSON_TYPE))
       {
         unmarshaller = new JsonUnmarshaller();
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.PATCH_CONTENT_JSON);
+        stats.incrementStat(Operation.PATCH, Outcome.CONTENT_JSON);
+      }
+      else if (requestContext.getConsumeMediaType().equals(
+          APPLICATION_CBOR_TYPE))
+      {
+        unmarshaller = new CborUnmarshaller();
+        stats.incrementStat(Operation.PATCH, Outcome.CONTENT_CBOR);
       }
       else
       {
         unmarshaller = new XmlUnmarshaller();
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.PATCH_CONTENT_XML);
+        stats.incrementStat(Operation.PATCH, Outcome.CONTENT_XML);
       }
       // Parse the resource.
       final BaseResource patchedResource = unmarshaller.unmarshal(
@@ -753,8 +870,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                               patchResourceRequest, authIDRef, tokenHandler);
         if (response != null)
         {
-          application.getStatsForResource(resourceDescriptor.getName()).
-              incrementStat("patch-" + response.getStatus());
+          stats.incrementStat(Operation.PATCH, response.getStatus());
           return response;
         }
         else
@@ -768,19 +884,24 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         }
       }
 
+      final long backendStartTime = System.nanoTime();
       final BaseResource scimResponse =
               backend.patchResource(patchResourceRequest);
+      stats.recordLatency(Operation.PATCH, ResourceStats.LATENCY_BACKEND,
+          System.nanoTime() - backendStartTime);
 
       // Build the response.
       if (!queryAttributes.allAttributesRequested())
       {
         responseBuilder = Response.status(Response.Status.OK);
         setResponseEntity(responseBuilder, requestContext.getProduceMediaType(),
-                scimResponse);
+            scimResponse, stats, Operation.PATCH, startTime);
       }
       else
       {
         responseBuilder = Response.status(Response.Status.NO_CONTENT);
+        stats.recordLatency(Operation.PATCH, ResourceStats.LATENCY_TOTAL,
+            System.nanoTime() - startTime);
       }
       responseBuilder.contentLocation(scimResponse.getMeta().getLocation());
       // cant use responsebuilder.tag ... it will quote the already
@@ -788,27 +909,30 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
       responseBuilder.header(HttpHeaders.ETAG,
           scimResponse.getMeta().getVersion());
 
-      application.getStatsForResource(resourceDescriptor.getName()).
-          incrementStat(ResourceStats.PATCH_OK);
+      stats.incrementStat(Operation.PATCH, Outcome.SUCCESSFUL);
       if(requestContext.getProduceMediaType() ==
           MediaType.APPLICATION_JSON_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.PATCH_RESPONSE_JSON);
+        stats.incrementStat(Operation.PATCH, Outcome.RESPONSE_JSON);
       }
       else if(requestContext.getProduceMediaType() ==
               MediaType.APPLICATION_XML_TYPE)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat(ResourceStats.PATCH_RESPONSE_XML);
+        stats.incrementStat(Operation.PATCH, Outcome.RESPONSE_XML);
+      }
+      else if(requestContext.getProduceMediaType().equals(
+              APPLICATION_CBOR_TYPE))
+      {
+        stats.incrementStat(Operation.PATCH, Outcome.RESPONSE_CBOR);
       }
     } catch (SCIMException e) {
       Debug.debugException(e);
       responseBuilder = error(e, requestContext);
-      if(resourceDescriptor != null)
+      if(stats != null)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat("patch-" + e.getStatusCode());
+        stats.incrementStat(Operation.PATCH, e.getStatusCode());
+        stats.recordLatency(Operation.PATCH, ResourceStats.LATENCY_TOTAL,
+            System.nanoTime() - startTime);
       }
     }
 
@@ -830,8 +954,10 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                       final String endpoint,
                       final String userID)
   {
+    final long startTime = System.nanoTime();
     SCIMBackend backend;
     ResourceDescriptor resourceDescriptor = null;
+    ResourceStats stats = null;
     // Process the request.
     Response.ResponseBuilder responseBuilder;
     try {
@@ -842,6 +968,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         throw new ResourceNotFoundException(
                 endpoint + " is not a valid resource endpoint");
       }
+      stats = application.getStatsForResource(resourceDescriptor.getName());
       String authID = requestContext.getAuthID();
       if(authID == null && tokenHandler == null)
       {
@@ -860,8 +987,7 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
                               deleteResourceRequest, authIDRef, tokenHandler);
         if (response != null)
         {
-          application.getStatsForResource(resourceDescriptor.getName()).
-              incrementStat("delete-" + response.getStatus());
+          stats.incrementStat(Operation.DELETE, response.getStatus());
           return response;
         }
         else
@@ -874,18 +1000,23 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
         }
       }
 
+      final long backendStartTime = System.nanoTime();
       backend.deleteResource(deleteResourceRequest);
+      stats.recordLatency(Operation.DELETE, ResourceStats.LATENCY_BACKEND,
+          System.nanoTime() - backendStartTime);
       // Build the response.
       responseBuilder = Response.status(Response.Status.OK);
-      application.getStatsForResource(resourceDescriptor.getName()).
-          incrementStat(ResourceStats.DELETE_OK);
+      stats.recordLatency(Operation.DELETE, ResourceStats.LATENCY_TOTAL,
+          System.nanoTime() - startTime);
+      stats.incrementStat(Operation.DELETE, Outcome.SUCCESSFUL);
     } catch (SCIMException e) {
       Debug.debugException(e);
       responseBuilder = error(e, requestContext);
-      if(resourceDescriptor != null)
+      if(stats != null)
       {
-        application.getStatsForResource(resourceDescriptor.getName()).
-            incrementStat("delete-" + e.getStatusCode());
+        stats.incrementStat(Operation.DELETE, e.getStatusCode());
+        stats.recordLatency(Operation.DELETE, ResourceStats.LATENCY_TOTAL,
+            System.nanoTime() - startTime);
       }
     }
 
@@ -1125,6 +1256,130 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
     return application.getBackend();
   }
 
+  /**
+   * Retrieves the key of the cached response for a request of the resource
+   * schemas, if the response may be cached.
+   *
+   * @param requestContext   The request context.
+   * @param backend          The backend servicing the request.
+   * @param queryAttributes  The attributes requested.
+   * @param resourceID       The ID of the requested schema, or {@code null}
+   *                         if the schemas are being queried.
+   * @param filterString     The filter query parameter, or {@code null}.
+   *
+   * @return  The key of the cached response, or {@code null} if the response
+   *          may not be cached.
+   */
+  private String getSchemaResponseKey(
+      final RequestContext requestContext, final SCIMBackend backend,
+      final SCIMQueryAttributes queryAttributes, final String resourceID,
+      final String filterString)
+  {
+    if (backend != resourceSchemaBackend ||
+        !queryAttributes.allAttributesRequested())
+    {
+      return null;
+    }
+
+    return application.getSchemaResponseCache().getKey(
+        requestContext.getUriInfo().getBaseUri(), resourceID, filterString,
+        requestContext.getProduceMediaType());
+  }
+
+  /**
+   * Marshal a response of the resource schemas and add it to the cache.
+   *
+   * @param requestContext     The request context.
+   * @param schemaResponseKey  The key of the cached response.
+   * @param scimResponse       The response to be cached.
+   *
+   * @return  The cached response, or {@code null} if the response could not
+   *          be marshalled, in which case it should be returned uncached.
+   */
+  private CachedResponse cacheSchemaResponse(
+      final RequestContext requestContext, final String schemaResponseKey,
+      final SCIMResponse scimResponse)
+  {
+    final MediaType mediaType = requestContext.getProduceMediaType();
+    final CachedResponse cachedResponse;
+    try
+    {
+      if (mediaType.equals(MediaType.APPLICATION_JSON_TYPE))
+      {
+        cachedResponse = new CachedResponse(
+            scimResponse, new JsonMarshaller(), mediaType);
+      }
+      else if (mediaType.equals(APPLICATION_CBOR_TYPE))
+      {
+        cachedResponse = new CachedResponse(
+            scimResponse, new CborMarshaller(), mediaType);
+      }
+      else
+      {
+        cachedResponse = new CachedResponse(
+            scimResponse, new XmlMarshaller(), mediaType);
+      }
+    }
+    catch (Exception e)
+    {
+      Debug.debugException(e);
+      return null;
+    }
+
+    application.getSchemaResponseCache().put(
+        schemaResponseKey, cachedResponse);
+    return cachedResponse;
+  }
+
+  /**
+   * Create the response to a request of the resource schemas from a cached
+   * response, and update the statistics.
+   *
+   * @param requestContext  The request context.
+   * @param cachedResponse  The cached response.
+   * @param stats           The statistics for the resource schemas.
+   * @param operation       The operation being processed.
+   * @param startTime       The value of {@link System#nanoTime} when the
+   *                        request was received.
+   *
+   * @return  The response to the request.
+   */
+  private Response getSchemaResponse(final RequestContext requestContext,
+                                     final CachedResponse cachedResponse,
+                                     final ResourceStats stats,
+                                     final Operation operation,
+                                     final long startTime)
+  {
+    final Response response =
+        cachedResponse.getResponse(requestContext.getHeaders());
+    if (response.getStatus() == Response.Status.OK.getStatusCode())
+    {
+      stats.incrementStat(operation, Outcome.SUCCESSFUL);
+      if (requestContext.getProduceMediaType() ==
+          MediaType.APPLICATION_JSON_TYPE)
+      {
+        stats.incrementStat(operation, Outcome.RESPONSE_JSON);
+      }
+      else if (requestContext.getProduceMediaType() ==
+               MediaType.APPLICATION_XML_TYPE)
+      {
+        stats.incrementStat(operation, Outcome.RESPONSE_XML);
+      }
+      else if (requestContext.getProduceMediaType().equals(
+               APPLICATION_CBOR_TYPE))
+      {
+        stats.incrementStat(operation, Outcome.RESPONSE_CBOR);
+      }
+    }
+    else
+    {
+      stats.incrementStat(operation, response.getStatus());
+    }
+    stats.recordLatency(operation, ResourceStats.LATENCY_TOTAL,
+        System.nanoTime() - startTime);
+    return response;
+  }
+
   /**
    * Returns a ResponseBuilder from the provided SCIMException and
    * RequestContext.
@@ -1179,12 +1434,13 @@ public abstract class AbstractSCIMResource extends AbstractStaticResource
       if(resourceDescriptor.getSchema().equalsIgnoreCase(
           SCHEMA_URI_UBID_LDAP))
       {
-        filter = SCIMFilter.parse(
+        filter = application.getFilterCache().parse(
             filterString, resourceDescriptor.getSchema());
       }
       else
       {
-        filter = SCIMFilter.parse(filterString);
+        filter = application.getFilterCache().parse(
+            filterString, SCHEMA_URI_CORE);
       }
     }
     return filter;
@@ -18,9 +18,11 @@
 package com.unboundid.scim.wink;
 
 import com.unboundid.scim.marshal.Marshaller;
+import com.unboundid.scim.marshal.cbor.CborMarshaller;
 import com.unboundid.scim.marshal.json.JsonMarshaller;
 import com.unboundid.scim.marshal.xml.XmlMarshaller;
 import com.unboundid.scim.sdk.Debug;
+import com.unboundid.scim.sdk.SCIMConstants;
 import com.unboundid.scim.sdk.SCIMResponse;
 
 import jakarta.ws.rs.WebApplicationException;
@@ -48,6 +50,30 @@ public class AbstractStaticResource
   protected static void setResponseEntity(
       final Response.ResponseBuilder builder, final MediaType mediaType,
       final SCIMResponse scimResponse)
+  {
+    setResponseEntity(builder, mediaType, scimResponse, null, null, 0L);
+  }
+
+
+
+  /**
+   * Sets the response entity (content) for a SCIM response, and records the
+   * serialization and total latencies of the operation once the content has
+   * been written.
+   *
+   * @param builder       A JAX-RS response builder.
+   * @param mediaType     The media type to be returned.
+   * @param scimResponse  The SCIM response to be returned.
+   * @param stats         The statistics in which to record latencies, or
+   *                      {@code null} if latencies are not to be recorded.
+   * @param operation     The operation whose latencies are recorded.
+   * @param startTime     The value of {@code System.nanoTime()} when the
+   *                      operation was received.
+   */
+  static void setResponseEntity(
+      final Response.ResponseBuilder builder, final MediaType mediaType,
+      final SCIMResponse scimResponse, final ResourceStats stats,
+      final ResourceStats.Operation operation, final long startTime)
   {
     final Marshaller marshaller;
     builder.type(mediaType);
@@ -55,6 +81,10 @@ public class AbstractStaticResource
     {
       marshaller = new JsonMarshaller();
     }
+    else if (mediaType.equals(SCIMConstants.APPLICATION_CBOR_TYPE))
+    {
+      marshaller = new CborMarshaller();
+    }
     else
     {
       marshaller = new XmlMarshaller();
@@ -65,6 +95,7 @@ public class AbstractStaticResource
       public void write(final OutputStream outputStream)
           throws IOException, WebApplicationException
       {
+        final long serializationStartTime = System.nanoTime();
         try
         {
           scimResponse.marshal(marshaller, outputStream);
@@ -75,6 +106,18 @@ public class AbstractStaticResource
           throw new WebApplicationException(
               e, Response.Status.INTERNAL_SERVER_ERROR);
         }
+        finally
+        {
+          if (stats != null)
+          {
+            final long endTime = System.nanoTime();
+            stats.recordLatency(operation,
+                ResourceStats.LATENCY_SERIALIZATION,
+                endTime - serializationStartTime);
+            stats.recordLatency(operation, ResourceStats.LATENCY_TOTAL,
+                endTime - startTime);
+          }
+        }
       }
     };
     builder.entity(output);
@@ -35,6 +35,7 @@ import com.unboundid.scim.sdk.PutResourceRequest;
 import com.unboundid.scim.sdk.SCIMAttribute;
 import com.unboundid.scim.sdk.SCIMAttributeValue;
 import com.unboundid.scim.sdk.SCIMBackend;
+import com.unboundid.scim.sdk.SCIMConstants;
 import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMObject;
 import com.unboundid.scim.sdk.SCIMQueryAttributes;
@@ -50,11 +51,19 @@ import jakarta.ws.rs.core.UriBuilder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 
 /**
@@ -70,6 +79,13 @@ import java.util.concurrent.atomic.AtomicReference;
  * <li>It would not be possible to reject a request that exceeded the
  * maxOperations setting without processing any operations.</li>
  * </ol>
+ * If the SCIM application permits more than one bulk operation to be
+ * processed in parallel, each operation is scheduled as soon as it has been
+ * read, once the operations it depends on have completed. An operation
+ * depends on the operations defining the bulkIds it references, and on any
+ * earlier operation on the same resource path. The operation responses are
+ * written in request order, and no further operations are started once the
+ * failOnErrors limit has been reached.
  */
 public class BulkContentRequestHandler extends BulkContentHandler
 {
@@ -103,6 +119,64 @@ public class BulkContentRequestHandler extends BulkContentHandler
    */
   private final Map<String,String> resourceIDs;
 
+  /**
+   * The executor shared by all bulk requests to process operations in
+   * parallel, or {@code null} if operations are processed serially.
+   */
+  private final Executor executor;
+
+  /**
+   * Limits the number of operations scheduled but not yet completed, so that
+   * operations are not read much faster than they can be processed.
+   */
+  private final Semaphore scheduledOperationPermits;
+
+  /**
+   * The operations scheduled for parallel processing.
+   */
+  private final List<CompletableFuture<Void>> scheduledOperations;
+
+  /**
+   * The scheduled operation defining each bulkId, keyed by bulkId.
+   */
+  private final Map<String,CompletableFuture<Void>> bulkIdOperations;
+
+  /**
+   * The most recently scheduled operation on each resource path, keyed by
+   * path.
+   */
+  private final Map<String,CompletableFuture<Void>> pathOperations;
+
+  /**
+   * A set containing the bulkId data references for the latest bulk
+   * operation that are defined by scheduled operations, and must be resolved
+   * once those operations have completed.
+   */
+  private final Set<String> deferredBulkIdRefs;
+
+  /**
+   * The responses of completed operations that are waiting to be written
+   * because an earlier operation has not yet completed, keyed by sequence
+   * number. Access to this map also guards the writing of responses.
+   */
+  private final Map<Integer,Object> completedResponses;
+
+  /**
+   * The sequence number to be assigned to the next operation response.
+   */
+  private int nextSequence = 0;
+
+  /**
+   * The sequence number of the next operation response to be written.
+   */
+  private int nextResponse = 0;
+
+  /**
+   * The first error encountered while writing an operation response from a
+   * processing thread.
+   */
+  private volatile SCIMException writeException;
+
   /**
    * A set containing the unresolved bulkId data references for the latest
    * bulk operation.
@@ -110,7 +184,10 @@ public class BulkContentRequestHandler extends BulkContentHandler
   private final Set<String> unresolvedBulkIdRefs;
 
 
-  private int errorCount = 0;
+  /**
+   * The number of operations that have failed.
+   */
+  private final AtomicInteger errorCount = new AtomicInteger();
 
   /**
    * The set of defined bulkIds from all operations.
@@ -125,7 +202,19 @@ public class BulkContentRequestHandler extends BulkContentHandler
    * is to continue performing as many changes as possible without regard to
    * failures.
    */
-  private int failOnErrors = Integer.MAX_VALUE;
+  private volatile int failOnErrors = Integer.MAX_VALUE;
+
+  /**
+   * Recorded in place of a response for an operation that was not processed
+   * because the failOnErrors limit had been reached.
+   */
+  private static final Object NO_RESPONSE = new Object();
+
+  /**
+   * The number of scheduled operations permitted for each operation that may
+   * be processed in parallel.
+   */
+  private static final int SCHEDULED_OPERATIONS_PER_THREAD = 4;
 
 
 
@@ -152,9 +241,28 @@ public class BulkContentRequestHandler extends BulkContentHandler
     this.tokenHandler       = tokenHandler;
     this.bulkStreamResponse = bulkStreamResponse;
 
-    resourceIDs = new HashMap<String, String>();
+    resourceIDs = Collections.synchronizedMap(new HashMap<String, String>());
     unresolvedBulkIdRefs = new HashSet<String>();
-    bulkIds = new HashSet<String>();
+    bulkIds = Collections.synchronizedSet(new HashSet<String>());
+
+    final int maxParallelOperations =
+        application.getBulkMaxParallelOperations();
+    if (maxParallelOperations > 1)
+    {
+      executor = application.getBulkOperationExecutor();
+      scheduledOperationPermits = new Semaphore(
+          maxParallelOperations * SCHEDULED_OPERATIONS_PER_THREAD);
+    }
+    else
+    {
+      executor = null;
+      scheduledOperationPermits = null;
+    }
+    scheduledOperations = new ArrayList<CompletableFuture<Void>>();
+    bulkIdOperations = new HashMap<String, CompletableFuture<Void>>();
+    pathOperations = new HashMap<String, CompletableFuture<Void>>();
+    deferredBulkIdRefs = new HashSet<String>();
+    completedResponses = new HashMap<Integer, Object>();
   }
 
 
@@ -183,6 +291,12 @@ public class BulkContentRequestHandler extends BulkContentHandler
       {
         return resourceID;
       }
+      else if (bulkIdOperations.containsKey(bulkId))
+      {
+        // The operation defining the bulkId has been scheduled but has not
+        // yet completed. Resolve the reference once it has.
+        deferredBulkIdRefs.add(bulkId);
+      }
       else
       {
         unresolvedBulkIdRefs.add(bulkId);
@@ -212,9 +326,16 @@ public class BulkContentRequestHandler extends BulkContentHandler
                               final BulkOperation bulkOperation)
       throws BulkException, SCIMException
   {
-    if (errorCount < failOnErrors)
+    if (errorCount.get() < failOnErrors)
     {
-      final BulkOperation response = processOperation(bulkOperation);
+      if (executor != null)
+      {
+        scheduleOperation(bulkOperation);
+        return;
+      }
+
+      final BulkOperation response =
+          processOperation(bulkOperation, unresolvedBulkIdRefs);
       unresolvedBulkIdRefs.clear();
       bulkStreamResponse.writeBulkOperation(response);
     }
@@ -223,51 +344,275 @@ public class BulkContentRequestHandler extends BulkContentHandler
 
 
   /**
-   * {@inheritDoc}
+   * Wait for any operations being processed in parallel to complete, and
+   * write their responses. This must be called after all the operations have
+   * been read, whether or not the bulk content could be read successfully.
+   *
+   * @throws SCIMException  If an operation response could not be written.
    */
-  public boolean handleException(final int opIndex,
-                                 final BulkException bulkException)
+  void awaitOperations()
       throws SCIMException
   {
-    Debug.debugException(bulkException);
-    if (errorCount < failOnErrors)
+    if (executor == null)
     {
-      int statusCode = bulkException.getCause().getStatusCode();
-      String statusMessage = bulkException.getCause().getMessage();
+      return;
+    }
 
-      final Status status =
-          new Status(String.valueOf(statusCode), statusMessage);
+    CompletableFuture.allOf(scheduledOperations.toArray(
+        new CompletableFuture<?>[scheduledOperations.size()])).join();
 
-      final Method method = bulkException.getMethod();
+    if (writeException != null)
+    {
+      throw writeException;
+    }
+  }
 
-      // The bulk exception contains the path from the request. We just
-      // need to prepend the URL base.
-      String location = null;
-      if (method != BulkOperation.Method.POST)
+
+
+  /**
+   * Schedule an operation to be processed once the operations it depends on
+   * have completed.
+   *
+   * @param bulkOperation  The operation to be scheduled.
+   *
+   * @throws SCIMException  If the thread was interrupted while waiting for
+   *                        earlier operations to complete.
+   */
+  private void scheduleOperation(final BulkOperation bulkOperation)
+      throws SCIMException
+  {
+    final List<CompletableFuture<Void>> dependencies =
+        new ArrayList<CompletableFuture<Void>>();
+    for (final String ref : deferredBulkIdRefs)
+    {
+      dependencies.add(bulkIdOperations.get(ref));
+    }
+    final boolean resolveData = !deferredBulkIdRefs.isEmpty();
+    deferredBulkIdRefs.clear();
+
+    final Set<String> unresolvedRefs =
+        new HashSet<String>(unresolvedBulkIdRefs);
+    unresolvedBulkIdRefs.clear();
+
+    final String path = bulkOperation.getPath();
+    final String bulkId = bulkOperation.getBulkId();
+    final boolean post = bulkOperation.getMethod() == Method.POST;
+    if (path != null)
+    {
+      final int refPos = path.indexOf("bulkId:");
+      if (refPos != -1 &&
+          bulkIdOperations.containsKey(path.substring(refPos + 7)))
       {
-        final UriBuilder locationBuilder =
-            UriBuilder.fromUri(requestContext.getUriInfo().getBaseUri());
-        if (bulkException.getPath() != null)
+        dependencies.add(bulkIdOperations.get(path.substring(refPos + 7)));
+      }
+      if (!post && pathOperations.containsKey(path))
+      {
+        dependencies.add(pathOperations.get(path));
+      }
+    }
+    if (bulkId != null && bulkIdOperations.containsKey(bulkId))
+    {
+      // Keep duplicate bulkIds in request order so the first one is used.
+      dependencies.add(bulkIdOperations.get(bulkId));
+    }
+
+    try
+    {
+      scheduledOperationPermits.acquire();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new ServerErrorException(
+          "Interrupted while processing the bulk request");
+    }
+
+    final int sequence = nextSequence++;
+    final CompletableFuture<Void> operation = new CompletableFuture<Void>();
+    final Runnable task = new Runnable()
+    {
+      public void run()
+      {
+        try
+        {
+          runOperation(sequence, bulkOperation, unresolvedRefs, resolveData);
+        }
+        finally
         {
-          locationBuilder.path(bulkException.getPath());
+          operation.complete(null);
         }
-        location = locationBuilder.build().toString();
       }
+    };
+    CompletableFuture.allOf(dependencies.toArray(
+        new CompletableFuture<?>[dependencies.size()])).whenComplete(
+        new BiConsumer<Void, Throwable>()
+        {
+          public void accept(final Void result, final Throwable t)
+          {
+            try
+            {
+              executor.execute(task);
+            }
+            catch (RejectedExecutionException e)
+            {
+              // The application has been shut down, so process the
+              // operation in this thread instead.
+              Debug.debugException(e);
+              task.run();
+            }
+          }
+        });
+
+    scheduledOperations.add(operation);
+    if (bulkId != null && !bulkIdOperations.containsKey(bulkId))
+    {
+      bulkIdOperations.put(bulkId, operation);
+    }
+    if (path != null && !post)
+    {
+      pathOperations.put(path, operation);
+    }
+  }
 
-      // Include the current ETag for PreconditionFailedExceptions
-      String version = null;
-      if(bulkException.getCause() instanceof PreconditionFailedException)
+
+
+  /**
+   * Process a scheduled operation and record its response.
+   *
+   * @param sequence        The sequence number of the operation response.
+   * @param bulkOperation   The operation to be processed.
+   * @param unresolvedRefs  The bulkId data references of the operation that
+   *                        could not be resolved.
+   * @param resolveData     Whether the operation data has bulkId references
+   *                        that must be resolved now that the operations
+   *                        defining them have completed.
+   */
+  private void runOperation(final int sequence,
+                            final BulkOperation bulkOperation,
+                            final Set<String> unresolvedRefs,
+                            final boolean resolveData)
+  {
+    Object response = NO_RESPONSE;
+    try
+    {
+      if (errorCount.get() < failOnErrors)
       {
-        version = ((PreconditionFailedException)
-            bulkException.getCause()).getVersion();
+        try
+        {
+          BulkOperation operation = bulkOperation;
+          if (resolveData)
+          {
+            try
+            {
+              operation = new BulkOperation(
+                  bulkOperation.getMethod(), bulkOperation.getBulkId(),
+                  bulkOperation.getVersion(), bulkOperation.getPath(),
+                  bulkOperation.getLocation(),
+                  resolveBulkIds(bulkOperation.getData()),
+                  bulkOperation.getStatus());
+            }
+            catch (SCIMException e)
+            {
+              throw new BulkException(e, bulkOperation.getMethod(),
+                  bulkOperation.getBulkId(), bulkOperation.getPath());
+            }
+          }
+          response = processOperation(operation, unresolvedRefs);
+        }
+        catch (BulkException e)
+        {
+          Debug.debugException(e);
+          if (errorCount.getAndIncrement() < failOnErrors)
+          {
+            response = createErrorResponse(e);
+          }
+        }
       }
+    }
+    catch (RuntimeException e)
+    {
+      Debug.debugException(e);
+      if (errorCount.getAndIncrement() < failOnErrors)
+      {
+        response = createErrorResponse(new BulkException(
+            new ServerErrorException(
+                "Error processing bulk operation: " + e.getMessage()),
+            bulkOperation.getMethod(), bulkOperation.getBulkId(),
+            bulkOperation.getPath()));
+      }
+    }
+    finally
+    {
+      writeResponse(sequence, response);
+      scheduledOperationPermits.release();
+    }
+  }
 
-      BulkOperation response = BulkOperation.createResponse(
-          method, bulkException.getBulkId(), version,
-          location, status);
-      bulkStreamResponse.writeBulkOperation(response);
-      errorCount++;
-      return errorCount != failOnErrors;
+
+
+  /**
+   * Record the response of an operation, and write the responses of all
+   * operations that are no longer waiting for an earlier operation to
+   * complete.
+   *
+   * @param sequence  The sequence number of the operation response.
+   * @param response  The operation response, or {@code NO_RESPONSE} if the
+   *                  operation was not processed.
+   */
+  private void writeResponse(final int sequence, final Object response)
+  {
+    synchronized (completedResponses)
+    {
+      completedResponses.put(sequence, response);
+
+      Object next;
+      while ((next = completedResponses.remove(nextResponse)) != null)
+      {
+        nextResponse++;
+        if (next != NO_RESPONSE && writeException == null)
+        {
+          try
+          {
+            bulkStreamResponse.writeBulkOperation((BulkOperation) next);
+          }
+          catch (SCIMException e)
+          {
+            Debug.debugException(e);
+            writeException = e;
+          }
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean handleException(final int opIndex,
+                                 final BulkException bulkException)
+      throws SCIMException
+  {
+    Debug.debugException(bulkException);
+    if (errorCount.get() < failOnErrors)
+    {
+      final BulkOperation response = createErrorResponse(bulkException);
+      if (executor != null)
+      {
+        deferredBulkIdRefs.clear();
+        unresolvedBulkIdRefs.clear();
+        writeResponse(nextSequence++, response);
+        if (writeException != null)
+        {
+          throw writeException;
+        }
+      }
+      else
+      {
+        bulkStreamResponse.writeBulkOperation(response);
+      }
+      return errorCount.incrementAndGet() < failOnErrors;
     }
     else
     {
@@ -277,16 +622,66 @@ public class BulkContentRequestHandler extends BulkContentHandler
 
 
 
+  /**
+   * Create the response for an operation that failed.
+   *
+   * @param bulkException  The exception encountered when processing the
+   *                       operation.
+   *
+   * @return  The operation response.
+   */
+  private BulkOperation createErrorResponse(final BulkException bulkException)
+  {
+    int statusCode = bulkException.getCause().getStatusCode();
+    String statusMessage = bulkException.getCause().getMessage();
+
+    final Status status =
+        new Status(String.valueOf(statusCode), statusMessage);
+
+    final Method method = bulkException.getMethod();
+
+    // The bulk exception contains the path from the request. We just
+    // need to prepend the URL base.
+    String location = null;
+    if (method != BulkOperation.Method.POST)
+    {
+      final UriBuilder locationBuilder =
+          UriBuilder.fromUri(requestContext.getUriInfo().getBaseUri());
+      if (bulkException.getPath() != null)
+      {
+        locationBuilder.path(bulkException.getPath());
+      }
+      location = locationBuilder.build().toString();
+    }
+
+    // Include the current ETag for PreconditionFailedExceptions
+    String version = null;
+    if(bulkException.getCause() instanceof PreconditionFailedException)
+    {
+      version = ((PreconditionFailedException)
+          bulkException.getCause()).getVersion();
+    }
+
+    return BulkOperation.createResponse(
+        method, bulkException.getBulkId(), version,
+        location, status);
+  }
+
+
+
   /**
    * Process an operation from a bulk request.
    *
    * @param operation       The operation to be processed from the bulk request.
+   * @param unresolvedRefs  The bulkId data references of the operation that
+   *                        could not be resolved.
    *
    * @return  The operation response.
    * @throws  BulkException  If an error occurs while processing the individual
    *                         operation within the bulk operation.
    */
-  private BulkOperation processOperation(final BulkOperation operation)
+  private BulkOperation processOperation(final BulkOperation operation,
+                                         final Set<String> unresolvedRefs)
       throws BulkException
   {
     final Method method = operation.getMethod();
@@ -433,11 +828,11 @@ public class BulkContentRequestHandler extends BulkContentHandler
             "The bulk operation does not have any resource data");
       }
 
-      if (!unresolvedBulkIdRefs.isEmpty())
+      if (!unresolvedRefs.isEmpty())
       {
         throw SCIMException.createException(
             409, "Cannot resolve bulkId references "
-                 + unresolvedBulkIdRefs);
+                 + unresolvedRefs);
       }
 
       if (requestContext.getConsumeMediaType().equals(
@@ -456,6 +851,22 @@ public class BulkContentRequestHandler extends BulkContentHandler
             break;
         }
       }
+      else if (requestContext.getConsumeMediaType().equals(
+          SCIMConstants.APPLICATION_CBOR_TYPE))
+      {
+        switch (method)
+        {
+          case POST:
+            resourceStats.incrementStat(ResourceStats.POST_CONTENT_CBOR);
+            break;
+          case PUT:
+            resourceStats.incrementStat(ResourceStats.PUT_CONTENT_CBOR);
+            break;
+          case PATCH:
+            resourceStats.incrementStat(ResourceStats.PATCH_CONTENT_CBOR);
+            break;
+        }
+      }
       else
       {
         switch (method)
@@ -632,16 +1043,20 @@ public class BulkContentRequestHandler extends BulkContentHandler
       switch (method)
       {
         case POST:
-          resourceStats.incrementStat("post-" + e.getStatusCode());
+          resourceStats.incrementStat(ResourceStats.Operation.POST,
+                                    e.getStatusCode());
           break;
         case PUT:
-          resourceStats.incrementStat("put-" + e.getStatusCode());
+          resourceStats.incrementStat(ResourceStats.Operation.PUT,
+                                    e.getStatusCode());
           break;
         case PATCH:
-          resourceStats.incrementStat("patch-" + e.getStatusCode());
+          resourceStats.incrementStat(ResourceStats.Operation.PATCH,
+                                    e.getStatusCode());
           break;
         case DELETE:
-          resourceStats.incrementStat("delete-" + e.getStatusCode());
+          resourceStats.incrementStat(ResourceStats.Operation.DELETE,
+                                    e.getStatusCode());
           break;
       }
       throw new BulkException(e, method, bulkId, path);
@@ -678,6 +1093,21 @@ public class BulkContentRequestHandler extends BulkContentHandler
         resourceStats.incrementStat(ResourceStats.PATCH_RESPONSE_XML);
       }
     }
+    else if (requestContext.getProduceMediaType().equals(
+             SCIMConstants.APPLICATION_CBOR_TYPE))
+    {
+      switch (method)
+      {
+      case POST:
+        resourceStats.incrementStat(ResourceStats.POST_RESPONSE_CBOR);
+        break;
+      case PUT:
+        resourceStats.incrementStat(ResourceStats.PUT_RESPONSE_CBOR);
+        break;
+      case PATCH:
+        resourceStats.incrementStat(ResourceStats.PATCH_RESPONSE_CBOR);
+      }
+    }
 
     // Set the location for all operations except an unsuccessful POST.
     if (method != BulkOperation.Method.POST || statusCode == 201)
@@ -18,6 +18,7 @@
 package com.unboundid.scim.wink;
 
 import com.unboundid.scim.sdk.OAuthTokenHandler;
+import com.unboundid.scim.sdk.SCIMConstants;
 import org.glassfish.jersey.message.internal.Quality;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -179,4 +180,31 @@ public class BulkResource extends AbstractBulkResource
   }
 
 
+
+  /**
+   * Implement the POST operation consuming and producing CBOR format.
+   *
+   * @param inputStream      The content to be consumed.
+   * @param request          The HTTP servlet request.
+   * @param securityContext  The security context for the request.
+   * @param headers          The request headers.
+   * @param uriInfo          The URI info for the request.
+   *
+   * @return  The response to the request.
+   */
+  @POST
+  @Consumes(SCIMConstants.APPLICATION_CBOR)
+  @Produces(SCIMConstants.APPLICATION_CBOR)
+  public Response doCborCborPost(final InputStream inputStream,
+                                 @Context final HttpServletRequest request,
+                                 @Context final SecurityContext securityContext,
+                                 @Context final HttpHeaders headers,
+                                 @Context final UriInfo uriInfo)
+  {
+    final RequestContext requestContext =
+        new RequestContext(request, securityContext, headers, uriInfo,
+                           SCIMConstants.APPLICATION_CBOR_TYPE,
+                           SCIMConstants.APPLICATION_CBOR_TYPE);
+    return postBulk(requestContext, inputStream);
+  }
 }
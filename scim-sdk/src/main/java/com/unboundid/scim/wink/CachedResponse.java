@@ -0,0 +1,206 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.wink;
+
+import com.unboundid.scim.marshal.Marshaller;
+import com.unboundid.scim.sdk.SCIMResponse;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+
+
+/**
+ * This class holds the serialized content of a SCIM response that does not
+ * change between requests, such as the Service Provider Configuration or the
+ * resource schemas, so that it can be returned without being marshalled
+ * again. The content is identified by a strong entity tag computed from its
+ * bytes, so that clients may make conditional requests for it.
+ */
+final class CachedResponse
+{
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final byte[] content;
+  private final MediaType mediaType;
+  private final EntityTag entityTag;
+
+
+
+  /**
+   * Create a new cached response by marshalling the provided SCIM response.
+   *
+   * @param scimResponse  The SCIM response to be cached.
+   * @param marshaller    The marshaller to use.
+   * @param mediaType     The media type of the marshalled content.
+   *
+   * @throws Exception  If the response could not be marshalled.
+   */
+  CachedResponse(final SCIMResponse scimResponse,
+                 final Marshaller marshaller,
+                 final MediaType mediaType)
+      throws Exception
+  {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    scimResponse.marshal(marshaller, outputStream);
+    this.content = outputStream.toByteArray();
+    this.mediaType = mediaType;
+    this.entityTag = new EntityTag(digest(content));
+  }
+
+
+
+  /**
+   * Retrieves the entity tag of the cached content.
+   *
+   * @return  The strong entity tag of the cached content.
+   */
+  EntityTag getEntityTag()
+  {
+    return entityTag;
+  }
+
+
+
+  /**
+   * Create a response containing the cached content, or a 304 Not Modified
+   * response if the request preconditions show that the client already has
+   * the content.
+   *
+   * @param request  The request being responded to, or {@code null} if
+   *                 preconditions are not to be evaluated.
+   *
+   * @return  The response to the request.
+   */
+  Response getResponse(final Request request)
+  {
+    if (request != null)
+    {
+      final Response.ResponseBuilder builder =
+          request.evaluatePreconditions(entityTag);
+      if (builder != null)
+      {
+        return builder.build();
+      }
+    }
+
+    return Response.ok(content, mediaType).tag(entityTag).build();
+  }
+
+
+
+  /**
+   * Create a response containing the cached content, or a 304 Not Modified
+   * response if the If-None-Match header of the request matches the entity
+   * tag of the content.
+   *
+   * @param headers  The headers of the request being responded to.
+   *
+   * @return  The response to the request.
+   */
+  Response getResponse(final HttpHeaders headers)
+  {
+    final List<String> ifNoneMatch =
+        headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null)
+    {
+      for (final String value : ifNoneMatch)
+      {
+        if (matches(value))
+        {
+          return Response.notModified(entityTag).build();
+        }
+      }
+    }
+
+    return Response.ok(content, mediaType).tag(entityTag).build();
+  }
+
+
+
+  /**
+   * Determine whether an If-None-Match header value matches the entity tag
+   * of the cached content. The weak comparison is used, as required for
+   * If-None-Match.
+   *
+   * @param ifNoneMatch  The value of the If-None-Match header, which may be a
+   *                     comma-separated list of entity tags.
+   *
+   * @return  {@code true} if the header value matches.
+   */
+  boolean matches(final String ifNoneMatch)
+  {
+    for (final String tag : ifNoneMatch.split(","))
+    {
+      String value = tag.trim();
+      if (value.equals("*"))
+      {
+        return true;
+      }
+      if (value.startsWith("W/"))
+      {
+        value = value.substring(2);
+      }
+      if (value.length() >= 2 && value.startsWith("\"") &&
+          value.endsWith("\"") &&
+          value.substring(1, value.length() - 1).equals(entityTag.getValue()))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+  /**
+   * Compute a hex-encoded digest of the provided content.
+   *
+   * @param content  The content to be digested.
+   *
+   * @return  The first 128 bits of the SHA-256 digest of the content.
+   */
+  private static String digest(final byte[] content)
+  {
+    final byte[] digest;
+    try
+    {
+      digest = MessageDigest.getInstance("SHA-256").digest(content);
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+
+    final char[] hex = new char[32];
+    for (int i = 0; i < hex.length / 2; i++)
+    {
+      hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0x0F];
+      hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0x0F];
+    }
+    return new String(hex);
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.wink;
+
+import com.unboundid.scim.data.ServiceProviderConfig;
+import com.unboundid.scim.marshal.Marshaller;
+import com.unboundid.scim.marshal.json.JsonMarshaller;
+import com.unboundid.scim.marshal.xml.XmlMarshaller;
+import com.unboundid.scim.sdk.Debug;
+import com.unboundid.scim.sdk.SCIMBackend;
+
+import jakarta.ws.rs.core.MediaType;
+
+
+
+/**
+ * This class holds a Service Provider Configuration along with its JSON and
+ * XML representations. It is replaced whenever the application settings or
+ * the backend capabilities that it describes change.
+ */
+final class CachedServiceProviderConfig
+{
+  private final long version;
+  private final int maxResults;
+  private final boolean supportsSorting;
+  private final boolean supportsVersioning;
+  private final ServiceProviderConfig serviceProviderConfig;
+  private final CachedResponse jsonResponse;
+  private final CachedResponse xmlResponse;
+
+
+
+  /**
+   * Create a new cached Service Provider Configuration.
+   *
+   * @param version                The version of the application settings
+   *                               from which the configuration was created.
+   * @param backend                The backend whose capabilities are
+   *                               described by the configuration.
+   * @param serviceProviderConfig  The Service Provider Configuration.
+   */
+  CachedServiceProviderConfig(final long version,
+                              final SCIMBackend backend,
+                              final ServiceProviderConfig serviceProviderConfig)
+  {
+    this.version = version;
+    this.maxResults = backend.getConfig().getMaxResults();
+    this.supportsSorting = backend.supportsSorting();
+    this.supportsVersioning = backend.supportsVersioning();
+    this.serviceProviderConfig = serviceProviderConfig;
+    this.jsonResponse = createResponse(new JsonMarshaller(),
+                                       MediaType.APPLICATION_JSON_TYPE);
+    this.xmlResponse = createResponse(new XmlMarshaller(),
+                                      MediaType.APPLICATION_XML_TYPE);
+  }
+
+
+
+  /**
+   * Determines whether this configuration is still current.
+   *
+   * @param currentVersion  The current version of the application settings.
+   * @param backend         The backend whose capabilities are described by
+   *                        the configuration.
+   *
+   * @return  {@code true} if the configuration is still current.
+   */
+  boolean isCurrent(final long currentVersion, final SCIMBackend backend)
+  {
+    return version == currentVersion &&
+           maxResults == backend.getConfig().getMaxResults() &&
+           supportsSorting == backend.supportsSorting() &&
+           supportsVersioning == backend.supportsVersioning();
+  }
+
+
+
+  /**
+   * Retrieves the Service Provider Configuration.
+   *
+   * @return  The Service Provider Configuration.
+   */
+  ServiceProviderConfig getServiceProviderConfig()
+  {
+    return serviceProviderConfig;
+  }
+
+
+
+  /**
+   * Retrieves the cached representation of the configuration in the
+   * specified format.
+   *
+   * @param mediaType  The media type of the representation.
+   *
+   * @return  The cached representation, or {@code null} if the configuration
+   *          could not be marshalled in the specified format.
+   */
+  CachedResponse getResponse(final MediaType mediaType)
+  {
+    if (mediaType.equals(MediaType.APPLICATION_JSON_TYPE))
+    {
+      return jsonResponse;
+    }
+    else
+    {
+      return xmlResponse;
+    }
+  }
+
+
+
+  /**
+   * Marshal the configuration in the specified format.
+   *
+   * @param marshaller  The marshaller to use.
+   * @param mediaType   The media type of the representation.
+   *
+   * @return  The cached representation, or {@code null} if the configuration
+   *          could not be marshalled.
+   */
+  private CachedResponse createResponse(
+      final Marshaller marshaller,
+      final MediaType mediaType)
+  {
+    try
+    {
+      return new CachedResponse(serviceProviderConfig, marshaller, mediaType);
+    }
+    catch (Exception e)
+    {
+      Debug.debugException(e);
+      return null;
+    }
+  }
+}
@@ -17,18 +17,16 @@
 
 package com.unboundid.scim.wink;
 
-import com.unboundid.scim.data.ServiceProviderConfig;
-
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 
 import static com.unboundid.scim.sdk.SCIMConstants.
     RESOURCE_ENDPOINT_SERVICE_PROVIDER_CONFIG;
-import static com.unboundid.scim.sdk.SCIMConstants.
-    RESOURCE_NAME_SERVICE_PROVIDER_CONFIG;
 
 
 /**
@@ -53,20 +51,15 @@ public class JSONServiceProviderConfigResource extends AbstractStaticResource
   /**
    * Implement the GET operation to fetch the configuration in JSON format.
    *
+   * @param request  The request being responded to.
+   *
    * @return  The response to the request.
    */
   @GET
   @Produces(MediaType.APPLICATION_JSON)
-  public Response doJsonGet()
+  public Response doJsonGet(@Context final Request request)
   {
-    final ServiceProviderConfig config = application.getServiceProviderConfig();
-    Response.ResponseBuilder builder = Response.ok();
-
-    setResponseEntity(builder, MediaType.APPLICATION_JSON_TYPE, config);
-    application.getStatsForResource(RESOURCE_NAME_SERVICE_PROVIDER_CONFIG).
-        incrementStat(ResourceStats.GET_RESPONSE_XML);
-    application.getStatsForResource(RESOURCE_NAME_SERVICE_PROVIDER_CONFIG).
-        incrementStat(ResourceStats.GET_OK);
-    return builder.build();
+    return ServiceProviderConfigResource.getServiceProviderConfig(
+        application, request, MediaType.APPLICATION_JSON_TYPE);
   }
 }
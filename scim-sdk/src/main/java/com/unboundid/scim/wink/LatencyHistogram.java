@@ -0,0 +1,280 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.wink;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+
+/**
+ * This class records a distribution of latencies so that percentiles may be
+ * reported. Latencies are recorded in microseconds into buckets that are
+ * spaced logarithmically, with 16 linear sub-buckets for each power of two,
+ * so that a reported percentile is within about 6% of the actual value.
+ * Recording a latency does not acquire any locks.
+ */
+public class LatencyHistogram
+{
+  /**
+   * The number of bits used to select the sub-bucket within a power of two.
+   */
+  private static final int SUB_BUCKET_BITS = 4;
+
+  /**
+   * The number of sub-buckets within each power of two.
+   */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * The largest power of two that is tracked.
+   */
+  private static final int MAX_EXPONENT = 36;
+
+  /**
+   * The largest latency in microseconds that is recorded in a regular
+   * bucket, which is about 38 hours. Larger latencies are recorded in the
+   * overflow bucket.
+   */
+  public static final long MAX_TRACKED_MICROS =
+      (1L << (MAX_EXPONENT + 1)) - 1;
+
+  /**
+   * The number of regular buckets.
+   */
+  private static final int BUCKET_COUNT =
+      (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+  /**
+   * The index of the bucket for latencies larger than
+   * {@link #MAX_TRACKED_MICROS}, which follows the regular buckets.
+   */
+  static final int OVERFLOW_BUCKET = BUCKET_COUNT;
+
+  private final AtomicLongArray buckets =
+      new AtomicLongArray(BUCKET_COUNT + 1);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final AtomicLong maxMicros = new AtomicLong();
+  private final long createTimeNanos = System.nanoTime();
+
+
+
+  /**
+   * Records a single latency.
+   *
+   * @param nanos  The latency in nanoseconds.
+   */
+  public void recordNanos(final long nanos)
+  {
+    final long micros = Math.max(0L, TimeUnit.NANOSECONDS.toMicros(nanos));
+    buckets.getAndIncrement(bucketIndex(micros));
+    count.increment();
+    totalMicros.add(micros);
+
+    long max = maxMicros.get();
+    while (micros > max && !maxMicros.compareAndSet(max, micros))
+    {
+      max = maxMicros.get();
+    }
+  }
+
+
+
+  /**
+   * Retrieves the number of latencies recorded.
+   *
+   * @return  The number of latencies recorded.
+   */
+  public long getCount()
+  {
+    return count.sum();
+  }
+
+
+
+  /**
+   * Retrieves the average number of latencies recorded per second since
+   * this histogram was created.
+   *
+   * @return  The average number of latencies recorded per second.
+   */
+  public double getRatePerSecond()
+  {
+    final long elapsedNanos = System.nanoTime() - createTimeNanos;
+    if (elapsedNanos <= 0)
+    {
+      return 0.0;
+    }
+    return getCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+
+
+  /**
+   * Retrieves the mean of the latencies recorded.
+   *
+   * @return  The mean latency in microseconds, or zero if no latencies have
+   *          been recorded.
+   */
+  public long getMeanMicros()
+  {
+    final long n = count.sum();
+    return n == 0 ? 0 : totalMicros.sum() / n;
+  }
+
+
+
+  /**
+   * Retrieves the largest latency recorded.
+   *
+   * @return  The largest latency in microseconds, or zero if no latencies
+   *          have been recorded.
+   */
+  public long getMaxMicros()
+  {
+    return maxMicros.get();
+  }
+
+
+
+  /**
+   * Retrieves the latency at or below which the specified percentage of
+   * recorded latencies fall.
+   *
+   * @param percentile  The percentile, from 0 to 100.
+   *
+   * @return  The latency in microseconds at the specified percentile, or zero
+   *          if no latencies have been recorded.
+   */
+  public long getValueAtPercentile(final double percentile)
+  {
+    final int index = percentileBucket(percentile);
+    if (index < 0)
+    {
+      return 0;
+    }
+    return Math.min(bucketUpperBound(index), getMaxMicros());
+  }
+
+
+
+  /**
+   * Indicates whether the latency at the specified percentile is larger than
+   * {@link #MAX_TRACKED_MICROS}, so that it should be reported as exceeding
+   * the tracked range rather than as a value.
+   *
+   * @param percentile  The percentile, from 0 to 100.
+   *
+   * @return  {@code true} if the latency at the specified percentile is
+   *          larger than the largest tracked latency.
+   */
+  public boolean isOverflowAtPercentile(final double percentile)
+  {
+    return percentileBucket(percentile) == OVERFLOW_BUCKET;
+  }
+
+
+
+  /**
+   * Determines the bucket containing the latency at the specified percentile.
+   *
+   * @param percentile  The percentile, from 0 to 100.
+   *
+   * @return  The index of the bucket, or -1 if no latencies have been
+   *          recorded.
+   */
+  private int percentileBucket(final double percentile)
+  {
+    final long[] counts = new long[BUCKET_COUNT + 1];
+    long total = 0;
+    for (int i = 0; i <= OVERFLOW_BUCKET; i++)
+    {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0)
+    {
+      return -1;
+    }
+
+    final double fraction = Math.min(100.0, Math.max(0.0, percentile)) / 100.0;
+    final long rank = Math.max(1L, (long) Math.ceil(fraction * total));
+    long cumulative = 0;
+    for (int i = 0; i < OVERFLOW_BUCKET; i++)
+    {
+      cumulative += counts[i];
+      if (cumulative >= rank)
+      {
+        return i;
+      }
+    }
+    return OVERFLOW_BUCKET;
+  }
+
+
+
+  /**
+   * Determines the bucket in which a latency is recorded.
+   *
+   * @param micros  The latency in microseconds.
+   *
+   * @return  The index of the bucket.
+   */
+  static int bucketIndex(final long micros)
+  {
+    if (micros < SUB_BUCKET_COUNT)
+    {
+      return (int) micros;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT)
+    {
+      return OVERFLOW_BUCKET;
+    }
+    final int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) &
+                          (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+
+
+  /**
+   * Determines the largest latency that is recorded in a bucket.
+   *
+   * @param index  The index of the bucket.
+   *
+   * @return  The largest latency in microseconds recorded in the bucket.
+   */
+  static long bucketUpperBound(final int index)
+  {
+    if (index < SUB_BUCKET_COUNT)
+    {
+      return index;
+    }
+    if (index == OVERFLOW_BUCKET)
+    {
+      return Long.MAX_VALUE;
+    }
+    final int shift = index / SUB_BUCKET_COUNT - 1;
+    final long subBucket = index % SUB_BUCKET_COUNT;
+    return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+  }
+}
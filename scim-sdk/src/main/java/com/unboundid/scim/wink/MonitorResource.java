@@ -28,17 +28,40 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.StringWriter;
 import java.util.Map;
 
 
 /**
  * This class is a JAX-RS resource to allow monitor data to be fetched and
- * reset.
+ * reset. Latencies are reported in microseconds, and the rate at which
+ * operations were performed is reported per second.
  */
 @Path("monitor")
 public class MonitorResource
 {
   private static final String RESOURCE_NAME = "monitor";
+
+  /**
+   * The latency percentiles that are reported.
+   */
+  private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+  /**
+   * The names under which the latency percentiles are reported.
+   */
+  private static final String[] PERCENTILE_NAMES =
+      { "p50", "p90", "p99", "p999" };
+
+  /**
+   * The value reported for a latency percentile that is larger than the
+   * largest latency tracked by the histogram.
+   */
+  private static final String OVERFLOW_PERCENTILE =
+      ">" + LatencyHistogram.MAX_TRACKED_MICROS;
   private final SCIMApplication application;
 
   /**
@@ -82,6 +105,47 @@ public class MonitorResource
 
 
 
+  /**
+   * Implement the GET operation on the monitor resource to fetch the monitor
+   * data in XML format.
+   *
+   * @return  The response to the request.
+   */
+  @GET
+  @Produces(MediaType.APPLICATION_XML)
+  public Response doXmlGet()
+  {
+    try
+    {
+      final StringWriter stringWriter = new StringWriter();
+      final XMLStreamWriter writer =
+          XMLOutputFactory.newInstance().createXMLStreamWriter(stringWriter);
+      try
+      {
+        writeMonitorData(writer);
+      }
+      finally
+      {
+        writer.close();
+      }
+      application.getStatsForResource(RESOURCE_NAME).incrementStat(
+          ResourceStats.GET_RESPONSE_XML);
+      application.getStatsForResource(RESOURCE_NAME).incrementStat(
+          ResourceStats.GET_OK);
+      return Response.ok(stringWriter.toString(),
+                         MediaType.APPLICATION_XML).build();
+    }
+    catch (XMLStreamException e)
+    {
+      Debug.debugException(e);
+      application.getStatsForResource(RESOURCE_NAME).incrementStat(
+          ResourceStats.GET_INTERNAL_SERVER_ERROR);
+      return Response.serverError().entity(e.getMessage()).build();
+    }
+  }
+
+
+
   /**
    * Write the monitor data in JSON format.
    *
@@ -104,17 +168,159 @@ public class MonitorResource
     writer.array();
     for(ResourceStats stats : application.getResourceStats())
     {
+      writeStats(writer, stats);
+    }
+    writer.endArray();
+
+    writer.key("backend");
+    writer.array();
+    for(ResourceStats stats : application.getBackend().getBackendStats())
+    {
+      writeStats(writer, stats);
+    }
+    writer.endArray();
+    writer.endObject();
+  }
+
+
+
+  /**
+   * Write a set of statistics in JSON format.
+   *
+   * @param writer  A JSON writer where the statistics are to be written.
+   * @param stats   The statistics to be written.
+   *
+   * @throws JSONException  If an error occurs while formatting the data.
+   */
+  private static void writeStats(final JSONWriter writer,
+                                 final ResourceStats stats)
+      throws JSONException
+  {
+    writer.object();
+    writer.key("name");
+    writer.value(stats.getName());
+    for(Map.Entry<String, Long> stat : stats.getStats().entrySet())
+    {
+      writer.key(stat.getKey());
+      writer.value(stat.getValue());
+    }
+
+    final Map<String, LatencyHistogram> latencies = stats.getLatencies();
+    if (!latencies.isEmpty())
+    {
+      writer.key("latencies");
       writer.object();
-      writer.key("name");
-      writer.value(stats.getName());
-      for(Map.Entry<String, Long> stat : stats.getStats().entrySet())
+      for(Map.Entry<String, LatencyHistogram> latency : latencies.entrySet())
       {
-        writer.key(stat.getKey());
-        writer.value(stat.getValue());
+        final LatencyHistogram histogram = latency.getValue();
+        writer.key(latency.getKey());
+        writer.object();
+        writer.key("count");
+        writer.value(histogram.getCount());
+        writer.key("rate");
+        writer.value(histogram.getRatePerSecond());
+        writer.key("mean");
+        writer.value(histogram.getMeanMicros());
+        writer.key("max");
+        writer.value(histogram.getMaxMicros());
+        for (int i = 0; i < PERCENTILES.length; i++)
+        {
+          writer.key(PERCENTILE_NAMES[i]);
+          if (histogram.isOverflowAtPercentile(PERCENTILES[i]))
+          {
+            writer.value(OVERFLOW_PERCENTILE);
+          }
+          else
+          {
+            writer.value(histogram.getValueAtPercentile(PERCENTILES[i]));
+          }
+        }
+        writer.endObject();
       }
       writer.endObject();
     }
-    writer.endArray();
     writer.endObject();
   }
+
+
+
+  /**
+   * Write the monitor data in XML format.
+   *
+   * @param writer  An XML writer where the monitor data is to be written.
+   *
+   * @throws XMLStreamException  If an error occurs while writing the data.
+   */
+  private void writeMonitorData(final XMLStreamWriter writer)
+      throws XMLStreamException
+  {
+    writer.writeStartDocument("UTF-8", "1.0");
+    writer.writeStartElement("monitor");
+    writer.writeAttribute("version", Version.VERSION);
+    writer.writeAttribute("build", Version.BUILD_TIMESTAMP);
+    writer.writeAttribute("revision", Version.REVISION_ID);
+
+    writer.writeStartElement("resources");
+    for(ResourceStats stats : application.getResourceStats())
+    {
+      writeStats(writer, stats);
+    }
+    writer.writeEndElement();
+
+    writer.writeStartElement("backend");
+    for(ResourceStats stats : application.getBackend().getBackendStats())
+    {
+      writeStats(writer, stats);
+    }
+    writer.writeEndElement();
+
+    writer.writeEndElement();
+    writer.writeEndDocument();
+  }
+
+
+
+  /**
+   * Write a set of statistics in XML format.
+   *
+   * @param writer  An XML writer where the statistics are to be written.
+   * @param stats   The statistics to be written.
+   *
+   * @throws XMLStreamException  If an error occurs while writing the data.
+   */
+  private static void writeStats(final XMLStreamWriter writer,
+                                 final ResourceStats stats)
+      throws XMLStreamException
+  {
+    writer.writeStartElement("resource");
+    writer.writeAttribute("name", stats.getName());
+    for(Map.Entry<String, Long> stat : stats.getStats().entrySet())
+    {
+      writer.writeStartElement("stat");
+      writer.writeAttribute("name", stat.getKey());
+      writer.writeCharacters(String.valueOf(stat.getValue()));
+      writer.writeEndElement();
+    }
+
+    for(Map.Entry<String, LatencyHistogram> latency :
+        stats.getLatencies().entrySet())
+    {
+      final LatencyHistogram histogram = latency.getValue();
+      writer.writeEmptyElement("latency");
+      writer.writeAttribute("name", latency.getKey());
+      writer.writeAttribute("count", String.valueOf(histogram.getCount()));
+      writer.writeAttribute("rate",
+                            String.valueOf(histogram.getRatePerSecond()));
+      writer.writeAttribute("mean", String.valueOf(histogram.getMeanMicros()));
+      writer.writeAttribute("max", String.valueOf(histogram.getMaxMicros()));
+      for (int i = 0; i < PERCENTILES.length; i++)
+      {
+        writer.writeAttribute(PERCENTILE_NAMES[i],
+            histogram.isOverflowAtPercentile(PERCENTILES[i]) ?
+            OVERFLOW_PERCENTILE :
+            String.valueOf(histogram.getValueAtPercentile(PERCENTILES[i])));
+      }
+    }
+    writer.writeEndElement();
+  }
 }
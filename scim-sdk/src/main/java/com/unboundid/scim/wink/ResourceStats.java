@@ -20,7 +20,8 @@ package com.unboundid.scim.wink;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class holds various statistics of each SCIM resource being served.
@@ -72,6 +73,11 @@ public class ResourceStats
    */
   public static final String QUERY_RESPONSE_JSON = "query-response-json";
 
+  /**
+   * Number of query requests that responded in CBOR format.
+   */
+  public static final String QUERY_RESPONSE_CBOR = "query-response-cbor";
+
 
   /**
    * Number of get requests that were successful.
@@ -123,6 +129,11 @@ public class ResourceStats
    */
   public static final String GET_RESPONSE_JSON = "get-response-json";
 
+  /**
+   * Number of get requests that responded in CBOR format.
+   */
+  public static final String GET_RESPONSE_CBOR = "get-response-cbor";
+
   /**
    * Number of put requests that were successful.
    */
@@ -178,6 +189,11 @@ public class ResourceStats
    */
   public static final String PUT_RESPONSE_JSON = "put-response-json";
 
+  /**
+   * Number of put requests that responded in CBOR format.
+   */
+  public static final String PUT_RESPONSE_CBOR = "put-response-cbor";
+
   /**
    * Number of put requests with content in XML format.
    */
@@ -188,6 +204,11 @@ public class ResourceStats
    */
   public static final String PUT_CONTENT_JSON = "put-content-json";
 
+  /**
+   * Number of put requests with content in CBOR format.
+   */
+  public static final String PUT_CONTENT_CBOR = "put-content-cbor";
+
 
   /**
    * Number of post requests that were successful.
@@ -239,6 +260,11 @@ public class ResourceStats
    */
   public static final String POST_RESPONSE_JSON = "post-response-json";
 
+  /**
+   * Number of post requests that responded in CBOR format.
+   */
+  public static final String POST_RESPONSE_CBOR = "post-response-cbor";
+
   /**
    * Number of post requests with content in XML format.
    */
@@ -249,6 +275,11 @@ public class ResourceStats
    */
   public static final String POST_CONTENT_JSON = "post-content-json";
 
+  /**
+   * Number of post requests with content in CBOR format.
+   */
+  public static final String POST_CONTENT_CBOR = "post-content-cbor";
+
 
   /**
    * Number of patch requests that were successful.
@@ -305,6 +336,11 @@ public class ResourceStats
    */
   public static final String PATCH_RESPONSE_JSON = "patch-response-json";
 
+  /**
+   * Number of patch requests that responded in CBOR format.
+   */
+  public static final String PATCH_RESPONSE_CBOR = "patch-response-cbor";
+
   /**
    * Number of patch requests with content in XML format.
    */
@@ -315,6 +351,11 @@ public class ResourceStats
    */
   public static final String PATCH_CONTENT_JSON = "patch-content-json";
 
+  /**
+   * Number of patch requests with content in CBOR format.
+   */
+  public static final String PATCH_CONTENT_CBOR = "patch-content-cbor";
+
 
   /**
    * Number of delete requests that were successful.
@@ -361,9 +402,289 @@ public class ResourceStats
    */
   public static final String DELETE_NOT_IMPLEMENTED = "delete-505";
 
+
+  /**
+   * Latency of requests from when they are received until the response has
+   * been written. The latency name is prefixed by the operation, for example
+   * {@code get-time}.
+   */
+  public static final String LATENCY_TOTAL = "time";
+
+  /**
+   * Latency of the backend processing of requests.
+   */
+  public static final String LATENCY_BACKEND = "backend-time";
+
+  /**
+   * Latency of writing response content in XML, JSON or CBOR format.
+   */
+  public static final String LATENCY_SERIALIZATION = "serialization-time";
+
+  /**
+   * The operations for which statistics are kept.
+   */
+  enum Operation
+  {
+    /**
+     * Query requests.
+     */
+    QUERY("query"),
+
+    /**
+     * Get requests.
+     */
+    GET("get"),
+
+    /**
+     * Put requests.
+     */
+    PUT("put"),
+
+    /**
+     * Post requests.
+     */
+    POST("post"),
+
+    /**
+     * Patch requests.
+     */
+    PATCH("patch"),
+
+    /**
+     * Delete requests.
+     */
+    DELETE("delete");
+
+    private final String name;
+
+    /**
+     * Create a new operation.
+     *
+     * @param name The name of the operation, which is used as the prefix of
+     *             the names of its statistics.
+     */
+    Operation(final String name)
+    {
+      this.name = name;
+    }
+
+    /**
+     * Retrieves the name of the operation.
+     *
+     * @return The name of the operation.
+     */
+    String getName()
+    {
+      return name;
+    }
+  }
+
+  /**
+   * The outcomes of operations for which statistics are kept.
+   */
+  enum Outcome
+  {
+    /**
+     * The request was successful.
+     */
+    SUCCESSFUL("successful"),
+
+    /**
+     * The versioned resource was not modified.
+     */
+    NOT_MODIFIED("304"),
+
+    /**
+     * The request failed with code 400 Bad Request.
+     */
+    BAD_REQUEST("400"),
+
+    /**
+     * The request failed with code 401 Unauthorized.
+     */
+    UNAUTHORIZED("401"),
+
+    /**
+     * The request failed with code 403 Forbidden.
+     */
+    FORBIDDEN("403"),
+
+    /**
+     * The request failed with code 404 Not Found.
+     */
+    NOT_FOUND("404"),
+
+    /**
+     * The request failed with code 409 Conflict.
+     */
+    CONFLICT("409"),
+
+    /**
+     * The request failed with code 412 Precondition Failed.
+     */
+    PRECONDITION_FAILED("412"),
+
+    /**
+     * The request failed with code 413 Entity Too Large.
+     */
+    REQUEST_ENTITY_TOO_LARGE("413"),
+
+    /**
+     * The request failed with code 500 Internal Server Error.
+     */
+    INTERNAL_SERVER_ERROR("500"),
+
+    /**
+     * The request failed with code 501 Not Implemented.
+     */
+    NOT_IMPLEMENTED("501"),
+
+    /**
+     * The request failed with code 503 Service Unavailable.
+     */
+    SERVICE_UNAVAILABLE("503"),
+
+    /**
+     * The request failed with code 505 HTTP Version Not Supported.
+     */
+    VERSION_NOT_SUPPORTED("505"),
+
+    /**
+     * The response was in XML format.
+     */
+    RESPONSE_XML("response-xml"),
+
+    /**
+     * The response was in JSON format.
+     */
+    RESPONSE_JSON("response-json"),
+
+    /**
+     * The request content was in XML format.
+     */
+    CONTENT_XML("content-xml"),
+
+    /**
+     * The request content was in JSON format.
+     */
+    CONTENT_JSON("content-json"),
+
+    /**
+     * The response was in CBOR format.
+     */
+    RESPONSE_CBOR("response-cbor"),
+
+    /**
+     * The request content was in CBOR format.
+     */
+    CONTENT_CBOR("content-cbor");
+
+    private final String name;
+
+    /**
+     * Create a new outcome.
+     *
+     * @param name The name of the outcome, which is used as the suffix of
+     *             the names of its statistics.
+     */
+    Outcome(final String name)
+    {
+      this.name = name;
+    }
+
+    /**
+     * Retrieves the name of the outcome.
+     *
+     * @return The name of the outcome.
+     */
+    String getName()
+    {
+      return name;
+    }
+
+    /**
+     * Retrieves the outcome of a request that failed with the provided
+     * status code.
+     *
+     * @param statusCode The HTTP status code.
+     * @return The outcome, or {@code null} if statistics are not indexed for
+     *         the status code.
+     */
+    static Outcome forStatusCode(final int statusCode)
+    {
+      switch (statusCode)
+      {
+        case 304: return NOT_MODIFIED;
+        case 400: return BAD_REQUEST;
+        case 401: return UNAUTHORIZED;
+        case 403: return FORBIDDEN;
+        case 404: return NOT_FOUND;
+        case 409: return CONFLICT;
+        case 412: return PRECONDITION_FAILED;
+        case 413: return REQUEST_ENTITY_TOO_LARGE;
+        case 500: return INTERNAL_SERVER_ERROR;
+        case 501: return NOT_IMPLEMENTED;
+        case 503: return SERVICE_UNAVAILABLE;
+        case 505: return VERSION_NOT_SUPPORTED;
+        default:  return null;
+      }
+    }
+  }
+
+  private static final Operation[] OPERATIONS = Operation.values();
+  private static final Outcome[] OUTCOMES = Outcome.values();
+
+  /**
+   * The names of the latencies that are recorded for each operation.
+   */
+  private static final String[] LATENCIES =
+      { LATENCY_TOTAL, LATENCY_BACKEND, LATENCY_SERIALIZATION };
+
+  /**
+   * The names of the indexed counters, such as {@code get-successful}.
+   */
+  private static final String[] COUNTER_NAMES =
+      new String[OPERATIONS.length * OUTCOMES.length];
+
+  /**
+   * The indexes of the counters, keyed by counter name.
+   */
+  private static final Map<String, Integer> COUNTER_INDEXES =
+      new HashMap<String, Integer>();
+
+  static
+  {
+    for (final Operation operation : OPERATIONS)
+    {
+      for (final Outcome outcome : OUTCOMES)
+      {
+        final int index = counterIndex(operation, outcome);
+        COUNTER_NAMES[index] = operation.getName() + "-" + outcome.getName();
+        COUNTER_INDEXES.put(COUNTER_NAMES[index], index);
+      }
+    }
+  }
+
   private final String name;
-  private final ConcurrentHashMap<String, AtomicLong> stats =
-      new ConcurrentHashMap<String, AtomicLong>();
+
+  /**
+   * The counters for each operation and outcome.
+   */
+  private final LongAdder[] counters = new LongAdder[COUNTER_NAMES.length];
+
+  /**
+   * Any other statistical values, keyed by name.
+   */
+  private final ConcurrentHashMap<String, LongAdder> otherStats =
+      new ConcurrentHashMap<String, LongAdder>();
+
+  /**
+   * The latency histograms for each operation, which are created when the
+   * first latency is recorded.
+   */
+  private final AtomicReferenceArray<LatencyHistogram> latencies =
+      new AtomicReferenceArray<LatencyHistogram>(
+          OPERATIONS.length * LATENCIES.length);
 
   /**
    * Create a new ResourceStats instance with the provided name.
@@ -373,6 +694,57 @@ public class ResourceStats
    */
   public ResourceStats(final String name) {
     this.name = name;
+    for (int i = 0; i < counters.length; i++)
+    {
+      counters[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Create a new ResourceStats instance with the provided name holding a
+   * snapshot of statistical values that are maintained elsewhere, such as
+   * in a backend.
+   *
+   * @param name  The name of this ResourceStats instance.
+   * @param stats The statistical values, keyed by name.
+   */
+  public ResourceStats(final String name, final Map<String, Long> stats) {
+    this(name);
+    for(Map.Entry<String, Long> entry : stats.entrySet())
+    {
+      getCounter(entry.getKey()).add(entry.getValue());
+    }
+  }
+
+  /**
+   * Increments the counter for an operation and outcome.
+   *
+   * @param operation The operation.
+   * @param outcome   The outcome of the operation.
+   */
+  void incrementStat(final Operation operation, final Outcome outcome)
+  {
+    counters[counterIndex(operation, outcome)].increment();
+  }
+
+  /**
+   * Increments the counter for an operation that failed with the provided
+   * status code.
+   *
+   * @param operation  The operation.
+   * @param statusCode The HTTP status code of the response.
+   */
+  void incrementStat(final Operation operation, final int statusCode)
+  {
+    final Outcome outcome = Outcome.forStatusCode(statusCode);
+    if(outcome != null)
+    {
+      incrementStat(operation, outcome);
+    }
+    else
+    {
+      incrementStat(operation.getName() + "-" + statusCode);
+    }
   }
 
   /**
@@ -382,17 +754,7 @@ public class ResourceStats
    */
   void incrementStat(final String stat)
   {
-    AtomicLong num = stats.get(stat);
-    if(num == null)
-    {
-      num = new AtomicLong();
-      AtomicLong prev = stats.putIfAbsent(stat, num);
-      if(prev != null)
-      {
-        num = prev;
-      }
-    }
-    num.getAndIncrement();
+    getCounter(stat).increment();
   }
 
   /**
@@ -403,10 +765,15 @@ public class ResourceStats
    */
   public long getStat(final String stat)
   {
-    AtomicLong i = stats.get(stat);
-    if(i != null)
+    final Integer index = COUNTER_INDEXES.get(stat);
+    if(index != null)
+    {
+      return counters[index].sum();
+    }
+    final LongAdder num = otherStats.get(stat);
+    if(num != null)
     {
-      return i.get();
+      return num.sum();
     }
     return 0;
   }
@@ -418,10 +785,73 @@ public class ResourceStats
    */
   public Map<String, Long> getStats()
   {
-    Map<String, Long> map = new HashMap<String, Long>(stats.size());
-    for(Map.Entry<String, AtomicLong> entry : stats.entrySet())
+    final Map<String, Long> map = new HashMap<String, Long>();
+    for (int i = 0; i < counters.length; i++)
+    {
+      final long value = counters[i].sum();
+      if(value != 0)
+      {
+        map.put(COUNTER_NAMES[i], value);
+      }
+    }
+    for(Map.Entry<String, LongAdder> entry : otherStats.entrySet())
+    {
+      map.put(entry.getKey(), entry.getValue().sum());
+    }
+    return map;
+  }
+
+  /**
+   * Records the latency of a single operation.
+   *
+   * @param operation The operation.
+   * @param latency   The latency being recorded, such as
+   *                  {@link #LATENCY_BACKEND}.
+   * @param nanos     The latency in nanoseconds.
+   */
+  void recordLatency(final Operation operation, final String latency,
+                     final long nanos)
+  {
+    final int index =
+        operation.ordinal() * LATENCIES.length + latencyIndex(latency);
+    LatencyHistogram histogram = latencies.get(index);
+    if(histogram == null)
+    {
+      latencies.compareAndSet(index, null, new LatencyHistogram());
+      histogram = latencies.get(index);
+    }
+    histogram.recordNanos(nanos);
+  }
+
+  /**
+   * Retrieves a single latency histogram.
+   *
+   * @param latency The name of the latency histogram to retrieve, for example
+   *                {@code get-time}.
+   * @return The latency histogram or {@code null} if it is not present.
+   */
+  public LatencyHistogram getLatency(final String latency)
+  {
+    return getLatencies().get(latency);
+  }
+
+  /**
+   * Retrieves all latency histograms that are present.
+   *
+   * @return All latency histograms that are present, keyed by name.
+   */
+  public Map<String, LatencyHistogram> getLatencies()
+  {
+    final Map<String, LatencyHistogram> map =
+        new HashMap<String, LatencyHistogram>();
+    for (int i = 0; i < latencies.length(); i++)
     {
-      map.put(entry.getKey(), entry.getValue().get());
+      final LatencyHistogram histogram = latencies.get(i);
+      if(histogram != null)
+      {
+        map.put(OPERATIONS[i / LATENCIES.length].getName() + "-" +
+                LATENCIES[i % LATENCIES.length], histogram);
+      }
     }
     return map;
   }
@@ -436,4 +866,63 @@ public class ResourceStats
   public String getName() {
     return name;
   }
+
+  /**
+   * Retrieves the counter for a statistical value, creating it if necessary.
+   *
+   * @param stat The name of the statistical value.
+   * @return The counter for the statistical value.
+   */
+  private LongAdder getCounter(final String stat)
+  {
+    final Integer index = COUNTER_INDEXES.get(stat);
+    if(index != null)
+    {
+      return counters[index];
+    }
+
+    LongAdder num = otherStats.get(stat);
+    if(num == null)
+    {
+      num = new LongAdder();
+      LongAdder prev = otherStats.putIfAbsent(stat, num);
+      if(prev != null)
+      {
+        num = prev;
+      }
+    }
+    return num;
+  }
+
+  /**
+   * Determines the index of the counter for an operation and outcome.
+   *
+   * @param operation The operation.
+   * @param outcome   The outcome of the operation.
+   * @return The index of the counter.
+   */
+  private static int counterIndex(final Operation operation,
+                                  final Outcome outcome)
+  {
+    return operation.ordinal() * OUTCOMES.length + outcome.ordinal();
+  }
+
+  /**
+   * Determines the index of a latency among those recorded for each
+   * operation.
+   *
+   * @param latency The name of the latency.
+   * @return The index of the latency.
+   */
+  private static int latencyIndex(final String latency)
+  {
+    for (int i = 0; i < LATENCIES.length; i++)
+    {
+      if(LATENCIES[i].equals(latency))
+      {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unknown latency " + latency);
+  }
 }
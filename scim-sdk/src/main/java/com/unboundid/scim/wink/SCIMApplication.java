@@ -26,6 +26,7 @@ import com.unboundid.scim.data.PatchConfig;
 import com.unboundid.scim.data.ServiceProviderConfig;
 import com.unboundid.scim.data.SortConfig;
 import com.unboundid.scim.data.XmlDataFormatConfig;
+import com.unboundid.scim.sdk.FilterCache;
 import com.unboundid.scim.sdk.OAuthTokenHandler;
 import com.unboundid.scim.schema.CoreSchema;
 import com.unboundid.scim.sdk.SCIMBackend;
@@ -33,14 +34,21 @@ import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMObject;
 import com.unboundid.scim.facade.org.apache.wink.common.WinkApplication;
 import org.glassfish.jersey.server.filter.HttpMethodOverrideFilter;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.unboundid.scim.sdk.SCIMConstants.SCHEMA_URI_CORE;
 
@@ -51,14 +59,24 @@ import static com.unboundid.scim.sdk.SCIMConstants.SCHEMA_URI_CORE;
  */
 public class SCIMApplication extends WinkApplication
 {
-  private final Map<String,ResourceStats> resourceStats;
+  private final ConcurrentHashMap<String,ResourceStats> resourceStats;
   private final SCIMBackend backend;
   private final boolean supportsOAuth;
   private volatile long bulkMaxOperations = Long.MAX_VALUE;
   private volatile long bulkMaxPayloadSize = Long.MAX_VALUE;
+  private volatile int bulkMaxParallelOperations = 1;
+  private volatile boolean bulkRequestStreaming = false;
+  private volatile boolean bulkResponseStreaming = false;
+  private volatile int bulkResponseBufferSize = 65536;
   private volatile File tmpDataDir = null;
   private AdjustableSemaphore bulkMaxConcurrentRequestsSemaphore =
       new AdjustableSemaphore(Integer.MAX_VALUE);
+  private final AtomicLong serviceProviderConfigVersion = new AtomicLong();
+  private volatile CachedServiceProviderConfig cachedServiceProviderConfig;
+  private final SchemaResponseCache schemaResponseCache;
+  private final FilterCache filterCache = new FilterCache();
+  private ThreadPoolExecutor bulkOperationExecutor;
+  private boolean shutDown;
 
 
   /**
@@ -92,9 +110,27 @@ public class SCIMApplication extends WinkApplication
 
     register(new HttpMethodOverrideFilter());
     register(new RequestParamFilter());
-
-    this.resourceStats = new HashMap<String, ResourceStats>();
+    register(new ContainerLifecycleListener()
+    {
+      public void onStartup(final Container container)
+      {
+        // No implementation required.
+      }
+
+      public void onReload(final Container container)
+      {
+        // No implementation required.
+      }
+
+      public void onShutdown(final Container container)
+      {
+        shutDown();
+      }
+    });
+
+    this.resourceStats = new ConcurrentHashMap<String, ResourceStats>();
     this.backend = backend;
+    this.schemaResponseCache = new SchemaResponseCache(backend);
 
     if (tokenHandler != null)
     {
@@ -133,16 +169,102 @@ public class SCIMApplication extends WinkApplication
     if(stats == null)
     {
       stats = new ResourceStats(resourceName);
-      resourceStats.put(resourceName, stats);
+      final ResourceStats prev = resourceStats.putIfAbsent(resourceName, stats);
+      if(prev != null)
+      {
+        stats = prev;
+      }
     }
     return stats;
   }
 
   /**
-   * Retrieve the service provider configuration.
+   * Retrieve the service provider configuration. The configuration is cached
+   * until it is invalidated, so the returned instance is shared and must not
+   * be modified.
    * @return  The service provider configuration.
    */
   public ServiceProviderConfig getServiceProviderConfig()
+  {
+    return getCachedServiceProviderConfig().getServiceProviderConfig();
+  }
+
+
+
+  /**
+   * Invalidate the cached service provider configuration, so that it is
+   * created again when it is next requested. This should be called when the
+   * capabilities of the backend change, such as the authentication schemes
+   * it supports. The bulk settings of this application invalidate the
+   * configuration when they are changed.
+   */
+  public void invalidateServiceProviderConfig()
+  {
+    serviceProviderConfigVersion.incrementAndGet();
+  }
+
+
+
+  /**
+   * Invalidate the cached responses of the Schemas endpoint. The responses
+   * are invalidated automatically when the backend returns a different set
+   * of resource descriptors, so this only needs to be called when a resource
+   * descriptor has been modified in place.
+   */
+  public void invalidateResourceSchemas()
+  {
+    schemaResponseCache.invalidate();
+  }
+
+
+
+  /**
+   * Retrieve the cache of parsed query filters.
+   * @return  The cache of parsed query filters.
+   */
+  FilterCache getFilterCache()
+  {
+    return filterCache;
+  }
+
+
+
+  /**
+   * Retrieve the cache of responses of the Schemas endpoint.
+   * @return  The cache of responses of the Schemas endpoint.
+   */
+  SchemaResponseCache getSchemaResponseCache()
+  {
+    return schemaResponseCache;
+  }
+
+
+
+  /**
+   * Retrieve the cached service provider configuration, creating it if it
+   * has been invalidated.
+   * @return  The cached service provider configuration.
+   */
+  CachedServiceProviderConfig getCachedServiceProviderConfig()
+  {
+    CachedServiceProviderConfig cached = cachedServiceProviderConfig;
+    final long version = serviceProviderConfigVersion.get();
+    if (cached == null || !cached.isCurrent(version, backend))
+    {
+      cached = new CachedServiceProviderConfig(
+          version, backend, createServiceProviderConfig());
+      cachedServiceProviderConfig = cached;
+    }
+    return cached;
+  }
+
+
+
+  /**
+   * Create the service provider configuration from the current settings.
+   * @return  The service provider configuration.
+   */
+  private ServiceProviderConfig createServiceProviderConfig()
   {
     final SCIMObject scimObject = new SCIMObject();
     final ServiceProviderConfig serviceProviderConfig =
@@ -201,6 +323,7 @@ public class SCIMApplication extends WinkApplication
   public void setBulkMaxOperations(final long bulkMaxOperations)
   {
     this.bulkMaxOperations = bulkMaxOperations;
+    invalidateServiceProviderConfig();
   }
 
 
@@ -213,6 +336,7 @@ public class SCIMApplication extends WinkApplication
   public void setBulkMaxPayloadSize(final long bulkMaxPayloadSize)
   {
     this.bulkMaxPayloadSize = bulkMaxPayloadSize;
+    invalidateServiceProviderConfig();
   }
 
 
@@ -225,6 +349,216 @@ public class SCIMApplication extends WinkApplication
   public void setBulkMaxConcurrentRequests(final int bulkMaxConcurrentRequests)
   {
     bulkMaxConcurrentRequestsSemaphore.setMaxPermits(bulkMaxConcurrentRequests);
+    invalidateServiceProviderConfig();
+  }
+
+
+
+  /**
+   * Retrieve the maximum number of operations within a bulk request that may
+   * be processed in parallel.
+   *
+   * @return  The maximum number of operations within a bulk request that may
+   *          be processed in parallel.
+   */
+  public int getBulkMaxParallelOperations()
+  {
+    return bulkMaxParallelOperations;
+  }
+
+
+
+  /**
+   * Specify the maximum number of operations within a bulk request that may
+   * be processed in parallel. Operations that reference the bulkId of an
+   * earlier operation, or that target the same resource as an earlier
+   * operation, are not started until the earlier operation has completed.
+   * The default value of one processes operations serially as they are read.
+   * Operations are processed by a pool of this many threads that is shared
+   * by all bulk requests, so this also limits the number of operations
+   * processed in parallel across concurrent bulk requests.
+   *
+   * @param bulkMaxParallelOperations  The maximum number of operations within
+   *                                   a bulk request that may be processed in
+   *                                   parallel.
+   */
+  public void setBulkMaxParallelOperations(
+      final int bulkMaxParallelOperations)
+  {
+    synchronized (this)
+    {
+      this.bulkMaxParallelOperations = Math.max(1, bulkMaxParallelOperations);
+      if (bulkOperationExecutor != null)
+      {
+        // The maximum pool size may not be less than the core pool size.
+        if (this.bulkMaxParallelOperations >
+            bulkOperationExecutor.getMaximumPoolSize())
+        {
+          bulkOperationExecutor.setMaximumPoolSize(
+              this.bulkMaxParallelOperations);
+          bulkOperationExecutor.setCorePoolSize(
+              this.bulkMaxParallelOperations);
+        }
+        else
+        {
+          bulkOperationExecutor.setCorePoolSize(
+              this.bulkMaxParallelOperations);
+          bulkOperationExecutor.setMaximumPoolSize(
+              this.bulkMaxParallelOperations);
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Retrieve the executor used to process the operations of all bulk
+   * requests in parallel. The executor has as many threads as the maximum
+   * number of operations that may be processed in parallel, and is created
+   * when it is first needed.
+   *
+   * @return  The executor used to process bulk operations in parallel.
+   */
+  synchronized Executor getBulkOperationExecutor()
+  {
+    if (bulkOperationExecutor == null)
+    {
+      bulkOperationExecutor = new ThreadPoolExecutor(
+          bulkMaxParallelOperations, bulkMaxParallelOperations,
+          60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactory()
+          {
+            public Thread newThread(final Runnable r)
+            {
+              final Thread thread = new Thread(r, "SCIM Bulk Operation");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      bulkOperationExecutor.allowCoreThreadTimeOut(true);
+      if (shutDown)
+      {
+        bulkOperationExecutor.shutdown();
+      }
+    }
+    return bulkOperationExecutor;
+  }
+
+
+
+  /**
+   * Release the resources held by this application, such as the threads
+   * used to process bulk operations in parallel. This is called when the
+   * container hosting the application is shut down. Bulk operations
+   * submitted after this has been called are processed by the thread
+   * reading the bulk request.
+   */
+  public synchronized void shutDown()
+  {
+    shutDown = true;
+    if (bulkOperationExecutor != null)
+    {
+      bulkOperationExecutor.shutdown();
+    }
+  }
+
+
+
+  /**
+   * Indicates whether bulk requests are processed as they are read from the
+   * request content, rather than being written to a temporary file first.
+   *
+   * @return  {@code true} if bulk requests are processed as they are read, or
+   *          {@code false} if they are written to a temporary file first.
+   */
+  public boolean isBulkRequestStreaming()
+  {
+    return bulkRequestStreaming;
+  }
+
+
+
+  /**
+   * Specify whether bulk requests are processed as they are read from the
+   * request content, rather than being written to a temporary file first.
+   * Streaming avoids writing and reading the request twice, and the
+   * maxOperations and maxPayloadSize limits are still enforced as the
+   * request is read. However, operations read before a limit is exceeded
+   * will already have been processed when the request is rejected. A
+   * request whose failOnErrors value does not precede its operations is
+   * still written to a temporary file first. The default is {@code false}.
+   *
+   * @param bulkRequestStreaming  {@code true} if bulk requests should be
+   *                              processed as they are read.
+   */
+  public void setBulkRequestStreaming(final boolean bulkRequestStreaming)
+  {
+    this.bulkRequestStreaming = bulkRequestStreaming;
+  }
+
+
+
+  /**
+   * Indicates whether bulk responses are written to the client as the
+   * operations complete, rather than being buffered until the whole request
+   * has been processed.
+   *
+   * @return  {@code true} if bulk responses are written as the operations
+   *          complete, or {@code false} if they are buffered.
+   */
+  public boolean isBulkResponseStreaming()
+  {
+    return bulkResponseStreaming;
+  }
+
+
+
+  /**
+   * Specify whether bulk responses are written to the client as the
+   * operations complete, rather than being buffered until the whole request
+   * has been processed. The status of a bulk response is always 200 once the
+   * request has been accepted, so it can be sent before the operations are
+   * processed. However, an error in the request content that is found after
+   * some operations have been processed can then only be reported by ending
+   * the response abruptly. The default is {@code false}.
+   *
+   * @param bulkResponseStreaming  {@code true} if bulk responses should be
+   *                               written as the operations complete.
+   */
+  public void setBulkResponseStreaming(final boolean bulkResponseStreaming)
+  {
+    this.bulkResponseStreaming = bulkResponseStreaming;
+  }
+
+
+
+  /**
+   * Retrieve the maximum number of bytes of a buffered bulk response that
+   * are held in memory. Larger responses are written to a temporary file.
+   *
+   * @return  The maximum number of bytes of a buffered bulk response that
+   *          are held in memory.
+   */
+  public int getBulkResponseBufferSize()
+  {
+    return bulkResponseBufferSize;
+  }
+
+
+
+  /**
+   * Specify the maximum number of bytes of a buffered bulk response that
+   * are held in memory. Larger responses are written to a temporary file in
+   * the directory given by {@link #getTmpDataDir}. A value of zero writes
+   * every buffered response to a temporary file. The default is 64 KB.
+   *
+   * @param bulkResponseBufferSize  The maximum number of bytes of a buffered
+   *                                bulk response that are held in memory.
+   */
+  public void setBulkResponseBufferSize(final int bulkResponseBufferSize)
+  {
+    this.bulkResponseBufferSize = Math.max(0, bulkResponseBufferSize);
   }
 
 
@@ -18,6 +18,7 @@
 package com.unboundid.scim.wink;
 
 import com.unboundid.scim.sdk.OAuthTokenHandler;
+import org.glassfish.jersey.message.internal.Quality;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.Consumes;
@@ -67,7 +68,7 @@ public class SCIMResource extends AbstractSCIMResource
 
 
   /**
-   * Implement the GET query operation producing JSON or XML format.
+   * Implement the GET query operation producing JSON, XML or CBOR format.
    *
    * @param endpoint         The resource endpoint.
    * @param request          The current request.
@@ -87,7 +88,8 @@ public class SCIMResource extends AbstractSCIMResource
    * @return  The response to the request.
    */
   @GET
-  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML,
+             APPLICATION_CBOR})
   public Response doJsonGet(@PathParam("endpoint") final String endpoint,
                             @Context final Request request,
                             @Context final HttpServletRequest httpRequest,
@@ -115,7 +117,8 @@ public class SCIMResource extends AbstractSCIMResource
     final List<Variant> responseVariants = Variant
             .mediaTypes(
                 MediaType.valueOf(MediaType.APPLICATION_JSON),
-                MediaType.valueOf(MediaType.APPLICATION_XML))
+                MediaType.valueOf(MediaType.APPLICATION_XML),
+                APPLICATION_CBOR_TYPE)
             .add().build();
     final Variant variant = request.selectVariant(responseVariants);
     final MediaType mediaType = (variant != null) ?
@@ -135,7 +138,7 @@ public class SCIMResource extends AbstractSCIMResource
 
   /**
    * Implement the GET operation on a specified user resource producing
-   * JSON or XML format.
+   * JSON, XML or CBOR format.
    *
    * @param endpoint         The resource endpoint.
    * @param userID           The requested user ID.
@@ -149,7 +152,8 @@ public class SCIMResource extends AbstractSCIMResource
    */
   @GET
   @Path("{userID}")
-  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML,
+             APPLICATION_CBOR})
   public Response doJsonGet(@PathParam("endpoint") final String endpoint,
                             @PathParam("userID") final String userID,
                             @Context final Request request,
@@ -164,7 +168,8 @@ public class SCIMResource extends AbstractSCIMResource
     final List<Variant> responseVariants = Variant
             .mediaTypes(
                 MediaType.valueOf(MediaType.APPLICATION_JSON),
-                MediaType.valueOf(MediaType.APPLICATION_XML))
+                MediaType.valueOf(MediaType.APPLICATION_XML),
+                APPLICATION_CBOR_TYPE)
             .add().build();
     final Variant variant = request.selectVariant(responseVariants);
     final MediaType mediaType = (variant != null) ?
@@ -370,6 +375,36 @@ public class SCIMResource extends AbstractSCIMResource
   }
 
 
+  /**
+   * Implement the POST operation consuming and producing CBOR format.
+   *
+   * @param inputStream      The content to be consumed.
+   * @param endpoint         The resource endpoint.
+   * @param request          The current HTTP servlet request.
+   * @param securityContext  The security context for the request.
+   * @param headers          The request headers.
+   * @param uriInfo          The URI info for the request.
+   *
+   * @return  The response to the request.
+   */
+  @POST
+  @Consumes(APPLICATION_CBOR)
+  @Produces(APPLICATION_CBOR)
+  public Response doCborCborPost(final InputStream inputStream,
+                                 @PathParam("endpoint") final String endpoint,
+                                 @Context final HttpServletRequest request,
+                                 @Context final SecurityContext securityContext,
+                                 @Context final HttpHeaders headers,
+                                 @Context final UriInfo uriInfo)
+  {
+    final RequestContext requestContext =
+        new RequestContext(request, securityContext, headers, uriInfo,
+                           APPLICATION_CBOR_TYPE,
+                           APPLICATION_CBOR_TYPE);
+    return postUser(requestContext, endpoint, inputStream);
+  }
+
+
   /**
    * Implement the PUT operation consuming and producing JSON format.
    *
@@ -660,6 +695,40 @@ public class SCIMResource extends AbstractSCIMResource
 
 
 
+  /**
+   * Implement the PUT operation consuming and producing CBOR format.
+   *
+   * @param inputStream      The content to be consumed.
+   * @param endpoint         The resource endpoint.
+   * @param userID           The target user ID.
+   * @param request          The current HTTP servlet request.
+   * @param securityContext  The security context for the request.
+   * @param headers          The request headers.
+   * @param uriInfo          The URI info for the request.
+   *
+   * @return  The response to the request.
+   */
+  @PUT
+  @Path("{userID}")
+  @Consumes(APPLICATION_CBOR)
+  @Produces(APPLICATION_CBOR)
+  public Response doCborCborPut(final InputStream inputStream,
+                                @PathParam("endpoint") final String endpoint,
+                                @PathParam("userID") final String userID,
+                                @Context final HttpServletRequest request,
+                                @Context final SecurityContext securityContext,
+                                @Context final HttpHeaders headers,
+                                @Context final UriInfo uriInfo)
+  {
+    final RequestContext requestContext =
+        new RequestContext(request, securityContext, headers, uriInfo,
+                           APPLICATION_CBOR_TYPE,
+                           APPLICATION_CBOR_TYPE);
+    return putUser(requestContext, endpoint, userID, inputStream);
+  }
+
+
+
   /**
    * Implement the PATCH operation consuming and producing JSON format.
    *
@@ -798,6 +867,40 @@ public class SCIMResource extends AbstractSCIMResource
 
 
 
+  /**
+   * Implement the PATCH operation consuming and producing CBOR format.
+   *
+   * @param inputStream      The content to be consumed.
+   * @param endpoint         The resource endpoint.
+   * @param userID           The target user ID.
+   * @param request          The current HTTP servlet request.
+   * @param securityContext  The security context for the request.
+   * @param headers          The request headers.
+   * @param uriInfo          The URI info for the request.
+   *
+   * @return  The response to the request.
+   */
+  @PATCH
+  @Path("{userID}")
+  @Consumes(APPLICATION_CBOR)
+  @Produces(APPLICATION_CBOR)
+  public Response doCborCborPatch(final InputStream inputStream,
+                                 @PathParam("endpoint") final String endpoint,
+                                 @PathParam("userID") final String userID,
+                                 @Context final HttpServletRequest request,
+                                 @Context final SecurityContext securityContext,
+                                 @Context final HttpHeaders headers,
+                                 @Context final UriInfo uriInfo)
+  {
+    final RequestContext requestContext =
+           new RequestContext(request, securityContext, headers, uriInfo,
+                    APPLICATION_CBOR_TYPE,
+                    APPLICATION_CBOR_TYPE);
+    return patchUser(requestContext, endpoint, userID, inputStream);
+  }
+
+
+
   /**
    * Implement the PATCH operation consuming and producing JSON format.
    *
@@ -1007,6 +1110,40 @@ public class SCIMResource extends AbstractSCIMResource
 
 
 
+  /**
+   * Implement the DELETE operation on a specified user resource producing
+   * CBOR format. This is given a lower quality than JSON so that JSON is
+   * produced when the Accept header does not indicate a preference.
+   *
+   * @param endpoint         The resource endpoint.
+   * @param userID           The target user ID.
+   * @param request          The current HTTP servlet request.
+   * @param securityContext  The security context for the request.
+   * @param headers          The request headers.
+   * @param uriInfo          The URI info for the request.
+   *
+   * @return  The response to the request.
+   */
+  @DELETE
+  @Path("{userID}")
+  @Produces(APPLICATION_CBOR + ";"
+            + Quality.QUALITY_SOURCE_PARAMETER_NAME + "=0.5")
+  public Response doCborDelete(@PathParam("endpoint") final String endpoint,
+                               @PathParam("userID") final String userID,
+                               @Context final HttpServletRequest request,
+                               @Context final SecurityContext securityContext,
+                               @Context final HttpHeaders headers,
+                               @Context final UriInfo uriInfo)
+  {
+    final RequestContext requestContext =
+        new RequestContext(request, securityContext, headers, uriInfo,
+                           APPLICATION_CBOR_TYPE,
+                           APPLICATION_CBOR_TYPE);
+    return deleteUser(requestContext, endpoint, userID);
+  }
+
+
+
   /**
    * Implement the DELETE operation on a specified user resource where the URL
    * specifies JSON content type.
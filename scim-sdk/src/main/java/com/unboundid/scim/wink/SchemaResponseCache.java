@@ -0,0 +1,215 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.wink;
+
+import com.unboundid.scim.schema.ResourceDescriptor;
+import com.unboundid.scim.sdk.SCIMBackend;
+
+import jakarta.ws.rs.core.MediaType;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+
+/**
+ * This class caches the marshalled responses of the Schemas endpoint, so
+ * that the resource descriptors do not have to be copied, filtered and
+ * marshalled again for each request. Responses are cached separately for
+ * each base URI, since the meta locations of the schemas depend on it.
+ * The cache is invalidated when the resource descriptors of the backend
+ * change.
+ */
+final class SchemaResponseCache
+{
+  /**
+   * The maximum number of cached responses. Since most requests either
+   * retrieve all schemas or look one up by name, the cache is simply cleared
+   * when this is reached.
+   */
+  static final int MAX_RESPONSES = 64;
+
+  private final SCIMBackend backend;
+  private final ConcurrentHashMap<String,CachedResponse> responses =
+      new ConcurrentHashMap<String, CachedResponse>();
+  private final AtomicLong generation = new AtomicLong();
+  private volatile List<ResourceDescriptor> resourceDescriptors;
+
+
+
+  /**
+   * Create a new schema response cache.
+   *
+   * @param backend  The backend whose resource descriptors are served.
+   */
+  SchemaResponseCache(final SCIMBackend backend)
+  {
+    this.backend = backend;
+  }
+
+
+
+  /**
+   * Retrieves the key identifying a response in this cache. The key includes
+   * the generation of the cache, so a response cached under a key that was
+   * obtained before the cache was invalidated will never be returned.
+   *
+   * @param baseUri     The base URI of the request.
+   * @param resourceID  The ID of the requested schema, or {@code null} if
+   *                    the schemas are being queried.
+   * @param filter      The filter of the query, or {@code null} if there is
+   *                    none.
+   * @param mediaType   The media type of the response.
+   *
+   * @return  The key identifying the response.
+   */
+  String getKey(final URI baseUri, final String resourceID,
+                final String filter, final MediaType mediaType)
+  {
+    checkResourceDescriptors();
+
+    final StringBuilder builder = new StringBuilder();
+    builder.append(generation.get());
+    builder.append(' ');
+    builder.append(mediaType.getSubtype());
+    builder.append(' ');
+    builder.append(baseUri);
+    if (resourceID != null)
+    {
+      builder.append(" /");
+      builder.append(resourceID.toLowerCase());
+    }
+    else if (filter != null && !filter.isEmpty())
+    {
+      builder.append(" ?");
+      builder.append(filter);
+    }
+    return builder.toString();
+  }
+
+
+
+  /**
+   * Retrieves a cached response.
+   *
+   * @param key  The key identifying the response.
+   *
+   * @return  The cached response, or {@code null} if it is not cached.
+   */
+  CachedResponse get(final String key)
+  {
+    return responses.get(key);
+  }
+
+
+
+  /**
+   * Cache a response.
+   *
+   * @param key       The key identifying the response.
+   * @param response  The response to be cached.
+   */
+  void put(final String key, final CachedResponse response)
+  {
+    if (responses.size() >= MAX_RESPONSES)
+    {
+      responses.clear();
+    }
+    responses.put(key, response);
+  }
+
+
+
+  /**
+   * Retrieves the number of cached responses.
+   *
+   * @return  The number of cached responses.
+   */
+  int size()
+  {
+    return responses.size();
+  }
+
+
+
+  /**
+   * Invalidate all of the cached responses.
+   */
+  void invalidate()
+  {
+    generation.incrementAndGet();
+    responses.clear();
+  }
+
+
+
+  /**
+   * Invalidate the cached responses if the resource descriptors of the
+   * backend are not the ones that the responses were created from.
+   */
+  private void checkResourceDescriptors()
+  {
+    final Collection<ResourceDescriptor> current =
+        backend.getResourceDescriptors();
+    final List<ResourceDescriptor> cached = resourceDescriptors;
+    if (cached != null && isSame(cached, current))
+    {
+      return;
+    }
+
+    resourceDescriptors = new ArrayList<ResourceDescriptor>(current);
+    if (cached != null)
+    {
+      invalidate();
+    }
+  }
+
+
+
+  /**
+   * Determine whether two collections contain the same resource descriptor
+   * instances in the same order.
+   *
+   * @param cached   The resource descriptors the responses were created from.
+   * @param current  The current resource descriptors of the backend.
+   *
+   * @return  {@code true} if the collections contain the same instances.
+   */
+  private static boolean isSame(final List<ResourceDescriptor> cached,
+                                final Collection<ResourceDescriptor> current)
+  {
+    if (cached.size() != current.size())
+    {
+      return false;
+    }
+
+    final Iterator<ResourceDescriptor> iterator = cached.iterator();
+    for (final ResourceDescriptor resourceDescriptor : current)
+    {
+      if (iterator.next() != resourceDescriptor)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+}
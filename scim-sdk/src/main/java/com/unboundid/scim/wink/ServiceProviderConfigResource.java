@@ -17,13 +17,14 @@
 
 package com.unboundid.scim.wink;
 
-import com.unboundid.scim.data.ServiceProviderConfig;
 import org.glassfish.jersey.message.internal.Quality;
 
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 
 import static com.unboundid.scim.sdk.SCIMConstants.
@@ -53,22 +54,17 @@ public class ServiceProviderConfigResource extends AbstractStaticResource
   /**
    * Implement the GET operation to fetch the configuration in JSON format.
    *
+   * @param request  The request being responded to.
+   *
    * @return  The response to the request.
    */
   @GET
   @Produces(MediaType.APPLICATION_JSON + ";"
             + Quality.QUALITY_SOURCE_PARAMETER_NAME + "=1")
-  public Response doJsonGet()
+  public Response doJsonGet(@Context final Request request)
   {
-    final ServiceProviderConfig config = application.getServiceProviderConfig();
-    Response.ResponseBuilder builder = Response.ok();
-
-    setResponseEntity(builder, MediaType.APPLICATION_JSON_TYPE, config);
-    application.getStatsForResource(RESOURCE_NAME_SERVICE_PROVIDER_CONFIG).
-        incrementStat(ResourceStats.GET_RESPONSE_JSON);
-    application.getStatsForResource(RESOURCE_NAME_SERVICE_PROVIDER_CONFIG).
-        incrementStat(ResourceStats.GET_OK);
-    return builder.build();
+    return getServiceProviderConfig(application, request,
+                                    MediaType.APPLICATION_JSON_TYPE);
   }
 
 
@@ -76,21 +72,71 @@ public class ServiceProviderConfigResource extends AbstractStaticResource
   /**
    * Implement the GET operation to fetch the configuration in XML format.
    *
+   * @param request  The request being responded to.
+   *
    * @return  The response to the request.
    */
   @GET
   @Produces(MediaType.APPLICATION_XML + ";"
             + Quality.QUALITY_SOURCE_PARAMETER_NAME + "=0.5")
-  public Response doXmlGet()
+  public Response doXmlGet(@Context final Request request)
+  {
+    return getServiceProviderConfig(application, request,
+                                    MediaType.APPLICATION_XML_TYPE);
+  }
+
+
+
+  /**
+   * Respond to a GET request for the configuration. The cached
+   * representation of the configuration is returned, or a 304 Not Modified
+   * response if the client already has it.
+   *
+   * @param application  The SCIM JAX-RS application.
+   * @param request      The request being responded to.
+   * @param mediaType    The media type to be returned.
+   *
+   * @return  The response to the request.
+   */
+  static Response getServiceProviderConfig(final SCIMApplication application,
+                                           final Request request,
+                                           final MediaType mediaType)
   {
-    final ServiceProviderConfig config = application.getServiceProviderConfig();
-    Response.ResponseBuilder builder = Response.ok();
-
-    setResponseEntity(builder, MediaType.APPLICATION_XML_TYPE, config);
-    application.getStatsForResource(RESOURCE_NAME_SERVICE_PROVIDER_CONFIG).
-        incrementStat(ResourceStats.GET_RESPONSE_XML);
-    application.getStatsForResource(RESOURCE_NAME_SERVICE_PROVIDER_CONFIG).
-        incrementStat(ResourceStats.GET_OK);
-    return builder.build();
+    final CachedServiceProviderConfig config =
+        application.getCachedServiceProviderConfig();
+    final CachedResponse cachedResponse = config.getResponse(mediaType);
+    final Response response;
+    if (cachedResponse != null)
+    {
+      response = cachedResponse.getResponse(request);
+    }
+    else
+    {
+      final Response.ResponseBuilder builder = Response.ok();
+      setResponseEntity(builder, mediaType, config.getServiceProviderConfig());
+      response = builder.build();
+    }
+
+    final ResourceStats stats =
+        application.getStatsForResource(RESOURCE_NAME_SERVICE_PROVIDER_CONFIG);
+    if (response.getStatus() != Response.Status.OK.getStatusCode())
+    {
+      stats.incrementStat(ResourceStats.Operation.GET, response.getStatus());
+      return response;
+    }
+
+    if (mediaType.equals(MediaType.APPLICATION_JSON_TYPE))
+    {
+      stats.incrementStat(ResourceStats.Operation.GET,
+                          ResourceStats.Outcome.RESPONSE_JSON);
+    }
+    else
+    {
+      stats.incrementStat(ResourceStats.Operation.GET,
+                          ResourceStats.Outcome.RESPONSE_XML);
+    }
+    stats.incrementStat(ResourceStats.Operation.GET,
+                        ResourceStats.Outcome.SUCCESSFUL);
+    return response;
   }
 }
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.marshal.cbor;
+
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.data.AttributeValueResolver;
+import com.unboundid.scim.data.BaseResource;
+import com.unboundid.scim.data.BulkConfig;
+import com.unboundid.scim.data.Entry;
+import com.unboundid.scim.data.Name;
+import com.unboundid.scim.data.UserResource;
+import com.unboundid.scim.marshal.json.JsonMarshaller;
+import com.unboundid.scim.schema.CoreSchema;
+import com.unboundid.scim.schema.ResourceDescriptor;
+import com.unboundid.scim.sdk.BulkContentHandler;
+import com.unboundid.scim.sdk.BulkOperation;
+import com.unboundid.scim.sdk.ResourceNotFoundException;
+import com.unboundid.scim.sdk.Resources;
+import com.unboundid.scim.sdk.SCIMException;
+import com.unboundid.scim.sdk.Status;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static com.unboundid.scim.sdk.SCIMConstants.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+
+/**
+ * This class provides test coverage for the {@link CborMarshaller} and
+ * {@link CborUnmarshaller}.
+ */
+@Test
+public class MarshallerTestCase
+  extends SCIMTestCase
+{
+  /**
+   * Verify that a valid user can be written to CBOR and then read back, and
+   * that the CBOR representation is smaller than the JSON representation.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testMarshal()
+    throws Exception
+  {
+    final UserResource user1 = createUser("bjensen");
+    user1.setSingularAttributeValue(SCHEMA_URI_ENTERPRISE_EXTENSION,
+        "employeeNumber",
+        AttributeValueResolver.STRING_RESOLVER,
+        "1001");
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    new CborMarshaller().marshal(user1, outputStream);
+
+    final ByteArrayOutputStream jsonStream = new ByteArrayOutputStream();
+    new JsonMarshaller().marshal(user1, jsonStream);
+    assertTrue(outputStream.size() < jsonStream.size());
+
+    final BaseResource resource = new CborUnmarshaller().unmarshal(
+        new ByteArrayInputStream(outputStream.toByteArray()),
+        CoreSchema.USER_DESCRIPTOR, BaseResource.BASE_RESOURCE_FACTORY);
+    assertEquals(resource, user1);
+    assertEquals(resource.getResourceDescriptor(), CoreSchema.USER_DESCRIPTOR);
+  }
+
+
+
+  /**
+   * Verify that a query response and an error response can be written to
+   * CBOR and then read back.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testMarshalResourcesAndError()
+    throws Exception
+  {
+    final List<UserResource> users = new ArrayList<UserResource>();
+    for (int i = 0; i < 3; i++)
+    {
+      users.add(createUser("user." + i));
+    }
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    new CborMarshaller().marshal(
+        new Resources<UserResource>(users, 10, 4), outputStream);
+
+    final Resources<UserResource> parsed =
+        new CborUnmarshaller().unmarshalResources(
+            new ByteArrayInputStream(outputStream.toByteArray()),
+            CoreSchema.USER_DESCRIPTOR, UserResource.USER_RESOURCE_FACTORY);
+    assertEquals(parsed.getTotalResults(), 10);
+    assertEquals(parsed.getStartIndex(), 4);
+    assertEquals(parsed.getItemsPerPage(), 3);
+    int i = 0;
+    for (final UserResource user : parsed)
+    {
+      assertEquals(user, users.get(i++));
+    }
+
+    outputStream = new ByteArrayOutputStream();
+    new CborMarshaller().marshal(
+        new ResourceNotFoundException("No such user"), outputStream);
+    final SCIMException e = new CborUnmarshaller().unmarshalError(
+        new ByteArrayInputStream(outputStream.toByteArray()));
+    assertEquals(e.getStatusCode(), 404);
+    assertEquals(e.getMessage(), "No such user");
+  }
+
+
+
+  /**
+   * Verify that bulk content can be written to CBOR and then read back from
+   * a stream and from a file, and that the bulk limits are enforced.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testBulk()
+    throws Exception
+  {
+    final List<BulkOperation> operations = Arrays.asList(
+        BulkOperation.createRequest(BulkOperation.Method.POST, "1", null,
+                                    "/Users", createUser("user.1")),
+        BulkOperation.createResponse(BulkOperation.Method.DELETE, null, "2",
+            "https://example.com/Users/2", new Status("200", null)));
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    new CborMarshaller().bulkMarshal(outputStream, 1, operations);
+    final byte[] content = outputStream.toByteArray();
+
+    final BulkConfig bulkConfig = new BulkConfig(true, 10, 10000);
+    final List<BulkOperation> parsed = new ArrayList<BulkOperation>();
+    final int[] failOnErrors = new int[1];
+    final BulkContentHandler handler = new BulkContentHandler()
+    {
+      @Override
+      public void handleFailOnErrors(final int value)
+      {
+        failOnErrors[0] = value;
+      }
+
+      @Override
+      public void handleOperation(final int opIndex,
+                                  final BulkOperation bulkOperation)
+      {
+        parsed.add(bulkOperation);
+      }
+
+      @Override
+      public ResourceDescriptor getResourceDescriptor(final String endpoint)
+      {
+        return CoreSchema.USER_DESCRIPTOR;
+      }
+    };
+
+    new CborUnmarshaller().bulkUnmarshal(
+        new ByteArrayInputStream(content), bulkConfig, handler);
+    assertEquals(failOnErrors[0], 1);
+    assertEquals(parsed.size(), 2);
+    assertEquals(parsed.get(0).getMethod(), BulkOperation.Method.POST);
+    assertEquals(parsed.get(0).getBulkId(), "1");
+    assertEquals(parsed.get(0).getPath(), "/Users");
+    assertEquals(parsed.get(0).getData().getSingularAttributeValue(
+        SCHEMA_URI_CORE, "userName",
+        AttributeValueResolver.STRING_RESOLVER),
+        "user.1");
+    assertEquals(parsed.get(1).getMethod(), BulkOperation.Method.DELETE);
+    assertEquals(parsed.get(1).getVersion(), "2");
+    assertEquals(parsed.get(1).getLocation(), "https://example.com/Users/2");
+    assertEquals(parsed.get(1).getStatus().getCode(), "200");
+    assertNull(parsed.get(1).getData());
+
+    final File file = File.createTempFile("test-", ".cbor");
+    file.deleteOnExit();
+    final FileOutputStream fileOutputStream = new FileOutputStream(file);
+    fileOutputStream.write(content);
+    fileOutputStream.close();
+
+    parsed.clear();
+    failOnErrors[0] = 0;
+    new CborUnmarshaller().bulkUnmarshal(file, bulkConfig, handler);
+    assertEquals(failOnErrors[0], 1);
+    assertEquals(parsed.size(), 2);
+
+    try
+    {
+      new CborUnmarshaller().bulkUnmarshal(
+          new ByteArrayInputStream(content), new BulkConfig(true, 1, 10000),
+          handler);
+      fail("Expected maxOperations to be enforced");
+    }
+    catch (SCIMException e)
+    {
+      assertEquals(e.getStatusCode(), 413);
+    }
+  }
+
+
+
+  /**
+   * Verify that data items are written and read using the encodings given
+   * in the examples of RFC 8949.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testEncoding()
+    throws Exception
+  {
+    assertEquals(write(0L), "00");
+    assertEquals(write(23L), "17");
+    assertEquals(write(24L), "1818");
+    assertEquals(write(1000000L), "1a000f4240");
+    assertEquals(write(-100L), "3863");
+    assertEquals(write(1.1), "fb3ff199999999999a");
+    assertEquals(write(1.5), "fa3fc00000");
+    assertEquals(write(true), "f5");
+    assertEquals(write(null), "f6");
+    assertEquals(write("IETF"), "6449455446");
+    assertEquals(write("\u00fc"), "62c3bc");
+    assertEquals(write("\ud800\udd51"), "64f0908591");
+    assertEquals(write("\ud800"), "613f");
+    assertEquals(write(new byte[] { 1, 2, 3, 4 }), "4401020304");
+
+    assertEquals(read("00"), 0L);
+    assertEquals(read("1b000000e8d4a51000"), 1000000000000L);
+    assertEquals(read("3863"), -100L);
+    assertEquals(read("f93c00"), 1.0);
+    assertEquals(read("f9c400"), -4.0);
+    assertEquals(read("fa47c35000"), 100000.0);
+    assertEquals(read("fb3ff199999999999a"), 1.1);
+    assertEquals(read("f4"), Boolean.FALSE);
+    assertEquals(read("f6"), JSONObject.NULL);
+    assertEquals(read("6449455446"), "IETF");
+    assertEquals(read("7f657374726561646d696e67ff"), "streaming");
+    assertEquals(read("4401020304"), "AQIDBA==");
+    assertEquals(read("c074323031332d30332d32315432303a30343a30305a"),
+                 "2013-03-21T20:04:00Z");
+
+    final JSONArray array = (JSONArray) read("9f018202039f0405ffff");
+    assertEquals(array.length(), 3);
+    assertEquals(array.getJSONArray(1).getLong(1), 3L);
+    assertEquals(array.getJSONArray(2).getLong(0), 4L);
+
+    final JSONObject object = (JSONObject) read("a26161016162820203");
+    assertEquals(object.getLong("a"), 1L);
+    assertEquals(object.getJSONArray("b").length(), 2);
+
+    for (final String malformed : Arrays.asList("", "18", "62c3", "1c",
+                                                "9f01", "5f01ff"))
+    {
+      try
+      {
+        read(malformed);
+        fail("Expected malformed content to be rejected: " + malformed);
+      }
+      catch (IOException e)
+      {
+        // Expected.
+      }
+    }
+  }
+
+
+
+  /**
+   * Create a user resource.
+   *
+   * @param userName  The user name of the user.
+   *
+   * @return  The user resource.
+   */
+  private static UserResource createUser(final String userName)
+  {
+    final UserResource user = new UserResource(CoreSchema.USER_DESCRIPTOR);
+    user.setId(userName);
+    user.setUserName(userName);
+    user.setName(new Name("Ms. Barbara J Jensen III",
+        "Jensen", "Barbara", "J", "Ms.", "III"));
+    final Collection<Entry<String>> emails = new ArrayList<Entry<String>>(2);
+    emails.add(new Entry<String>(userName + "@example.com", "work", true));
+    emails.add(new Entry<String>(userName + "@jensen.org", "home", false));
+    user.setEmails(emails);
+    user.setActive(true);
+    return user;
+  }
+
+
+
+  /**
+   * Write a value with a CBOR writer.
+   *
+   * @param value  The value to be written.
+   *
+   * @return  The hexadecimal encoding of the data item.
+   *
+   * @throws Exception If the value could not be written.
+   */
+  private static String write(final Object value)
+    throws Exception
+  {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final CborWriter writer = new CborWriter(outputStream);
+    writer.value(value);
+    writer.close();
+
+    final StringBuilder builder = new StringBuilder();
+    for (final byte b : outputStream.toByteArray())
+    {
+      builder.append(String.format("%02x", b & 0xFF));
+    }
+    return builder.toString();
+  }
+
+
+
+  /**
+   * Read a data item with a CBOR reader.
+   *
+   * @param hex  The hexadecimal encoding of the data item.
+   *
+   * @return  The data item that was read.
+   *
+   * @throws Exception If the data item could not be read.
+   */
+  private static Object read(final String hex)
+    throws Exception
+  {
+    final byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++)
+    {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+    }
+    return new CborReader(new ByteArrayInputStream(bytes)).read();
+  }
+}
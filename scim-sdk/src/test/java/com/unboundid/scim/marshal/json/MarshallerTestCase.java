@@ -26,8 +26,13 @@ import com.unboundid.scim.data.UserResource;
 import com.unboundid.scim.marshal.Marshaller;
 import com.unboundid.scim.marshal.Unmarshaller;
 import com.unboundid.scim.schema.CoreSchema;
+import com.unboundid.scim.sdk.BulkOperation;
+import com.unboundid.scim.sdk.Resources;
+import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMObject;
+import com.unboundid.scim.sdk.StreamingResources;
 import com.unboundid.scim.SCIMTestCase;
+import org.json.JSONWriter;
 import org.testng.annotations.Test;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -37,6 +42,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -156,4 +163,145 @@ public class MarshallerTestCase
     String marshaledDescriptor = outputStream.toString();
     assertFalse(marshaledDescriptor.contains("\"schemas\":["));
   }
+
+
+
+  /**
+   * Verify that a streaming resources response can be written to JSON as the
+   * resources are produced, and then read back.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testMarshalStreamingResources()
+    throws Exception
+  {
+    final StreamingResources<UserResource> resources =
+        new StreamingResources<UserResource>(CoreSchema.USER_DESCRIPTOR)
+        {
+          @Override
+          protected void produceResources(
+              final ResourceHandler<UserResource> handler)
+              throws SCIMException
+          {
+            for (int i = 0; i < 3; i++)
+            {
+              final UserResource user =
+                  new UserResource(CoreSchema.USER_DESCRIPTOR);
+              user.setId(String.valueOf(i));
+              user.setUserName("user." + i);
+              handler.handleResource(user);
+            }
+            setTotalResults(10);
+            setStartIndex(4);
+          }
+        };
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    new JsonMarshaller().marshal(resources, outputStream);
+    assertTrue(resources.isProduced());
+
+    final Resources<UserResource> parsed =
+        new JsonUnmarshaller().unmarshalResources(
+            new ByteArrayInputStream(outputStream.toByteArray()),
+            CoreSchema.USER_DESCRIPTOR, UserResource.USER_RESOURCE_FACTORY);
+    assertEquals(parsed.getTotalResults(), 10);
+    assertEquals(parsed.getItemsPerPage(), 3);
+    assertEquals(parsed.getStartIndex(), 4);
+
+    int i = 0;
+    for (final UserResource user : parsed)
+    {
+      assertEquals(user.getUserName(), "user." + i++);
+    }
+    assertEquals(i, 3);
+  }
+
+
+
+  /**
+   * Verify that the JSON stream writer produces the same text as the
+   * org.json writer encoding as UTF-8.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testJsonStreamWriter()
+      throws Exception
+  {
+    final String[] strings =
+        {
+          "", "plain", "quote\" backslash\\ slash/ </script>",
+          "\b\t\n\f\r\u0000\u001f\u007f", "\u0080\u009f\u00a0\u00e9",
+          "\u2000\u2028\u20ac\u2100", "\ud83d\ude00 pair",
+          "\ud83d unpaired \ude00", "trailing \ud83d"
+        };
+    final Object[] values =
+        {
+          null, Boolean.TRUE, 0L, -42L, Long.MIN_VALUE, 1.0, 1.50, 1.0e20,
+          -0.25, BulkOperation.Method.POST
+        };
+
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    final Writer writer = new OutputStreamWriter(expected, "UTF-8");
+    final JSONWriter jsonWriter = new JSONWriter(writer);
+    jsonWriter.object();
+    jsonWriter.key("strings");
+    jsonWriter.array();
+    for (final String s : strings)
+    {
+      jsonWriter.value(s);
+    }
+    jsonWriter.endArray();
+    for (int i = 0; i < strings.length; i++)
+    {
+      jsonWriter.key(strings[i] + i);
+      jsonWriter.value(values[i]);
+    }
+    jsonWriter.key("nested");
+    jsonWriter.array();
+    jsonWriter.array();
+    jsonWriter.endArray();
+    jsonWriter.array();
+    jsonWriter.value(false);
+    jsonWriter.value(values[values.length - 1]);
+    jsonWriter.endArray();
+    jsonWriter.object();
+    jsonWriter.endObject();
+    jsonWriter.endArray();
+    jsonWriter.endObject();
+    writer.close();
+
+    final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    final JsonStreamWriter streamWriter = new JsonStreamWriter(actual);
+    streamWriter.object();
+    streamWriter.encodedKey(JsonStreamWriter.encode("strings"));
+    streamWriter.array();
+    for (final String s : strings)
+    {
+      streamWriter.value(s);
+    }
+    streamWriter.endArray();
+    for (int i = 0; i < strings.length; i++)
+    {
+      streamWriter.key(strings[i] + i);
+      streamWriter.value(values[i]);
+    }
+    streamWriter.key("nested");
+    streamWriter.array();
+    streamWriter.array();
+    streamWriter.endArray();
+    streamWriter.array();
+    streamWriter.value(false);
+    streamWriter.value(values[values.length - 1]);
+    streamWriter.endArray();
+    streamWriter.object();
+    streamWriter.endObject();
+    streamWriter.endArray();
+    streamWriter.endObject();
+    streamWriter.close();
+
+    assertEquals(actual.toByteArray(), expected.toByteArray(),
+                 actual.toString("UTF-8"));
+  }
 }
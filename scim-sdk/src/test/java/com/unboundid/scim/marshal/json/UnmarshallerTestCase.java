@@ -28,14 +28,20 @@ import com.unboundid.scim.sdk.Resources;
 import com.unboundid.scim.sdk.SCIMAttribute;
 import com.unboundid.scim.sdk.SCIMAttributeValue;
 import com.unboundid.scim.sdk.SCIMConstants;
+import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMObject;
 import com.unboundid.scim.SCIMTestCase;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.testng.annotations.Test;
 
 import static com.unboundid.scim.sdk.SCIMConstants.SCHEMA_URI_CORE;
 import static org.testng.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 
 
@@ -396,4 +402,184 @@ public class UnmarshallerTestCase extends SCIMTestCase {
     assertFalse(iterator.hasNext());
   }
 
+
+
+  /**
+   * Verify that the streaming unmarshaller reads the same resources as the
+   * parser that first reads the JSON text into JSON objects.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testStreamingMatchesTreeParser() throws Exception
+  {
+    final Unmarshaller unmarshaller = new JsonUnmarshaller();
+    final JsonParser treeParser = new JsonParser();
+
+    for (final String name : new String[] { "core-user.json",
+                                            "employee.json" })
+    {
+      final String path = "/com/unboundid/scim/marshal/spec/" + name;
+      final SCIMObject expected = treeParser.unmarshal(
+          JsonParser.makeCaseInsensitive(
+              new JSONObject(new JSONTokener(getResource(path)))),
+          CoreSchema.USER_DESCRIPTOR, BaseResource.BASE_RESOURCE_FACTORY,
+          null).getScimObject();
+      final SCIMObject actual = unmarshaller.unmarshal(
+          getResource(path), CoreSchema.USER_DESCRIPTOR,
+          BaseResource.BASE_RESOURCE_FACTORY).getScimObject();
+
+      // Binary values are compared by reference, so compare their encoding.
+      if (expected.hasAttribute(SCHEMA_URI_CORE, "x509Certificates"))
+      {
+        assertEquals(
+            actual.getAttribute(SCHEMA_URI_CORE, "x509Certificates")
+                .getValues()[0].getAttribute("value").getValue()
+                .getStringValue(),
+            expected.getAttribute(SCHEMA_URI_CORE, "x509Certificates")
+                .getValues()[0].getAttribute("value").getValue()
+                .getStringValue());
+      }
+      actual.removeAttribute(SCHEMA_URI_CORE, "x509Certificates");
+      expected.removeAttribute(SCHEMA_URI_CORE, "x509Certificates");
+      assertEquals(actual, expected, name);
+    }
+
+    final String path =
+        "/com/unboundid/scim/marshal/user-schema-resource-list.json";
+    final JSONObject list = JsonParser.makeCaseInsensitive(
+        new JSONObject(new JSONTokener(getResource(path))));
+    final JSONArray listResources = list.getJSONArray("resources");
+    final Resources<ResourceDescriptor> resources =
+        unmarshaller.unmarshalResources(
+            getResource(path), CoreSchema.RESOURCE_SCHEMA_DESCRIPTOR,
+            ResourceDescriptor.RESOURCE_DESCRIPTOR_FACTORY);
+    assertEquals(resources.getItemsPerPage(), listResources.length());
+    int i = 0;
+    for (final ResourceDescriptor resource : resources)
+    {
+      final ResourceDescriptor expected = treeParser.unmarshal(
+          JsonParser.makeCaseInsensitive(listResources.getJSONObject(i++)),
+          CoreSchema.RESOURCE_SCHEMA_DESCRIPTOR,
+          ResourceDescriptor.RESOURCE_DESCRIPTOR_FACTORY,
+          list.getJSONArray("schemas"));
+      assertEquals(resource.getScimObject(), expected.getScimObject());
+    }
+  }
+
+
+
+  /**
+   * Verify that attributes may appear before the schemas attribute, and that
+   * field names are matched without regard to case.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testAttributesBeforeSchemas() throws Exception
+  {
+    final String json =
+        "{\"Resources\":[" +
+        "{\"USERNAME\":\"bjensen\"," +
+        "\"" + SCIMConstants.SCHEMA_URI_ENTERPRISE_EXTENSION + "\":" +
+        "{\"employeeNumber\":\"42\"}," +
+        "\"Schemas\":[\"" + SCHEMA_URI_CORE + "\",\"" +
+        SCIMConstants.SCHEMA_URI_ENTERPRISE_EXTENSION + "\"]," +
+        "\"emails\":[{\"value\":\"bjensen@example.com\"},null]}," +
+        "{\"userName\":\"jsmith\"}]," +
+        "\"totalResults\":2," +
+        "\"schemas\":[\"" + SCHEMA_URI_CORE + "\"]}";
+
+    final Resources<BaseResource> resources =
+        new JsonUnmarshaller().unmarshalResources(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+            CoreSchema.USER_DESCRIPTOR, BaseResource.BASE_RESOURCE_FACTORY);
+    assertEquals(resources.getTotalResults(), 2);
+    assertEquals(resources.getItemsPerPage(), 2);
+
+    final Iterator<BaseResource> iterator = resources.iterator();
+    SCIMObject o = iterator.next().getScimObject();
+    assertEquals(o.getAttribute(SCHEMA_URI_CORE, "userName").getValue()
+                     .getStringValue(), "bjensen");
+    assertEquals(o.getAttribute(SCIMConstants.SCHEMA_URI_ENTERPRISE_EXTENSION,
+                                "employeeNumber").getValue().getStringValue(),
+                 "42");
+    assertEquals(o.getAttribute(SCHEMA_URI_CORE, "emails").getValues().length,
+                 1);
+
+    o = iterator.next().getScimObject();
+    assertEquals(o.getAttribute(SCHEMA_URI_CORE, "userName").getValue()
+                     .getStringValue(), "jsmith");
+  }
+
+
+
+  /**
+   * Verify that the streaming unmarshaller rejects JSON text with missing or
+   * extra commas, missing values, or unescaped control characters in
+   * strings.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testUnmarshalMalformedJson() throws Exception
+  {
+    final String schemas = "\"schemas\":[\"" + SCHEMA_URI_CORE + "\"],";
+    final String[] malformed = {
+        // Missing commas.
+        "{" + schemas + "\"userName\":\"a\" \"displayName\":\"b\"}",
+        "{" + schemas +
+            "\"emails\":[{\"value\":\"a\"} {\"value\":\"b\"}]}",
+        // Trailing, leading and repeated commas.
+        "{" + schemas + "\"userName\":\"a\",}",
+        "{" + schemas + "\"emails\":[{\"value\":\"a\"},]}",
+        "{" + schemas +
+            "\"userName\":\"a\",,\"displayName\":\"b\"}",
+        "{," + schemas + "\"userName\":\"a\"}",
+        "{" + schemas + "\"emails\":[,{\"value\":\"a\"}]}",
+        // Missing values.
+        "{" + schemas + "\"userName\":}",
+        "{" + schemas +
+            "\"userName\":,\"displayName\":\"b\"}",
+        // Raw control characters in strings.
+        "{" + schemas + "\"userName\":\"a\tb\"}",
+        "{" + schemas + "\"userName\":\"a\nb\"}",
+        "{" + schemas + "\"userName\":\"a\\\"\u0001\"}",
+    };
+
+    for (final String json : malformed)
+    {
+      try
+      {
+        new JsonUnmarshaller().unmarshal(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+            CoreSchema.USER_DESCRIPTOR, BaseResource.BASE_RESOURCE_FACTORY);
+        fail("Expected JsonUnmarshaller to reject " + json);
+      }
+      catch (InvalidResourceException e)
+      {
+        assertTrue(e.getMessage().startsWith("Error while reading JSON"),
+                   e.getMessage());
+      }
+    }
+  }
+
+
+
+  /**
+   * Verify that an error response can be read.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testUnmarshalError() throws Exception
+  {
+    final String json =
+        "{\"Errors\":[{\"description\":\"Resource 1234 not found\"," +
+        "\"code\":\"404\"}],\"schemas\":[]}";
+    final SCIMException e = new JsonUnmarshaller().unmarshalError(
+        new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    assertEquals(e.getStatusCode(), 404);
+    assertEquals(e.getMessage(), "Resource 1234 not found");
+  }
 }
@@ -22,9 +22,12 @@ import com.unboundid.scim.marshal.Unmarshaller;
 import com.unboundid.scim.schema.CoreSchema;
 import com.unboundid.scim.schema.ResourceDescriptor;
 import com.unboundid.scim.sdk.InvalidResourceException;
+import com.unboundid.scim.sdk.ResourceNotFoundException;
+import com.unboundid.scim.sdk.Resources;
 import com.unboundid.scim.sdk.SCIMAttribute;
 import com.unboundid.scim.sdk.SCIMAttributeValue;
 import com.unboundid.scim.sdk.SCIMConstants;
+import com.unboundid.scim.sdk.SCIMException;
 import com.unboundid.scim.sdk.SCIMObject;
 import com.unboundid.scim.SCIMTestCase;
 import static com.unboundid.scim.sdk.SCIMConstants.*;
@@ -34,6 +37,8 @@ import static org.testng.Assert.assertTrue;
 
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.Arrays;
 
@@ -142,4 +147,53 @@ public class UnmarshallerTestCase
       // Expected.
     }
   }
+
+
+
+  /**
+   * Verify that a query response and an error response can be read back
+   * after being written, including when the XML is indented.
+   *
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testUnmarshalResourcesAndError()
+    throws Exception
+  {
+    final Unmarshaller unmarshaller = new XmlUnmarshaller();
+    final BaseResource user = unmarshaller.unmarshal(
+        getResource("/com/unboundid/scim/marshal/core-user.xml"),
+        CoreSchema.USER_DESCRIPTOR, BaseResource.BASE_RESOURCE_FACTORY);
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    new XmlMarshaller().marshal(
+        new Resources<BaseResource>(Arrays.asList(user, user), 10, 3),
+        outputStream);
+    final String xml = outputStream.toString("UTF-8").replace("><", ">\n<");
+
+    final Resources<BaseResource> resources = unmarshaller.unmarshalResources(
+        new ByteArrayInputStream(xml.getBytes("UTF-8")),
+        CoreSchema.USER_DESCRIPTOR, BaseResource.BASE_RESOURCE_FACTORY);
+    assertEquals(resources.getTotalResults(), 10);
+    assertEquals(resources.getStartIndex(), 3);
+    assertEquals(resources.getItemsPerPage(), 2);
+    for (final BaseResource resource : resources)
+    {
+      assertEquals(resource.getId(), user.getId());
+      assertEquals(
+          resource.getScimObject().getAttribute(SCHEMA_URI_CORE, "emails"),
+          user.getScimObject().getAttribute(SCHEMA_URI_CORE, "emails"));
+      assertEquals(
+          resource.getScimObject().getAttribute(SCHEMA_URI_CORE, "name"),
+          user.getScimObject().getAttribute(SCHEMA_URI_CORE, "name"));
+    }
+
+    outputStream.reset();
+    new XmlMarshaller().marshal(
+        new ResourceNotFoundException("Resource not found"), outputStream);
+    final SCIMException error = unmarshaller.unmarshalError(
+        new ByteArrayInputStream(outputStream.toByteArray()));
+    assertTrue(error instanceof ResourceNotFoundException);
+    assertEquals(error.getMessage(), "Resource not found");
+  }
 }
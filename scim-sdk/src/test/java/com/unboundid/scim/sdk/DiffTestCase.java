@@ -31,7 +31,9 @@ import org.testng.annotations.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import static org.testng.Assert.*;
 
@@ -1034,6 +1036,63 @@ public class DiffTestCase extends SCIMTestCase
         .getValue().getStringValue().equals("mygroupid"));
   }
 
+  /**
+   * Test a diff of groups with many members, where only a few members have
+   * changed and the remaining members are in a different order.
+   *
+   * @throws Exception if an error occurs.
+   */
+  @Test
+  public void testDiffLargeGroup() throws Exception
+  {
+    final int numMembers = 20000;
+    final List<Entry<String>> sourceMembers =
+        new ArrayList<Entry<String>>(numMembers);
+    final List<Entry<String>> targetMembers =
+        new ArrayList<Entry<String>>(numMembers);
+    for (int i = 0; i < numMembers; i++)
+    {
+      sourceMembers.add(new Entry<String>("user" + i, "User"));
+      targetMembers.add(new Entry<String>("user" + (i + 100), "User"));
+    }
+    Collections.reverse(targetMembers);
+
+    final GroupResource source =
+        new GroupResource(CoreSchema.GROUP_DESCRIPTOR);
+    source.setMembers(sourceMembers);
+    final GroupResource target =
+        new GroupResource(CoreSchema.GROUP_DESCRIPTOR);
+    target.setMembers(targetMembers);
+
+    final Diff<GroupResource> diff = Diff.generate(source, target);
+    assertTrue(diff.getAttributesToDelete().isEmpty());
+    assertEquals(diff.getAttributesToUpdate().size(), 1);
+
+    int deleted = 0;
+    int added = 0;
+    for (final SCIMAttributeValue value :
+        diff.getAttributesToUpdate().get(0).getValues())
+    {
+      if (value.hasAttribute("operation"))
+      {
+        deleted++;
+        final String member = value.getSubAttributeValue("value",
+            AttributeValueResolver.STRING_RESOLVER);
+        assertTrue(Integer.parseInt(member.substring(4)) < 100);
+      }
+      else
+      {
+        added++;
+      }
+    }
+    assertEquals(deleted, 100);
+    assertEquals(added, 100);
+
+    source.setMembers(targetMembers);
+    assertTrue(Diff.generate(source, target).getAttributesToUpdate()
+        .isEmpty());
+  }
+
   /**
    * Test the fromPartialResource() and toPartialResource() methods to make
    * sure they behave consistently.
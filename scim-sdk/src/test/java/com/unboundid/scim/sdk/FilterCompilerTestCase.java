@@ -0,0 +1,118 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.data.Entry;
+import com.unboundid.scim.data.Meta;
+import com.unboundid.scim.data.Name;
+import com.unboundid.scim.data.UserResource;
+import com.unboundid.scim.schema.CoreSchema;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.function.Predicate;
+
+import static org.testng.Assert.assertEquals;
+
+
+
+/**
+ * Test coverage for the {@code FilterCompiler} class.
+ */
+public class FilterCompilerTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Retrieves filters and whether they match the test user.
+   *
+   * @return  Filters and whether they match the test user.
+   */
+  @DataProvider(name = "filters")
+  public Object[][] getFilters()
+  {
+    return new Object[][]
+    {
+        new Object[] { "userName eq \"BJensen\"", true },
+        new Object[] { "userName eq \"jensen\"", false },
+        new Object[] { "userName co \"JENS\"", true },
+        new Object[] { "userName co \"jensenx\"", false },
+        new Object[] { "userName sw \"bj\"", true },
+        new Object[] { "userName sw \"je\"", false },
+        new Object[] { "userName gt \"a\"", true },
+        new Object[] { "userName lt \"a\"", false },
+        new Object[] { "userName pr", true },
+        new Object[] { "title pr", false },
+        new Object[] { "name.familyName eq \"jensen\"", true },
+        new Object[] { "name.givenName sw \"B\"", true },
+        new Object[] { "name.middleName pr", false },
+        new Object[] { "emails co \"example.com\"", true },
+        new Object[] { "emails eq \"work\"", true },
+        new Object[] { "emails.value eq \"bjensen@example.com\"", true },
+        new Object[] { "emails eq \"nobody@example.com\"", false },
+        new Object[] { "emails pr", true },
+        new Object[] { "active eq true", true },
+        new Object[] { "active eq false", false },
+        new Object[] { "active gt true", false },
+        new Object[] { "meta.lastModified gt \"2011-05-13T04:42:34Z\"", true },
+        new Object[] { "meta.lastModified le \"2011-05-13T04:42:34Z\"", false },
+        new Object[] { "meta.lastModified eq \"not a date\"", false },
+        new Object[] { "userName eq \"bjensen\" and active eq true", true },
+        new Object[] { "userName eq \"bjensen\" and active eq false", false },
+        new Object[] { "title pr or name.familyName co \"ens\"", true },
+        new Object[] { "title pr or userType pr", false },
+        new Object[] { "urn:scim:schemas:extension:custom:1.0:foo pr", false },
+    };
+  }
+
+
+
+  /**
+   * Verify that a compiled filter matches the same objects as the filter.
+   *
+   * @param filterString  The filter to be tested.
+   * @param expected      Whether the filter matches the test user.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test(dataProvider = "filters")
+  public void testCompiledFilter(final String filterString,
+                                 final boolean expected)
+      throws Exception
+  {
+    final UserResource user = new UserResource(CoreSchema.USER_DESCRIPTOR);
+    user.setUserName("bjensen");
+    user.setName(new Name("Ms. Barbara J Jensen III", "Jensen", null,
+                          "Barbara", null, null));
+    user.setEmails(Arrays.asList(
+        new Entry<String>("bjensen@example.com", "work", true),
+        new Entry<String>("babs@jensen.org", "home")));
+    user.setActive(true);
+    user.setMeta(new Meta(new Date(0), new Date(), null, null));
+
+    final SCIMFilter filter = SCIMFilter.parse(filterString);
+    final Predicate<SCIMObject> predicate =
+        FilterCompiler.compile(filter, CoreSchema.USER_DESCRIPTOR);
+
+    assertEquals(user.getScimObject().matchesFilter(filter), expected);
+    assertEquals(predicate.test(user.getScimObject()), expected);
+    assertEquals(predicate.test(new SCIMObject()), false);
+  }
+}
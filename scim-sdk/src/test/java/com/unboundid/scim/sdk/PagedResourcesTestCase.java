@@ -0,0 +1,300 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.data.UserResource;
+import com.unboundid.scim.schema.CoreSchema;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+
+/**
+ * This class provides test coverage for the {@link PagedResources} returned
+ * by {@link SCIMEndpoint#queryAll}.
+ */
+public class PagedResourcesTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Verify that pages are requested until the total number of results has
+   * been returned.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testTotalResults()
+      throws Exception
+  {
+    final PageEndpoint endpoint = new PageEndpoint();
+    endpoint.addPage(5, "u1", "u2");
+    endpoint.addPage(5, "u3", "u4");
+    endpoint.addPage(5, "u5");
+
+    assertEquals(getUserNames(endpoint.queryAll(null, 2)),
+                 Arrays.asList("u1", "u2", "u3", "u4", "u5"));
+    assertEquals(endpoint.startIndexes, Arrays.asList(1, 3, 5));
+  }
+
+
+
+  /**
+   * Verify that a short page before the total number of results has been
+   * returned continues from the next index, and that an empty page ends the
+   * results even though the total number of results was not reached.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testShortAndEmptyPages()
+      throws Exception
+  {
+    final PageEndpoint endpoint = new PageEndpoint();
+    endpoint.addPage(10, "u1", "u2");
+    endpoint.addPage(10, "u3");
+    endpoint.addPage(10);
+
+    assertEquals(getUserNames(endpoint.queryAll(null, 2)),
+                 Arrays.asList("u1", "u2", "u3"));
+    assertEquals(endpoint.startIndexes, Arrays.asList(1, 3, 4));
+
+    final PageEndpoint emptyEndpoint = new PageEndpoint();
+    emptyEndpoint.addPage(0);
+    assertFalse(emptyEndpoint.queryAll(null, 2).iterator().hasNext());
+    assertEquals(emptyEndpoint.startIndexes, Arrays.asList(1));
+  }
+
+
+
+  /**
+   * Verify that the request for the next page is cancelled when iteration
+   * stops early.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testCancelPrefetch()
+      throws Exception
+  {
+    final PageEndpoint endpoint = new PageEndpoint();
+    endpoint.addPage(6, "u1", "u2");
+    final CompletableFuture<Resources<UserResource>> secondPage =
+        endpoint.addPendingPage();
+
+    final PagedResources<UserResource>.PageIterator iterator =
+        endpoint.queryAll(null, 2).iterator();
+    assertEquals(iterator.next().getUserName(), "u1");
+    assertEquals(endpoint.startIndexes, Arrays.asList(1, 3));
+
+    iterator.close();
+    assertTrue(secondPage.isCancelled());
+    assertFalse(iterator.hasNext());
+
+    // Closing a stream also cancels the request for the next page.
+    final PageEndpoint streamEndpoint = new PageEndpoint();
+    streamEndpoint.addPage(6, "u1", "u2");
+    final CompletableFuture<Resources<UserResource>> streamSecondPage =
+        streamEndpoint.addPendingPage();
+    final Stream<UserResource> stream =
+        streamEndpoint.queryAll(null, 2).stream();
+    try
+    {
+      final List<UserResource> users =
+          stream.limit(1).collect(Collectors.<UserResource>toList());
+      assertEquals(users.size(), 1);
+      assertEquals(users.get(0).getUserName(), "u1");
+    }
+    finally
+    {
+      stream.close();
+    }
+    assertTrue(streamSecondPage.isCancelled());
+  }
+
+
+
+  /**
+   * Verify that an error retrieving a page is thrown by the iterator once
+   * the earlier pages have been consumed.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testPageError()
+      throws Exception
+  {
+    final ServerErrorException error =
+        new ServerErrorException("The server is unavailable");
+
+    final PageEndpoint endpoint = new PageEndpoint();
+    endpoint.addPage(6, "u1", "u2");
+    endpoint.addPendingPage().completeExceptionally(error);
+
+    final PagedResources<UserResource>.PageIterator iterator =
+        endpoint.queryAll(null, 2).iterator();
+    assertEquals(iterator.next().getUserName(), "u1");
+    assertEquals(iterator.next().getUserName(), "u2");
+    try
+    {
+      iterator.hasNext();
+      fail("Expected an exception for the second page");
+    }
+    catch (UncheckedSCIMException e)
+    {
+      assertSame(e.getCause(), error);
+    }
+    assertFalse(iterator.hasNext());
+
+    // The error is also thrown by next() if the page is needed.
+    final PageEndpoint nextEndpoint = new PageEndpoint();
+    nextEndpoint.addPendingPage().completeExceptionally(error);
+    try
+    {
+      nextEndpoint.queryAll(null, 2).iterator().next();
+      fail("Expected an exception for the first page");
+    }
+    catch (UncheckedSCIMException e)
+    {
+      assertEquals(e.getCause().getStatusCode(), 500);
+    }
+  }
+
+
+
+  /**
+   * Retrieve the user names of the resources returned by a query.
+   *
+   * @param resources  The resources returned by the query.
+   *
+   * @return  The user names, in the order they were returned.
+   */
+  private static List<String> getUserNames(
+      final PagedResources<UserResource> resources)
+  {
+    final List<String> userNames = new ArrayList<String>();
+    for (final UserResource resource : resources)
+    {
+      userNames.add(resource.getUserName());
+    }
+    return userNames;
+  }
+
+
+
+  /**
+   * An endpoint that returns pages of users from a predefined list of
+   * responses, and records the start index of each page requested.
+   */
+  private static final class PageEndpoint
+      extends SCIMEndpoint<UserResource>
+  {
+    /**
+     * The responses to the page requests, in the order they are requested.
+     */
+    private final List<CompletableFuture<Resources<UserResource>>> pages =
+        new ArrayList<CompletableFuture<Resources<UserResource>>>();
+
+    /**
+     * The start index of each page requested.
+     */
+    private final List<Integer> startIndexes = new ArrayList<Integer>();
+
+
+
+    /**
+     * Create a new endpoint.
+     *
+     * @throws Exception  If the endpoint could not be created.
+     */
+    private PageEndpoint()
+        throws Exception
+    {
+      super(new SCIMService(new URI("http://localhost:8080/scim")), null,
+            CoreSchema.USER_DESCRIPTOR, UserResource.USER_RESOURCE_FACTORY);
+    }
+
+
+
+    /**
+     * Add a page of users to the responses.
+     *
+     * @param totalResults  The total number of results given in the page.
+     * @param userNames     The user names of the users in the page.
+     */
+    private void addPage(final int totalResults, final String... userNames)
+    {
+      final List<UserResource> users = new ArrayList<UserResource>();
+      for (final String userName : userNames)
+      {
+        users.add(new UserResource(CoreSchema.USER_DESCRIPTOR)
+                      .setUserName(userName));
+      }
+      addPendingPage().complete(
+          new Resources<UserResource>(users, totalResults, 1));
+    }
+
+
+
+    /**
+     * Add a response that has not yet been completed.
+     *
+     * @return  The response.
+     */
+    private CompletableFuture<Resources<UserResource>> addPendingPage()
+    {
+      final CompletableFuture<Resources<UserResource>> page =
+          new CompletableFuture<Resources<UserResource>>();
+      pages.add(page);
+      return page;
+    }
+
+
+
+    @Override
+    public CompletableFuture<Resources<UserResource>> queryAsync(
+        final String filter,
+        final SortParameters sortParameters,
+        final PageParameters pageParameters,
+        final Map<String,String> additionalQueryParams,
+        final String... requestedAttributes)
+    {
+      startIndexes.add((int) pageParameters.getStartIndex());
+      if (startIndexes.size() > pages.size())
+      {
+        fail("Unexpected request for the page at index " +
+             pageParameters.getStartIndex());
+      }
+      return pages.get(startIndexes.size() - 1);
+    }
+  }
+}
@@ -27,6 +27,7 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.fail;
 
 import java.util.ArrayList;
@@ -250,4 +251,46 @@ public class SCIMAttributeTestCase
           AttributeValueResolver.STRING_RESOLVER), "someNumber");
     }
   }
+
+
+
+  /**
+   * Test that simple values parse their string form once, and that the
+   * typed forms match the canonical string form.
+   */
+  @Test
+  public void testSimpleValueParsedForms()
+  {
+    final SimpleValue longValue = new SimpleValue("1234");
+    assertSame(longValue.getLongValue(), longValue.getLongValue());
+    assertEquals(longValue.getLongValue(), Long.valueOf(1234));
+    assertEquals(longValue.getDoubleValue(), 1234.0);
+    assertEquals(new SimpleValue(1234), longValue);
+    assertEquals(new SimpleValue(1234L).getStringValue(), "1234");
+
+    final SimpleValue booleanValue = new SimpleValue(Boolean.TRUE);
+    assertEquals(booleanValue.getStringValue(), "true");
+    assertEquals(booleanValue, new SimpleValue("true"));
+    assertTrue(new SimpleValue("true").getBooleanValue());
+
+    final Date date = new Date(1300000000000L);
+    final SimpleValue dateValue = new SimpleValue(date);
+    assertEquals(dateValue.getDateValue(), date);
+    assertEquals(dateValue, new SimpleValue(dateValue.getStringValue()));
+    assertEquals(new SimpleValue(dateValue.getStringValue()).getDateMillis(),
+                 date.getTime());
+
+    // The cached date must not be affected by changes to a returned date.
+    dateValue.getDateValue().setTime(0);
+    assertEquals(dateValue.getDateValue(), date);
+    date.setTime(0);
+    assertEquals(dateValue.getDateMillis(), 1300000000000L);
+
+    final SimpleValue binaryValue = new SimpleValue(new byte[] { 1, 2, 3 });
+    assertSame(binaryValue.getStringValue(), binaryValue.getStringValue());
+    assertEquals(binaryValue.getStringValue(), "AQID");
+    assertEquals(new SimpleValue(new byte[] { 1, 2, 3 }), binaryValue);
+    assertEquals(new SimpleValue(new byte[] { 1, 2, 3 }).hashCode(),
+                 binaryValue.hashCode());
+  }
 }
@@ -262,4 +262,47 @@ public class SCIMFilterTestCase
     assertFalse(filter.isQuoteFilterValue());
   }
 
+
+
+  /**
+   * Verify that filters parsed through a filter cache are the same as those
+   * parsed directly, whether or not their template is cached.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testFilterCache()
+      throws Exception
+  {
+    final FilterCache cache = new FilterCache(10);
+    final String[] filters =
+    {
+        "userName eq \"bjensen\"",
+        "userName eq \"jsmith\"",
+        "userName  eq  \"a \\\"quoted\\\" name\"",
+        "userName eq 123",
+        "title pr and (userType eq \"Employee\" or emails co \"@x.com\")",
+        "title pr and (userType eq \"Intern\" or emails co \"@y.com\")",
+        "meta.lastModified gt \"2011-05-13T04:42:34Z\" and active eq true",
+        "meta.lastModified gt \"2012-01-01T00:00:00Z\" and active eq false",
+    };
+
+    for (final String filterString : filters)
+    {
+      assertEquals(cache.parse(filterString, SCIMConstants.SCHEMA_URI_CORE)
+                       .toString(),
+                   SCIMFilter.parse(filterString).toString());
+    }
+    assertEquals(cache.size(), 4);
+
+    try
+    {
+      cache.parse("userName eq", SCIMConstants.SCHEMA_URI_CORE);
+      fail("Expected an invalid filter to be rejected");
+    }
+    catch (InvalidResourceException e)
+    {
+      // Expected.
+    }
+  }
 }
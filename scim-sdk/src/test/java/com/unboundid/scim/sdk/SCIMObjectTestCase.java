@@ -28,6 +28,7 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.fail;
 
 import java.util.Collection;
@@ -229,4 +230,38 @@ public class SCIMObjectTestCase
 
     assertTrue(user.getSchemas().isEmpty());
   }
+
+
+
+  /**
+   * Test that attributes can be retrieved by their descriptors, and that the
+   * lower case keys are shared with the descriptors.
+   *
+   * @throws Exception if an error occurs.
+   */
+  @Test
+  public void testGetAttributeByDescriptor() throws Exception
+  {
+    final AttributeDescriptor userNameDescriptor =
+        CoreSchema.USER_DESCRIPTOR.getAttribute(
+            SCIMConstants.SCHEMA_URI_CORE, "userName");
+    assertEquals(userNameDescriptor.getLowerCaseName(), "username");
+    assertSame(userNameDescriptor.getLowerCaseName(), "username");
+
+    final SCIMObject object = new SCIMObject();
+    assertNull(object.getAttribute(userNameDescriptor));
+
+    final SCIMAttribute userName = SCIMAttribute.create(
+        userNameDescriptor, SCIMAttributeValue.createStringValue("bjensen"));
+    object.setAttribute(userName);
+    assertSame(object.getAttribute(userNameDescriptor), userName);
+    assertSame(object.getAttribute(
+        "URN:SCIM:SCHEMAS:CORE:1.0", "USERNAME"), userName);
+    assertSame(object.getSchemas().iterator().next(),
+               userNameDescriptor.getLowerCaseSchema());
+
+    final String lowerCase = "already lower case";
+    assertSame(StaticUtils.toLowerCase(lowerCase), lowerCase);
+    assertEquals(StaticUtils.toLowerCase("Mixed Case"), "mixed case");
+  }
 }
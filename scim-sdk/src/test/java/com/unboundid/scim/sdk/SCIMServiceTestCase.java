@@ -0,0 +1,402 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.data.UserResource;
+import com.unboundid.scim.schema.CoreSchema;
+import com.unboundid.scim.schema.ResourceDescriptor;
+import org.apache.http.pool.PoolStats;
+import org.glassfish.jersey.client.ClientConfig;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+
+/**
+ * This class provides test coverage for the {@code SCIMService} class.
+ */
+public class SCIMServiceTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Verify that the connection pool settings are applied to the pool shared
+   * by the endpoints, and that its statistics are available.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testConnectionPool()
+      throws Exception
+  {
+    final URI uri = new URI("http://localhost:8080/scim");
+
+    final SCIMService defaultService = new SCIMService(uri);
+    final PoolStats defaultStats = defaultService.getConnectionPoolStats();
+    assertNotNull(defaultStats);
+    assertEquals(defaultStats.getMax(), 100);
+
+    final ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+    poolConfig.setMaxTotalConnections(25);
+    poolConfig.setMaxConnectionsPerRoute(10);
+    poolConfig.setKeepAliveMillis(30000);
+    poolConfig.setMaxIdleMillis(60000);
+    poolConfig.setConnectTimeoutMillis(5000);
+    poolConfig.setSocketTimeoutMillis(30000);
+
+    final SCIMService service =
+        new SCIMService(uri, "bjensen", "password", poolConfig);
+    final PoolStats stats = service.getConnectionPoolStats();
+    assertEquals(stats.getMax(), 25);
+    assertEquals(stats.getLeased(), 0);
+    assertEquals(stats.getPending(), 0);
+
+    assertNull(new SCIMService(uri, new ClientConfig())
+                   .getConnectionPoolStats());
+  }
+
+
+
+  /**
+   * Verify that asynchronous requests beyond the limit are queued without
+   * blocking, and are started as earlier requests complete.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testAsyncRequestLimit()
+      throws Exception
+  {
+    final SCIMService service =
+        new SCIMService(new URI("http://localhost:8080/scim"));
+    assertEquals(service.getMaxAsyncRequests(), 100);
+    service.setMaxAsyncRequests(2);
+
+    final AsyncRequestLimiter limiter = service.getAsyncRequestLimiter();
+    final List<Integer> started = new ArrayList<Integer>();
+    for (int i = 0; i < 4; i++)
+    {
+      final int request = i;
+      limiter.execute(new Runnable()
+      {
+        public void run()
+        {
+          started.add(request);
+        }
+      });
+    }
+
+    assertEquals(started.size(), 2);
+    assertEquals(limiter.getInProgress(), 2);
+    assertEquals(service.getPendingAsyncRequests(), 2);
+
+    limiter.release();
+    assertEquals(started.size(), 3);
+    assertEquals(service.getPendingAsyncRequests(), 1);
+
+    service.setMaxAsyncRequests(3);
+    assertEquals(started.size(), 4);
+    assertEquals(limiter.getInProgress(), 3);
+    assertEquals(service.getPendingAsyncRequests(), 0);
+  }
+
+
+
+  /**
+   * Verify that an asynchronous request whose response is rejected by the
+   * async executor completes exceptionally and releases its place in the
+   * limit of requests in progress.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testAsyncExecutorRejected()
+      throws Exception
+  {
+    // Nothing is listening on the port, so each request fails.
+    final SCIMService service =
+        new SCIMService(new URI("http://localhost:1/scim"));
+    service.setMaxAsyncRequests(1);
+    service.setAsyncExecutor(new Executor()
+    {
+      public void execute(final Runnable command)
+      {
+        throw new RejectedExecutionException("Executor rejected the task");
+      }
+    });
+
+    final SCIMEndpoint<UserResource> endpoint = service.getUserEndpoint();
+    for (int i = 0; i < 2; i++)
+    {
+      try
+      {
+        endpoint.getAsync("bjensen").get(30, TimeUnit.SECONDS);
+        fail("Expected the request to fail");
+      }
+      catch (ExecutionException e)
+      {
+        assertTrue(e.getCause() instanceof SCIMException);
+        assertTrue(e.getCause().getMessage().contains("rejected"),
+                   e.getCause().getMessage());
+      }
+    }
+    assertEquals(service.getAsyncRequestLimiter().getInProgress(), 0);
+    assertEquals(service.getPendingAsyncRequests(), 0);
+  }
+
+
+
+  /**
+   * Verify that cached resource descriptors are used until they expire, and
+   * are then revalidated with a conditional request.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testResourceDescriptorCache()
+      throws Exception
+  {
+    final List<String> etags = new ArrayList<String>();
+    final ResourceDescriptorCache cache = new ResourceDescriptorCache(
+        new ResourceDescriptorCache.Loader()
+        {
+          public Resources<ResourceDescriptor> query(
+              final String filter, final String etag,
+              final AtomicReference<String> etagRef)
+          {
+            etags.add(etag);
+            if ("\"1\"".equals(etag))
+            {
+              return null;
+            }
+            etagRef.set("\"1\"");
+            return createResources();
+          }
+        }, 60000);
+
+    final Resources<ResourceDescriptor> resources = cache.query("filter");
+    assertEquals(resources.getTotalResults(), 1);
+    assertSame(cache.query("filter"), resources);
+    assertEquals(etags.size(), 1);
+    assertNull(etags.get(0));
+
+    cache.setTimeToLiveMillis(1);
+    Thread.sleep(5);
+    assertSame(cache.query("filter"), resources);
+    Thread.sleep(5);
+    assertSame(cache.query("filter"), resources);
+    assertEquals(etags.size(), 3);
+    assertEquals(etags.get(2), "\"1\"");
+
+    cache.invalidate();
+    cache.query("filter");
+    assertEquals(etags.size(), 4);
+    assertNull(etags.get(3));
+  }
+
+
+
+  /**
+   * Verify that resource descriptors are not cached by default, so that each
+   * caller receives its own instances.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testResourceDescriptorCacheDisabled()
+      throws Exception
+  {
+    final SCIMService service =
+        new SCIMService(new URI("http://localhost:8080/scim"));
+    assertEquals(service.getResourceDescriptorCacheTTLMillis(), 0);
+
+    final List<String> etags = new ArrayList<String>();
+    final ResourceDescriptorCache cache = new ResourceDescriptorCache(
+        new ResourceDescriptorCache.Loader()
+        {
+          public Resources<ResourceDescriptor> query(
+              final String filter, final String etag,
+              final AtomicReference<String> etagRef)
+          {
+            etags.add(etag);
+            etagRef.set("\"1\"");
+            return createResources();
+          }
+        }, 0);
+
+    assertNotSame(cache.query("filter"), cache.query("filter"));
+    assertEquals(etags, Arrays.<String>asList(null, null));
+
+    // Disabling the cache discards the cached results.
+    cache.setTimeToLiveMillis(60000);
+    final Resources<ResourceDescriptor> resources = cache.query("filter");
+    assertSame(cache.query("filter"), resources);
+    cache.setTimeToLiveMillis(0);
+    assertNotSame(cache.query("filter"), resources);
+    assertEquals(etags, Arrays.<String>asList(null, null, null, null));
+  }
+
+
+
+  /**
+   * Verify that a not modified response to an unconditional request is
+   * reported as an error.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testResourceDescriptorCacheNotModifiedWithoutResult()
+      throws Exception
+  {
+    for (final long ttlMillis : new long[] { 0, 60000 })
+    {
+      final ResourceDescriptorCache cache = new ResourceDescriptorCache(
+          new ResourceDescriptorCache.Loader()
+          {
+            public Resources<ResourceDescriptor> query(
+                final String filter, final String etag,
+                final AtomicReference<String> etagRef)
+            {
+              return null;
+            }
+          }, ttlMillis);
+
+      try
+      {
+        cache.query("filter");
+        fail("Expected an exception for a not modified response");
+      }
+      catch (ServerErrorException e)
+      {
+        // This was expected.
+      }
+    }
+  }
+
+
+
+  /**
+   * Verify that concurrent requests for the same resource descriptors share
+   * a single retrieval.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testResourceDescriptorCacheSingleFlight()
+      throws Exception
+  {
+    final AtomicInteger queries = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ResourceDescriptorCache cache = new ResourceDescriptorCache(
+        new ResourceDescriptorCache.Loader()
+        {
+          public Resources<ResourceDescriptor> query(
+              final String filter, final String etag,
+              final AtomicReference<String> etagRef)
+          {
+            queries.incrementAndGet();
+            started.countDown();
+            try
+            {
+              release.await();
+            }
+            catch (InterruptedException e)
+            {
+              Thread.currentThread().interrupt();
+            }
+            return createResources();
+          }
+        }, 60000);
+
+    final List<Resources<ResourceDescriptor>> results =
+        Collections.synchronizedList(
+            new ArrayList<Resources<ResourceDescriptor>>());
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < 4; i++)
+    {
+      final Thread thread = new Thread()
+      {
+        public void run()
+        {
+          try
+          {
+            results.add(cache.query("filter"));
+          }
+          catch (SCIMException e)
+          {
+            // The results will be incomplete.
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+      if (i == 0)
+      {
+        started.await();
+      }
+    }
+
+    release.countDown();
+    for (final Thread thread : threads)
+    {
+      thread.join();
+    }
+
+    assertEquals(queries.get(), 1);
+    assertEquals(results.size(), 4);
+    for (final Resources<ResourceDescriptor> result : results)
+    {
+      assertSame(result, results.get(0));
+    }
+  }
+
+
+
+  /**
+   * Create the result of a query of the resource schemas.
+   *
+   * @return  The result of a query of the resource schemas.
+   */
+  private static Resources<ResourceDescriptor> createResources()
+  {
+    return new Resources<ResourceDescriptor>(
+        Collections.singletonList(
+            CoreSchema.createCustomUserResourceDescriptor("User", "Users")));
+  }
+}
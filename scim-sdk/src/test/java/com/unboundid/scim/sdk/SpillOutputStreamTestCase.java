@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.sdk;
+
+import com.unboundid.scim.SCIMTestCase;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+
+
+/**
+ * This class provides test coverage for the {@code SpillOutputStream} class.
+ */
+public class SpillOutputStreamTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Verify that content is held in memory up to the threshold, and is moved
+   * to a temporary file beyond it.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testSpill()
+      throws Exception
+  {
+    final byte[] content = new byte[100];
+    for (int i = 0; i < content.length; i++)
+    {
+      content[i] = (byte) i;
+    }
+
+    final SpillOutputStream memoryStream =
+        new SpillOutputStream(content.length, "test-", ".tmp", null);
+    memoryStream.write(content, 0, 60);
+    memoryStream.write(content, 60, 40);
+    memoryStream.close();
+    assertNull(memoryStream.getFile());
+    assertEquals(getContent(memoryStream), content);
+
+    final SpillOutputStream fileStream =
+        new SpillOutputStream(content.length - 1, "test-", ".tmp", null);
+    fileStream.write(content, 0, 60);
+    assertNull(fileStream.getFile());
+    fileStream.write(content, 60, 40);
+    final File file = fileStream.getFile();
+    assertNotNull(file);
+    fileStream.close();
+    assertEquals(file.length(), content.length);
+    assertEquals(getContent(fileStream), content);
+
+    fileStream.delete();
+    assertFalse(file.exists());
+  }
+
+
+
+  /**
+   * Retrieve the content written to a spill output stream.
+   *
+   * @param stream  The spill output stream.
+   *
+   * @return  The content written to the stream.
+   *
+   * @throws Exception  If the content could not be retrieved.
+   */
+  private static byte[] getContent(final SpillOutputStream stream)
+      throws Exception
+  {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    stream.writeTo(outputStream);
+    return outputStream.toByteArray();
+  }
+}
@@ -0,0 +1,609 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.wink;
+
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.data.BaseResource;
+import com.unboundid.scim.data.Entry;
+import com.unboundid.scim.data.GroupResource;
+import com.unboundid.scim.data.Meta;
+import com.unboundid.scim.data.UserResource;
+import com.unboundid.scim.schema.CoreSchema;
+import com.unboundid.scim.schema.ResourceDescriptor;
+import com.unboundid.scim.sdk.BulkOperation;
+import com.unboundid.scim.sdk.BulkStreamResponse;
+import com.unboundid.scim.sdk.DeleteResourceRequest;
+import com.unboundid.scim.sdk.GetResourceRequest;
+import com.unboundid.scim.sdk.GetResourcesRequest;
+import com.unboundid.scim.sdk.PatchResourceRequest;
+import com.unboundid.scim.sdk.PostResourceRequest;
+import com.unboundid.scim.sdk.PutResourceRequest;
+import com.unboundid.scim.sdk.Resources;
+import com.unboundid.scim.sdk.SCIMBackend;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntBinaryOperator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+
+/**
+ * This class provides test coverage for the {@code BulkContentRequestHandler}
+ * class.
+ */
+public class BulkContentRequestHandlerTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Verify that independent operations are processed in parallel, that
+   * operations referencing a bulkId wait for the operation defining it, and
+   * that the responses are written in request order.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testParallelOperations()
+      throws Exception
+  {
+    final TestBackend backend = new TestBackend();
+    final SCIMApplication application = new SCIMApplication(backend, null);
+    application.setBulkMaxParallelOperations(4);
+
+    final RequestContext requestContext = createRequestContext();
+    final List<BulkOperation> responses = new ArrayList<BulkOperation>();
+    final BulkStreamResponse bulkStreamResponse =
+        new BulkStreamResponse(application, requestContext)
+        {
+          public void writeBulkOperation(final BulkOperation o)
+          {
+            responses.add(o);
+          }
+        };
+
+    final BulkContentRequestHandler handler =
+        new BulkContentRequestHandler(application, requestContext, backend,
+                                      bulkStreamResponse, null);
+    try
+    {
+      final int numUsers = 12;
+      for (int i = 0; i < numUsers; i++)
+      {
+        final UserResource user =
+            new UserResource(CoreSchema.USER_DESCRIPTOR);
+        user.setUserName("user" + i);
+        handler.handleOperation(i, BulkOperation.createRequest(
+            BulkOperation.Method.POST, "user" + i, null, "/Users", user));
+      }
+
+      handler.handleOperation(numUsers, BulkOperation.createRequest(
+          BulkOperation.Method.POST, "group", null, "/Groups",
+          createGroup(handler, numUsers)));
+      handler.handleOperation(numUsers + 1, BulkOperation.createRequest(
+          BulkOperation.Method.PUT, null, null, "/Groups/bulkId:group",
+          createGroup(handler, numUsers + 1)));
+    }
+    finally
+    {
+      handler.awaitOperations();
+      bulkStreamResponse.finalizeResponse();
+    }
+
+    assertTrue(backend.maxConcurrent.get() > 1);
+    assertEquals(responses.size(), 14);
+    for (int i = 0; i < 12; i++)
+    {
+      assertEquals(responses.get(i).getBulkId(), "user" + i);
+      assertEquals(responses.get(i).getStatus().getCode(), "201");
+    }
+    assertEquals(responses.get(12).getStatus().getCode(), "201");
+    assertEquals(responses.get(13).getStatus().getCode(), "200");
+
+    // The group member reference was resolved to the ID of the first user,
+    // and the group was replaced after it was created.
+    assertEquals(backend.groupMembers, Arrays.asList("user0-id", "user0-id"));
+  }
+
+
+
+  /**
+   * Provides the settings for whether bulk responses are written as the
+   * operations complete.
+   *
+   * @return  The settings for whether bulk responses are written as the
+   *          operations complete.
+   */
+  @DataProvider(name = "responseStreaming")
+  public Object[][] getResponseStreaming()
+  {
+    return new Object[][] { { false }, { true } };
+  }
+
+
+
+  /**
+   * Verify that a bulk request can be processed as it is read from the
+   * request content, without being written to a temporary file first, and
+   * that the response can be written as the operations complete.
+   *
+   * @param responseStreaming  Whether the response is written as the
+   *                           operations complete.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test(dataProvider = "responseStreaming")
+  public void testStreamingRequest(final boolean responseStreaming)
+      throws Exception
+  {
+    final TestBackend backend = new TestBackend();
+    final SCIMApplication application = new SCIMApplication(backend, null);
+    application.setBulkRequestStreaming(true);
+    application.setBulkResponseStreaming(responseStreaming);
+
+    final String request =
+        "{\"schemas\":[\"urn:scim:schemas:core:1.0\"]," +
+        "\"Operations\":[" +
+        "{\"method\":\"POST\",\"bulkId\":\"user0\",\"path\":\"/Users\"," +
+        "\"data\":{\"userName\":\"user0\"}}," +
+        "{\"method\":\"POST\",\"bulkId\":\"group\"," +
+        "\"path\":\"/Groups\",\"data\":{\"displayName\":\"group\"," +
+        "\"members\":[{\"value\":\"bulkId:user0\"}]}}]," +
+        "\"failOnErrors\":1}";
+
+    final Response response =
+        new BulkResource(application, null).postBulk(createRequestContext(),
+            new ByteArrayInputStream(request.getBytes("UTF-8")));
+    assertEquals(response.getStatus(), 200);
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(outputStream);
+    final String content = outputStream.toString("UTF-8");
+    assertTrue(content.contains("\"user0\""), content);
+    assertTrue(content.contains("\"group\""), content);
+    assertEquals(backend.groupMembers, Arrays.asList("user0-id"));
+  }
+
+
+
+  /**
+   * Provides the settings for whether the failOnErrors value precedes the
+   * operations in a bulk request.
+   *
+   * @return  The settings for whether the failOnErrors value precedes the
+   *          operations in a bulk request.
+   */
+  @DataProvider(name = "failOnErrorsFirst")
+  public Object[][] getFailOnErrorsFirst()
+  {
+    return new Object[][] { { true }, { false } };
+  }
+
+
+
+  /**
+   * Verify that the failOnErrors value of a bulk request processed as it is
+   * read applies to all the operations, whether it precedes or follows them.
+   *
+   * @param failOnErrorsFirst  Whether the failOnErrors value precedes the
+   *                           operations.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test(dataProvider = "failOnErrorsFirst")
+  public void testStreamingFailOnErrors(final boolean failOnErrorsFirst)
+      throws Exception
+  {
+    final TestBackend backend = new TestBackend();
+    final SCIMApplication application = new SCIMApplication(backend, null);
+    application.setBulkRequestStreaming(true);
+
+    // The first operation fails because it does not have a bulkId.
+    final String operations =
+        "\"Operations\":[" +
+        "{\"method\":\"POST\",\"path\":\"/Users\"," +
+        "\"data\":{\"userName\":\"user0\"}}," +
+        "{\"method\":\"POST\",\"bulkId\":\"user1\",\"path\":\"/Users\"," +
+        "\"data\":{\"userName\":\"user1\"}}]";
+    final String request =
+        "{\"schemas\":[\"urn:scim:schemas:core:1.0\"]," +
+        (failOnErrorsFirst ? "\"failOnErrors\":1," + operations :
+                             operations + ",\"failOnErrors\":1") + "}";
+
+    final Response response =
+        new BulkResource(application, null).postBulk(createRequestContext(),
+            new ByteArrayInputStream(request.getBytes("UTF-8")));
+    assertEquals(response.getStatus(), 200);
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(outputStream);
+    final String content = outputStream.toString("UTF-8");
+    assertTrue(content.contains("\"400\""), content);
+    assertFalse(content.contains("\"user1\""), content);
+    assertEquals(backend.maxConcurrent.get(), 0);
+  }
+
+
+
+  /**
+   * Verify that a bulk request processed as it is read is rejected as soon
+   * as the maxPayloadSize is exceeded, even within a single operation.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testStreamingMaxPayloadSize()
+      throws Exception
+  {
+    final TestBackend backend = new TestBackend();
+    final SCIMApplication application = new SCIMApplication(backend, null);
+    application.setBulkRequestStreaming(true);
+    application.setBulkMaxPayloadSize(1000);
+
+    final StringBuilder userName = new StringBuilder();
+    for (int i = 0; i < 100000; i++)
+    {
+      userName.append('x');
+    }
+    final String request =
+        "{\"schemas\":[\"urn:scim:schemas:core:1.0\"],\"failOnErrors\":1," +
+        "\"Operations\":[" +
+        "{\"method\":\"POST\",\"bulkId\":\"user0\",\"path\":\"/Users\"," +
+        "\"data\":{\"userName\":\"" + userName + "\"}}]}";
+
+    final ByteArrayInputStream inputStream =
+        new ByteArrayInputStream(request.getBytes("UTF-8"));
+    final Response response = new BulkResource(application, null).postBulk(
+        createRequestContext(), inputStream);
+    assertEquals(response.getStatus(), 413);
+
+    // The operation was not read in full.
+    assertTrue(inputStream.available() > 0);
+    assertEquals(backend.maxConcurrent.get(), 0);
+  }
+
+
+
+  /**
+   * Verify that the operations of all bulk requests are processed by a
+   * single executor that remains available until the application is shut
+   * down, and that operations are still processed once it has been shut
+   * down.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testSharedExecutor()
+      throws Exception
+  {
+    final TestBackend backend = new TestBackend();
+    final SCIMApplication application = new SCIMApplication(backend, null);
+    application.setBulkMaxParallelOperations(2);
+
+    final ThreadPoolExecutor executor =
+        (ThreadPoolExecutor) application.getBulkOperationExecutor();
+    assertEquals(executor.getMaximumPoolSize(), 2);
+    for (int i = 0; i < 2; i++)
+    {
+      assertEquals(processUsers(application, backend, 4), 4);
+      assertSame(application.getBulkOperationExecutor(), executor);
+      assertFalse(executor.isShutdown());
+    }
+
+    application.setBulkMaxParallelOperations(3);
+    assertEquals(executor.getCorePoolSize(), 3);
+    assertEquals(executor.getMaximumPoolSize(), 3);
+    application.setBulkMaxParallelOperations(2);
+    assertEquals(executor.getCorePoolSize(), 2);
+    assertEquals(executor.getMaximumPoolSize(), 2);
+
+    application.shutDown();
+    assertTrue(executor.isShutdown());
+    assertEquals(processUsers(application, backend, 4), 4);
+  }
+
+
+
+  /**
+   * Process a bulk request that creates users in parallel.
+   *
+   * @param application  The SCIM application.
+   * @param backend      The backend to process the operations.
+   * @param numUsers     The number of users to create.
+   *
+   * @return  The number of users that were created.
+   *
+   * @throws Exception  If the request could not be processed.
+   */
+  private static int processUsers(final SCIMApplication application,
+                                  final TestBackend backend,
+                                  final int numUsers)
+      throws Exception
+  {
+    final RequestContext requestContext = createRequestContext();
+    final AtomicInteger created = new AtomicInteger();
+    final BulkStreamResponse bulkStreamResponse =
+        new BulkStreamResponse(application, requestContext)
+        {
+          public void writeBulkOperation(final BulkOperation o)
+          {
+            if (o.getStatus().getCode().equals("201"))
+            {
+              created.incrementAndGet();
+            }
+          }
+        };
+
+    final BulkContentRequestHandler handler =
+        new BulkContentRequestHandler(application, requestContext, backend,
+                                      bulkStreamResponse, null);
+    try
+    {
+      for (int i = 0; i < numUsers; i++)
+      {
+        final UserResource user =
+            new UserResource(CoreSchema.USER_DESCRIPTOR);
+        user.setUserName("user" + i);
+        handler.handleOperation(i, BulkOperation.createRequest(
+            BulkOperation.Method.POST, "user" + i, null, "/Users", user));
+      }
+    }
+    finally
+    {
+      handler.awaitOperations();
+      bulkStreamResponse.finalizeResponse();
+    }
+    return created.get();
+  }
+
+
+
+  /**
+   * Create a request context for a JSON request by an authenticated user.
+   *
+   * @return  The request context.
+   *
+   * @throws Exception  If the request context could not be created.
+   */
+  private static RequestContext createRequestContext()
+      throws Exception
+  {
+    return new RequestContext(
+        createProxy(HttpServletRequest.class, "getHeader", null),
+        createProxy(SecurityContext.class, "getUserPrincipal",
+            new Principal()
+            {
+              public String getName()
+              {
+                return "bjensen";
+              }
+            }),
+        createProxy(HttpHeaders.class, "getRequestHeader", null),
+        createProxy(UriInfo.class, "getBaseUri",
+            new URI("http://localhost:8080/")),
+        MediaType.APPLICATION_JSON_TYPE,
+        MediaType.APPLICATION_JSON_TYPE);
+  }
+
+
+
+  /**
+   * Create a group with the first user as a member, as the group would be
+   * read from a bulk request.
+   *
+   * @param handler  The bulk content handler.
+   * @param opIndex  The index of the operation containing the group.
+   *
+   * @return  The group.
+   */
+  private static GroupResource createGroup(
+      final BulkContentRequestHandler handler, final int opIndex)
+  {
+    final GroupResource group =
+        new GroupResource(CoreSchema.GROUP_DESCRIPTOR);
+    group.setDisplayName("group");
+    group.setMembers(Collections.singleton(new Entry<String>(
+        handler.transformValue(opIndex, "bulkId:user0"), "User")));
+    return group;
+  }
+
+
+
+  /**
+   * Create a proxy implementation of an interface which returns the
+   * provided result from one method, and {@code null} from any other method.
+   *
+   * @param type        The interface to be implemented.
+   * @param methodName  The name of the method returning the result.
+   * @param result      The result to be returned.
+   * @param <T>         The interface to be implemented.
+   *
+   * @return  The proxy implementation.
+   */
+  private static <T> T createProxy(final Class<T> type,
+                                   final String methodName,
+                                   final Object result)
+  {
+    return type.cast(Proxy.newProxyInstance(
+        type.getClassLoader(), new Class<?>[] { type },
+        new InvocationHandler()
+        {
+          public Object invoke(final Object proxy, final Method method,
+                               final Object[] args)
+          {
+            return method.getName().equals(methodName) ? result : null;
+          }
+        }));
+  }
+
+
+
+  /**
+   * A backend that creates resources after a delay, recording the greatest
+   * number of operations in progress at once.
+   */
+  private static final class TestBackend extends SCIMBackend
+  {
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private final List<String> groupMembers =
+        Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * {@inheritDoc}
+     */
+    public void finalizeBackend()
+    {
+      // No implementation required.
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public BaseResource getResource(final GetResourceRequest request)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Resources getResources(final GetResourcesRequest request)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public BaseResource postResource(final PostResourceRequest request)
+    {
+      final ResourceDescriptor descriptor = request.getResourceDescriptor();
+      final String name = descriptor.getName().equals("User") ?
+          UserResource.USER_RESOURCE_FACTORY.createResource(
+              descriptor, request.getResourceObject()).getUserName() :
+          "group";
+      return process(new BaseResource(descriptor,
+          request.getResourceObject()), name + "-id");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void deleteResource(final DeleteResourceRequest request)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public BaseResource putResource(final PutResourceRequest request)
+    {
+      return process(new BaseResource(request.getResourceDescriptor(),
+          request.getResourceObject()), request.getResourceID());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public BaseResource patchResource(final PatchResourceRequest request)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Collection<ResourceDescriptor> getResourceDescriptors()
+    {
+      return Arrays.asList(CoreSchema.USER_DESCRIPTOR,
+                           CoreSchema.GROUP_DESCRIPTOR);
+    }
+
+    /**
+     * Process a request to create or replace a resource.
+     *
+     * @param resource    The resource in the request.
+     * @param resourceID  The ID of the resource.
+     *
+     * @return  The resource with its ID and version.
+     */
+    private BaseResource process(final BaseResource resource,
+                                 final String resourceID)
+    {
+      final int current = inProgress.incrementAndGet();
+      maxConcurrent.accumulateAndGet(current,
+          new IntBinaryOperator()
+          {
+            public int applyAsInt(final int left, final int right)
+            {
+              return Math.max(left, right);
+            }
+          });
+      try
+      {
+        Thread.sleep(20);
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      inProgress.decrementAndGet();
+
+      if (resource.getResourceDescriptor().getName().equals("Group"))
+      {
+        final GroupResource group =
+            GroupResource.GROUP_RESOURCE_FACTORY.createResource(
+                resource.getResourceDescriptor(), resource.getScimObject());
+        for (final Entry<String> member : group.getMembers())
+        {
+          groupMembers.add(member.getValue());
+        }
+      }
+
+      resource.setId(resourceID);
+      resource.setMeta(new Meta(null, null, null, "1"));
+      return resource;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.wink;
+
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.marshal.Marshaller;
+import com.unboundid.scim.marshal.json.JsonMarshaller;
+import com.unboundid.scim.sdk.SCIMResponse;
+import org.testng.annotations.Test;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import java.io.OutputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+
+/**
+ * This class provides test coverage for the {@code CachedResponse} class.
+ */
+@Test
+public class CachedResponseTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Verify that the cached content is returned with a strong entity tag
+   * that identifies the content.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testEntityTag()
+      throws Exception
+  {
+    final CachedResponse response =
+        new CachedResponse(createResponse("{\"a\":1}"), new JsonMarshaller(),
+                           MediaType.APPLICATION_JSON_TYPE);
+    assertFalse(response.getEntityTag().isWeak());
+    assertEquals(response.getEntityTag(),
+                 new CachedResponse(createResponse("{\"a\":1}"),
+                                    new JsonMarshaller(),
+                                    MediaType.APPLICATION_JSON_TYPE)
+                     .getEntityTag());
+    assertFalse(response.getEntityTag().equals(
+        new CachedResponse(createResponse("{\"a\":2}"), new JsonMarshaller(),
+                           MediaType.APPLICATION_JSON_TYPE).getEntityTag()));
+
+    final Response r = response.getResponse((Request) null);
+    assertEquals(r.getStatus(), 200);
+    assertEquals(r.getEntityTag(), response.getEntityTag());
+    assertTrue(r.getEntity() instanceof byte[]);
+    assertEquals(new String((byte[]) r.getEntity(), "UTF-8"), "{\"a\":1}");
+  }
+
+
+
+  /**
+   * Verify that If-None-Match header values are compared with the entity tag
+   * of the cached content.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testIfNoneMatch()
+      throws Exception
+  {
+    final CachedResponse response =
+        new CachedResponse(createResponse("{\"a\":1}"), new JsonMarshaller(),
+                           MediaType.APPLICATION_JSON_TYPE);
+    final String tag = "\"" + response.getEntityTag().getValue() + "\"";
+
+    assertTrue(response.matches(tag));
+    assertTrue(response.matches("W/" + tag));
+    assertTrue(response.matches("\"other\", " + tag));
+    assertTrue(response.matches("*"));
+    assertFalse(response.matches("\"other\""));
+    assertFalse(response.matches(response.getEntityTag().getValue()));
+  }
+
+
+
+  /**
+   * Create a SCIM response that writes the provided content.
+   *
+   * @param content  The content to be written.
+   *
+   * @return  The SCIM response.
+   */
+  private static SCIMResponse createResponse(final String content)
+  {
+    return new SCIMResponse()
+    {
+      public void marshal(final Marshaller marshaller,
+                          final OutputStream outputStream)
+          throws Exception
+      {
+        outputStream.write(content.getBytes("UTF-8"));
+      }
+    };
+  }
+}
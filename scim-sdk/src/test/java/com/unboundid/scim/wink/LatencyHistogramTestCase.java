@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.wink;
+
+import com.unboundid.scim.SCIMTestCase;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+
+/**
+ * This class provides test coverage for the {@code LatencyHistogram} class.
+ */
+@Test
+public class LatencyHistogramTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Verify that every latency falls within the bounds of its bucket, and that
+   * the buckets are no wider than the expected precision.
+   */
+  @Test
+  public void testBuckets()
+  {
+    for (long micros = 0; micros < 1000000L; micros += 7)
+    {
+      final int index = LatencyHistogram.bucketIndex(micros);
+      assertTrue(micros <= LatencyHistogram.bucketUpperBound(index));
+      if (index > 0)
+      {
+        assertTrue(micros > LatencyHistogram.bucketUpperBound(index - 1));
+      }
+      assertTrue(LatencyHistogram.bucketUpperBound(index) - micros <=
+                 micros / 16);
+    }
+  }
+
+
+
+  /**
+   * Verify that the largest tracked latency is recorded in the last regular
+   * bucket, and that larger latencies are recorded in a separate overflow
+   * bucket.
+   */
+  @Test
+  public void testOverflowBoundary()
+  {
+    final long max = LatencyHistogram.MAX_TRACKED_MICROS;
+    final int lastIndex = LatencyHistogram.bucketIndex(max);
+    assertEquals(lastIndex, LatencyHistogram.OVERFLOW_BUCKET - 1);
+    assertEquals(LatencyHistogram.bucketUpperBound(lastIndex), max);
+    assertTrue(LatencyHistogram.bucketUpperBound(lastIndex - 1) < max);
+
+    assertEquals(LatencyHistogram.bucketIndex(max + 1),
+                 LatencyHistogram.OVERFLOW_BUCKET);
+    assertEquals(LatencyHistogram.bucketIndex(Long.MAX_VALUE),
+                 LatencyHistogram.OVERFLOW_BUCKET);
+    assertEquals(
+        LatencyHistogram.bucketUpperBound(LatencyHistogram.OVERFLOW_BUCKET),
+        Long.MAX_VALUE);
+
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(max));
+    assertFalse(histogram.isOverflowAtPercentile(100.0));
+    assertEquals(histogram.getValueAtPercentile(100.0), max);
+
+    histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(max + 1));
+    assertFalse(histogram.isOverflowAtPercentile(50.0));
+    assertEquals(histogram.getValueAtPercentile(50.0), max);
+    assertTrue(histogram.isOverflowAtPercentile(100.0));
+    assertEquals(histogram.getValueAtPercentile(100.0), max + 1);
+  }
+
+
+
+  /**
+   * Verify that percentiles, the mean and the maximum are reported.
+   */
+  @Test
+  public void testPercentiles()
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(histogram.getValueAtPercentile(99.0), 0);
+
+    for (int i = 1; i <= 1000; i++)
+    {
+      histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+
+    assertEquals(histogram.getCount(), 1000);
+    assertEquals(histogram.getMeanMicros(), 500500);
+    assertEquals(histogram.getMaxMicros(), 1000000);
+    assertEquals(histogram.getValueAtPercentile(100.0), 1000000);
+    assertWithin(histogram.getValueAtPercentile(50.0), 500000);
+    assertWithin(histogram.getValueAtPercentile(99.0), 990000);
+    assertWithin(histogram.getValueAtPercentile(99.9), 999000);
+    assertTrue(histogram.getRatePerSecond() > 0.0);
+  }
+
+
+
+  /**
+   * Verify that latencies are recorded for each operation.
+   */
+  @Test
+  public void testResourceStats()
+  {
+    final ResourceStats stats = new ResourceStats("Users");
+    stats.recordLatency(ResourceStats.Operation.GET,
+                        ResourceStats.LATENCY_BACKEND, 1000L);
+    stats.recordLatency(ResourceStats.Operation.GET,
+                        ResourceStats.LATENCY_BACKEND, 3000L);
+    stats.recordLatency(ResourceStats.Operation.GET,
+                        ResourceStats.LATENCY_TOTAL, 5000L);
+
+    assertEquals(stats.getLatencies().size(), 2);
+    assertEquals(stats.getLatency("get-backend-time").getCount(), 2);
+    assertEquals(stats.getLatency("get-time").getMaxMicros(), 5);
+    assertNull(stats.getLatency("query-time"));
+  }
+
+
+
+  /**
+   * Asserts that a reported latency is within the precision of the
+   * histogram.
+   *
+   * @param actual    The reported latency.
+   * @param expected  The expected latency.
+   */
+  private static void assertWithin(final long actual, final long expected)
+  {
+    assertTrue(actual >= expected && actual <= expected + expected / 16,
+               actual + " is not within the precision of " + expected);
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.wink;
+
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.wink.ResourceStats.Operation;
+import com.unboundid.scim.wink.ResourceStats.Outcome;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+
+
+/**
+ * This class provides test coverage for the {@code ResourceStats} class.
+ */
+@Test
+public class ResourceStatsTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Verify that indexed and named statistics are reported under the same
+   * names as before they were indexed.
+   */
+  @Test
+  public void testStats()
+  {
+    final ResourceStats stats = new ResourceStats("Users");
+    stats.incrementStat(Operation.GET, Outcome.SUCCESSFUL);
+    stats.incrementStat(ResourceStats.GET_OK);
+    stats.incrementStat(Operation.GET, 304);
+    stats.incrementStat(Operation.QUERY, Outcome.RESPONSE_XML);
+    stats.incrementStat(Operation.DELETE, 418);
+
+    assertEquals(stats.getStat(ResourceStats.GET_OK), 2);
+    assertEquals(stats.getStat(ResourceStats.GET_NOT_MODIFIED), 1);
+    assertEquals(stats.getStat(ResourceStats.QUERY_RESPONSE_XML), 1);
+    assertEquals(stats.getStat("delete-418"), 1);
+    assertEquals(stats.getStat(ResourceStats.PUT_OK), 0);
+
+    final Map<String, Long> expected = new HashMap<String, Long>();
+    expected.put("get-successful", 2L);
+    expected.put("get-304", 1L);
+    expected.put("query-response-xml", 1L);
+    expected.put("delete-418", 1L);
+    assertEquals(stats.getStats(), expected);
+  }
+
+
+
+  /**
+   * Verify that a snapshot of statistics maintained elsewhere is reported
+   * unchanged.
+   */
+  @Test
+  public void testSnapshot()
+  {
+    final Map<String, Long> values = new HashMap<String, Long>();
+    values.put("hits", 5L);
+    values.put("size", 0L);
+    values.put(ResourceStats.POST_OK, 3L);
+
+    final ResourceStats stats = new ResourceStats("cache", values);
+    assertEquals(stats.getName(), "cache");
+    assertEquals(stats.getStat("hits"), 5);
+    assertEquals(stats.getStat(ResourceStats.POST_OK), 3);
+    assertEquals(stats.getStats().get("size"), Long.valueOf(0));
+    assertFalse(stats.getStats().containsKey(ResourceStats.GET_OK));
+  }
+}
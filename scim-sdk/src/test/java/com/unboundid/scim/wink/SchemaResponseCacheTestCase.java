@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2025 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+
+package com.unboundid.scim.wink;
+
+import com.unboundid.scim.SCIMTestCase;
+import com.unboundid.scim.marshal.Marshaller;
+import com.unboundid.scim.marshal.json.JsonMarshaller;
+import com.unboundid.scim.sdk.ResourceSchemaBackend;
+import com.unboundid.scim.sdk.SCIMResponse;
+import org.testng.annotations.Test;
+
+import jakarta.ws.rs.core.MediaType;
+import java.io.OutputStream;
+import java.net.URI;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+
+
+/**
+ * This class provides test coverage for the {@code SchemaResponseCache}
+ * class.
+ */
+@Test
+public class SchemaResponseCacheTestCase
+    extends SCIMTestCase
+{
+  /**
+   * Verify that responses are cached separately for each request and that
+   * they are invalidated.
+   *
+   * @throws Exception  If the test fails.
+   */
+  @Test
+  public void testCache()
+      throws Exception
+  {
+    final SchemaResponseCache cache =
+        new SchemaResponseCache(new ResourceSchemaBackend(null));
+    final URI baseUri = new URI("http://localhost:8080/");
+    final MediaType json = MediaType.APPLICATION_JSON_TYPE;
+
+    final String key = cache.getKey(baseUri, null, "name eq \"User\"", json);
+    assertEquals(cache.getKey(baseUri, null, "name eq \"User\"", json), key);
+    assertFalse(key.equals(cache.getKey(baseUri, null, null, json)));
+    assertFalse(key.equals(cache.getKey(
+        new URI("http://example.com/"), null, "name eq \"User\"", json)));
+    assertFalse(key.equals(cache.getKey(
+        baseUri, null, "name eq \"User\"", MediaType.APPLICATION_XML_TYPE)));
+    assertEquals(cache.getKey(baseUri, "User", null, json),
+                 cache.getKey(baseUri, "user", null, json));
+
+    final CachedResponse response =
+        new CachedResponse(new SCIMResponse()
+        {
+          public void marshal(final Marshaller marshaller,
+                              final OutputStream outputStream)
+              throws Exception
+          {
+            outputStream.write('1');
+          }
+        }, new JsonMarshaller(), json);
+    assertNull(cache.get(key));
+    cache.put(key, response);
+    assertSame(cache.get(key), response);
+
+    cache.invalidate();
+    assertEquals(cache.size(), 0);
+    final String newKey =
+        cache.getKey(baseUri, null, "name eq \"User\"", json);
+    assertFalse(newKey.equals(key));
+
+    for (int i = 0; i <= SchemaResponseCache.MAX_RESPONSES; i++)
+    {
+      cache.put(cache.getKey(baseUri, "id" + i, null, json), response);
+    }
+    assertEquals(cache.size(), 1);
+  }
+}